@@ -0,0 +1,169 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+
+/**
+ * Generates the synthetic databases the benchmarks run on. A database has a 
+ * single table {@code bench} with the columns
+ * <ul>
+ *   <li>{@code id}: the row number,</li>
+ *   <li>{@code uniform}: a value drawn uniformly from [0, 100),</li>
+ *   <li>{@code skewed}: 1 in one row out of a hundred and 0 otherwise,</li>
+ *   <li>{@code payload}: a short string.</li>
+ * </ul>
+ * The types of {@code uniform} and {@code skewed} are configurable. The data 
+ * depends only on the number of rows, the type and the seed, so that runs are
+ * comparable.
+ */
+final class BenchmarkData {
+
+    static final String TABLE_NAME = "bench";
+    static final long SEED = 13L;
+    static final int DISTINCT_VALUES = 100;
+    
+    private BenchmarkData() {}
+    
+    static Database createDatabase(int rows, String typeName) {
+        TableCellType type = parseType(typeName);
+        Database database = new Database("bench_db");
+        Table table = database.createTable(
+                TABLE_NAME,
+                new TableColumnDescriptor("id", TableCellType.TYPE_INT),
+                new TableColumnDescriptor("uniform", type),
+                new TableColumnDescriptor("skewed", type),
+                new TableColumnDescriptor("payload", 
+                                          TableCellType.TYPE_STRING));
+        Random random = new Random(SEED);
+        
+        for (int i = 0; i < rows; ++i) {
+            int skewed = random.nextInt(DISTINCT_VALUES) == 0 ? 1 : 0;
+            table.putTableRow(i, 
+                              value(type, random.nextInt(DISTINCT_VALUES)),
+                              value(type, skewed),
+                              "row" + (i % 1000));
+        }
+        
+        return database;
+    }
+    
+    /**
+     * Writes the rows {@link #createDatabase(int, String)} would generate to 
+     * the CSV file {@code path} without keeping them in memory, so that the 
+     * file may be larger than the heap.
+     */
+    static void writeCsv(Path path, int rows, String typeName) 
+    throws IOException {
+        TableCellType type = parseType(typeName);
+        Random random = new Random(SEED);
+        
+        try (BufferedWriter writer = 
+                Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; ++i) {
+                int skewed = random.nextInt(DISTINCT_VALUES) == 0 ? 1 : 0;
+                writer.write(Integer.toString(i));
+                writer.write(',');
+                writer.write(String.valueOf(
+                        value(type, random.nextInt(DISTINCT_VALUES))));
+                writer.write(',');
+                writer.write(String.valueOf(value(type, skewed)));
+                writer.write(",row");
+                writer.write(Integer.toString(i % 1000));
+                writer.write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Returns a command layer whose current database is {@code database}.
+     */
+    static CommandLayer openCommandLayer(Database database) {
+        CommandLayer commandLayer = new CommandLayer();
+        commandLayer.openDatabase(database);
+        return commandLayer;
+    }
+    
+    /**
+     * Returns the text of a literal of type {@code typeName} equal to 
+     * {@code value}.
+     */
+    static String literal(String typeName, int value) {
+        switch (parseType(typeName)) {
+            case TYPE_INT:
+                return Integer.toString(value);
+                
+            case TYPE_LONG:
+                return value + "L";
+                
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+                return value + ".0";
+                
+            case TYPE_STRING:
+                return "'" + paddedString(value) + "'";
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static TableCellType parseType(String typeName) {
+        switch (typeName) {
+            case "int":
+                return TableCellType.TYPE_INT;
+                
+            case "long":
+                return TableCellType.TYPE_LONG;
+                
+            case "float":
+                return TableCellType.TYPE_FLOAT;
+                
+            case "double":
+                return TableCellType.TYPE_DOUBLE;
+                
+            case "string":
+                return TableCellType.TYPE_STRING;
+                
+            default:
+                throw new IllegalArgumentException(
+                        typeName + ": unsupported benchmark column type.");
+        }
+    }
+    
+    private static Object value(TableCellType type, int value) {
+        switch (type) {
+            case TYPE_INT:
+                return value;
+                
+            case TYPE_LONG:
+                return (long) value;
+                
+            case TYPE_FLOAT:
+                return (float) value;
+                
+            case TYPE_DOUBLE:
+                return (double) value;
+                
+            case TYPE_STRING:
+                return paddedString(value);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Pads {@code value} so that strings compare in the order of the numbers.
+     */
+    private static String paddedString(int value) {
+        return String.format("%03d", value);
+    }
+}
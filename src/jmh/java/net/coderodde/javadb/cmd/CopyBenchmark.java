@@ -0,0 +1,65 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code COPY ... FROM} of a generated CSV file into an empty table.
+ * With about 25 bytes per row, {@code -p rows=100000000} gives a file of a 
+ * few gigabytes; the heap must then be large enough for the loaded table, 
+ * for example {@code -jvmArgs -Xmx32g}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CopyBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+    
+    @Param({"int", "string"})
+    public String type;
+    
+    private File file;
+    private CommandLayer commandLayer;
+    
+    @Setup
+    public void createFile() throws Exception {
+        file = File.createTempFile("javadb-bench", ".csv");
+        BenchmarkData.writeCsv(file.toPath(), rows, type);
+    }
+    
+    @Setup(Level.Iteration)
+    public void createTable() {
+        commandLayer = BenchmarkData.openCommandLayer(
+                BenchmarkData.createDatabase(0, type));
+    }
+    
+    @TearDown
+    public void deleteFile() {
+        file.delete();
+    }
+    
+    @Benchmark
+    public long importCsv() {
+        return commandLayer.copy(
+                "copy " + BenchmarkData.TABLE_NAME + 
+                " from '" + file.getPath().replace("'", "''") + "'");
+    }
+}
@@ -0,0 +1,64 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.concurrent.TimeUnit;
+import net.coderodde.javadb.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of turning a query into something executable: parsing 
+ * alone, planning a parsed statement, and a plan cache lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark {
+
+    @Param({
+        "select * from bench",
+        "select id, payload from bench where uniform < 10 and skewed = 1",
+        "select id from bench where (uniform >= 10 and uniform <= 20) " +
+            "or (skewed != 0 and payload = 'row7') order by id desc limit 10"
+    })
+    public String query;
+    
+    private Catalog catalog;
+    private SelectStatement selectStatement;
+    private CommandLayer commandLayer;
+    
+    @Setup
+    public void setup() {
+        Database database = BenchmarkData.createDatabase(1, "int");
+        catalog = new Catalog(database);
+        selectStatement = (SelectStatement) new Parser(query).parseStatement();
+        commandLayer = BenchmarkData.openCommandLayer(database);
+        commandLayer.prepare(query);
+    }
+    
+    @Benchmark
+    public Object parse() {
+        return new Parser(query).parseStatement();
+    }
+    
+    @Benchmark
+    public Object plan() {
+        return new QueryPlan(catalog, selectStatement);
+    }
+    
+    @Benchmark
+    public Object prepareCached() {
+        return commandLayer.prepare(query);
+    }
+}
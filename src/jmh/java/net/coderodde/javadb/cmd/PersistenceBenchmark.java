@@ -0,0 +1,64 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import net.coderodde.javadb.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving a database with {@link Database#save(File)} and loading it 
+ * with {@link Database#read(File)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PersistenceBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+    
+    @Param({"int", "string"})
+    public String type;
+    
+    private Database database;
+    private File saveFile;
+    private File readFile;
+    
+    @Setup
+    public void setup() throws Exception {
+        database = BenchmarkData.createDatabase(rows, type);
+        saveFile = File.createTempFile("javadb-bench-save", ".db");
+        readFile = File.createTempFile("javadb-bench-read", ".db");
+        database.save(readFile);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        saveFile.delete();
+        readFile.delete();
+    }
+    
+    @Benchmark
+    public void save() {
+        database.save(saveFile);
+    }
+    
+    @Benchmark
+    public Database read() {
+        return Database.read(readFile);
+    }
+}
@@ -0,0 +1,120 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures full table scans: without a WHERE clause, and with a predicate of 
+ * each {@link TestOperation} matching about 1% (selective) or about 99% 
+ * (non-selective) of the rows, with either execution engine. EQ and NEQ 
+ * test the {@code skewed} column, the other operations test the 
+ * {@code uniform} column. See {@link BenchmarkData}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ScanBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+    
+    @Param({"int", "long", "double", "string"})
+    public String type;
+    
+    @Param({"EQ", "NEQ", "LT", "LEQ", "GT", "GEQ"})
+    public String operation;
+    
+    @Param({"true", "false"})
+    public boolean selective;
+    
+    @Param({"ROW", "VECTORIZED"})
+    public ExecutionEngine engine;
+    
+    private CommandLayer commandLayer;
+    private String scanQuery;
+    private String filterQuery;
+    private String groupQuery;
+    
+    @Setup
+    public void setup() {
+        commandLayer = BenchmarkData.openCommandLayer(
+                BenchmarkData.createDatabase(rows, type));
+        scanQuery = "select * from " + BenchmarkData.TABLE_NAME;
+        filterQuery = scanQuery + " where " + getCondition();
+        groupQuery = "select uniform, count(*), max(skewed) from " + 
+                     BenchmarkData.TABLE_NAME + " group by uniform";
+    }
+    
+    @Benchmark
+    public void fullScan(Blackhole blackhole) {
+        drain(scanQuery, blackhole);
+    }
+    
+    @Benchmark
+    public void filteredScan(Blackhole blackhole) {
+        drain(filterQuery, blackhole);
+    }
+    
+    @Benchmark
+    public Object filteredSelect() {
+        return commandLayer.select(filterQuery, engine);
+    }
+    
+    @Benchmark
+    public void groupBy(Blackhole blackhole) {
+        drain(groupQuery, blackhole);
+    }
+    
+    private void drain(String query, Blackhole blackhole) {
+        try (QueryCursor queryCursor = commandLayer.query(query, engine)) {
+            while (queryCursor.hasNext()) {
+                blackhole.consume(queryCursor.next());
+            }
+        }
+    }
+    
+    private String getCondition() {
+        int last = BenchmarkData.DISTINCT_VALUES - 1;
+        
+        switch (TestOperation.valueOf(operation)) {
+            case EQ:
+                return "skewed = " + literal(selective ? 1 : 0);
+                
+            case NEQ:
+                return "skewed != " + literal(selective ? 0 : 1);
+                
+            case LT:
+                return "uniform < " + literal(selective ? 1 : last);
+                
+            case LEQ:
+                return "uniform <= " + literal(selective ? 0 : last - 1);
+                
+            case GT:
+                return "uniform > " + literal(selective ? last - 1 : 0);
+                
+            case GEQ:
+                return "uniform >= " + literal(selective ? last : 1);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private String literal(int value) {
+        return BenchmarkData.literal(type, value);
+    }
+}
@@ -0,0 +1,39 @@
+package net.coderodde.javadb.cmd;
+
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Computes one aggregate for every group of a hash aggregation. The running 
+ * values are kept in primitive arrays indexed by the group id, so adding a 
+ * row neither boxes nor allocates.
+ */
+abstract class Accumulator {
+
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    private int capacity;
+    
+    /**
+     * Makes room for the groups with ids below {@code groupCount}.
+     */
+    final void ensureCapacity(int groupCount) {
+        if (groupCount > capacity) {
+            capacity = Math.max(groupCount, 
+                                Math.max(MINIMUM_CAPACITY, 2 * capacity));
+            resize(capacity);
+        }
+    }
+    
+    /**
+     * Grows the arrays of this accumulator to {@code capacity} groups.
+     */
+    abstract void resize(int capacity);
+    
+    abstract void add(int groupId, TableRow tableRow);
+    
+    /**
+     * Returns the aggregate of the group {@code groupId} boxed as a cell 
+     * value, or {@code null} if the group had no non-null values.
+     */
+    abstract Object getValue(int groupId);
+}
@@ -0,0 +1,527 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Creates the accumulators of aggregate functions. Each function has an
+ * implementation per column type, so that the values are read with the 
+ * primitive getters of {@code TableCell}. Nulls are skipped: only 
+ * {@code COUNT(*)} counts them, and the other aggregates of a group with no 
+ * non-null values are {@code null}.
+ */
+final class Accumulators {
+
+    private Accumulators() {}
+    
+    /**
+     * Returns the result type of {@code function} over a column of type 
+     * {@code tableCellType}, or throws an {@code IllegalArgumentException} if
+     * the function is not defined for the type.
+     */
+    static TableCellType getResultType(AggregateFunction function,
+                                       TableCellType tableCellType) {
+        switch (function) {
+            case COUNT:
+                return TableCellType.TYPE_LONG;
+                
+            case SUM:
+                checkNumeric(function, tableCellType);
+                return tableCellType == TableCellType.TYPE_INT 
+                    || tableCellType == TableCellType.TYPE_LONG ?
+                       TableCellType.TYPE_LONG :
+                       TableCellType.TYPE_DOUBLE;
+                
+            case AVG:
+                checkNumeric(function, tableCellType);
+                return TableCellType.TYPE_DOUBLE;
+                
+            case MIN:
+            case MAX:
+                if (tableCellType == TableCellType.TYPE_BINARY) {
+                    throw new IllegalArgumentException(
+                            function + " is not defined for binary columns.");
+                }
+                
+                return tableCellType;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Returns an accumulator of {@code function} over the column 
+     * {@code columnIndex} of type {@code tableCellType}. For 
+     * {@code COUNT(*)}, {@code columnIndex} is -1 and {@code tableCellType} 
+     * is ignored.
+     */
+    static Accumulator create(AggregateFunction function,
+                              int columnIndex,
+                              TableCellType tableCellType) {
+        if (columnIndex < 0) {
+            return new CountAll();
+        }
+        
+        getResultType(function, tableCellType);
+        
+        switch (function) {
+            case COUNT:
+                return new Count(columnIndex);
+                
+            case SUM:
+                switch (tableCellType) {
+                    case TYPE_INT:
+                    case TYPE_LONG:
+                        return new LongSum(columnIndex, tableCellType);
+                        
+                    default:
+                        return new DoubleSum(columnIndex, tableCellType);
+                }
+                
+            case AVG:
+                return new Avg(columnIndex, tableCellType);
+                
+            case MIN:
+            case MAX:
+                return createMinMax(columnIndex, 
+                                    tableCellType, 
+                                    function == AggregateFunction.MAX);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static Accumulator createMinMax(int columnIndex,
+                                            TableCellType tableCellType,
+                                            boolean max) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return new IntMinMax(columnIndex, max);
+                
+            case TYPE_LONG:
+                return new LongMinMax(columnIndex, max);
+                
+            case TYPE_FLOAT:
+                return new FloatMinMax(columnIndex, max);
+                
+            case TYPE_DOUBLE:
+                return new DoubleMinMax(columnIndex, max);
+                
+            case TYPE_BOOLEAN:
+            case TYPE_STRING:
+                return new ObjectMinMax(columnIndex, max);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static void checkNumeric(AggregateFunction function,
+                                     TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+            case TYPE_LONG:
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+                return;
+                
+            default:
+                throw new IllegalArgumentException(
+                        function + " expects a numeric column, not " + 
+                        tableCellType.getTypeName() + ".");
+        }
+    }
+    
+    private static double getDoubleValue(TableCell tableCell, 
+                                         TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return tableCell.getIntValue();
+                
+            case TYPE_LONG:
+                return tableCell.getLongValue();
+                
+            case TYPE_FLOAT:
+                return tableCell.getFloatValue();
+                
+            case TYPE_DOUBLE:
+                return tableCell.getDoubleValue();
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static final class CountAll extends Accumulator {
+        
+        private long[] counts = new long[0];
+        
+        @Override
+        void resize(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            ++counts[groupId];
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return counts[groupId];
+        }
+    }
+    
+    private static final class Count extends Accumulator {
+        
+        private final int columnIndex;
+        private long[] counts = new long[0];
+        
+        Count(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            if (tableRow.get(columnIndex).getValue() != null) {
+                ++counts[groupId];
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return counts[groupId];
+        }
+    }
+    
+    private static final class LongSum extends Accumulator {
+        
+        private final int columnIndex;
+        private final boolean intColumn;
+        private long[] sums = new long[0];
+        private boolean[] seen = new boolean[0];
+        
+        LongSum(int columnIndex, TableCellType tableCellType) {
+            this.columnIndex = columnIndex;
+            this.intColumn = tableCellType == TableCellType.TYPE_INT;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                sums[groupId] += intColumn ? 
+                                 tableCell.getIntValue() : 
+                                 tableCell.getLongValue();
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) sums[groupId] : null;
+        }
+    }
+    
+    private static final class DoubleSum extends Accumulator {
+        
+        private final int columnIndex;
+        private final TableCellType tableCellType;
+        private double[] sums = new double[0];
+        private boolean[] seen = new boolean[0];
+        
+        DoubleSum(int columnIndex, TableCellType tableCellType) {
+            this.columnIndex = columnIndex;
+            this.tableCellType = tableCellType;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                sums[groupId] += getDoubleValue(tableCell, tableCellType);
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) sums[groupId] : null;
+        }
+    }
+    
+    private static final class Avg extends Accumulator {
+        
+        private final int columnIndex;
+        private final TableCellType tableCellType;
+        private double[] sums = new double[0];
+        private long[] counts = new long[0];
+        
+        Avg(int columnIndex, TableCellType tableCellType) {
+            this.columnIndex = columnIndex;
+            this.tableCellType = tableCellType;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                sums[groupId] += getDoubleValue(tableCell, tableCellType);
+                ++counts[groupId];
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return counts[groupId] == 0 ? 
+                   null : 
+                   (Object) (sums[groupId] / counts[groupId]);
+        }
+    }
+    
+    private static final class IntMinMax extends Accumulator {
+        
+        private final int columnIndex;
+        private final boolean max;
+        private int[] values = new int[0];
+        private boolean[] seen = new boolean[0];
+        
+        IntMinMax(int columnIndex, boolean max) {
+            this.columnIndex = columnIndex;
+            this.max = max;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() == null) {
+                return;
+            }
+            
+            int value = tableCell.getIntValue();
+            
+            if (!seen[groupId] 
+                    || (max ? value > values[groupId] 
+                            : value < values[groupId])) {
+                values[groupId] = value;
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) values[groupId] : null;
+        }
+    }
+    
+    private static final class LongMinMax extends Accumulator {
+        
+        private final int columnIndex;
+        private final boolean max;
+        private long[] values = new long[0];
+        private boolean[] seen = new boolean[0];
+        
+        LongMinMax(int columnIndex, boolean max) {
+            this.columnIndex = columnIndex;
+            this.max = max;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() == null) {
+                return;
+            }
+            
+            long value = tableCell.getLongValue();
+            
+            if (!seen[groupId] 
+                    || (max ? value > values[groupId] 
+                            : value < values[groupId])) {
+                values[groupId] = value;
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) values[groupId] : null;
+        }
+    }
+    
+    /**
+     * Orders the values as {@code Float.compare} does, like ORDER BY.
+     */
+    private static final class FloatMinMax extends Accumulator {
+        
+        private final int columnIndex;
+        private final int sign;
+        private float[] values = new float[0];
+        private boolean[] seen = new boolean[0];
+        
+        FloatMinMax(int columnIndex, boolean max) {
+            this.columnIndex = columnIndex;
+            this.sign = max ? 1 : -1;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() == null) {
+                return;
+            }
+            
+            float value = tableCell.getFloatValue();
+            
+            if (!seen[groupId] 
+                    || sign * Float.compare(value, values[groupId]) > 0) {
+                values[groupId] = value;
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) values[groupId] : null;
+        }
+    }
+    
+    /**
+     * Orders the values as {@code Double.compare} does, like ORDER BY.
+     */
+    private static final class DoubleMinMax extends Accumulator {
+        
+        private final int columnIndex;
+        private final int sign;
+        private double[] values = new double[0];
+        private boolean[] seen = new boolean[0];
+        
+        DoubleMinMax(int columnIndex, boolean max) {
+            this.columnIndex = columnIndex;
+            this.sign = max ? 1 : -1;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        
+        @Override
+        void add(int groupId, TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() == null) {
+                return;
+            }
+            
+            double value = tableCell.getDoubleValue();
+            
+            if (!seen[groupId] 
+                    || sign * Double.compare(value, values[groupId]) > 0) {
+                values[groupId] = value;
+                seen[groupId] = true;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return seen[groupId] ? (Object) values[groupId] : null;
+        }
+    }
+    
+    /**
+     * The minimum or maximum of a boolean or string column. The values are 
+     * already boxed in the cells, so keeping references allocates nothing.
+     */
+    private static final class ObjectMinMax extends Accumulator {
+        
+        private final int columnIndex;
+        private final int sign;
+        private Comparable<Object>[] values = newArray(0);
+        
+        ObjectMinMax(int columnIndex, boolean max) {
+            this.columnIndex = columnIndex;
+            this.sign = max ? 1 : -1;
+        }
+        
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        void add(int groupId, TableRow tableRow) {
+            Comparable<Object> value = 
+                    (Comparable<Object>) tableRow.get(columnIndex).getValue();
+            
+            if (value != null 
+                    && (values[groupId] == null 
+                        || sign * value.compareTo(values[groupId]) > 0)) {
+                values[groupId] = value;
+            }
+        }
+        
+        @Override
+        Object getValue(int groupId) {
+            return values[groupId];
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Comparable<Object>[] newArray(int length) {
+            return (Comparable<Object>[]) new Comparable[length];
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package net.coderodde.javadb.cmd;
+
+enum AggregateFunction {
+
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
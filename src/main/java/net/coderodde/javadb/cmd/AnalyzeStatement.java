@@ -0,0 +1,13 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+
+final class AnalyzeStatement implements Statement {
+
+    final String tableName;
+    
+    AnalyzeStatement(String tableName) {
+        this.tableName = Objects.requireNonNull(tableName, 
+                                                "The table name is null.");
+    }
+}
@@ -14,14 +14,23 @@ public final class App {
         
         while (true) {
             System.out.print("> ");
-            String command = scanner.nextLine().trim().toLowerCase();
+            // Do not lowercase the command: string literals are case-sensitive.
+            String command = scanner.nextLine().trim();
             
-            if (command.equals("quit")) {
+            if (command.equalsIgnoreCase("quit")) {
                 break;
             }
             
-            if (command.startsWith("select")) {
+            if (command.toLowerCase().startsWith("select")) {
                 System.out.println(layer.select(command));
+            } else if (command.toLowerCase().startsWith("create")) {
+                layer.createIndex(command);
+            } else if (command.toLowerCase().startsWith("insert")) {
+                System.out.println(layer.insert(command) + " row(s) inserted.");
+            } else if (command.toLowerCase().startsWith("copy")) {
+                System.out.println(layer.copy(command) + " row(s) copied.");
+            } else if (command.toLowerCase().startsWith("analyze")) {
+                System.out.println(layer.analyze(command));
             }
 //            commandLineBuffer.add(command + " ");
             
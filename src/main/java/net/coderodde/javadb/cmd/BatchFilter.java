@@ -0,0 +1,45 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.List;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Filters the rows of a {@link RowStore} a range of positions at a time. A 
+ * filter may keep state between calls and is used by a single thread.
+ */
+interface BatchFilter {
+
+    /**
+     * Appends the rows at positions {@code fromIndex} (inclusive) through 
+     * {@code toIndex} (exclusive) of {@code rowStore} that pass this filter 
+     * to {@code matches}, in order. The range spans at most 
+     * {@link VectorBatch#SIZE} rows.
+     */
+    void filter(RowStore rowStore, 
+                int fromIndex, 
+                int toIndex, 
+                List<TableRow> matches);
+    
+    /**
+     * Returns a filter that tests the rows, described by {@code schema}, 
+     * with {@code rowPredicate} one by one. The predicate is bound to a 
+     * {@link RowCursor} of the filter, so that it compares the dictionary 
+     * codes of the rows where the row store has them.
+     */
+    static BatchFilter of(RowPredicate rowPredicate, TableSchema schema) {
+        RowCursor cursor = new RowCursor(schema);
+        RowPredicate boundPredicate = rowPredicate.bind(cursor);
+        return (rowStore, fromIndex, toIndex, matches) -> {
+            cursor.load(rowStore, fromIndex, toIndex);
+            
+            for (int i = fromIndex; i < toIndex; ++i) {
+                cursor.index = i - fromIndex;
+                TableRow tableRow = rowStore.get(i);
+                
+                if (boundPredicate.test(tableRow)) {
+                    matches.add(tableRow);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Lazily yields the rows of a {@link RowStore} that pass a 
+ * {@link BatchFilter}, filtering {@link VectorBatch#SIZE} rows at a time.
+ * The cancellation is checked before each batch.
+ */
+final class BatchFilterIterator implements Iterator<TableRow> {
+
+    private final RowStore rowStore;
+    private final BatchFilter batchFilter;
+    private final Cancellation cancellation;
+    private final int rowCount;
+    private final List<TableRow> matches = new ArrayList<>();
+    private int scanned;
+    private int matchIndex;
+    
+    BatchFilterIterator(RowStore rowStore, 
+                        BatchFilter batchFilter,
+                        Cancellation cancellation) {
+        this.rowStore = rowStore;
+        this.batchFilter = batchFilter;
+        this.cancellation = cancellation;
+        this.rowCount = rowStore.size();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (matchIndex == matches.size()) {
+            if (scanned == rowCount) {
+                return false;
+            }
+            
+            cancellation.check();
+            int toIndex = Math.min(rowCount, scanned + VectorBatch.SIZE);
+            matches.clear();
+            matchIndex = 0;
+            batchFilter.filter(rowStore, scanned, toIndex, matches);
+            scanned = toIndex;
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public TableRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows.");
+        }
+        
+        return matches.get(matchIndex++);
+    }
+}
@@ -0,0 +1,77 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Lets another thread stop a running query. The scans check the flag as they
+ * advance and throw a {@link CancellationException} once it is set, which
+ * also ends the joins, aggregations and sorts pulling rows from them.
+ */
+final class Cancellation {
+
+    /**
+     * Never cancelled; the scans do not check it at all.
+     */
+    static final Cancellation NONE = new Cancellation();
+    
+    private volatile boolean cancelled;
+    
+    void cancel() {
+        if (this == NONE) {
+            throw new IllegalStateException("This should not be thrown.");
+        }
+        
+        cancelled = true;
+    }
+    
+    boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Throws a {@link CancellationException} if the query has been
+     * cancelled.
+     */
+    void check() {
+        if (cancelled) {
+            throw new CancellationException("The query was cancelled.");
+        }
+    }
+    
+    /**
+     * Returns an iterator checking this cancellation before each row of
+     * {@code source}.
+     */
+    Iterator<TableRow> check(Iterator<TableRow> source) {
+        return this == NONE ? source : new CheckingIterator(source, this);
+    }
+    
+    private static final class CheckingIterator implements Iterator<TableRow> {
+        
+        private final Iterator<TableRow> source;
+        private final Cancellation cancellation;
+        
+        CheckingIterator(Iterator<TableRow> source, Cancellation cancellation) {
+            this.source = source;
+            this.cancellation = cancellation;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            cancellation.check();
+            return source.hasNext();
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            return source.next();
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+
+/**
+ * The state the command layer keeps about the current database besides the
+ * database itself: the indices, the row stores and the statistics of its 
+ * tables. 
+ * <p>
+ * The methods that change the database are synchronized on the catalog, so
+ * there is one writer at a time. A writer publishes a new {@link Snapshot} 
+ * when it is done; the queries read the snapshot that is current when they 
+ * start and take no locks, so any number of them run concurrently with each
+ * other and with the writer.
+ * <p>
+ * Once the database has a file, the inserted rows are appended to its 
+ * {@link WriteAheadLog}, and saving the database is a checkpoint that 
+ * empties the log. A checkpoint is also taken whenever the log grows beyond
+ * the checkpoint threshold.
+ * <p>
+ * The tables of a database in the {@link StorageFormat#PAGED} format are 
+ * read from the file when their row stores are built, that is, when a 
+ * command first uses them. With off-heap storage on, their rows are kept in
+ * {@link OffHeapRowStore}s instead of in the tables.
+ * <p>
+ * Tables archived in {@link ColumnarFile}s may be attached next to the 
+ * tables of the database. They are read-only and only queried in place.
+ */
+final class Catalog {
+
+    final Database database;
+    final IndexManager indexManager = new IndexManager();
+    
+    /**
+     * The file the database was read from or last saved to, or 
+     * {@code null}. Guarded by the catalog.
+     */
+    private File databaseFile;
+    
+    /**
+     * The log of {@link #databaseFile}, or {@code null} if the database has
+     * no file. Guarded by the catalog.
+     */
+    private WriteAheadLog writeAheadLog;
+    private StorageFormat storageFormat = StorageFormat.JAVADB;
+    
+    /**
+     * The paged file the tables not loaded yet are read from, or 
+     * {@code null}. Guarded by the catalog.
+     */
+    private PagedFile pagedFile;
+    private SyncPolicy syncPolicy = SyncPolicy.EVERY_COMMIT;
+    private boolean offHeapStorage;
+    private boolean dictionaryEncoding;
+    private long checkpointThreshold = 
+            WriteAheadLog.DEFAULT_CHECKPOINT_THRESHOLD;
+    
+    /**
+     * The row stores the writers append to, built on first use.
+     */
+    private final Map<String, RowStore> rowStoreMap = new HashMap<>();
+    private final Map<String, TableStatistics> statisticsMap = 
+            new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    
+    /**
+     * The attached archives by table name.
+     */
+    private final Map<String, ColumnarFile> archiveMap = 
+            new ConcurrentHashMap<>();
+    
+    Catalog(Database database) {
+        this(database, null);
+    }
+    
+    Catalog(Database database, File databaseFile) {
+        this.database = Objects.requireNonNull(database, 
+                                               "The database is null.");
+        this.databaseFile = databaseFile;
+    }
+    
+    /**
+     * Creates the catalog of the database in the paged file 
+     * {@code pagedFile}, whose path is {@code databaseFile}. No rows are 
+     * read yet.
+     */
+    Catalog(PagedFile pagedFile, File databaseFile) {
+        this(pagedFile.createDatabase(), databaseFile);
+        this.pagedFile = pagedFile;
+        this.storageFormat = StorageFormat.PAGED;
+    }
+    
+    Table getTable(String tableName) {
+        Table table = database.getTable(tableName);
+        
+        if (table == null) {
+            throw new IllegalArgumentException(
+                    tableName + (archiveMap.containsKey(tableName) ? 
+                                 ": an archived table, which only SELECT " +
+                                 "without JOIN reads." : 
+                                 ": no such table."));
+        }
+        
+        return table;
+    }
+    
+    /**
+     * Returns the archive attached as the table {@code tableName}, or 
+     * {@code null}.
+     */
+    ColumnarFile getArchive(String tableName) {
+        return archiveMap.get(tableName);
+    }
+    
+    /**
+     * Attaches {@code archive} under the name of its table, which no table 
+     * may have yet. The archive is closed with the catalog.
+     */
+    synchronized void attachArchive(ColumnarFile archive) {
+        String tableName = archive.getTable().getTableName();
+        
+        if (database.getTable(tableName) != null 
+                || archiveMap.containsKey(tableName)) {
+            throw new IllegalArgumentException(
+                    tableName + ": the table already exists.");
+        }
+        
+        archiveMap.put(tableName, archive);
+    }
+    
+    /**
+     * Returns the current snapshot, which covers at least {@code tables}.
+     */
+    Snapshot getSnapshot(Table... tables) {
+        Snapshot currentSnapshot = snapshot;
+        
+        for (Table table : tables) {
+            if (!currentSnapshot.contains(table)) {
+                return load(tables);
+            }
+        }
+        
+        return currentSnapshot;
+    }
+    
+    /**
+     * Creates an index over a column of {@code table}.
+     */
+    synchronized Index createIndex(String indexName, 
+                                   Table table, 
+                                   String columnName,
+                                   boolean ordered) {
+        return indexManager.createIndex(indexName, 
+                                        table, 
+                                        getRowStore(table), 
+                                        columnName, 
+                                        ordered);
+    }
+    
+    /**
+     * Opens the write-ahead log of the database file and replays it. Called
+     * before the catalog is published.
+     */
+    synchronized void openLog() {
+        if (databaseFile != null) {
+            writeAheadLog = WriteAheadLog.open(databaseFile, syncPolicy);
+            writeAheadLog.replay(this);
+        }
+    }
+    
+    /**
+     * Closes the log, the paged file and the archives once the catalog is no
+     * longer current.
+     */
+    synchronized void close() {
+        closeLog();
+        
+        if (pagedFile != null) {
+            pagedFile.close();
+        }
+        
+        for (ColumnarFile archive : archiveMap.values()) {
+            archive.close();
+        }
+    }
+    
+    synchronized void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+        
+        if (writeAheadLog != null) {
+            writeAheadLog.setSyncPolicy(syncPolicy);
+        }
+    }
+    
+    synchronized void setCheckpointThreshold(long checkpointThreshold) {
+        this.checkpointThreshold = checkpointThreshold;
+    }
+    
+    /**
+     * Selects whether the tables of the paged file loaded from now on are 
+     * stored off the heap.
+     */
+    synchronized void setOffHeapStorage(boolean offHeapStorage) {
+        this.offHeapStorage = offHeapStorage;
+    }
+    
+    /**
+     * Selects whether the string columns of the tables whose row stores are
+     * built from now on are dictionary-encoded.
+     */
+    synchronized void setDictionaryEncoding(boolean dictionaryEncoding) {
+        this.dictionaryEncoding = dictionaryEncoding;
+    }
+    
+    /**
+     * Returns the number of bytes the rows of {@code table} take in memory.
+     */
+    long getMemoryFootprint(Table table) {
+        return getSnapshot(table).getRowStore(table).getMemoryFootprint();
+    }
+    
+    /**
+     * Saves the database to {@code file}, or to the file it was read from if
+     * {@code file} is {@code null}, and the statistics to a side file next
+     * to it. No rows are inserted meanwhile. Saving to another file leaves 
+     * the previous file and its log as they were, and starts a log for the 
+     * new file. The database is saved in {@code storageFormat}, or in the 
+     * format it was read or last saved in if {@code storageFormat} is 
+     * {@code null}.
+     */
+    synchronized void save(File file, StorageFormat storageFormat) {
+        if (file != null && !file.equals(databaseFile)) {
+            closeLog();
+            databaseFile = file;
+        }
+        
+        if (storageFormat != null) {
+            if (storageFormat == StorageFormat.PAGED && databaseFile == null) {
+                throw new IllegalArgumentException(
+                        "The database has no file to page.");
+            }
+            
+            this.storageFormat = storageFormat;
+        }
+        
+        if (databaseFile == null) {
+            database.save();
+        } else {
+            checkpoint();
+        }
+        
+        saveStatistics();
+    }
+    
+    /**
+     * Returns the statistics of {@code table} from its last analysis, or 
+     * {@code null} if it has not been analyzed.
+     */
+    TableStatistics getStatistics(Table table) {
+        return statisticsMap.get(table.getTableName());
+    }
+    
+    Collection<TableStatistics> getStatistics() {
+        return statisticsMap.values();
+    }
+    
+    void putStatistics(TableStatistics tableStatistics) {
+        statisticsMap.put(tableStatistics.tableName, tableStatistics);
+    }
+    
+    /**
+     * Gathers and stores the statistics of {@code table}. If the database 
+     * has a file, the statistics are saved next to it.
+     */
+    TableStatistics analyze(Table table) {
+        TableStatistics tableStatistics = 
+                TableStatistics.collect(table, 
+                                        getSnapshot(table).getRowStore(table));
+        putStatistics(tableStatistics);
+        saveStatistics();
+        return tableStatistics;
+    }
+    
+    void insertRow(Table table, Object... values) {
+        insertRows(table, Collections.<Object[]>singletonList(values));
+    }
+    
+    /**
+     * Inserts a batch of rows into {@code table}. The whole batch is checked 
+     * against the column types before any row is inserted, the row store is 
+     * grown once for the whole batch, and the indices of the table are 
+     * updated only after all the rows are in. The queries started before 
+     * the batch is complete do not see any of it. The batch is logged, and
+     * the log is synced as the sync policy says after the writer lock is 
+     * released, so that concurrent inserts share a sync.
+     */
+    void insertRows(Table table, List<Object[]> rows) {
+        WriteAheadLog log;
+        long lsn;
+        
+        synchronized (this) {
+            log = writeAheadLog;
+            lsn = insertAndLog(table, rows);
+        }
+        
+        if (log != null) {
+            log.sync(lsn);
+        }
+    }
+    
+    /**
+     * Inserts the logged batch of {@code rows} whose first row went to the 
+     * position {@code firstPosition} of {@code table}, skipping the rows the
+     * table already has. The caller holds the lock of the catalog.
+     */
+    void redo(Table table, int firstPosition, List<Object[]> rows) {
+        RowStore rowStore = getRowStore(table);
+        int presentRows = rowStore.size() - firstPosition;
+        
+        if (presentRows < 0) {
+            throw new IllegalStateException(
+                    "The log of " + databaseFile + " misses rows of the " +
+                    "table " + table.getTableName() + ".");
+        }
+        
+        if (presentRows < rows.size()) {
+            append(table, rowStore, rows.subList(presentRows, rows.size()));
+        }
+    }
+    
+    /**
+     * Inserts and logs a batch of rows, returning the log sequence number of
+     * the batch. Takes a checkpoint if the log has grown too large.
+     */
+    private synchronized long insertAndLog(Table table, 
+                                           List<Object[]> rows) {
+        checkRows(new TableSchema(table), rows);
+        RowStore rowStore = getRowStore(table);
+        int firstPosition = rowStore.size();
+        long lsn = 0L;
+        
+        try {
+            append(table, rowStore, rows);
+        } finally {
+            int appendedRows = rowStore.size() - firstPosition;
+            
+            if (writeAheadLog != null && appendedRows > 0) {
+                lsn = writeAheadLog.append(table, 
+                                           firstPosition, 
+                                           rows.subList(0, appendedRows));
+            }
+        }
+        
+        if (writeAheadLog != null 
+                && writeAheadLog.size() >= checkpointThreshold) {
+            checkpoint();
+        }
+        
+        return lsn;
+    }
+    
+    /**
+     * Appends {@code rows} to the row store of {@code table}. The caller 
+     * holds the lock of the catalog.
+     */
+    private void append(Table table, RowStore rowStore, List<Object[]> rows) {
+        int firstPosition = rowStore.size();
+        rowStore.ensureCapacity(firstPosition + rows.size());
+        
+        try {
+            for (Object[] row : rows) {
+                rowStore.append(table, row);
+            }
+        } finally {
+            // Keep the indices in sync with the rows that made it into the
+            // row store even if the batch fails halfway.
+            indexManager.rowsInserted(table, rowStore, firstPosition);
+            snapshot = snapshot.with(table, rowStore.view());
+        }
+    }
+    
+    /**
+     * Saves the database to its file and empties the log. The database file
+     * is synced first: should the log survive a crash, replaying it does no
+     * harm.
+     */
+    private void checkpoint() {
+        if (storageFormat == StorageFormat.PAGED) {
+            writePagedFile();
+        } else {
+            if (pagedFile != null) {
+                // JavaDB saves just the rows that are in the tables.
+                for (Table table : database) {
+                    moveOnHeap(table, getRowStore(table));
+                }
+                
+                pagedFile.close();
+                pagedFile = null;
+            }
+            
+            database.save(databaseFile);
+            WriteAheadLog.force(databaseFile);
+        }
+        
+        if (writeAheadLog == null) {
+            writeAheadLog = WriteAheadLog.open(databaseFile, syncPolicy);
+        }
+        
+        writeAheadLog.checkpoint();
+    }
+    
+    /**
+     * Writes the database to its file in the paged format. The tables that 
+     * have not been loaded are copied from the current paged file as they 
+     * are; the others are written from their row stores.
+     */
+    private void writePagedFile() {
+        Map<String, RowStore> rowStores = new HashMap<>();
+        
+        for (Table table : database) {
+            String tableName = table.getTableName();
+            
+            if (pagedFile == null 
+                    || !pagedFile.contains(table) 
+                    || rowStoreMap.containsKey(tableName)) {
+                rowStores.put(tableName, getRowStore(table));
+            }
+        }
+        
+        PagedFile.write(databaseFile, database, rowStores, pagedFile);
+        
+        if (pagedFile != null) {
+            pagedFile.close();
+        }
+        
+        pagedFile = PagedFile.open(databaseFile);
+    }
+    
+    /**
+     * Puts the rows of {@code rowStore}, the row store of {@code table}, 
+     * into the table if they are stored off the heap. The caller holds the
+     * lock of the catalog.
+     */
+    private void moveOnHeap(Table table, RowStore rowStore) {
+        if (rowStore instanceof OffHeapRowStore) {
+            RowStore heapRowStore = 
+                    ((OffHeapRowStore) rowStore).moveOnHeap();
+            rowStoreMap.put(table.getTableName(), heapRowStore);
+            snapshot = snapshot.with(table, heapRowStore.view());
+        }
+    }
+    
+    private void closeLog() {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+            writeAheadLog = null;
+        }
+    }
+    
+    private synchronized void saveStatistics() {
+        if (databaseFile != null) {
+            StatisticsFile.write(databaseFile, getStatistics());
+        }
+    }
+    
+    /**
+     * Builds the row stores of {@code tables} that do not exist yet and 
+     * returns the snapshot covering them.
+     */
+    private synchronized Snapshot load(Table... tables) {
+        for (Table table : tables) {
+            getRowStore(table);
+        }
+        
+        return snapshot;
+    }
+    
+    /**
+     * Returns the row store of {@code table}, building it and adding it to 
+     * the snapshot on first use. The rows of a table in the paged file are
+     * read into its row store, off the heap if off-heap storage is on. The
+     * caller holds the lock of the catalog.
+     */
+    private RowStore getRowStore(Table table) {
+        RowStore rowStore = rowStoreMap.get(table.getTableName());
+        
+        if (rowStore == null) {
+            if (pagedFile != null && pagedFile.contains(table)) {
+                rowStore = offHeapStorage ? 
+                           new OffHeapRowStore(table, dictionaryEncoding) : 
+                           new HeapRowStore(table, dictionaryEncoding);
+                pagedFile.loadRows(table, rowStore);
+            } else {
+                rowStore = new HeapRowStore(table, dictionaryEncoding);
+            }
+            
+            rowStoreMap.put(table.getTableName(), rowStore);
+            snapshot = snapshot.with(table, rowStore.view());
+        }
+        
+        return rowStore;
+    }
+    
+    private static void checkRows(TableSchema schema, List<Object[]> rows) {
+        Class<?>[] javaTypes = new Class<?>[schema.getNumberOfColumns()];
+        
+        for (int i = 0; i < javaTypes.length; ++i) {
+            javaTypes[i] = getJavaType(schema.getTableCellType(i));
+        }
+        
+        for (int rowIndex = 0; rowIndex < rows.size(); ++rowIndex) {
+            Object[] row = Objects.requireNonNull(rows.get(rowIndex), 
+                                                  "A row is null.");
+            
+            if (row.length != javaTypes.length) {
+                throw new IllegalArgumentException(
+                        "Row " + rowIndex + " has " + row.length + 
+                        " values, the table has " + javaTypes.length + 
+                        " columns.");
+            }
+            
+            for (int i = 0; i < row.length; ++i) {
+                if (row[i] != null && !javaTypes[i].isInstance(row[i])) {
+                    throw new IllegalArgumentException(
+                            "Row " + rowIndex + ": the value of the column " +
+                            schema.getTableColumnDescriptor(i)
+                                  .getTableColumnName() + 
+                            " must be of type " + 
+                            javaTypes[i].getSimpleName() + ", not " + 
+                            row[i].getClass().getSimpleName() + ".");
+                }
+            }
+        }
+    }
+    
+    private static Class<?> getJavaType(TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return Integer.class;
+                
+            case TYPE_LONG:
+                return Long.class;
+                
+            case TYPE_FLOAT:
+                return Float.class;
+                
+            case TYPE_DOUBLE:
+                return Double.class;
+                
+            case TYPE_BOOLEAN:
+                return Boolean.class;
+                
+            case TYPE_STRING:
+                return String.class;
+                
+            case TYPE_BINARY:
+                return byte[].class;
+                
+            default:
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
+        }
+    }
+}
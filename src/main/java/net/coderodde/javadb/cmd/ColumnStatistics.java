@@ -0,0 +1,232 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import net.coderodde.javadb.TableCellType;
+
+/**
+ * The statistics of a table column as of the last ANALYZE, and the 
+ * selectivity estimates derived from them. All the estimates are fractions
+ * of the rows of the table. The minimum and the maximum are boxed cell 
+ * values, and numeric columns have an equi-depth histogram: each of its 
+ * buckets holds about the same number of non-null values.
+ */
+final class ColumnStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The selectivity of a range over a column without a histogram.
+     */
+    static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3.0;
+    
+    final TableCellType tableCellType;
+    final long nullCount;
+    final long distinctCount;
+    
+    /**
+     * The smallest and the largest non-null value, or {@code null} if there
+     * are none or the column is binary.
+     */
+    final Object min;
+    final Object max;
+    
+    /**
+     * The bucket bounds of the histogram in ascending order, or 
+     * {@code null}.
+     */
+    private final double[] histogram;
+    private final double nullFraction;
+    
+    ColumnStatistics(TableCellType tableCellType,
+                     long rowCount,
+                     long nullCount,
+                     long distinctCount,
+                     Object min,
+                     Object max,
+                     double[] histogram) {
+        this.tableCellType = tableCellType;
+        this.nullCount = nullCount;
+        this.distinctCount = distinctCount;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram;
+        this.nullFraction = rowCount == 0 ? 0.0 : (double) nullCount / rowCount;
+    }
+    
+    double getNullFraction() {
+        return nullFraction;
+    }
+    
+    double getNonNullFraction() {
+        return 1.0 - nullFraction;
+    }
+    
+    /**
+     * Estimates the fraction of the rows satisfying 
+     * {@code column testOperation value}.
+     */
+    double estimate(TestOperation testOperation, Object value) {
+        switch (testOperation) {
+            case EQ:
+                return estimateEquals(value);
+                
+            case NEQ:
+                return Math.max(0.0, 
+                                getNonNullFraction() - estimateEquals(value));
+                
+            case LT:
+                return estimateRange(null, false, value, false);
+                
+            case LEQ:
+                return estimateRange(null, false, value, true);
+                
+            case GT:
+                return estimateRange(value, false, null, false);
+                
+            case GEQ:
+                return estimateRange(value, true, null, false);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Estimates the fraction of the rows whose value equals {@code value}.
+     */
+    double estimateEquals(Object value) {
+        if (distinctCount == 0 || isOutside(value)) {
+            return 0.0;
+        }
+        
+        double selectivity = getNonNullFraction() / distinctCount;
+        
+        if (histogram != null) {
+            // A value spanning several buckets is more frequent than average.
+            double x = toDouble(value);
+            int from = lowerBound(x);
+            int to = from;
+            
+            while (to < histogram.length && histogram[to] == x) {
+                ++to;
+            }
+            
+            if (to - from >= 2) {
+                selectivity = Math.max(selectivity, 
+                                       getNonNullFraction() * (to - from - 1) /
+                                       (histogram.length - 1));
+            }
+        }
+        
+        return selectivity;
+    }
+    
+    /**
+     * Estimates the fraction of the rows whose value lies between 
+     * {@code low} and {@code high}. A {@code null} bound is unbounded.
+     */
+    double estimateRange(Object low, 
+                         boolean lowInclusive,
+                         Object high, 
+                         boolean highInclusive) {
+        if (distinctCount == 0) {
+            return 0.0;
+        }
+        
+        if (min != null 
+                && ((low != null && compare(low, max, lowInclusive) > 0) 
+                    || (high != null 
+                        && compare(min, high, highInclusive) > 0))) {
+            return 0.0;
+        }
+        
+        if (low != null && high != null 
+                && lowInclusive && highInclusive
+                && OrderedIndex.compareKeys(low, high) == 0) {
+            return estimateEquals(low);
+        }
+        
+        if (histogram == null) {
+            return getNonNullFraction() * DEFAULT_RANGE_SELECTIVITY;
+        }
+        
+        double fromFraction = low == null ? 0.0 : cdf(toDouble(low));
+        double toFraction = high == null ? 1.0 : cdf(toDouble(high));
+        return getNonNullFraction() * 
+               Math.max(0.0, Math.min(1.0, toFraction - fromFraction));
+    }
+    
+    /**
+     * Returns {@code true} if {@code value} lies outside the range of the 
+     * column.
+     */
+    private boolean isOutside(Object value) {
+        return min != null 
+            && (OrderedIndex.compareKeys(value, min) < 0 
+                || OrderedIndex.compareKeys(value, max) > 0);
+    }
+    
+    /**
+     * Compares a lower bound with an upper bound: the range between them is
+     * empty if the result is positive.
+     */
+    private static int compare(Object low, Object high, boolean inclusive) {
+        int cmp = OrderedIndex.compareKeys(low, high);
+        return cmp == 0 && !inclusive ? 1 : cmp;
+    }
+    
+    /**
+     * Estimates the fraction of the non-null values below {@code x}, 
+     * interpolating linearly within the histogram buckets.
+     */
+    private double cdf(double x) {
+        int buckets = histogram.length - 1;
+        
+        if (x <= histogram[0]) {
+            return 0.0;
+        } else if (x >= histogram[buckets]) {
+            return 1.0;
+        }
+        
+        int bucket = lowerBound(x) - 1;
+        double width = histogram[bucket + 1] - histogram[bucket];
+        double within = width <= 0.0 ? 
+                        0.0 : 
+                        (x - histogram[bucket]) / width;
+        return (bucket + within) / buckets;
+    }
+    
+    /**
+     * Returns the index of the first bound not less than {@code x}.
+     */
+    private int lowerBound(double x) {
+        int low = 0;
+        int high = histogram.length;
+        
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            
+            if (histogram[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        
+        return low;
+    }
+    
+    static double toDouble(Object value) {
+        return ((Number) value).doubleValue();
+    }
+    
+    @Override
+    public String toString() {
+        return "nulls=" + nullCount + ", distinct=" + distinctCount + 
+               ", min=" + min + ", max=" + max + 
+               (histogram == null ? 
+                "" : 
+                ", histogram=" + Arrays.toString(histogram));
+    }
+}
@@ -0,0 +1,966 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A table archived in a column-oriented file by
+ * {@code COPY table TO 'file' COLUMNAR}. The rows are split into blocks of
+ * {@value #BLOCK_SIZE} rows, and a block stores its columns one after
+ * another, each encoded by its type: strings as a sorted dictionary of the
+ * distinct values of the block followed by bit-packed codes, integers as
+ * bit-packed offsets from the minimum of the block or, when narrower, as
+ * bit-packed differences between consecutive values, booleans as runs and
+ * the other types as they are. A column with nulls in a block starts with
+ * its non-null bitmap; the nulls take the value of the preceding row so that
+ * they do not widen the encoding.
+ * <p>
+ * A directory at the end of the file lists, for each block and column, the
+ * position of the column and the minimum and maximum of its values. A scan
+ * skips the blocks in which a column that the WHERE conjuncts compare with
+ * literals has no value in the range the conjuncts allow. The other blocks
+ * are filtered by the vectorized engine: only the columns the predicate
+ * reads are decoded before the matching rows are known, and only the
+ * matching rows are built.
+ */
+final class ColumnarFile {
+
+    static final int BLOCK_SIZE = VectorBatch.SIZE;
+    
+    private static final int MAGIC = 0x4A444243;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    
+    private static final byte PLAIN = 0;
+    private static final byte DICTIONARY = 1;
+    private static final byte FRAME_OF_REFERENCE = 2;
+    private static final byte DELTA = 3;
+    private static final byte RUN_LENGTH = 4;
+    
+    private final File file;
+    private final FileChannel channel;
+    private final Table table;
+    private final TableCellType[] tableCellTypes;
+    private final TableColumnDescriptor[] tableColumnDescriptors;
+    private final int rowCount;
+    private final Block[] blocks;
+    
+    private ColumnarFile(File file,
+                         FileChannel channel,
+                         Table table,
+                         int rowCount,
+                         Block[] blocks) {
+        this.file = file;
+        this.channel = channel;
+        this.table = table;
+        this.tableCellTypes = RowCodec.getTableCellTypes(table);
+        this.tableColumnDescriptors =
+                table.getTableColumnDescriptors()
+                     .toArray(new TableColumnDescriptor[0]);
+        this.rowCount = rowCount;
+        this.blocks = blocks;
+    }
+    
+    /**
+     * Opens the archive {@code file} and reads its directory.
+     */
+    static ColumnarFile open(File file) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath());
+            
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(channel, header, 0L);
+                
+                if (header.getInt(0) != MAGIC
+                        || header.getInt(4) != VERSION
+                        || header.getInt(8) != BLOCK_SIZE) {
+                    throw new IllegalArgumentException(
+                            file + ": not a columnar archive of this " +
+                            "version.");
+                }
+                
+                ByteBuffer directory = ByteBuffer.allocate(header.getInt(12));
+                readFully(channel, directory, header.getLong(16));
+                directory.flip();
+                return readDirectory(file, channel, directory);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not open the archive " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Archives the rows of {@code rowStore}, which are those of
+     * {@code table}, in {@code file}, and returns the number of rows
+     * written.
+     */
+    static long write(File file, Table table, RowStore rowStore) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        TableCellType[] tableCellTypes = RowCodec.getTableCellTypes(table);
+        
+        try {
+            try (FileChannel out = FileChannel.open(
+                    tempFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                List<Block> blocks = new ArrayList<>();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream columnOut = new DataOutputStream(bytes);
+                Object[][] columns =
+                        new Object[tableCellTypes.length][BLOCK_SIZE];
+                long position = HEADER_SIZE;
+                
+                for (int fromIndex = 0;
+                        fromIndex < rowStore.size();
+                        fromIndex += BLOCK_SIZE) {
+                    Block block = new Block(
+                            Math.min(BLOCK_SIZE,
+                                     rowStore.size() - fromIndex),
+                            tableCellTypes.length);
+                    
+                    // Each row is read once and split into the columns.
+                    for (int i = 0; i < block.rowCount; ++i) {
+                        TableRow tableRow = rowStore.get(fromIndex + i);
+                        
+                        for (int c = 0; c < tableCellTypes.length; ++c) {
+                            columns[c][i] = tableRow.get(c).getValue();
+                        }
+                    }
+                    
+                    for (int c = 0; c < tableCellTypes.length; ++c) {
+                        bytes.reset();
+                        block.describe(c, tableCellTypes[c], columns[c]);
+                        writeColumn(columnOut,
+                                    tableCellTypes[c],
+                                    columns[c],
+                                    block.rowCount);
+                        block.offsets[c] = position;
+                        block.lengths[c] = bytes.size();
+                        writeFully(out,
+                                   ByteBuffer.wrap(bytes.toByteArray()),
+                                   position);
+                        position += bytes.size();
+                    }
+                    
+                    blocks.add(block);
+                }
+                
+                byte[] directory = writeDirectory(table,
+                                                  tableCellTypes,
+                                                  rowStore.size(),
+                                                  blocks);
+                writeFully(out, ByteBuffer.wrap(directory), position);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC)
+                      .putInt(VERSION)
+                      .putInt(BLOCK_SIZE)
+                      .putInt(directory.length)
+                      .putLong(position)
+                      .flip();
+                writeFully(out, header, 0L);
+                out.force(true);
+            }
+            
+            Files.move(tempFile.toPath(),
+                       file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not write the archive " + file + ".", ex);
+        }
+        
+        return rowStore.size();
+    }
+    
+    /**
+     * Returns an empty table with the name and the columns of the archived
+     * table. Queries resolve their columns against it.
+     */
+    Table getTable() {
+        return table;
+    }
+    
+    int getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Returns the archived rows satisfying {@code rowPredicate}, the
+     * compiled form of {@code boundWhere}, in table order. The blocks ruled
+     * out by the conjuncts of {@code boundWhere} are not read. The rows
+     * returned belong to scratch tables, one per block. Once
+     * {@code cancellation} is set, the scan throws a
+     * {@code CancellationException}.
+     */
+    Iterator<TableRow> scan(TableSchema schema,
+                            TokenTreeNode boundWhere,
+                            RowPredicate rowPredicate,
+                            Cancellation cancellation) {
+        KeyRange[] keyRanges = new KeyRange[tableCellTypes.length];
+        
+        if (boundWhere != null) {
+            List<Test> conjuncts = new ArrayList<>();
+            boundWhere.collectConjuncts(conjuncts);
+            
+            for (Test conjunct : conjuncts) {
+                int columnIndex = conjunct.getConstantColumnIndex(schema);
+                
+                if (columnIndex >= 0
+                        && keyRanges[columnIndex] == null
+                        && conjunct.getConstantOperation()
+                                != TestOperation.NEQ) {
+                    keyRanges[columnIndex] =
+                            KeyRange.of(schema, columnIndex, conjuncts);
+                }
+            }
+        }
+        
+        return new BlockIterator(schema,
+                                 keyRanges,
+                                 rowPredicate.vectorize(),
+                                 cancellation);
+    }
+    
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not close " + file + ".", ex);
+        }
+    }
+    
+    private ByteBuffer readColumnBytes(Block block, int columnIndex) {
+        ByteBuffer column = ByteBuffer.allocate(block.lengths[columnIndex]);
+        
+        try {
+            readFully(channel, column, block.offsets[columnIndex]);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not read the archive " + file + ".", ex);
+        }
+        
+        column.flip();
+        return column;
+    }
+    
+    private static ColumnarFile readDirectory(File file,
+                                              FileChannel channel,
+                                              ByteBuffer in) {
+        String tableName = RowCodec.readString(in);
+        TableColumnDescriptor[] tableColumnDescriptors =
+                new TableColumnDescriptor[in.getInt()];
+        TableCellType[] tableCellTypes =
+                new TableCellType[tableColumnDescriptors.length];
+        
+        for (int i = 0; i < tableColumnDescriptors.length; ++i) {
+            String columnName = RowCodec.readString(in);
+            tableCellTypes[i] = TableCellType.valueOf(RowCodec.readString(in));
+            tableColumnDescriptors[i] =
+                    new TableColumnDescriptor(columnName, tableCellTypes[i]);
+        }
+        
+        int rowCount = in.getInt();
+        Block[] blocks = new Block[in.getInt()];
+        
+        for (int b = 0; b < blocks.length; ++b) {
+            blocks[b] = Block.read(in, tableCellTypes);
+        }
+        
+        Table table = new Database("archive")
+                .createTable(tableName, tableColumnDescriptors);
+        return new ColumnarFile(file, channel, table, rowCount, blocks);
+    }
+    
+    private static byte[] writeDirectory(Table table,
+                                         TableCellType[] tableCellTypes,
+                                         int rowCount,
+                                         List<Block> blocks)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        RowCodec.writeString(out, table.getTableName());
+        out.writeInt(tableCellTypes.length);
+        
+        for (TableColumnDescriptor tableColumnDescriptor
+                : table.getTableColumnDescriptors()) {
+            RowCodec.writeString(out,
+                                 tableColumnDescriptor.getTableColumnName());
+            RowCodec.writeString(
+                    out,
+                    tableColumnDescriptor.getTableCellType().name());
+        }
+        
+        out.writeInt(rowCount);
+        out.writeInt(blocks.size());
+        
+        for (Block block : blocks) {
+            block.write(out, tableCellTypes);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Writes the first {@code size} of {@code values}, the values of a
+     * column of the type {@code tableCellType} in a block.
+     */
+    private static void writeColumn(DataOutputStream out,
+                                    TableCellType tableCellType,
+                                    Object[] values,
+                                    int size) throws IOException {
+        long[] nonNullBitmap = new long[VectorBatch.WORDS];
+        int wordCount = (size + Long.SIZE - 1) >>> 6;
+        boolean hasNulls = false;
+        Object previousValue = null;
+        
+        for (int i = 0; i < size; ++i) {
+            if (values[i] != null) {
+                nonNullBitmap[i >>> 6] |= 1L << i;
+                previousValue = values[i];
+            } else {
+                hasNulls = true;
+                values[i] = previousValue;
+            }
+        }
+        
+        out.writeBoolean(hasNulls);
+        
+        if (hasNulls) {
+            for (int w = 0; w < wordCount; ++w) {
+                out.writeLong(nonNullBitmap[w]);
+            }
+            
+            // Leading nulls take the value of the first non-null row.
+            Object firstValue = null;
+            
+            for (int i = 0; i < size && firstValue == null; ++i) {
+                firstValue = values[i];
+            }
+            
+            for (int i = 0; i < size && values[i] == null; ++i) {
+                values[i] = firstValue;
+            }
+        }
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                writeIntegers(out, values, size);
+                break;
+                
+            case TYPE_BOOLEAN:
+                writeRuns(out, values, size);
+                break;
+                
+            case TYPE_STRING:
+                writeDictionary(out, values, size);
+                break;
+                
+            default:
+                out.writeByte(PLAIN);
+                
+                for (int i = 0; i < size; ++i) {
+                    writePlainValue(out, tableCellType, values[i]);
+                }
+                
+                break;
+        }
+    }
+    
+    /**
+     * Writes integers as bit-packed offsets from their minimum, or as
+     * bit-packed offsets of their differences from the smallest difference
+     * if these are narrower, as they are for sorted columns. All the
+     * arithmetic wraps around, so any range of {@code long}s is encoded
+     * exactly.
+     */
+    private static void writeIntegers(DataOutputStream out,
+                                      Object[] values,
+                                      int size) throws IOException {
+        long[] longs = new long[size];
+        
+        for (int i = 0; i < size; ++i) {
+            longs[i] = values[i] == null ? 0L : ((Number) values[i])
+                                                        .longValue();
+        }
+        
+        long min = longs[0];
+        long max = longs[0];
+        long minDelta = Long.MAX_VALUE;
+        long maxDelta = Long.MIN_VALUE;
+        
+        for (int i = 1; i < size; ++i) {
+            min = Math.min(min, longs[i]);
+            max = Math.max(max, longs[i]);
+            long delta = longs[i] - longs[i - 1];
+            minDelta = Math.min(minDelta, delta);
+            maxDelta = Math.max(maxDelta, delta);
+        }
+        
+        int bitWidth = getBitWidth(max - min);
+        int deltaBitWidth =
+                size > 1 ? getBitWidth(maxDelta - minDelta) : Long.SIZE;
+        
+        if (deltaBitWidth < bitWidth) {
+            long first = longs[0];
+            
+            for (int i = size - 1; i > 0; --i) {
+                longs[i] = longs[i] - longs[i - 1] - minDelta;
+            }
+            
+            out.writeByte(DELTA);
+            out.writeLong(first);
+            out.writeLong(minDelta);
+            out.writeByte(deltaBitWidth);
+            pack(out, longs, 1, size - 1, deltaBitWidth);
+        } else {
+            for (int i = 0; i < size; ++i) {
+                longs[i] -= min;
+            }
+            
+            out.writeByte(FRAME_OF_REFERENCE);
+            out.writeLong(min);
+            out.writeByte(bitWidth);
+            pack(out, longs, 0, size, bitWidth);
+        }
+    }
+    
+    /**
+     * Writes booleans as the first value and the lengths of the runs of
+     * equal values, which alternate.
+     */
+    private static void writeRuns(DataOutputStream out,
+                                  Object[] values,
+                                  int size) throws IOException {
+        List<Integer> runLengths = new ArrayList<>();
+        int runLength = 1;
+        
+        for (int i = 1; i < size; ++i) {
+            if (Boolean.TRUE.equals(values[i]) 
+                    == Boolean.TRUE.equals(values[i - 1])) {
+                ++runLength;
+            } else {
+                runLengths.add(runLength);
+                runLength = 1;
+            }
+        }
+        
+        runLengths.add(runLength);
+        out.writeByte(RUN_LENGTH);
+        out.writeBoolean(Boolean.TRUE.equals(values[0]));
+        out.writeShort(runLengths.size());
+        
+        for (int length : runLengths) {
+            out.writeShort(length);
+        }
+    }
+    
+    /**
+     * Writes strings as the sorted distinct values followed by the
+     * bit-packed position of each value among them.
+     */
+    private static void writeDictionary(DataOutputStream out,
+                                        Object[] values,
+                                        int size) throws IOException {
+        Map<String, Integer> codeMap = new TreeMap<>();
+        
+        for (int i = 0; i < size; ++i) {
+            if (values[i] != null) {
+                codeMap.put((String) values[i], 0);
+            }
+        }
+        
+        out.writeByte(DICTIONARY);
+        out.writeInt(codeMap.size());
+        int code = 0;
+        
+        for (Map.Entry<String, Integer> entry : codeMap.entrySet()) {
+            RowCodec.writeString(out, entry.getKey());
+            entry.setValue(code++);
+        }
+        
+        long[] codes = new long[size];
+        
+        for (int i = 0; i < size; ++i) {
+            codes[i] = values[i] == null ? 0 : codeMap.get((String) values[i]);
+        }
+        
+        int bitWidth = getBitWidth(Math.max(codeMap.size() - 1, 0));
+        out.writeByte(bitWidth);
+        pack(out, codes, 0, size, bitWidth);
+    }
+    
+    private static void writePlainValue(DataOutputStream out,
+                                        TableCellType tableCellType,
+                                        Object value) throws IOException {
+        switch (tableCellType) {
+            case TYPE_FLOAT:
+                out.writeFloat(value == null ? 0.0f : (Float) value);
+                break;
+                
+            case TYPE_DOUBLE:
+                out.writeDouble(value == null ? 0.0 : (Double) value);
+                break;
+                
+            case TYPE_BINARY:
+                byte[] bytes = value == null ? new byte[0] : (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Decodes a column of {@code size} values of the type
+     * {@code tableCellType} into {@code values} and its non-null bitmap.
+     */
+    private static void readColumn(ByteBuffer in,
+                                   TableCellType tableCellType,
+                                   int size,
+                                   Object values,
+                                   long[] nonNullBitmap,
+                                   long[] scratch) {
+        int wordCount = (size + Long.SIZE - 1) >>> 6;
+        
+        if (in.get() != 0) {
+            for (int w = 0; w < wordCount; ++w) {
+                nonNullBitmap[w] = in.getLong();
+            }
+        } else {
+            Arrays.fill(nonNullBitmap, 0, wordCount, -1L);
+            
+            if ((size & 63) != 0) {
+                nonNullBitmap[wordCount - 1] = (1L << size) - 1;
+            }
+        }
+        
+        byte encoding = in.get();
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+                readIntegers(in, encoding, size, scratch);
+                int[] ints = (int[]) values;
+                
+                for (int i = 0; i < size; ++i) {
+                    ints[i] = (int) scratch[i];
+                }
+                
+                break;
+                
+            case TYPE_LONG:
+                readIntegers(in, encoding, size, (long[]) values);
+                break;
+                
+            case TYPE_FLOAT:
+                in.asFloatBuffer().get((float[]) values, 0, size);
+                break;
+                
+            case TYPE_DOUBLE:
+                in.asDoubleBuffer().get((double[]) values, 0, size);
+                break;
+                
+            case TYPE_BOOLEAN:
+                readRuns(in, (boolean[]) values);
+                break;
+                
+            case TYPE_STRING:
+                readDictionary(in, size, (Object[]) values, scratch);
+                break;
+                
+            case TYPE_BINARY:
+                Object[] objects = (Object[]) values;
+                
+                for (int i = 0; i < size; ++i) {
+                    byte[] bytes = new byte[in.getInt()];
+                    in.get(bytes);
+                    objects[i] = bytes;
+                }
+                
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static void readIntegers(ByteBuffer in,
+                                     byte encoding,
+                                     int size,
+                                     long[] longs) {
+        if (encoding == DELTA) {
+            long value = in.getLong();
+            long minDelta = in.getLong();
+            int bitWidth = in.get();
+            unpack(in, longs, 1, size - 1, bitWidth);
+            longs[0] = value;
+            
+            for (int i = 1; i < size; ++i) {
+                value += minDelta + longs[i];
+                longs[i] = value;
+            }
+        } else {
+            long min = in.getLong();
+            int bitWidth = in.get();
+            unpack(in, longs, 0, size, bitWidth);
+            
+            for (int i = 0; i < size; ++i) {
+                longs[i] += min;
+            }
+        }
+    }
+    
+    private static void readRuns(ByteBuffer in, boolean[] booleans) {
+        boolean value = in.get() != 0;
+        int runCount = in.getShort() & 0xFFFF;
+        int index = 0;
+        
+        for (int r = 0; r < runCount; ++r) {
+            int runLength = in.getShort() & 0xFFFF;
+            Arrays.fill(booleans, index, index + runLength, value);
+            index += runLength;
+            value = !value;
+        }
+    }
+    
+    private static void readDictionary(ByteBuffer in,
+                                       int size,
+                                       Object[] strings,
+                                       long[] codes) {
+        String[] dictionary = new String[in.getInt()];
+        
+        for (int i = 0; i < dictionary.length; ++i) {
+            dictionary[i] = RowCodec.readString(in);
+        }
+        
+        int bitWidth = in.get();
+        unpack(in, codes, 0, size, bitWidth);
+        
+        for (int i = 0; i < size; ++i) {
+            strings[i] = dictionary.length == 0 ?
+                         null :
+                         dictionary[(int) codes[i]];
+        }
+    }
+    
+    /**
+     * Returns the number of bits that hold the unsigned {@code value}.
+     */
+    private static int getBitWidth(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+    
+    /**
+     * Writes the low {@code bitWidth} bits of {@code count} values starting
+     * at {@code longs[from]} one after another into whole words. A width of
+     * zero, that of equal values, writes nothing.
+     */
+    private static void pack(DataOutputStream out,
+                             long[] longs,
+                             int from,
+                             int count,
+                             int bitWidth) throws IOException {
+        if (bitWidth == 0) {
+            return;
+        }
+        
+        long[] words = new long[(int)(((long) count * bitWidth + 63) >>> 6)];
+        
+        for (int i = 0; i < count; ++i) {
+            long bitIndex = (long) i * bitWidth;
+            int wordIndex = (int)(bitIndex >>> 6);
+            int shift = (int)(bitIndex & 63);
+            words[wordIndex] |= longs[from + i] << shift;
+            
+            if (shift + bitWidth > Long.SIZE) {
+                words[wordIndex + 1] |= 
+                        longs[from + i] >>> (Long.SIZE - shift);
+            }
+        }
+        
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+    
+    private static void unpack(ByteBuffer in,
+                               long[] longs,
+                               int from,
+                               int count,
+                               int bitWidth) {
+        if (bitWidth == 0) {
+            Arrays.fill(longs, from, from + count, 0L);
+            return;
+        }
+        
+        int start = in.position();
+        long mask = bitWidth == Long.SIZE ? -1L : (1L << bitWidth) - 1;
+        
+        for (int i = 0; i < count; ++i) {
+            long bitIndex = (long) i * bitWidth;
+            int wordPosition = start + (int)(bitIndex >>> 6) * Long.BYTES;
+            int shift = (int)(bitIndex & 63);
+            long value = in.getLong(wordPosition) >>> shift;
+            
+            if (shift + bitWidth > Long.SIZE) {
+                value |= in.getLong(wordPosition + Long.BYTES)
+                         << (Long.SIZE - shift);
+            }
+            
+            longs[from + i] = value & mask;
+        }
+        
+        in.position(start +
+                    (int)(((long) count * bitWidth + 63) >>> 6) * Long.BYTES);
+    }
+    
+    private static void readFully(FileChannel channel,
+                                  ByteBuffer buffer,
+                                  long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+    
+    private static void writeFully(FileChannel channel,
+                                   ByteBuffer buffer,
+                                   long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+    
+    /**
+     * The directory entry of a block: the position and length of each
+     * column, and the zone map, that is, the number of non-null values and
+     * their minimum and maximum. Binary columns have no minimum and maximum.
+     */
+    private static final class Block {
+        
+        final int rowCount;
+        final long[] offsets;
+        final int[] lengths;
+        final int[] nonNullCounts;
+        final Object[] mins;
+        final Object[] maxes;
+        
+        Block(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.offsets = new long[columnCount];
+            this.lengths = new int[columnCount];
+            this.nonNullCounts = new int[columnCount];
+            this.mins = new Object[columnCount];
+            this.maxes = new Object[columnCount];
+        }
+        
+        static Block read(ByteBuffer in, TableCellType[] tableCellTypes) {
+            Block block = new Block(in.getInt(), tableCellTypes.length);
+            
+            for (int c = 0; c < tableCellTypes.length; ++c) {
+                block.offsets[c] = in.getLong();
+                block.lengths[c] = in.getInt();
+                block.nonNullCounts[c] = in.getInt();
+                block.mins[c] = RowCodec.readValue(in, tableCellTypes[c]);
+                block.maxes[c] = RowCodec.readValue(in, tableCellTypes[c]);
+            }
+            
+            return block;
+        }
+        
+        void write(DataOutputStream out, TableCellType[] tableCellTypes)
+                throws IOException {
+            out.writeInt(rowCount);
+            
+            for (int c = 0; c < tableCellTypes.length; ++c) {
+                out.writeLong(offsets[c]);
+                out.writeInt(lengths[c]);
+                out.writeInt(nonNullCounts[c]);
+                RowCodec.writeValue(out, tableCellTypes[c], mins[c]);
+                RowCodec.writeValue(out, tableCellTypes[c], maxes[c]);
+            }
+        }
+        
+        /**
+         * Fills in the zone map of the column {@code columnIndex} from its
+         * values in this block.
+         */
+        void describe(int columnIndex,
+                      TableCellType tableCellType,
+                      Object[] values) {
+            for (int i = 0; i < rowCount; ++i) {
+                Object value = values[i];
+                
+                if (value == null) {
+                    continue;
+                }
+                
+                ++nonNullCounts[columnIndex];
+                
+                if (tableCellType == TableCellType.TYPE_BINARY) {
+                    continue;
+                }
+                
+                if (mins[columnIndex] == null
+                        || OrderedIndex.compareKeys(value,
+                                                    mins[columnIndex]) < 0) {
+                    mins[columnIndex] = value;
+                }
+                
+                if (maxes[columnIndex] == null
+                        || OrderedIndex.compareKeys(value,
+                                                    maxes[columnIndex]) > 0) {
+                    maxes[columnIndex] = value;
+                }
+            }
+        }
+        
+        /**
+         * Returns {@code false} if no row of this block can be within
+         * {@code keyRanges}, the ranges the WHERE conjuncts allow for each
+         * column or {@code null} for the columns they do not restrict. A
+         * comparison with a literal is false for {@code NULL}s.
+         */
+        boolean mayMatch(KeyRange[] keyRanges) {
+            for (int c = 0; c < keyRanges.length; ++c) {
+                if (keyRanges[c] == null) {
+                    continue;
+                }
+                
+                if (nonNullCounts[c] == 0
+                        || (mins[c] != null
+                            && !keyRanges[c].overlaps(mins[c], maxes[c]))) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Scans the blocks the zone maps do not rule out, decoding a block into
+     * a {@link VectorBatch} column by column as the predicate asks for the
+     * columns. The matching rows of a block are built in a scratch table of
+     * their own, so the rows already returned are not kept reachable by the
+     * iterator.
+     */
+    private final class BlockIterator
+            implements Iterator<TableRow>, VectorBatch.ColumnSource {
+        
+        private final KeyRange[] keyRanges;
+        private final VectorPredicate vectorPredicate;
+        private final Cancellation cancellation;
+        private final VectorBatch batch;
+        private final long[] selection = new long[VectorBatch.WORDS];
+        private final long[] scratch = new long[BLOCK_SIZE];
+        private final Object[] values = new Object[tableCellTypes.length];
+        private final List<TableRow> matches = new ArrayList<>();
+        private int blockIndex;
+        private int matchIndex;
+        private Block block;
+        private Table outputTable;
+        
+        BlockIterator(TableSchema schema,
+                      KeyRange[] keyRanges,
+                      VectorPredicate vectorPredicate,
+                      Cancellation cancellation) {
+            this.keyRanges = keyRanges;
+            this.vectorPredicate = vectorPredicate;
+            this.cancellation = cancellation;
+            this.batch = new VectorBatch(schema);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (matchIndex == matches.size()) {
+                if (blockIndex == blocks.length) {
+                    return false;
+                }
+                
+                cancellation.check();
+                block = blocks[blockIndex++];
+                
+                if (!block.mayMatch(keyRanges)) {
+                    continue;
+                }
+                
+                matches.clear();
+                matchIndex = 0;
+                outputTable = null;
+                batch.load(this, block.rowCount);
+                vectorPredicate.evaluate(batch, selection);
+                batch.collect(selection, matches);
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            return matches.get(matchIndex++);
+        }
+        
+        @Override
+        public void decode(int columnIndex,
+                           Object columnValues,
+                           long[] nonNullBitmap) {
+            readColumn(readColumnBytes(block, columnIndex),
+                       tableCellTypes[columnIndex],
+                       block.rowCount,
+                       columnValues,
+                       nonNullBitmap,
+                       scratch);
+        }
+        
+        @Override
+        public TableRow getRow(int index) {
+            if (outputTable == null) {
+                outputTable = new Database("archive").createTable(
+                        table.getTableName(),
+                        tableColumnDescriptors);
+            }
+            
+            for (int c = 0; c < values.length; ++c) {
+                values[c] = batch.getValue(c, index);
+            }
+            
+            return outputTable.putTableRow(values);
+        }
+    }
+}
@@ -1,25 +1,49 @@
 package net.coderodde.javadb.cmd;
 
 import java.io.File;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import net.coderodde.javadb.Database;
 import net.coderodde.javadb.Table;
 import net.coderodde.javadb.TableCellType;
 import net.coderodde.javadb.TableColumnDescriptor;
-import net.coderodde.javadb.TableRow;
 import net.coderodde.javadb.TableView;
 
+/**
+ * Executes commands against the current database. A command layer may be 
+ * shared by any number of threads: queries run concurrently with each other
+ * and with the inserts, each reading the rows as they were when it started,
+ * while the commands changing the database run one at a time. Opening 
+ * another database does not affect the queries already running. The 
+ * asynchronous queries run on the query executor, which is the common 
+ * fork/join pool unless set otherwise.
+ * <p>
+ * A database read from or saved to a file logs the inserted rows to a 
+ * write-ahead log next to the file, so an insert is durable without saving
+ * the whole database. Saving the database is a checkpoint that empties the
+ * log, and opening the database replays it.
+ */
 public final class CommandLayer {
 
-    private Database database;
+    private final PlanCache planCache = 
+            new PlanCache(PlanCache.DEFAULT_CAPACITY);
+    private volatile Catalog catalog;
+    private volatile ParallelScanner parallelScanner = 
+            new ParallelScanner(1, ParallelScanner.DEFAULT_THRESHOLD, true);
+    private volatile Executor queryExecutor = ForkJoinPool.commonPool();
+    private SyncPolicy syncPolicy = SyncPolicy.EVERY_COMMIT;
+    private long checkpointThreshold = 
+            WriteAheadLog.DEFAULT_CHECKPOINT_THRESHOLD;
+    private boolean offHeapStorage;
+    private boolean dictionaryEncoding;
     
     public void emptyDatabase(String databaseName) {
-        this.database = new Database(databaseName);
-        Database db = this.database;
+        Database db = new Database(databaseName);
         TableColumnDescriptor table1Id =
                 new TableColumnDescriptor("id", TableCellType.TYPE_INT);
         
@@ -57,256 +81,574 @@ public final class CommandLayer {
         
         table2.putTableRow(10, 1L, "Hello!");
         table2.putTableRow(11, 2L, "Bye!");
+        open(new Catalog(db));
     }
     
+    /**
+     * Opens the database in {@code file}, which may be in either 
+     * {@link StorageFormat}. A paged database is opened without reading its
+     * rows.
+     */
     public void openDatabase(File file) {
-        database = Database.read(file);
+        Catalog newCatalog = 
+                PagedFile.isPagedFile(file) ?
+                new Catalog(PagedFile.open(file), file) :
+                new Catalog(Database.read(file), file);
+        
+        for (TableStatistics tableStatistics : StatisticsFile.read(file)) {
+            newCatalog.putStatistics(tableStatistics);
+        }
+        
+        open(newCatalog);
     }
     
     public void openDatabase(String path) {
         openDatabase(new File(path));
     }
     
+    void openDatabase(Database database) {
+        open(new Catalog(database));
+    }
+    
+    /**
+     * Saves the database to {@code file}, and the statistics gathered by 
+     * {@code ANALYZE} to a side file next to it. The inserts from now on are
+     * logged next to {@code file}.
+     */
     public void saveDatabaseAs(File file) {
-        Objects.requireNonNull(database, "Current database is null.");
-        database.save(file);
+        Objects.requireNonNull(catalog, "Current database is null.")
+               .save(Objects.requireNonNull(file, "The file is null."), null);
     }
     
     public void saveDatabaseAs(String path) {
         saveDatabaseAs(new File(path));
     }
     
+    /**
+     * Saves the database to {@code file} in the format 
+     * {@code storageFormat}, which is kept for the later saves.
+     */
+    public void saveDatabaseAs(File file, StorageFormat storageFormat) {
+        Objects.requireNonNull(catalog, "Current database is null.")
+               .save(Objects.requireNonNull(file, "The file is null."), 
+                     Objects.requireNonNull(storageFormat, 
+                                            "The storage format is null."));
+    }
+    
     public void saveDatabase() {
-        Objects.requireNonNull(database, "Current database is null.");
-        database.save();
+        Objects.requireNonNull(catalog, "Current database is null.")
+               .save(null, null);
     }
     
     public boolean createTable(String cmd) {
-        Objects.requireNonNull(database, "No current database.");
+        Objects.requireNonNull(catalog, "No current database.");
         String[] tokens = cmd.split("\\s+");
         
         return false;
     }
     
     public TableView select(String cmd) {
-        Objects.requireNonNull(database, "No current database.");
-        String[] tokens = cmd.split("\\s+");
+        return select(cmd, ExecutionEngine.ROW);
+    }
+    
+    /**
+     * Executes the select query {@code cmd} with the engine 
+     * {@code executionEngine}.
+     */
+    public TableView select(String cmd, ExecutionEngine executionEngine) {
+        return getPlanWithoutParameters(cmd).execute(
+                QueryPlan.NO_PARAMETERS, 
+                parallelScanner,
+                Objects.requireNonNull(executionEngine, 
+                                       "The execution engine is null."),
+                Cancellation.NONE);
+    }
+    
+    public CompletableFuture<TableView> selectAsync(String cmd) {
+        return selectAsync(cmd, ExecutionEngine.ROW);
+    }
+    
+    /**
+     * Executes the select query {@code cmd} on the query executor. The query
+     * is planned right away, so an invalid query throws here. Cancelling the
+     * returned future stops the scan.
+     */
+    public CompletableFuture<TableView> 
+        selectAsync(String cmd, ExecutionEngine executionEngine) {
+        return QueryFuture.submit(
+                getPlanWithoutParameters(cmd), 
+                QueryPlan.NO_PARAMETERS, 
+                parallelScanner,
+                Objects.requireNonNull(executionEngine, 
+                                       "The execution engine is null."),
+                queryExecutor);
+    }
+    
+    public QueryPublisher publish(String cmd) {
+        return publish(cmd, ExecutionEngine.ROW);
+    }
+    
+    /**
+     * Returns a publisher of the result rows of the select query 
+     * {@code cmd}, which each subscriber pulls on the query executor. The 
+     * query is planned right away, so an invalid query throws here.
+     */
+    public QueryPublisher publish(String cmd, 
+                                  ExecutionEngine executionEngine) {
+        return new QueryPublisher(
+                getPlanWithoutParameters(cmd), 
+                QueryPlan.NO_PARAMETERS, 
+                parallelScanner,
+                Objects.requireNonNull(executionEngine, 
+                                       "The execution engine is null."),
+                queryExecutor);
+    }
+    
+    public void createIndex(String cmd) {
+        Catalog catalog = getCatalog();
+        Statement statement = new Parser(cmd).parseStatement();
         
-        if (!tokens[0].toLowerCase().equals("select")) {
-            throw new IllegalArgumentException("Not a select query.");
+        if (!(statement instanceof CreateIndexStatement)) {
+            throw new IllegalArgumentException("Not a create index command.");
         }
         
-        int fromIndex = findFromIndex(tokens);
-        
-        if (fromIndex < 0) {
-            throw new IllegalArgumentException(
-                    "No 'from' keyword in the query.");
+        CreateIndexStatement createIndexStatement = 
+                (CreateIndexStatement) statement;
+        catalog.createIndex(createIndexStatement.indexName,
+                            catalog.getTable(createIndexStatement.tableName),
+                            createIndexStatement.columnName,
+                            createIndexStatement.ordered);
+    }
+    
+    public void insertRow(String tableName, Object... values) {
+        Catalog catalog = getCatalog();
+        catalog.insertRow(catalog.getTable(tableName), values);
+    }
+    
+    /**
+     * Bulk-loads {@code rows} into the table {@code tableName}. Each row must
+     * have a value for every column, in the column order of the table, and 
+     * each value must be {@code null} or of the Java type of its column 
+     * ({@code Integer} for {@code TYPE_INT} and so on). The batch is checked 
+     * as a whole before any row is inserted, and indices are updated once 
+     * the whole batch is in, which is much faster than inserting the rows 
+     * one by one.
+     */
+    public void insertRows(String tableName, List<Object[]> rows) {
+        Catalog catalog = getCatalog();
+        Objects.requireNonNull(rows, "The row list is null.");
+        catalog.insertRows(catalog.getTable(tableName), rows);
+    }
+    
+    /**
+     * Executes an {@code INSERT INTO ... VALUES ...} command and returns the
+     * number of rows inserted. Columns left out of the column list get 
+     * {@code NULL}.
+     */
+    public int insert(String cmd) {
+        Catalog catalog = getCatalog();
+        Statement statement = new Parser(cmd).parseStatement();
+        
+        if (!(statement instanceof InsertStatement)) {
+            throw new IllegalArgumentException("Not an insert command.");
         }
         
-        if (fromIndex < 2) {
+        InsertStatement insertStatement = (InsertStatement) statement;
+        
+        if (insertStatement.parameterCount > 0) {
             throw new IllegalArgumentException(
-                    "No columns selected.");
+                    "Placeholders are not supported in insert commands.");
         }
         
-        if (fromIndex == tokens.length - 1) {
-            throw new IllegalArgumentException("No table name.");
+        Table table = catalog.getTable(insertStatement.tableName);
+        List<Object[]> rows = getRowValues(insertStatement, 
+                                           new TableSchema(table));
+        catalog.insertRows(table, rows);
+        return rows.size();
+    }
+    
+    /**
+     * Executes a {@code COPY table FROM 'file'} or 
+     * {@code COPY table TO 'file'} command and returns the number of rows 
+     * copied. The file is streamed, so it may be larger than the memory 
+     * available. An empty unquoted field stands for {@code NULL}, and 
+     * binary values are written in hexadecimal. With {@code COLUMNAR}, the 
+     * table is archived in or imported from a compressed column-oriented 
+     * file instead; see {@link #attachArchive(File)}.
+     */
+    public long copy(String cmd) {
+        Catalog catalog = getCatalog();
+        Statement statement = new Parser(cmd).parseStatement();
+        
+        if (!(statement instanceof CopyStatement)) {
+            throw new IllegalArgumentException("Not a copy command.");
         }
         
-        StringBuilder columnPartBuilder = new StringBuilder();
-        
-        for (int i = 1; i < fromIndex; ++i) {
-            columnPartBuilder.append(tokens[i]).append(' ');
+        return CsvCopy.execute(catalog, (CopyStatement) statement);
+    }
+    
+    /**
+     * Attaches the table archived in {@code file} by 
+     * {@code COPY table TO 'file' COLUMNAR} to the current database, under 
+     * the name of the archived table, until another database is opened. 
+     * SELECT queries without JOIN read the archive in place, skipping the 
+     * blocks of rows whose minimum and maximum values cannot satisfy the 
+     * WHERE clause; the archive cannot be changed.
+     */
+    public void attachArchive(File file) {
+        Catalog catalog = getCatalog();
+        ColumnarFile archive = 
+                ColumnarFile.open(Objects.requireNonNull(file, 
+                                                         "The file is null."));
+        
+        try {
+            catalog.attachArchive(archive);
+        } catch (RuntimeException ex) {
+            archive.close();
+            throw ex;
         }
-        
-        String columnPart = columnPartBuilder.toString();
-        String[] columnStrings = columnPart.split(",");
-        
-        for (int i = 0; i < columnStrings.length; ++i) {
-            columnStrings[i] = columnStrings[i].trim().toLowerCase();
+    }
+    
+    public void attachArchive(String path) {
+        attachArchive(new File(path));
+    }
+    
+    /**
+     * Returns the number of bytes the rows of the table {@code tableName} 
+     * take in memory: the allocated off-heap memory of a table stored off 
+     * the heap, an estimate of the size of the row objects otherwise.
+     */
+    public long getMemoryFootprint(String tableName) {
+        Catalog catalog = getCatalog();
+        return catalog.getMemoryFootprint(catalog.getTable(tableName));
+    }
+    
+    /**
+     * Executes an {@code ANALYZE table} command: gathers the statistics the 
+     * planner uses to choose access paths, join orders and the order in 
+     * which the WHERE conditions are evaluated. If the database has a file, 
+     * the statistics are saved next to it. Returns a description of the 
+     * statistics.
+     */
+    public String analyze(String cmd) {
+        Catalog catalog = getCatalog();
+        Statement statement = new Parser(cmd).parseStatement();
+        
+        if (!(statement instanceof AnalyzeStatement)) {
+            throw new IllegalArgumentException("Not an analyze command.");
         }
         
-        String tableName = tokens[fromIndex + 1];
-        
-        if (tableName.endsWith(";")) {
-            tableName = tableName.substring(0, tableName.length() - 1);
+        Table table = catalog.getTable(
+                ((AnalyzeStatement) statement).tableName);
+        return catalog.analyze(table).toString();
+    }
+    
+    /**
+     * Executes the select query {@code cmd} lazily: the returned cursor pulls
+     * rows from the table scan on demand instead of materializing the whole
+     * result in a {@code TableView}. The cursor should be closed when no 
+     * longer needed.
+     */
+    public QueryCursor query(String cmd) {
+        return query(cmd, ExecutionEngine.ROW);
+    }
+    
+    public QueryCursor query(String cmd, ExecutionEngine executionEngine) {
+        return getPlanWithoutParameters(cmd).open(
+                QueryPlan.NO_PARAMETERS, 
+                parallelScanner,
+                Objects.requireNonNull(executionEngine, 
+                                       "The execution engine is null."),
+                Cancellation.NONE);
+    }
+    
+    public PreparedQuery prepare(String cmd) {
+        return new PreparedQuery(this, getQueryPlan(cmd));
+    }
+    
+    public long getPlanCacheHits() {
+        return planCache.getHits();
+    }
+    
+    public long getPlanCacheMisses() {
+        return planCache.getMisses();
+    }
+    
+    public int getPlanCacheSize() {
+        return planCache.size();
+    }
+    
+    public void setPlanCacheCapacity(int capacity) {
+        planCache.setCapacity(capacity);
+    }
+    
+    /**
+     * Sets the number of threads that scan a large table. With parallelism 1,
+     * which is the default, all scans are sequential.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        ParallelScanner old = parallelScanner;
+        parallelScanner = new ParallelScanner(parallelism, 
+                                              old.getThreshold(), 
+                                              old.isPreserveOrder());
+        old.shutdown();
+    }
+    
+    /**
+     * Sets the number of rows from which on a full table scan is run in 
+     * parallel.
+     */
+    public synchronized void setParallelThreshold(int threshold) {
+        ParallelScanner old = parallelScanner;
+        parallelScanner = new ParallelScanner(old.getParallelism(), 
+                                              threshold, 
+                                              old.isPreserveOrder());
+        old.shutdown();
+    }
+    
+    /**
+     * Sets whether a parallel scan returns the rows in table order. If not,
+     * the matching rows of a chunk are returned as soon as the chunk is 
+     * scanned. Queries with ORDER BY always scan in table order, so that 
+     * rows with equal sort keys keep their table order.
+     */
+    public synchronized void setPreserveOrder(boolean preserveOrder) {
+        ParallelScanner old = parallelScanner;
+        parallelScanner = new ParallelScanner(old.getParallelism(), 
+                                              old.getThreshold(), 
+                                              preserveOrder);
+        old.shutdown();
+    }
+    
+    /**
+     * Sets the executor running the asynchronous queries and the 
+     * subscriptions of the publishers created from now on. The command 
+     * layer does not shut it down.
+     */
+    public void setQueryExecutor(Executor queryExecutor) {
+        this.queryExecutor = 
+                Objects.requireNonNull(queryExecutor, 
+                                       "The query executor is null.");
+    }
+    
+    /**
+     * Runs each asynchronous query on a virtual thread of its own, so that 
+     * a query blocks no platform thread while it waits. Requires Java 21.
+     */
+    public void useVirtualThreads() {
+        Object executor;
+        
+        try {
+            executor = Executors.class
+                                .getMethod("newVirtualThreadPerTaskExecutor")
+                                .invoke(null);
+        } catch (NoSuchMethodException ex) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21.", ex);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
         }
         
-        Table table = database.getTable(tableName);
-        
-        if (table == null) {
-            throw new IllegalArgumentException(tableName + ": no such table.");
+        setQueryExecutor((Executor) executor);
+    }
+    
+    /**
+     * Sets when the write-ahead log is synced to disk; 
+     * {@link SyncPolicy#EVERY_COMMIT} by default.
+     */
+    public synchronized void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = 
+                Objects.requireNonNull(syncPolicy, "The sync policy is null.");
+        
+        if (catalog != null) {
+            catalog.setSyncPolicy(syncPolicy);
+        }
+    }
+    
+    /**
+     * Sets the size in bytes of the write-ahead log from which on the next 
+     * insert saves the database and empties the log.
+     */
+    public synchronized void setCheckpointThreshold(long checkpointThreshold) {
+        if (checkpointThreshold < 0L) {
+            throw new IllegalArgumentException(
+                    "Negative checkpoint threshold: " + checkpointThreshold);
         }
         
-        TableColumnDescriptor[] tableColumnDescriptors =
-                new TableColumnDescriptor[columnStrings.length];
+        this.checkpointThreshold = checkpointThreshold;
         
-        for (int i = 0; i < tableColumnDescriptors.length; ++i) {
-            String tableColumnName = columnStrings[i];
-            TableColumnDescriptor tableColumnDescriptor = 
-                    table.getTableColumnDescriptor(tableColumnName);
+        if (catalog != null) {
+            catalog.setCheckpointThreshold(checkpointThreshold);
+        }
+    }
+    
+    /**
+     * Selects whether the tables of a database in the 
+     * {@link StorageFormat#PAGED} format are read into off-heap memory 
+     * instead of into the tables, from the next table read on; off by 
+     * default. The numbers of a row are then kept in fixed-width fields and
+     * its strings and binary data in a separate area, and queries decode the
+     * columns they filter on straight from there. Saving the database in 
+     * the {@link StorageFormat#JAVADB} format moves the rows back into the 
+     * tables.
+     */
+    public synchronized void setOffHeapStorage(boolean offHeapStorage) {
+        this.offHeapStorage = offHeapStorage;
+        
+        if (catalog != null) {
+            catalog.setOffHeapStorage(offHeapStorage);
+        }
+    }
+    
+    /**
+     * Selects whether the string columns of the tables are 
+     * dictionary-encoded in the storage of the command layer, from the next
+     * table a command first uses on; off by default. Each distinct string of
+     * a column is then kept once and every row refers to it by an int code.
+     * Both engines evaluate {@code column = 'literal'}, 
+     * {@code column <> 'literal'} and {@code column IN ('a', 'b')} on a 
+     * table scan by looking the literals up in the dictionary once per 
+     * batch of rows and comparing the codes. This pays off for columns with
+     * few distinct values.
+     */
+    public synchronized void setDictionaryEncoding(
+            boolean dictionaryEncoding) {
+        this.dictionaryEncoding = dictionaryEncoding;
+        
+        if (catalog != null) {
+            catalog.setDictionaryEncoding(dictionaryEncoding);
+        }
+    }
+    
+    ParallelScanner getParallelScanner() {
+        return parallelScanner;
+    }
+    
+    Executor getQueryExecutor() {
+        return queryExecutor;
+    }
+    
+    void checkCurrentDatabase(QueryPlan queryPlan) {
+        if (queryPlan.catalog != catalog) {
+            throw new IllegalStateException(
+                    "The database has changed since the query was prepared.");
+        }
+    }
+    
+    /**
+     * Converts the literals of an insert command to the types of the columns
+     * they go to.
+     */
+    private static List<Object[]> getRowValues(InsertStatement insertStatement,
+                                               TableSchema schema) {
+        int[] columnIndices;
+        
+        if (insertStatement.columnNames.isEmpty()) {
+            columnIndices = new int[schema.getNumberOfColumns()];
             
-            if (tableColumnDescriptor == null) {
-                throw new IllegalArgumentException(tableColumnName + ": no " +
-                        "such table column.");
+            for (int i = 0; i < columnIndices.length; ++i) {
+                columnIndices[i] = i;
             }
+        } else {
+            columnIndices = new int[insertStatement.columnNames.size()];
             
-            tableColumnDescriptors[i] = tableColumnDescriptor;
+            for (int i = 0; i < columnIndices.length; ++i) {
+                String columnName = insertStatement.columnNames.get(i);
+                columnIndices[i] = schema.indexOf(columnName);
+                
+                if (columnIndices[i] < 0) {
+                    throw new IllegalArgumentException(
+                            columnName + ": no such table column.");
+                }
+            }
         }
         
-        int whereIndex = findWhereIndex(tokens);
+        List<Object[]> rows = new ArrayList<>(insertStatement.rows.size());
         
-        if (whereIndex < 0) {
-            // No where, print all rows.
-            TableView tableView = table.createTableView(tableColumnDescriptors);
-            
-            for (TableRow tableRow : table) {
-                tableView.addTableRow(tableRow);
+        for (List<Operand> operands : insertStatement.rows) {
+            if (operands.size() != columnIndices.length) {
+                throw new IllegalArgumentException(
+                        "Expected " + columnIndices.length + " values but " +
+                        "found " + operands.size() + ".");
             }
             
-            return tableView;
-        }
-        
-        // Once here, there are some WHERE specifications.
-        StringBuilder sb = new StringBuilder();
-        
-        for (int i = whereIndex + 1; i < tokens.length; ++i) {
-            sb.append(tokens[i]).append(' ');
-        }
-        
-        String whereSpecification = sb.toString().trim().toLowerCase();
-        whereSpecification =
-                whereSpecification.substring(
-                        0,
-                        whereSpecification.length() - 1);
-        
-        TokenTreeNode tokenTreeRoot = getTokenTreeRoot(whereSpecification);
-        TableView tableView = table.createTableView(tableColumnDescriptors);
-        
-        for (TableRow tableRow : table) {
-            if (tableRowMatchesSelect(tableRow, tokenTreeRoot)) {
-                tableView.addTableRow(tableRow);
+            Object[] row = new Object[schema.getNumberOfColumns()];
+            
+            for (int i = 0; i < columnIndices.length; ++i) {
+                Operand operand = operands.get(i);
+                
+                if (operand.isColumn()) {
+                    throw new IllegalArgumentException(
+                            "Expected a value but found " + operand + ".");
+                }
+                
+                if (!operand.isNull()) {
+                    row[columnIndices[i]] = Test.convertLiteral(
+                            operand, 
+                            schema.getTableCellType(columnIndices[i]));
+                }
             }
+            
+            rows.add(row);
         }
         
-        return null;
+        return rows;
     }
     
-    private static boolean tableRowMatchesSelect(TableRow tableRow,
-                                                 TokenTreeNode root) {
-        
-        if (root.mode == TokenTreeNode.Mode.TEST) {
-            switch (root.operation) {
-                case EQUAL:
-                    
-                case NOT_EQUAL:
-            }
+    /**
+     * Makes {@code newCatalog} the catalog of the current database once its
+     * log has been replayed, and closes the log of the previous database. 
+     * The plans cached for the previous database are dropped; a plan the 
+     * other threads cache for it meanwhile is never returned, since the 
+     * catalog of a cached plan is checked.
+     */
+    private synchronized void open(Catalog newCatalog) {
+        newCatalog.setSyncPolicy(syncPolicy);
+        newCatalog.setCheckpointThreshold(checkpointThreshold);
+        newCatalog.setOffHeapStorage(offHeapStorage);
+        newCatalog.setDictionaryEncoding(dictionaryEncoding);
+        newCatalog.openLog();
+        Catalog oldCatalog = catalog;
+        catalog = newCatalog;
+        planCache.clear();
+        
+        if (oldCatalog != null) {
+            oldCatalog.close();
         }
     }
     
-    private static final class TokenTreeNode {
-        enum Mode {
-            AND,
-            OR,
-            TEST
-        }
-        
-        enum Operation {
-            EQUAL,
-            NOT_EQUAL,
-            LESS,
-            LESS_EQ,
-            GREATER,
-            GREATER_EQ
-        }
+    private QueryPlan getPlanWithoutParameters(String cmd) {
+        QueryPlan queryPlan = getQueryPlan(cmd);
         
-        private static final class Operand {
-            enum OperandType {
-                COLUMN,
-                CONST
-            }
-            
-            OperandType operandType;
-            Object value;
+        if (queryPlan.parameterCount > 0) {
+            throw new IllegalArgumentException(
+                    "The query has parameters. Use prepare().");
         }
         
-        Mode mode;
-        Operation operation;
-        Operand leftOperand;
-        Operand rightOperand;
-        TokenTreeNode leftChild;
-        TokenTreeNode rightChild;
+        return queryPlan;
     }
     
-    private static TokenTreeNode getTokenTreeRoot(String spec) {
-        checkParentheses(spec);
-        return getTokenTreeRoot(spec, 0, spec.length());
+    private Catalog getCatalog() {
+        return Objects.requireNonNull(catalog, "No current database.");
     }
     
-    private static TokenTreeNode getTokenTreeRoot(String spec, 
-                                                  int start, 
-                                                  int end) {
-        String currentSpec = spec.substring(start, end);
+    private QueryPlan getQueryPlan(String cmd) {
+        Catalog catalog = getCatalog();
+        String key = PlanCache.normalize(cmd);
+        QueryPlan queryPlan = planCache.get(key, catalog);
         
-        int firstParenthesisIndex = currentSpec.indexOf("(");
-        int lastParenthesisIndex = currentSpec.lastIndexOf(")");
-        
-        if (firstParenthesisIndex >= 0) {
-            // Current spec substring contains a parentheses:
-            TokenTreeNode ttn1 = getTokenTreeRoot(currentSpec, 
-                                                  firstParenthesisIndex + 1,
-                                                  lastParenthesisIndex);
-        } else {
-            int ands = currentSpec.split("and").length;
-            int index = 0;
-            
-            for (int i = 0; i <= ands; ++i) {
-
-            }
+        if (queryPlan != null) {
+            return queryPlan;
         }
         
-        TokenTreeNode subtree = 
-                getTokenTreeRoot(
-                        spec.substring(firstParenthesisIndex + 1, 
-                                       lastParenthesisIndex - 1));
-    }
-    
-    private static void checkParentheses(String spec) {
-        Deque<Character> stack = new ArrayDeque<>();
-        
-        for (char c : spec.toCharArray()) {
-            switch (c) {
-                case '(':
-                    stack.addLast(c);
-                    break;
-                    
-                case ')':
-                    if (stack.isEmpty() || stack.getLast() != '(') {
-                        throw new IllegalArgumentException(
-                                "Bad parenthesis structure."); 
-                    }
-                    
-                    stack.removeLast();
-            }
-        }
-    }
-    
-    private static int findTokenIndex(String[] tokens, String token) {
-        token = token.toLowerCase();
+        Statement statement = new Parser(cmd).parseStatement();
         
-        for (int i = 0; i < tokens.length; ++i) {
-            if (tokens[i].toLowerCase().equals(token)) {
-                return i;
-            }
+        if (!(statement instanceof SelectStatement)) {
+            throw new IllegalArgumentException("Not a select query.");
         }
         
-        return -1;
-    }
-    
-    private static int findFromIndex(String[] tokens) {
-        return findTokenIndex(tokens, "from");
-    }
-    
-    private static int findWhereIndex(String[] tokens) {
-        return findTokenIndex(tokens, "where");
+        queryPlan = new QueryPlan(catalog, (SelectStatement) statement);
+        planCache.put(key, queryPlan);
+        return queryPlan;
     }
 }
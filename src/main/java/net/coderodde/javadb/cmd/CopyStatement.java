@@ -0,0 +1,42 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+
+final class CopyStatement implements Statement {
+
+    final String tableName;
+    final String fileName;
+    
+    /**
+     * {@code true} for {@code COPY ... FROM}, {@code false} for 
+     * {@code COPY ... TO}.
+     */
+    final boolean importing;
+    final char delimiter;
+    
+    /**
+     * Whether the first line of the file holds the column names.
+     */
+    final boolean header;
+    
+    /**
+     * Whether the file is a columnar archive instead of delimited text.
+     */
+    final boolean columnar;
+    
+    CopyStatement(String tableName, 
+                  String fileName, 
+                  boolean importing,
+                  char delimiter,
+                  boolean header,
+                  boolean columnar) {
+        this.tableName = Objects.requireNonNull(tableName, 
+                                                "The table name is null.");
+        this.fileName = Objects.requireNonNull(fileName, 
+                                               "The file name is null.");
+        this.importing = importing;
+        this.delimiter = delimiter;
+        this.header = header;
+        this.columnar = columnar;
+    }
+}
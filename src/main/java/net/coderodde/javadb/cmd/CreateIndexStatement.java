@@ -0,0 +1,24 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+
+final class CreateIndexStatement implements Statement {
+
+    final String indexName;
+    final String tableName;
+    final String columnName;
+    final boolean ordered;
+    
+    CreateIndexStatement(String indexName, 
+                         String tableName, 
+                         String columnName,
+                         boolean ordered) {
+        this.indexName = Objects.requireNonNull(indexName, 
+                                                "The index name is null.");
+        this.tableName = Objects.requireNonNull(tableName, 
+                                                "The table name is null.");
+        this.columnName = Objects.requireNonNull(columnName, 
+                                                 "The column name is null.");
+        this.ordered = ordered;
+    }
+}
@@ -0,0 +1,189 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Executes {@code COPY} commands. An import reads the file record by record
+ * and inserts the rows in batches through 
+ * {@link Catalog#insertRows(Table, List)}, so at most one batch is in memory
+ * at a time. If a record is malformed, the batches before it stay inserted.
+ * A columnar copy writes the table to a {@link ColumnarFile} or imports the
+ * rows of one, a block per batch.
+ */
+final class CsvCopy {
+
+    static final int BATCH_SIZE = 4096;
+    
+    private CsvCopy() {}
+    
+    /**
+     * Executes {@code copyStatement} and returns the number of rows copied.
+     */
+    static long execute(Catalog catalog, CopyStatement copyStatement) {
+        Table table = catalog.getTable(copyStatement.tableName);
+        
+        if (copyStatement.columnar) {
+            File file = new File(copyStatement.fileName);
+            return copyStatement.importing ?
+                   importArchive(catalog, table, file) :
+                   ColumnarFile.write(
+                           file, 
+                           table, 
+                           catalog.getSnapshot(table).getRowStore(table));
+        }
+        
+        Path path = Paths.get(copyStatement.fileName);
+        
+        try {
+            return copyStatement.importing ? 
+                   importRows(catalog, table, path, copyStatement) :
+                   exportRows(catalog.getSnapshot(table).getRowStore(table), 
+                              table, 
+                              path, 
+                              copyStatement);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not copy " + (copyStatement.importing ? 
+                                         "from " : "to ") + path + ".", ex);
+        }
+    }
+    
+    private static long importRows(Catalog catalog, 
+                                   Table table, 
+                                   Path path,
+                                   CopyStatement copyStatement) 
+    throws IOException {
+        TableCellType[] tableCellTypes = getTableCellTypes(table);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long rowCount = 0L;
+        
+        try (CsvReader csvReader = 
+                new CsvReader(path, copyStatement.delimiter)) {
+            if (copyStatement.header) {
+                csvReader.skipRecord();
+            }
+            
+            while (true) {
+                Object[] row = new Object[tableCellTypes.length];
+                
+                if (!csvReader.readRecord(tableCellTypes, row)) {
+                    break;
+                }
+                
+                batch.add(row);
+                
+                if (batch.size() == BATCH_SIZE) {
+                    catalog.insertRows(table, batch);
+                    rowCount += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        
+        if (!batch.isEmpty()) {
+            catalog.insertRows(table, batch);
+            rowCount += batch.size();
+        }
+        
+        return rowCount;
+    }
+    
+    private static long importArchive(Catalog catalog, 
+                                      Table table, 
+                                      File file) {
+        ColumnarFile archive = ColumnarFile.open(file);
+        
+        try {
+            TableSchema archiveSchema = new TableSchema(archive.getTable());
+            TableCellType[] tableCellTypes = getTableCellTypes(table);
+            
+            if (!Arrays.equals(getTableCellTypes(archive.getTable()), 
+                               tableCellTypes)) {
+                throw new IllegalArgumentException(
+                        file + ": the archived columns do not match the " +
+                        "columns of the table " + table.getTableName() + 
+                        ".");
+            }
+            
+            Iterator<TableRow> archivedRows = 
+                    archive.scan(archiveSchema, 
+                                 null, 
+                                 RowPredicates.constant(true),
+                                 Cancellation.NONE);
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            long rowCount = 0L;
+            
+            while (archivedRows.hasNext()) {
+                TableRow tableRow = archivedRows.next();
+                Object[] row = new Object[tableCellTypes.length];
+                
+                for (int i = 0; i < row.length; ++i) {
+                    row[i] = tableRow.get(i).getValue();
+                }
+                
+                batch.add(row);
+                
+                if (batch.size() == BATCH_SIZE) {
+                    catalog.insertRows(table, batch);
+                    rowCount += batch.size();
+                    batch.clear();
+                }
+            }
+            
+            if (!batch.isEmpty()) {
+                catalog.insertRows(table, batch);
+                rowCount += batch.size();
+            }
+            
+            return rowCount;
+        } finally {
+            archive.close();
+        }
+    }
+    
+    private static long exportRows(RowStore rowStore,
+                                   Table table, 
+                                   Path path, 
+                                   CopyStatement copyStatement) 
+    throws IOException {
+        TableCellType[] tableCellTypes = getTableCellTypes(table);
+        long rowCount = 0L;
+        
+        try (CsvWriter csvWriter = 
+                new CsvWriter(path, copyStatement.delimiter)) {
+            if (copyStatement.header) {
+                csvWriter.writeHeader(new TableSchema(table));
+            }
+            
+            for (int i = 0; i < rowStore.size(); ++i) {
+                csvWriter.writeRow(rowStore.get(i), tableCellTypes);
+                ++rowCount;
+            }
+        }
+        
+        return rowCount;
+    }
+    
+    private static TableCellType[] getTableCellTypes(Table table) {
+        TableSchema schema = new TableSchema(table);
+        TableCellType[] tableCellTypes = 
+                new TableCellType[schema.getNumberOfColumns()];
+        
+        for (int i = 0; i < tableCellTypes.length; ++i) {
+            tableCellTypes[i] = schema.getTableCellType(i);
+        }
+        
+        return tableCellTypes;
+    }
+}
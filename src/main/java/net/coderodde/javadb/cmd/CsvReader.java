@@ -0,0 +1,345 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import net.coderodde.javadb.TableCellType;
+
+/**
+ * Reads the records of a CSV or TSV file one at a time, parsing each field 
+ * directly into the Java value of its column type. Characters are read in 
+ * large blocks and each field is copied into a single reusable character 
+ * buffer, so no string is created for numeric and boolean fields and the 
+ * file is never held in memory as a whole.
+ * 
+ * <p>Fields may be quoted with {@code "}, and a {@code ""} within a quoted 
+ * field stands for a single quote. An empty unquoted field is {@code NULL}, 
+ * whereas {@code ""} is the empty string. Binary values are written in 
+ * hexadecimal. Blank lines are skipped.
+ */
+final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int END_OF_FILE = -1;
+    
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    
+    private char[] field = new char[64];
+    private int fieldLength;
+    private boolean fieldQuoted;
+    
+    /**
+     * The character that ended the last field: the delimiter, {@code '\n'} 
+     * or {@link #END_OF_FILE}.
+     */
+    private int terminator;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private int fieldNumber;
+    
+    CsvReader(Path path, char delimiter) throws IOException {
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        this.delimiter = delimiter;
+    }
+    
+    /**
+     * Reads the next record into {@code row}, converting the i-th field to 
+     * the type {@code tableCellTypes[i]}. Returns {@code false} if there are 
+     * no more records.
+     */
+    boolean readRecord(TableCellType[] tableCellTypes, Object[] row) 
+    throws IOException {
+        if (!skipBlankLines()) {
+            return false;
+        }
+        
+        recordLineNumber = lineNumber;
+        
+        for (fieldNumber = 1; 
+                fieldNumber <= tableCellTypes.length; 
+                ++fieldNumber) {
+            if (fieldNumber > 1 && terminator != delimiter) {
+                throw error("Expected " + tableCellTypes.length + 
+                            " fields but found " + (fieldNumber - 1) + ".");
+            }
+            
+            readField();
+            row[fieldNumber - 1] = 
+                    fieldLength == 0 && !fieldQuoted ? 
+                    null : 
+                    parseField(tableCellTypes[fieldNumber - 1]);
+        }
+        
+        if (terminator == delimiter) {
+            throw error("Expected " + tableCellTypes.length + 
+                        " fields but found more.");
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Skips the next record. Returns {@code false} if there are no more 
+     * records.
+     */
+    boolean skipRecord() throws IOException {
+        if (!skipBlankLines()) {
+            return false;
+        }
+        
+        recordLineNumber = lineNumber;
+        fieldNumber = 1;
+        
+        do {
+            readField();
+            ++fieldNumber;
+        } while (terminator == delimiter);
+        
+        return true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private boolean skipBlankLines() throws IOException {
+        while (true) {
+            int c = peek();
+            
+            if (c == END_OF_FILE) {
+                return false;
+            }
+            
+            if (c != '\r' && c != '\n') {
+                return true;
+            }
+            
+            ++position;
+            
+            if (c == '\n' || peek() != '\n') {
+                ++lineNumber;
+            }
+        }
+    }
+    
+    private void readField() throws IOException {
+        fieldLength = 0;
+        fieldQuoted = false;
+        int c = read();
+        
+        if (c == '"') {
+            fieldQuoted = true;
+            
+            while (true) {
+                c = read();
+                
+                if (c == END_OF_FILE) {
+                    throw error("Unterminated quoted field.");
+                }
+                
+                if (c == '"') {
+                    c = read();
+                    
+                    if (c != '"') {
+                        break;
+                    }
+                } else if (c == '\n') {
+                    ++lineNumber;
+                }
+                
+                append((char) c);
+            }
+        } else {
+            while (c != delimiter 
+                    && c != '\n' 
+                    && c != '\r' 
+                    && c != END_OF_FILE) {
+                append((char) c);
+                c = read();
+            }
+        }
+        
+        if (c == '\r') {
+            if (peek() == '\n') {
+                ++position;
+            }
+            
+            c = '\n';
+        }
+        
+        if (c == '\n') {
+            ++lineNumber;
+        } else if (c != delimiter && c != END_OF_FILE) {
+            throw error("Unexpected character after a quoted field.");
+        }
+        
+        terminator = c;
+    }
+    
+    private Object parseField(TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return (int) parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+                
+            case TYPE_LONG:
+                return parseLong(Long.MIN_VALUE, Long.MAX_VALUE);
+                
+            case TYPE_FLOAT:
+                try {
+                    return Float.parseFloat(fieldString());
+                } catch (NumberFormatException ex) {
+                    throw error("Not a float: " + fieldString());
+                }
+                
+            case TYPE_DOUBLE:
+                try {
+                    return Double.parseDouble(fieldString());
+                } catch (NumberFormatException ex) {
+                    throw error("Not a double: " + fieldString());
+                }
+                
+            case TYPE_BOOLEAN:
+                if (fieldEqualsIgnoreCase("true")) {
+                    return Boolean.TRUE;
+                } else if (fieldEqualsIgnoreCase("false")) {
+                    return Boolean.FALSE;
+                }
+                
+                throw error("Not a boolean: " + fieldString());
+                
+            case TYPE_STRING:
+                return fieldString();
+                
+            case TYPE_BINARY:
+                return parseHex();
+                
+            default:
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
+        }
+    }
+    
+    /**
+     * Parses the field as a decimal integer within 
+     * [{@code minValue}, {@code maxValue}]. The value is accumulated as a 
+     * negative number so that {@code Long.MIN_VALUE} is parsed too.
+     */
+    private long parseLong(long minValue, long maxValue) {
+        int i = 0;
+        boolean negative = false;
+        
+        if (fieldLength > 0 && (field[0] == '-' || field[0] == '+')) {
+            negative = field[0] == '-';
+            i = 1;
+        }
+        
+        if (i == fieldLength) {
+            throw error("Not an integer: " + fieldString());
+        }
+        
+        long limit = negative ? minValue : -maxValue;
+        long value = 0;
+        
+        for (; i < fieldLength; ++i) {
+            int digit = field[i] - '0';
+            
+            if (digit < 0 || digit > 9) {
+                throw error("Not an integer: " + fieldString());
+            }
+            
+            if (value < (limit + digit) / 10) {
+                throw error("Integer out of range: " + fieldString());
+            }
+            
+            value = 10 * value - digit;
+        }
+        
+        return negative ? value : -value;
+    }
+    
+    private byte[] parseHex() {
+        if (fieldLength % 2 != 0) {
+            throw error("Odd number of hexadecimal digits.");
+        }
+        
+        byte[] data = new byte[fieldLength / 2];
+        
+        for (int i = 0; i < data.length; ++i) {
+            int high = Character.digit(field[2 * i], 16);
+            int low = Character.digit(field[2 * i + 1], 16);
+            
+            if (high < 0 || low < 0) {
+                throw error("Not a hexadecimal string: " + fieldString());
+            }
+            
+            data[i] = (byte)((high << 4) | low);
+        }
+        
+        return data;
+    }
+    
+    private boolean fieldEqualsIgnoreCase(String str) {
+        if (fieldLength != str.length()) {
+            return false;
+        }
+        
+        for (int i = 0; i < fieldLength; ++i) {
+            if (Character.toLowerCase(field[i]) != str.charAt(i)) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private String fieldString() {
+        return new String(field, 0, fieldLength);
+    }
+    
+    private void append(char c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, 2 * field.length);
+        }
+        
+        field[fieldLength++] = c;
+    }
+    
+    private int read() throws IOException {
+        int c = peek();
+        
+        if (c != END_OF_FILE) {
+            ++position;
+        }
+        
+        return c;
+    }
+    
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            
+            if (limit <= 0) {
+                limit = 0;
+                return END_OF_FILE;
+            }
+        }
+        
+        return buffer[position];
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(
+                "Line " + recordLineNumber + ", field " + fieldNumber + ": " +
+                message);
+    }
+}
@@ -0,0 +1,144 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Writes table rows as CSV or TSV records in the format {@link CsvReader} 
+ * reads. Each record is built in a reusable {@code StringBuilder}, so 
+ * numbers are formatted without intermediate strings.
+ */
+final class CsvWriter implements Closeable {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    private final Writer writer;
+    private final char delimiter;
+    private final StringBuilder record = new StringBuilder();
+    
+    CsvWriter(Path path, char delimiter) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        this.delimiter = delimiter;
+    }
+    
+    void writeHeader(TableSchema schema) throws IOException {
+        record.setLength(0);
+        
+        for (int i = 0; i < schema.getNumberOfColumns(); ++i) {
+            if (i > 0) {
+                record.append(delimiter);
+            }
+            
+            appendString(schema.getTableColumnDescriptor(i)
+                               .getTableColumnName());
+        }
+        
+        writeRecord();
+    }
+    
+    void writeRow(TableRow tableRow, TableCellType[] tableCellTypes) 
+    throws IOException {
+        record.setLength(0);
+        
+        for (int i = 0; i < tableCellTypes.length; ++i) {
+            if (i > 0) {
+                record.append(delimiter);
+            }
+            
+            TableCell tableCell = tableRow.get(i);
+            
+            if (tableCell.getValue() == null) {
+                continue;
+            }
+            
+            switch (tableCellTypes[i]) {
+                case TYPE_INT:
+                    record.append(tableCell.getIntValue());
+                    break;
+                    
+                case TYPE_LONG:
+                    record.append(tableCell.getLongValue());
+                    break;
+                    
+                case TYPE_FLOAT:
+                    record.append(tableCell.getFloatValue());
+                    break;
+                    
+                case TYPE_DOUBLE:
+                    record.append(tableCell.getDoubleValue());
+                    break;
+                    
+                case TYPE_BOOLEAN:
+                    record.append(tableCell.getBooleanValue());
+                    break;
+                    
+                case TYPE_STRING:
+                    appendString(tableCell.getStringValue());
+                    break;
+                    
+                case TYPE_BINARY:
+                    for (byte b : tableCell.getBinaryData()) {
+                        record.append(HEX_DIGITS[(b >>> 4) & 0xf])
+                              .append(HEX_DIGITS[b & 0xf]);
+                    }
+                    
+                    break;
+                    
+                default:
+                    throw new IllegalStateException(
+                            tableCellTypes[i] + ": unknown cell type.");
+            }
+        }
+        
+        writeRecord();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+    
+    /**
+     * Appends {@code str}, quoting it if it is empty (an empty unquoted field
+     * is {@code NULL}) or contains the delimiter, a quote or a line break.
+     */
+    private void appendString(String str) {
+        boolean quote = str.isEmpty();
+        
+        for (int i = 0; i < str.length() && !quote; ++i) {
+            char c = str.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        
+        if (!quote) {
+            record.append(str);
+            return;
+        }
+        
+        record.append('"');
+        
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            
+            if (c == '"') {
+                record.append('"');
+            }
+            
+            record.append(c);
+        }
+        
+        record.append('"');
+    }
+    
+    private void writeRecord() throws IOException {
+        record.append('\n');
+        writer.append(record);
+    }
+}
@@ -0,0 +1,85 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * Estimates the number of distinct values added to it with a HyperLogLog 
+ * sketch of {@value #REGISTER_COUNT} one-byte registers. The standard error 
+ * of the estimate is about 1.6 percent, and small counts are estimated by 
+ * linear counting, which is nearly exact.
+ */
+final class DistinctCounter {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    
+    private final byte[] registers = new byte[REGISTER_COUNT];
+    
+    /**
+     * Adds a value given by a 64-bit hash of it.
+     */
+    void add(long hash) {
+        int register = (int) (hash >>> (64 - PRECISION));
+        int rank = 
+                Long.numberOfLeadingZeros((hash << PRECISION) 
+                                          | (1L << (PRECISION - 1))) + 1;
+        
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+    
+    long estimate() {
+        double sum = 0.0;
+        int zeroRegisters = 0;
+        
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            
+            if (register == 0) {
+                ++zeroRegisters;
+            }
+        }
+        
+        double alpha = 0.7213 / (1.0 + 1.079 / REGISTER_COUNT);
+        double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / sum;
+        
+        if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+            estimate = REGISTER_COUNT * 
+                       Math.log((double) REGISTER_COUNT / zeroRegisters);
+        }
+        
+        return Math.round(estimate);
+    }
+    
+    /**
+     * Spreads the bits of {@code value} over the whole hash (the finalizer 
+     * of MurmurHash3).
+     */
+    static long hash(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+    
+    static long hash(String value) {
+        long h = 1125899906842597L;
+        
+        for (int i = 0; i < value.length(); ++i) {
+            h = 31 * h + value.charAt(i);
+        }
+        
+        return hash(h);
+    }
+    
+    static long hash(byte[] value) {
+        long h = 1125899906842597L;
+        
+        for (byte b : value) {
+            h = 31 * h + b;
+        }
+        
+        return hash(h);
+    }
+}
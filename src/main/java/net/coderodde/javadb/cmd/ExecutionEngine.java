@@ -0,0 +1,20 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * Selects how a query evaluates its WHERE predicate over a full table scan. 
+ * Both engines return the same rows in the same order.
+ */
+public enum ExecutionEngine {
+
+    /**
+     * Tests the rows one at a time.
+     */
+    ROW,
+    
+    /**
+     * Extracts the columns of batches of a few thousand rows into primitive 
+     * arrays and evaluates the predicate over whole batches into selection 
+     * bitmaps.
+     */
+    VECTORIZED
+}
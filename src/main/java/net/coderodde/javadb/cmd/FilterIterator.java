@@ -0,0 +1,49 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Lazily yields the rows of a source iterator that satisfy a predicate. The
+ * predicate adapts to the rows of this iterator only.
+ */
+final class FilterIterator implements Iterator<TableRow> {
+
+    private final Iterator<TableRow> source;
+    private final RowPredicate predicate;
+    private TableRow nextRow;
+    
+    FilterIterator(Iterator<TableRow> source, RowPredicate predicate) {
+        this.source = source;
+        this.predicate = predicate.adapt();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (nextRow == null) {
+            if (!source.hasNext()) {
+                return false;
+            }
+            
+            TableRow tableRow = source.next();
+            
+            if (predicate.test(tableRow)) {
+                nextRow = tableRow;
+            }
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public TableRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows.");
+        }
+        
+        TableRow tableRow = nextRow;
+        nextRow = null;
+        return tableRow;
+    }
+}
@@ -0,0 +1,202 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Numbers the distinct values of the GROUP BY columns in the order they are 
+ * first seen. A single integer, long or boolean column is hashed unboxed in 
+ * an open-addressing table; other keys go to a {@code HashMap}. All nulls 
+ * form one group.
+ */
+abstract class GroupTable {
+
+    private int groupCount;
+    
+    static GroupTable create(int[] columnIndices, 
+                             TableCellType[] tableCellTypes) {
+        if (columnIndices.length == 0) {
+            return new SingleGroupTable();
+        }
+        
+        if (columnIndices.length == 1) {
+            switch (tableCellTypes[0]) {
+                case TYPE_INT:
+                case TYPE_LONG:
+                case TYPE_BOOLEAN:
+                    return new LongGroupTable(columnIndices[0], 
+                                              tableCellTypes[0]);
+            }
+        }
+        
+        return new ObjectGroupTable(columnIndices);
+    }
+    
+    /**
+     * Returns the id of the group of {@code tableRow}. A row of a new group
+     * gets the id {@code getGroupCount()} before the call.
+     */
+    abstract int getGroupId(TableRow tableRow);
+    
+    final int getGroupCount() {
+        return groupCount;
+    }
+    
+    final int newGroupId() {
+        return groupCount++;
+    }
+    
+    /**
+     * The table of an aggregation without GROUP BY: all the rows form a 
+     * single group.
+     */
+    private static final class SingleGroupTable extends GroupTable {
+        
+        @Override
+        int getGroupId(TableRow tableRow) {
+            return getGroupCount() == 0 ? newGroupId() : 0;
+        }
+    }
+    
+    private static final class LongGroupTable extends GroupTable {
+        
+        private static final int INITIAL_SLOTS = 16;
+        
+        private final int columnIndex;
+        private final TableCellType tableCellType;
+        private long[] keys = new long[INITIAL_SLOTS];
+        private int[] groupIds = newSlotArray(INITIAL_SLOTS);
+        private int keyCount;
+        private int nullGroupId = -1;
+        
+        LongGroupTable(int columnIndex, TableCellType tableCellType) {
+            this.columnIndex = columnIndex;
+            this.tableCellType = tableCellType;
+        }
+        
+        @Override
+        int getGroupId(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            
+            if (tableCell.getValue() == null) {
+                if (nullGroupId < 0) {
+                    nullGroupId = newGroupId();
+                }
+                
+                return nullGroupId;
+            }
+            
+            long key = getKey(tableCell);
+            int slot = findSlot(key);
+            
+            if (groupIds[slot] >= 0) {
+                return groupIds[slot];
+            }
+            
+            if (4 * (keyCount + 1) > 3 * keys.length) {
+                rehash();
+                slot = findSlot(key);
+            }
+            
+            keys[slot] = key;
+            groupIds[slot] = newGroupId();
+            ++keyCount;
+            return groupIds[slot];
+        }
+        
+        private long getKey(TableCell tableCell) {
+            switch (tableCellType) {
+                case TYPE_INT:
+                    return tableCell.getIntValue();
+                    
+                case TYPE_LONG:
+                    return tableCell.getLongValue();
+                    
+                case TYPE_BOOLEAN:
+                    return tableCell.getBooleanValue() ? 1L : 0L;
+                    
+                default:
+                    throw new IllegalStateException(
+                            "This should not be thrown.");
+            }
+        }
+        
+        private int findSlot(long key) {
+            int mask = keys.length - 1;
+            int slot = HashIndex.hash(key) & mask;
+            
+            while (groupIds[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            
+            return slot;
+        }
+        
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldGroupIds = groupIds;
+            keys = new long[2 * oldKeys.length];
+            groupIds = newSlotArray(2 * oldKeys.length);
+            
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldGroupIds[i] >= 0) {
+                    int slot = findSlot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    groupIds[slot] = oldGroupIds[i];
+                }
+            }
+        }
+        
+        private static int[] newSlotArray(int length) {
+            int[] array = new int[length];
+            Arrays.fill(array, -1);
+            return array;
+        }
+    }
+    
+    /**
+     * Groups by the boxed cell values: the value itself for a single column,
+     * and a list of the values for several columns.
+     */
+    private static final class ObjectGroupTable extends GroupTable {
+        
+        private final int[] columnIndices;
+        private final Map<Object, Integer> groupIdMap = new HashMap<>();
+        
+        ObjectGroupTable(int[] columnIndices) {
+            this.columnIndices = columnIndices;
+        }
+        
+        @Override
+        int getGroupId(TableRow tableRow) {
+            Object key;
+            
+            if (columnIndices.length == 1) {
+                key = ObjectHashIndex.normalize(
+                        tableRow.get(columnIndices[0]).getValue());
+            } else {
+                Object[] values = new Object[columnIndices.length];
+                
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = ObjectHashIndex.normalize(
+                            tableRow.get(columnIndices[i]).getValue());
+                }
+                
+                key = Arrays.asList(values);
+            }
+            
+            Integer groupId = groupIdMap.get(key);
+            
+            if (groupId == null) {
+                groupId = newGroupId();
+                groupIdMap.put(key, groupId);
+            }
+            
+            return groupId;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * The GROUP BY and the aggregates of a SELECT statement bound to the table 
+ * schema. Executing the aggregation hashes each input row to its group and 
+ * adds it to the primitive accumulators of the group; the values are boxed 
+ * only when the result rows are built, once per group. The result rows 
+ * belong to a scratch table whose columns are the selected items, in order.
+ */
+final class HashAggregation {
+
+    private final int[] groupColumnIndices;
+    private final TableCellType[] groupCellTypes;
+    private final AggregateFunction[] functions;
+    
+    /**
+     * The aggregated columns, with -1 for {@code COUNT(*)}.
+     */
+    private final int[] aggregateColumnIndices;
+    private final TableCellType[] aggregateCellTypes;
+    
+    /**
+     * For each result column, the index of its group column if it is not 
+     * negative, and otherwise {@code -1 - i} for the {@code i}th aggregate.
+     */
+    private final int[] outputSources;
+    private final TableColumnDescriptor[] outputDescriptors;
+    
+    /**
+     * The schema of the result rows. Its table is only used as a template.
+     */
+    final TableSchema outputSchema;
+    
+    HashAggregation(TableSchema schema, SelectStatement selectStatement) {
+        if (selectStatement.selectItems.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "SELECT * cannot be used with GROUP BY.");
+        }
+        
+        List<String> groupBy = selectStatement.groupBy;
+        this.groupColumnIndices = new int[groupBy.size()];
+        this.groupCellTypes = new TableCellType[groupBy.size()];
+        
+        for (int i = 0; i < groupColumnIndices.length; ++i) {
+            int columnIndex = resolve(schema, groupBy.get(i));
+            TableCellType tableCellType = schema.getTableCellType(columnIndex);
+            
+            if (tableCellType == TableCellType.TYPE_BINARY) {
+                throw new IllegalArgumentException(
+                        "Cannot group by a binary column.");
+            }
+            
+            groupColumnIndices[i] = columnIndex;
+            groupCellTypes[i] = tableCellType;
+        }
+        
+        List<SelectStatement.SelectItem> selectItems = 
+                selectStatement.selectItems;
+        List<AggregateFunction> functionList = new ArrayList<>();
+        List<Integer> columnList = new ArrayList<>();
+        List<TableCellType> typeList = new ArrayList<>();
+        this.outputSources = new int[selectItems.size()];
+        this.outputDescriptors = 
+                new TableColumnDescriptor[selectItems.size()];
+        
+        for (int i = 0; i < outputSources.length; ++i) {
+            SelectStatement.SelectItem selectItem = selectItems.get(i);
+            int columnIndex = selectItem.columnName == null ? 
+                              -1 : 
+                              resolve(schema, selectItem.columnName);
+            TableCellType tableCellType;
+            
+            if (selectItem.isAggregate()) {
+                TableCellType columnCellType = 
+                        columnIndex < 0 ? 
+                        null : 
+                        schema.getTableCellType(columnIndex);
+                tableCellType = 
+                        Accumulators.getResultType(selectItem.function, 
+                                                   columnCellType);
+                outputSources[i] = -1 - functionList.size();
+                functionList.add(selectItem.function);
+                columnList.add(columnIndex);
+                typeList.add(columnCellType);
+            } else {
+                int groupIndex = indexOf(groupColumnIndices, columnIndex);
+                
+                if (groupIndex < 0) {
+                    throw new IllegalArgumentException(
+                            selectItem.columnName + ": must appear in " + 
+                            "GROUP BY or be aggregated.");
+                }
+                
+                tableCellType = schema.getTableCellType(columnIndex);
+                outputSources[i] = groupIndex;
+            }
+            
+            outputDescriptors[i] = 
+                    new TableColumnDescriptor(selectItem.getOutputName(), 
+                                              tableCellType);
+        }
+        
+        this.functions = 
+                functionList.toArray(new AggregateFunction[0]);
+        this.aggregateColumnIndices = new int[columnList.size()];
+        
+        for (int i = 0; i < aggregateColumnIndices.length; ++i) {
+            aggregateColumnIndices[i] = columnList.get(i);
+        }
+        
+        this.aggregateCellTypes = typeList.toArray(new TableCellType[0]);
+        this.outputSchema = new TableSchema(createOutputTable(schema));
+    }
+    
+    TableColumnDescriptor[] getTableColumnDescriptors() {
+        return outputDescriptors.clone();
+    }
+    
+    /**
+     * Returns {@code true} if the result is a single row of 
+     * {@code COUNT(*)} values, which do not depend on the row contents.
+     */
+    boolean isCountOnly() {
+        if (groupColumnIndices.length > 0) {
+            return false;
+        }
+        
+        for (int columnIndex : aggregateColumnIndices) {
+            if (columnIndex >= 0) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Returns the result of a count-only aggregation of {@code rowCount} 
+     * rows.
+     */
+    Iterator<TableRow> count(long rowCount) {
+        Object[] values = new Object[outputSources.length];
+        Arrays.fill(values, rowCount);
+        Table outputTable = createOutputTable(outputSchema);
+        return Arrays.asList(outputTable.putTableRow(values)).iterator();
+    }
+    
+    /**
+     * Consumes {@code iterator} and returns the result rows, one per group in
+     * the order the groups were first seen. Without GROUP BY there is exactly
+     * one result row, even if there are no input rows.
+     */
+    Iterator<TableRow> aggregate(Iterator<TableRow> iterator) {
+        GroupTable groupTable = GroupTable.create(groupColumnIndices, 
+                                                  groupCellTypes);
+        Accumulator[] accumulators = new Accumulator[functions.length];
+        
+        for (int i = 0; i < accumulators.length; ++i) {
+            accumulators[i] = Accumulators.create(functions[i], 
+                                                  aggregateColumnIndices[i], 
+                                                  aggregateCellTypes[i]);
+        }
+        
+        // The first row of each group supplies its GROUP BY values.
+        TableRow[] groupRows = new TableRow[16];
+        
+        while (iterator.hasNext()) {
+            TableRow tableRow = iterator.next();
+            int groupCount = groupTable.getGroupCount();
+            int groupId = groupTable.getGroupId(tableRow);
+            
+            if (groupId == groupCount) {
+                if (groupId == groupRows.length) {
+                    groupRows = Arrays.copyOf(groupRows, 2 * groupId);
+                }
+                
+                groupRows[groupId] = tableRow;
+                
+                for (Accumulator accumulator : accumulators) {
+                    accumulator.ensureCapacity(groupId + 1);
+                }
+            }
+            
+            for (Accumulator accumulator : accumulators) {
+                accumulator.add(groupId, tableRow);
+            }
+        }
+        
+        int groupCount = groupTable.getGroupCount();
+        
+        if (groupCount == 0 && groupColumnIndices.length == 0) {
+            groupCount = 1;
+            
+            for (Accumulator accumulator : accumulators) {
+                accumulator.ensureCapacity(1);
+            }
+        }
+        
+        Table outputTable = createOutputTable(outputSchema);
+        List<TableRow> result = new ArrayList<>(groupCount);
+        Object[] values = new Object[outputSources.length];
+        
+        for (int groupId = 0; groupId < groupCount; ++groupId) {
+            for (int i = 0; i < values.length; ++i) {
+                int source = outputSources[i];
+                values[i] = source >= 0 ? 
+                            groupRows[groupId].get(groupColumnIndices[source])
+                                              .getValue() :
+                            accumulators[-1 - source].getValue(groupId);
+            }
+            
+            result.add(outputTable.putTableRow(values));
+        }
+        
+        return result.iterator();
+    }
+    
+    private Table createOutputTable(TableSchema schema) {
+        Database database = new Database("aggregate");
+        return database.createTable(schema.getTable().getTableName(), 
+                                    outputDescriptors);
+    }
+    
+    private static int resolve(TableSchema schema, String columnName) {
+        int columnIndex = schema.indexOf(columnName);
+        
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException(
+                    columnName + ": no such table column.");
+        }
+        
+        return columnIndex;
+    }
+    
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+}
@@ -0,0 +1,205 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A hash index answering {@code column = constant} lookups. The positions of
+ * the rows with the same key are chained through an {@code int} array in 
+ * insertion order, so a probe returns the rows in the same order a full scan
+ * would, building each from the row store only as it is returned. 
+ * Subclasses map the keys to the heads and tails of the chains. 
+ * <p>
+ * The rows of a published index are added with 
+ * {@link #addAll(RowStore, int)}, which excludes probes by a write lock. A 
+ * probe holds the read lock only while looking up the head of the chain: 
+ * the arrays it then follows are only appended to, or replaced by grown 
+ * copies.
+ */
+abstract class HashIndex extends Index {
+
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int[] nextRowIds = new int[INITIAL_CAPACITY];
+    private int rowCount;
+    
+    HashIndex(String indexName, String tableName, int columnIndex) {
+        super(indexName, tableName, columnIndex);
+    }
+    
+    static HashIndex create(String indexName, 
+                            String tableName, 
+                            int columnIndex, 
+                            TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return new IntHashIndex(indexName, tableName, columnIndex);
+                
+            case TYPE_LONG:
+                return new LongHashIndex(indexName, tableName, columnIndex);
+                
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+            case TYPE_BOOLEAN:
+            case TYPE_STRING:
+                return new ObjectHashIndex(indexName, tableName, columnIndex);
+                
+            case TYPE_BINARY:
+                throw new IllegalArgumentException(
+                        "Binary columns cannot be indexed.");
+                
+            default:
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
+        }
+    }
+    
+    /**
+     * Returns the rows of {@code rowStore}, a view of the indexed table, 
+     * whose indexed column equals {@code key}, which must be of the boxed 
+     * type of the column.
+     */
+    Iterator<TableRow> probe(Object key, RowStore rowStore) {
+        return probe(key, rowStore::get, rowStore.size());
+    }
+    
+    /**
+     * Returns the rows of {@code tableRows}, the rows this index was built
+     * over, whose indexed column equals {@code key}.
+     */
+    Iterator<TableRow> probe(Object key, List<TableRow> tableRows) {
+        return probe(key, tableRows::get, tableRows.size());
+    }
+    
+    @Override
+    void addAll(RowStore rowStore, int fromIndex) {
+        lock.writeLock().lock();
+        
+        try {
+            ensureCapacity(rowStore.size() - fromIndex);
+            super.addAll(rowStore, fromIndex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Makes room for {@code additionalRows} more rows.
+     */
+    void ensureCapacity(int additionalRows) {
+        int requiredCapacity = rowCount + additionalRows;
+        
+        if (requiredCapacity > positions.length) {
+            int newCapacity = Math.max(requiredCapacity, 
+                                       2 * positions.length);
+            positions = Arrays.copyOf(positions, newCapacity);
+            nextRowIds = Arrays.copyOf(nextRowIds, newCapacity);
+        }
+    }
+    
+    /**
+     * Returns the id of the first row with the key {@code key}, or -1 if 
+     * there is none.
+     */
+    abstract int getHeadRowId(Object key);
+    
+    /**
+     * Stores the position {@code position} of a row in the table and 
+     * returns the row id of the row.
+     */
+    final int appendRow(int position) {
+        ensureCapacity(1);
+        positions[rowCount] = position;
+        nextRowIds[rowCount] = -1;
+        return rowCount++;
+    }
+    
+    /**
+     * Chains the row {@code rowId} after the row {@code tailRowId}.
+     */
+    final void link(int tailRowId, int rowId) {
+        nextRowIds[tailRowId] = rowId;
+    }
+    
+    /**
+     * Returns the rows at the positions below {@code rowLimit} whose indexed
+     * column equals {@code key}, building them with {@code rows}.
+     */
+    private Iterator<TableRow> probe(Object key, 
+                                     IntFunction<TableRow> rows,
+                                     int rowLimit) {
+        lock.readLock().lock();
+        
+        try {
+            return new ChainIterator(getHeadRowId(key), 
+                                     rows, 
+                                     positions, 
+                                     nextRowIds,
+                                     rowCount, 
+                                     rowLimit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    /**
+     * Follows a chain in the arrays of the index as they were when the probe
+     * started. A link written after that may or may not be seen, but it leads
+     * to a row id beyond {@code rowCount}, where the chain ends anyway.
+     */
+    private static final class ChainIterator implements Iterator<TableRow> {
+        
+        private final IntFunction<TableRow> rows;
+        private final int[] positions;
+        private final int[] nextRowIds;
+        private final int rowCount;
+        private final int rowLimit;
+        private int rowId;
+        
+        ChainIterator(int headRowId, 
+                      IntFunction<TableRow> rows, 
+                      int[] positions, 
+                      int[] nextRowIds,
+                      int rowCount,
+                      int rowLimit) {
+            this.rows = rows;
+            this.positions = positions;
+            this.nextRowIds = nextRowIds;
+            this.rowCount = rowCount;
+            this.rowLimit = rowLimit;
+            this.rowId = headRowId;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return rowId >= 0 
+                && rowId < rowCount 
+                && positions[rowId] < rowLimit;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            TableRow tableRow = rows.apply(positions[rowId]);
+            rowId = nextRowIds[rowId];
+            return tableRow;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * An equi-join of two tables bound at plan time. The joined rows have the 
+ * columns of the left table followed by those of the right table, named 
+ * {@code table.column}. On execution, the WHERE conjuncts that refer to one
+ * table only are applied while scanning that table, the smaller input is 
+ * loaded into a hash table on its join column and the larger one probes it
+ * row by row. The sizes of the inputs are estimated from the statistics of
+ * the tables if they have been analyzed, and are the table sizes otherwise.
+ * The joined rows are produced lazily in the order of the probe side. An 
+ * integer column may be joined with a long column.
+ */
+final class HashJoin {
+
+    private final Catalog catalog;
+    private final Table leftTable;
+    private final Table rightTable;
+    private final TableSchema leftSchema;
+    private final TableSchema rightSchema;
+    private final int leftKeyIndex;
+    private final int rightKeyIndex;
+    private final TableCellType leftKeyCellType;
+    private final TableCellType rightKeyCellType;
+    private final TableColumnDescriptor[] tableColumnDescriptors;
+    
+    /**
+     * The schema of the joined rows. Its table is only used as a template.
+     */
+    final TableSchema schema;
+    
+    HashJoin(Catalog catalog, 
+             Table leftTable, 
+             SelectStatement.JoinClause joinClause) {
+        this.catalog = catalog;
+        this.leftTable = leftTable;
+        this.rightTable = catalog.getTable(joinClause.tableName);
+        
+        if (leftTable == rightTable) {
+            throw new IllegalArgumentException(
+                    "Cannot join a table with itself.");
+        }
+        
+        this.leftSchema = new TableSchema(leftTable);
+        this.rightSchema = new TableSchema(rightTable);
+        int leftCount = leftSchema.getNumberOfColumns();
+        int rightCount = rightSchema.getNumberOfColumns();
+        this.tableColumnDescriptors = 
+                new TableColumnDescriptor[leftCount + rightCount];
+        
+        for (int i = 0; i < leftCount; ++i) {
+            tableColumnDescriptors[i] = qualify(leftSchema, i);
+        }
+        
+        for (int i = 0; i < rightCount; ++i) {
+            tableColumnDescriptors[leftCount + i] = qualify(rightSchema, i);
+        }
+        
+        this.schema = new TableSchema(createOutputTable());
+        int columnIndex1 = resolve(joinClause.columnName1);
+        int columnIndex2 = resolve(joinClause.columnName2);
+        
+        if ((columnIndex1 < leftCount) == (columnIndex2 < leftCount)) {
+            throw new IllegalArgumentException(
+                    "The join condition must compare a column of " + 
+                    leftTable.getTableName() + " with a column of " + 
+                    rightTable.getTableName() + ".");
+        }
+        
+        this.leftKeyIndex = Math.min(columnIndex1, columnIndex2);
+        this.rightKeyIndex = Math.max(columnIndex1, columnIndex2) - leftCount;
+        this.leftKeyCellType = leftSchema.getTableCellType(leftKeyIndex);
+        this.rightKeyCellType = rightSchema.getTableCellType(rightKeyIndex);
+        
+        if (!leftKeyCellType.equals(rightKeyCellType) 
+                && !(isInteger(leftKeyCellType) 
+                     && isInteger(rightKeyCellType))) {
+            throw new IllegalArgumentException(
+                    "Joining columns of different types. Type 1 is: " + 
+                    leftKeyCellType.getTypeName() + ", type 2 is: " + 
+                    rightKeyCellType.getTypeName());
+        }
+        
+        if (leftKeyCellType == TableCellType.TYPE_BINARY) {
+            throw new IllegalArgumentException(
+                    "Cannot join on binary columns.");
+        }
+    }
+    
+    /**
+     * Returns the current snapshot of the two tables.
+     */
+    Snapshot getSnapshot() {
+        return catalog.getSnapshot(leftTable, rightTable);
+    }
+    
+    /**
+     * Returns the joined rows of {@code snapshot} satisfying 
+     * {@code boundWhere}, which may be {@code null}. The scans of both 
+     * tables stop once {@code cancellation} is set.
+     */
+    Iterator<TableRow> open(TokenTreeNode boundWhere, 
+                            Snapshot snapshot,
+                            ExecutionEngine executionEngine,
+                            Cancellation cancellation) {
+        List<TokenTreeNode> leftConjuncts = new ArrayList<>();
+        List<TokenTreeNode> rightConjuncts = new ArrayList<>();
+        List<TokenTreeNode> joinConjuncts = new ArrayList<>();
+        
+        if (boundWhere != null) {
+            splitConjuncts(boundWhere, 
+                           leftConjuncts, 
+                           rightConjuncts, 
+                           joinConjuncts);
+        }
+        
+        RowStore leftRowStore = snapshot.getRowStore(leftTable);
+        RowStore rightRowStore = snapshot.getRowStore(rightTable);
+        TableStatistics leftStatistics = catalog.getStatistics(leftTable);
+        TableStatistics rightStatistics = catalog.getStatistics(rightTable);
+        boolean buildLeft = 
+                estimateRows(leftRowStore, 
+                             leftSchema, 
+                             leftStatistics, 
+                             leftConjuncts) <= 
+                estimateRows(rightRowStore, 
+                             rightSchema, 
+                             rightStatistics, 
+                             rightConjuncts);
+        Iterator<TableRow> leftRows = scan(leftRowStore, 
+                                           leftSchema, 
+                                           leftStatistics,
+                                           leftConjuncts, 
+                                           executionEngine,
+                                           cancellation);
+        Iterator<TableRow> rightRows = scan(rightRowStore, 
+                                            rightSchema, 
+                                            rightStatistics,
+                                            rightConjuncts, 
+                                            executionEngine,
+                                            cancellation);
+        List<TableRow> buildRows = new ArrayList<>();
+        HashIndex hashIndex;
+        Iterator<TableRow> iterator;
+        
+        if (buildLeft) {
+            hashIndex = build(leftTable, 
+                              leftKeyIndex, 
+                              leftKeyCellType, 
+                              leftRows,
+                              buildRows);
+            iterator = new JoinIterator(rightRows, 
+                                        rightKeyIndex, 
+                                        hashIndex, 
+                                        buildRows,
+                                        leftKeyCellType,
+                                        true);
+        } else {
+            hashIndex = build(rightTable, 
+                              rightKeyIndex, 
+                              rightKeyCellType, 
+                              rightRows,
+                              buildRows);
+            iterator = new JoinIterator(leftRows, 
+                                        leftKeyIndex, 
+                                        hashIndex, 
+                                        buildRows,
+                                        rightKeyCellType,
+                                        false);
+        }
+        
+        if (!joinConjuncts.isEmpty()) {
+            iterator = new FilterIterator(
+                    iterator, 
+                    TokenTreeNode.and(joinConjuncts).compile(schema, null));
+        }
+        
+        return iterator;
+    }
+    
+    /**
+     * Sorts the conjuncts of {@code boundWhere} by the tables they refer to.
+     * The conjuncts referring to both tables or to none are evaluated on the
+     * joined rows.
+     */
+    private void splitConjuncts(TokenTreeNode boundWhere,
+                                List<TokenTreeNode> leftConjuncts,
+                                List<TokenTreeNode> rightConjuncts,
+                                List<TokenTreeNode> joinConjuncts) {
+        List<TokenTreeNode> conjuncts = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+        boundWhere.collectConjunctNodes(conjuncts);
+        int leftCount = leftSchema.getNumberOfColumns();
+        
+        for (TokenTreeNode conjunct : conjuncts) {
+            columnNames.clear();
+            conjunct.collectColumnNames(columnNames);
+            boolean left = false;
+            boolean right = false;
+            
+            for (String columnName : columnNames) {
+                int columnIndex = resolve(columnName);
+                left |= columnIndex < leftCount;
+                right |= columnIndex >= leftCount;
+            }
+            
+            if (left && !right) {
+                leftConjuncts.add(conjunct);
+            } else if (right && !left) {
+                rightConjuncts.add(conjunct);
+            } else {
+                joinConjuncts.add(conjunct);
+            }
+        }
+    }
+    
+    private static double estimateRows(RowStore rowStore,
+                                       TableSchema tableSchema,
+                                       TableStatistics statistics,
+                                       List<TokenTreeNode> conjuncts) {
+        if (statistics == null || conjuncts.isEmpty()) {
+            return rowStore.size();
+        }
+        
+        return rowStore.size() * 
+               TokenTreeNode.and(conjuncts)
+                            .estimateSelectivity(tableSchema, statistics);
+    }
+    
+    private static Iterator<TableRow> 
+        scan(RowStore rowStore, 
+             TableSchema tableSchema,
+             TableStatistics statistics,
+             List<TokenTreeNode> conjuncts, 
+             ExecutionEngine executionEngine,
+             Cancellation cancellation) {
+        if (conjuncts.isEmpty()) {
+            return cancellation.check(rowStore.iterator());
+        }
+        
+        RowPredicate rowPredicate = 
+                TokenTreeNode.and(conjuncts).compile(tableSchema, statistics);
+        
+        switch (executionEngine) {
+            case ROW:
+                return new BatchFilterIterator(
+                        rowStore, 
+                        BatchFilter.of(rowPredicate.adapt(), tableSchema),
+                        cancellation);
+                
+            case VECTORIZED:
+                return new BatchFilterIterator(
+                        rowStore, 
+                        new VectorFilter(rowPredicate.vectorize(), 
+                                         tableSchema),
+                        cancellation);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Collects the rows of {@code iterator} in {@code buildRows} and returns
+     * the hash index of their keys.
+     */
+    private static HashIndex build(Table table, 
+                                   int keyIndex, 
+                                   TableCellType keyCellType,
+                                   Iterator<TableRow> iterator,
+                                   List<TableRow> buildRows) {
+        HashIndex hashIndex = HashIndex.create("join", 
+                                               table.getTableName(), 
+                                               keyIndex, 
+                                               keyCellType);
+        
+        while (iterator.hasNext()) {
+            TableRow tableRow = iterator.next();
+            buildRows.add(tableRow);
+            hashIndex.add(tableRow.get(keyIndex).getValue());
+        }
+        
+        return hashIndex;
+    }
+    
+    private static boolean isInteger(TableCellType tableCellType) {
+        return tableCellType == TableCellType.TYPE_INT 
+            || tableCellType == TableCellType.TYPE_LONG;
+    }
+    
+    private int resolve(String columnName) {
+        int columnIndex = schema.indexOf(columnName);
+        
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException(
+                    columnName + ": no such table column.");
+        }
+        
+        return columnIndex;
+    }
+    
+    private Table createOutputTable() {
+        Database database = new Database("join");
+        return database.createTable(leftTable.getTableName() + "_" + 
+                                    rightTable.getTableName(), 
+                                    tableColumnDescriptors);
+    }
+    
+    private static TableColumnDescriptor qualify(TableSchema tableSchema, 
+                                                 int columnIndex) {
+        TableColumnDescriptor tableColumnDescriptor = 
+                tableSchema.getTableColumnDescriptor(columnIndex);
+        return new TableColumnDescriptor(
+                tableSchema.getTable().getTableName() + "." + 
+                tableColumnDescriptor.getTableColumnName(),
+                tableColumnDescriptor.getTableCellType());
+    }
+    
+    /**
+     * Probes the hash table with the rows of the probe side and joins each 
+     * row with its matches. The joined rows go to a scratch table that is 
+     * replaced every {@link VectorBatch#SIZE} rows, so the rows already 
+     * returned are not kept reachable by the iterator.
+     */
+    private final class JoinIterator implements Iterator<TableRow> {
+        
+        private final Iterator<TableRow> probeRows;
+        private final int probeKeyIndex;
+        private final HashIndex hashIndex;
+        private final List<TableRow> buildRows;
+        private final TableCellType buildKeyCellType;
+        private final boolean buildLeft;
+        private final Object[] values = 
+                new Object[tableColumnDescriptors.length];
+        private TableRow probeRow;
+        private Iterator<TableRow> matches;
+        private Table outputTable;
+        private long outputCount;
+        
+        JoinIterator(Iterator<TableRow> probeRows,
+                     int probeKeyIndex,
+                     HashIndex hashIndex,
+                     List<TableRow> buildRows,
+                     TableCellType buildKeyCellType,
+                     boolean buildLeft) {
+            this.probeRows = probeRows;
+            this.probeKeyIndex = probeKeyIndex;
+            this.hashIndex = hashIndex;
+            this.buildRows = buildRows;
+            this.buildKeyCellType = buildKeyCellType;
+            this.buildLeft = buildLeft;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (matches == null || !matches.hasNext()) {
+                if (!probeRows.hasNext()) {
+                    return false;
+                }
+                
+                probeRow = probeRows.next();
+                Object key = 
+                        convertKey(probeRow.get(probeKeyIndex).getValue());
+                matches = key == null ? 
+                          null : 
+                          hashIndex.probe(key, buildRows);
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            TableRow buildRow = matches.next();
+            
+            if (buildLeft) {
+                return join(buildRow, probeRow);
+            } else {
+                return join(probeRow, buildRow);
+            }
+        }
+        
+        /**
+         * Converts a probe key to the type of the build keys, or returns 
+         * {@code null} if no build key can be equal to it.
+         */
+        private Object convertKey(Object key) {
+            if (key instanceof Long 
+                    && buildKeyCellType == TableCellType.TYPE_INT) {
+                long value = (Long) key;
+                return value == (int) value ? (Object) (int) value : null;
+            } else if (key instanceof Integer 
+                    && buildKeyCellType == TableCellType.TYPE_LONG) {
+                return (long) (Integer) key;
+            }
+            
+            return key;
+        }
+        
+        private TableRow join(TableRow leftRow, TableRow rightRow) {
+            int leftCount = leftSchema.getNumberOfColumns();
+            
+            for (int i = 0; i < leftCount; ++i) {
+                values[i] = leftRow.get(i).getValue();
+            }
+            
+            for (int i = leftCount; i < values.length; ++i) {
+                values[i] = rightRow.get(i - leftCount).getValue();
+            }
+            
+            if (outputCount++ % VectorBatch.SIZE == 0) {
+                outputTable = createOutputTable();
+            }
+            
+            return outputTable.putTableRow(values);
+        }
+    }
+}
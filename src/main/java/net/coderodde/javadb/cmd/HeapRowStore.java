@@ -0,0 +1,217 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A row store holding the rows of its table in an array. A view shares the
+ * array of the store, and a grown array is a copy. The codes of the 
+ * dictionary-encoded columns are kept in arrays of their own the same way,
+ * and the rows inserted share the strings of the dictionaries.
+ */
+final class HeapRowStore extends RowStore {
+
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    /**
+     * The estimated sizes, in bytes, of an object header and a reference
+     * with compressed object pointers.
+     */
+    private static final int OBJECT_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    
+    private final int columnCount;
+    
+    /**
+     * The dictionaries of the columns, or {@code null} if no column is 
+     * dictionary-encoded.
+     */
+    private final StringDictionary[] dictionaries;
+    
+    /**
+     * The codes of the rows by column, {@code null} for the columns without
+     * a dictionary.
+     */
+    private final int[][] codes;
+    private TableRow[] rows;
+    private int size;
+    
+    /**
+     * Creates the store of the rows already in {@code table}, encoding its
+     * string columns with dictionaries if {@code dictionaryEncoding} is 
+     * {@code true}.
+     */
+    HeapRowStore(Table table, boolean dictionaryEncoding) {
+        this.columnCount = table.getTableColumnDescriptors().size();
+        this.dictionaries = dictionaryEncoding ? 
+                            createDictionaries(table) : 
+                            null;
+        this.codes = new int[columnCount][];
+        this.rows = new TableRow[MINIMUM_CAPACITY];
+        
+        if (dictionaries != null) {
+            for (int i = 0; i < columnCount; ++i) {
+                if (dictionaries[i] != null) {
+                    codes[i] = new int[MINIMUM_CAPACITY];
+                }
+            }
+        }
+        
+        for (TableRow tableRow : table) {
+            ensureCapacity(size + 1);
+            
+            for (int i = 0; i < columnCount; ++i) {
+                if (codes[i] != null) {
+                    codes[i][size] = encode(
+                            i, tableRow.get(i).getStringValue());
+                }
+            }
+            
+            rows[size++] = tableRow;
+        }
+    }
+    
+    private HeapRowStore(HeapRowStore rowStore) {
+        this.columnCount = rowStore.columnCount;
+        this.dictionaries = rowStore.dictionaries;
+        this.codes = rowStore.codes.clone();
+        this.rows = rowStore.rows;
+        this.size = rowStore.size;
+    }
+    
+    @Override
+    RowStore view() {
+        return new HeapRowStore(this);
+    }
+    
+    @Override
+    void append(Table table, Object[] values) {
+        ensureCapacity(size + 1);
+        
+        if (dictionaries != null) {
+            values = values.clone();
+            
+            for (int i = 0; i < columnCount; ++i) {
+                if (codes[i] != null) {
+                    int code = encode(i, (String) values[i]);
+                    codes[i][size] = code;
+                    values[i] = dictionaries[i].getString(code);
+                }
+            }
+        }
+        
+        rows[size] = table.putTableRow(values);
+        ++size;
+    }
+    
+    @Override
+    void ensureCapacity(int capacity) {
+        if (capacity > rows.length) {
+            int newCapacity = Math.max(capacity, 2 * rows.length);
+            rows = Arrays.copyOf(rows, newCapacity);
+            
+            for (int i = 0; i < columnCount; ++i) {
+                if (codes[i] != null) {
+                    codes[i] = Arrays.copyOf(codes[i], newCapacity);
+                }
+            }
+        }
+    }
+    
+    @Override
+    int size() {
+        return size;
+    }
+    
+    @Override
+    TableRow get(int index) {
+        return rows[index];
+    }
+    
+    @Override
+    Object getValue(int index, int columnIndex) {
+        return rows[index].get(columnIndex).getValue();
+    }
+    
+    @Override
+    StringDictionary getDictionary(int columnIndex) {
+        return dictionaries == null ? null : dictionaries[columnIndex];
+    }
+    
+    @Override
+    void getCodes(int columnIndex, int fromIndex, int toIndex, int[] codes) {
+        System.arraycopy(this.codes[columnIndex], 
+                         fromIndex, 
+                         codes, 
+                         0, 
+                         toIndex - fromIndex);
+    }
+    
+    /**
+     * Estimates the size of the array and of the rows, each of which is an
+     * object with an array of cells, each cell being an object referring to
+     * a boxed value. The strings a dictionary-encoded column shares with its
+     * dictionary are counted once, in the dictionary, along with the 
+     * codes.
+     */
+    @Override
+    long getMemoryFootprint() {
+        long bytes = align(OBJECT_HEADER_SIZE +
+                           (long) REFERENCE_SIZE * rows.length);
+        
+        for (int i = 0; i < columnCount; ++i) {
+            if (codes[i] != null) {
+                bytes += align(OBJECT_HEADER_SIZE + 4L * codes[i].length) +
+                         dictionaries[i].getMemoryFootprint();
+            }
+        }
+        
+        for (int i = 0; i < size; ++i) {
+            TableRow tableRow = rows[i];
+            
+            for (int j = 0; j < columnCount; ++j) {
+                Object value = tableRow.get(j).getValue();
+                bytes += align(OBJECT_HEADER_SIZE + REFERENCE_SIZE);
+                
+                // The rows already in the table have strings of their own.
+                if (codes[j] == null 
+                        || value != dictionaries[j].getString(codes[j][i])) {
+                    bytes += getValueSize(value);
+                }
+            }
+            
+            bytes += align(OBJECT_HEADER_SIZE + REFERENCE_SIZE) +
+                     align(OBJECT_HEADER_SIZE +
+                           (long) REFERENCE_SIZE * columnCount);
+        }
+        
+        return bytes;
+    }
+    
+    private int encode(int columnIndex, String string) {
+        return string == null ? 
+               StringDictionary.NO_CODE : 
+               dictionaries[columnIndex].encode(string);
+    }
+    
+    private static long getValueSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            // The two Booleans are shared.
+            return 0L;
+        } else if (value instanceof Integer || value instanceof Float) {
+            return align(OBJECT_HEADER_SIZE + 4);
+        } else if (value instanceof Long || value instanceof Double) {
+            return align(OBJECT_HEADER_SIZE + 8);
+        } else if (value instanceof String) {
+            return align(OBJECT_HEADER_SIZE + 8) +
+                   align(OBJECT_HEADER_SIZE + 2L * ((String) value).length());
+        } else {
+            return align(OBJECT_HEADER_SIZE + ((byte[]) value).length);
+        }
+    }
+    
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
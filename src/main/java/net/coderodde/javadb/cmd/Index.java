@@ -0,0 +1,56 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+
+/**
+ * The base class of the secondary indices the command layer maintains over 
+ * table columns. The rows are added in table order, and an index keeps only
+ * the key of each row and its position in the table: a lookup builds the 
+ * rows it returns from the {@link RowStore} view of the query, leaving out 
+ * the rows that are not in the {@link Snapshot} of the query.
+ */
+abstract class Index {
+
+    final String indexName;
+    final String tableName;
+    final int columnIndex;
+    
+    /**
+     * The number of rows added, which is the position of the next row.
+     */
+    private int rowCount;
+    
+    Index(String indexName, String tableName, int columnIndex) {
+        this.indexName = Objects.requireNonNull(indexName, 
+                                                "The index name is null.");
+        this.tableName = Objects.requireNonNull(tableName,
+                                                "The table name is null.");
+        this.columnIndex = columnIndex;
+    }
+    
+    /**
+     * Adds the next row of the table, whose indexed column holds 
+     * {@code key}, to this index. 
+     */
+    final void add(Object key) {
+        add(key, rowCount++);
+    }
+    
+    /**
+     * Adds the row at the position {@code position} of the table, whose 
+     * indexed column holds {@code key}, to this index. Rows with a null 
+     * value in the indexed column are not indexed since no comparison 
+     * matches them.
+     */
+    abstract void add(Object key, int position);
+    
+    /**
+     * Adds the rows of {@code rowStore} from the position {@code fromIndex}
+     * on, which are the next rows of the table.
+     */
+    void addAll(RowStore rowStore, int fromIndex) {
+        for (int i = fromIndex; i < rowStore.size(); ++i) {
+            add(rowStore.getValue(i, columnIndex));
+        }
+    }
+}
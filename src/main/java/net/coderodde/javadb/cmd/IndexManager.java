@@ -0,0 +1,130 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.coderodde.javadb.Table;
+
+/**
+ * Keeps track of the indices of the current database and keeps them up to 
+ * date as rows are inserted through the command layer. Indices are created 
+ * and updated by one writer at a time, and may be looked up concurrently.
+ */
+final class IndexManager {
+
+    private final Map<String, Index> indexMap = new HashMap<>();
+    private final Map<String, List<Index>> tableIndexMap = 
+            new ConcurrentHashMap<>();
+    
+    /**
+     * Creates an index over the column {@code columnName} of {@code table} 
+     * and fills it with the rows already in the table, which are those of 
+     * {@code rowStore}. 
+     */
+    Index createIndex(String indexName, 
+                      Table table, 
+                      RowStore rowStore,
+                      String columnName,
+                      boolean ordered) {
+        TableSchema schema = new TableSchema(table);
+        int columnIndex = schema.indexOf(columnName);
+        
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException(
+                    columnName + ": no such table column.");
+        }
+        
+        Index index;
+        
+        if (ordered) {
+            index = new OrderedIndex(indexName, 
+                                     table.getTableName(), 
+                                     columnIndex,
+                                     schema.getTableCellType(columnIndex));
+        } else {
+            index = HashIndex.create(indexName, 
+                                     table.getTableName(),
+                                     columnIndex, 
+                                     schema.getTableCellType(columnIndex));
+        }
+        
+        register(index, rowStore);
+        return index;
+    }
+    
+    /**
+     * Adds a batch of new rows, those from the position {@code fromIndex} 
+     * on in {@code rowStore}, to the indices of {@code table}, one index at
+     * a time. The indices read only their columns, so the rows of an 
+     * off-heap store are not built.
+     */
+    void rowsInserted(Table table, RowStore rowStore, int fromIndex) {
+        List<Index> indices = getIndices(table.getTableName());
+        
+        if (indices.isEmpty() || fromIndex == rowStore.size()) {
+            return;
+        }
+        
+        for (Index index : indices) {
+            index.addAll(rowStore, fromIndex);
+        }
+    }
+    
+    List<Index> getIndices(String tableName) {
+        List<Index> indices = tableIndexMap.get(tableName);
+        return indices == null ? Collections.<Index>emptyList() : indices;
+    }
+    
+    /**
+     * Returns a hash index over the column {@code columnIndex} of the table 
+     * {@code tableName}, or {@code null} if there is none.
+     */
+    HashIndex getHashIndex(String tableName, int columnIndex) {
+        for (Index index : getIndices(tableName)) {
+            if (index instanceof HashIndex 
+                    && index.columnIndex == columnIndex) {
+                return (HashIndex) index;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Returns an ordered index over the column {@code columnIndex} of the 
+     * table {@code tableName}, or {@code null} if there is none.
+     */
+    OrderedIndex getOrderedIndex(String tableName, int columnIndex) {
+        for (Index index : getIndices(tableName)) {
+            if (index instanceof OrderedIndex 
+                    && index.columnIndex == columnIndex) {
+                return (OrderedIndex) index;
+            }
+        }
+        
+        return null;
+    }
+    
+    private void register(Index index, RowStore rowStore) {
+        if (indexMap.containsKey(index.indexName)) {
+            throw new IllegalArgumentException(
+                    index.indexName + ": index already exists.");
+        }
+        
+        index.addAll(rowStore, 0);
+        
+        // The index is filled before it is published to the readers.
+        indexMap.put(index.indexName, index);
+        List<Index> indices = tableIndexMap.get(index.tableName);
+        
+        if (indices == null) {
+            indices = new CopyOnWriteArrayList<>();
+            tableIndexMap.put(index.tableName, indices);
+        }
+        
+        indices.add(index);
+    }
+}
@@ -0,0 +1,41 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+final class InsertStatement implements Statement {
+
+    final String tableName;
+    
+    /**
+     * The target column names, or an empty list if the rows list a value for
+     * every column of the table.
+     */
+    final List<String> columnNames;
+    
+    /**
+     * The rows of the VALUES clause. Each operand is a literal, a 
+     * {@code NULL} or a placeholder.
+     */
+    final List<List<Operand>> rows;
+    
+    /**
+     * The number of {@code ?} placeholders in the statement.
+     */
+    final int parameterCount;
+    
+    InsertStatement(String tableName, 
+                    List<String> columnNames, 
+                    List<List<Operand>> rows,
+                    int parameterCount) {
+        this.tableName = Objects.requireNonNull(tableName, 
+                                                "The table name is null.");
+        this.columnNames = Collections.unmodifiableList(
+                Objects.requireNonNull(columnNames, 
+                                       "The column name list is null."));
+        this.rows = Collections.unmodifiableList(
+                Objects.requireNonNull(rows, "The row list is null."));
+        this.parameterCount = parameterCount;
+    }
+}
@@ -0,0 +1,94 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+
+/**
+ * A hash index over a {@code TYPE_INT} column. The keys are stored unboxed in
+ * an open-addressing table with linear probing.
+ */
+final class IntHashIndex extends HashIndex {
+
+    private static final int INITIAL_SLOTS = 16;
+    
+    private int[] keys = new int[INITIAL_SLOTS];
+    private int[] headRowIds = newSlotArray(INITIAL_SLOTS);
+    private int[] tailRowIds = new int[INITIAL_SLOTS];
+    private int keyCount;
+    
+    IntHashIndex(String indexName, String tableName, int columnIndex) {
+        super(indexName, tableName, columnIndex);
+    }
+    
+    @Override
+    void add(Object value, int position) {
+        if (value == null) {
+            return;
+        }
+        
+        int key = (Integer) value;
+        int slot = findSlot(key);
+        int rowId = appendRow(position);
+        
+        if (headRowIds[slot] >= 0) {
+            link(tailRowIds[slot], rowId);
+            tailRowIds[slot] = rowId;
+            return;
+        }
+        
+        if (4 * (keyCount + 1) > 3 * keys.length) {
+            rehash();
+            slot = findSlot(key);
+        }
+        
+        keys[slot] = key;
+        headRowIds[slot] = rowId;
+        tailRowIds[slot] = rowId;
+        ++keyCount;
+    }
+    
+    @Override
+    int getHeadRowId(Object key) {
+        return headRowIds[findSlot((Integer) key)];
+    }
+    
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would
+     * be inserted.
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        
+        while (headRowIds[slot] >= 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        
+        return slot;
+    }
+    
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldHeadRowIds = headRowIds;
+        int[] oldTailRowIds = tailRowIds;
+        int newLength = 2 * oldKeys.length;
+        
+        keys = new int[newLength];
+        headRowIds = newSlotArray(newLength);
+        tailRowIds = new int[newLength];
+        
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldHeadRowIds[i] >= 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                headRowIds[slot] = oldHeadRowIds[i];
+                tailRowIds[slot] = oldTailRowIds[i];
+            }
+        }
+    }
+    
+    private static int[] newSlotArray(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, -1);
+        return array;
+    }
+}
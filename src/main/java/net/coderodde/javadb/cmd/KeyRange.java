@@ -0,0 +1,139 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A range of keys of an ordered column, given by the conjuncts comparing the
+ * column with literals. A {@code null} bound is unbounded.
+ */
+final class KeyRange {
+
+    private Object lowKey;
+    private Object highKey;
+    private boolean lowInclusive = true;
+    private boolean highInclusive = true;
+    
+    private KeyRange() {}
+    
+    /**
+     * Intersects the ranges of all the column-vs-literal conjuncts over the
+     * column {@code columnIndex} of {@code schema}.
+     */
+    static KeyRange of(TableSchema schema, 
+                       int columnIndex, 
+                       List<Test> conjuncts) {
+        KeyRange keyRange = new KeyRange();
+        
+        for (Test conjunct : conjuncts) {
+            if (conjunct.getConstantColumnIndex(schema) != columnIndex) {
+                continue;
+            }
+            
+            TestOperation testOperation = conjunct.getConstantOperation();
+            
+            if (testOperation == TestOperation.NEQ) {
+                continue;
+            }
+            
+            Object key = conjunct.getConstant(schema);
+            
+            if (testOperation != TestOperation.LT 
+                    && testOperation != TestOperation.LEQ) {
+                // EQ, GT or GEQ: a lower bound.
+                boolean inclusive = testOperation != TestOperation.GT;
+                int cmp = keyRange.lowKey == null ? 
+                          1 : 
+                          OrderedIndex.compareKeys(key, keyRange.lowKey);
+                
+                if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                    keyRange.lowKey = key;
+                    keyRange.lowInclusive = inclusive;
+                }
+            }
+            
+            if (testOperation != TestOperation.GT
+                    && testOperation != TestOperation.GEQ) {
+                // EQ, LT or LEQ: an upper bound.
+                boolean inclusive = testOperation != TestOperation.LT;
+                int cmp = keyRange.highKey == null ? 
+                          -1 : 
+                          OrderedIndex.compareKeys(key, keyRange.highKey);
+                
+                if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                    keyRange.highKey = key;
+                    keyRange.highInclusive = inclusive;
+                }
+            }
+        }
+        
+        return keyRange;
+    }
+    
+    /**
+     * Returns {@code true} if the conjuncts contradict each other.
+     */
+    boolean isEmpty() {
+        if (lowKey == null || highKey == null) {
+            return false;
+        }
+        
+        int cmp = OrderedIndex.compareKeys(lowKey, highKey);
+        return cmp > 0 || (cmp == 0 && !(lowInclusive && highInclusive));
+    }
+    
+    /**
+     * Returns {@code true} if some key from {@code min} through {@code max}
+     * is within this range.
+     */
+    boolean overlaps(Object min, Object max) {
+        if (isEmpty()) {
+            return false;
+        }
+        
+        if (lowKey != null) {
+            int cmp = OrderedIndex.compareKeys(max, lowKey);
+            
+            if (cmp < 0 || (cmp == 0 && !lowInclusive)) {
+                return false;
+            }
+        }
+        
+        if (highKey != null) {
+            int cmp = OrderedIndex.compareKeys(min, highKey);
+            
+            if (cmp > 0 || (cmp == 0 && !highInclusive)) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    double estimateSelectivity(ColumnStatistics columnStatistics) {
+        return isEmpty() ? 
+               0.0 : 
+               columnStatistics.estimateRange(lowKey, 
+                                              lowInclusive, 
+                                              highKey, 
+                                              highInclusive);
+    }
+    
+    /**
+     * Returns the rows of {@code orderedIndex} within this range among the 
+     * rows of {@code rowStore}, a view of the indexed table.
+     */
+    Iterator<TableRow> open(OrderedIndex orderedIndex, RowStore rowStore) {
+        if (isEmpty()) {
+            return Collections.<TableRow>emptyIterator();
+        }
+        
+        return orderedIndex.range(lowKey, 
+                                  lowInclusive, 
+                                  highKey, 
+                                  highInclusive,
+                                  rowStore);
+    }
+}
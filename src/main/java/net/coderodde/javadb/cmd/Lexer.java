@@ -0,0 +1,264 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Splits a command into tokens in a single left-to-right pass over the 
+ * input. Keywords are recognized case-insensitively; identifiers are 
+ * lowercased, string literals are kept verbatim.
+ */
+final class Lexer {
+
+    private static final Map<String, TokenType> KEYWORD_MAP = new HashMap<>();
+    
+    static {
+        for (TokenType tokenType : new TokenType[]{ TokenType.SELECT,
+                                                    TokenType.FROM,
+                                                    TokenType.WHERE,
+                                                    TokenType.AND,
+                                                    TokenType.OR,
+                                                    TokenType.NOT,
+                                                    TokenType.IS,
+                                                    TokenType.NULL,
+                                                    TokenType.TRUE,
+                                                    TokenType.FALSE,
+                                                    TokenType.CREATE,
+                                                    TokenType.INDEX,
+                                                    TokenType.ON,
+                                                    TokenType.ORDERED,
+                                                    TokenType.BETWEEN,
+                                                    TokenType.IN,
+                                                    TokenType.ORDER,
+                                                    TokenType.BY,
+                                                    TokenType.ASC,
+                                                    TokenType.DESC,
+                                                    TokenType.LIMIT,
+                                                    TokenType.OFFSET,
+                                                    TokenType.INSERT,
+                                                    TokenType.INTO,
+                                                    TokenType.VALUES,
+                                                    TokenType.COPY,
+                                                    TokenType.TO,
+                                                    TokenType.DELIMITER,
+                                                    TokenType.HEADER,
+                                                    TokenType.COLUMNAR,
+                                                    TokenType.GROUP,
+                                                    TokenType.JOIN,
+                                                    TokenType.ANALYZE }) {
+            KEYWORD_MAP.put(tokenType.name().toLowerCase(), tokenType);
+        }
+    }
+    
+    private final CharSequence input;
+    private int position;
+    
+    Lexer(CharSequence input) {
+        this.input = Objects.requireNonNull(input, "The input is null.");
+    }
+    
+    Token next() {
+        skipWhitespace();
+        
+        if (position == input.length()) {
+            return new Token(TokenType.END, "", position);
+        }
+        
+        int start = position;
+        char c = input.charAt(position);
+        
+        if (Character.isLetter(c) || c == '_') {
+            return lexWord(start);
+        }
+        
+        if (isDigit(c) || (c == '.' && isDigit(peek(1)))) {
+            return lexNumber(start);
+        }
+        
+        if (c == '\'') {
+            return lexString(start);
+        }
+        
+        ++position;
+        
+        switch (c) {
+            case ',':
+                return new Token(TokenType.COMMA, ",", start);
+                
+            case '.':
+                return new Token(TokenType.DOT, ".", start);
+                
+            case ';':
+                return new Token(TokenType.SEMICOLON, ";", start);
+                
+            case '*':
+                return new Token(TokenType.ASTERISK, "*", start);
+                
+            case '-':
+                return new Token(TokenType.MINUS, "-", start);
+                
+            case '?':
+                return new Token(TokenType.QUESTION_MARK, "?", start);
+                
+            case '(':
+                return new Token(TokenType.LEFT_PARENTHESIS, "(", start);
+                
+            case ')':
+                return new Token(TokenType.RIGHT_PARENTHESIS, ")", start);
+                
+            case '=':
+                return new Token(TokenType.EQ, "=", start);
+                
+            case '!':
+                if (peek(0) == '=') {
+                    ++position;
+                    return new Token(TokenType.NEQ, "!=", start);
+                }
+                
+                break;
+                
+            case '<':
+                if (peek(0) == '=') {
+                    ++position;
+                    return new Token(TokenType.LEQ, "<=", start);
+                } else if (peek(0) == '>') {
+                    ++position;
+                    return new Token(TokenType.NEQ, "<>", start);
+                }
+                
+                return new Token(TokenType.LT, "<", start);
+                
+            case '>':
+                if (peek(0) == '=') {
+                    ++position;
+                    return new Token(TokenType.GEQ, ">=", start);
+                }
+                
+                return new Token(TokenType.GT, ">", start);
+        }
+        
+        throw new IllegalArgumentException(
+                "Unexpected character '" + c + "' at position " + start + ".");
+    }
+    
+    private void skipWhitespace() {
+        while (position < input.length() 
+                && Character.isWhitespace(input.charAt(position))) {
+            ++position;
+        }
+    }
+    
+    private char peek(int offset) {
+        int index = position + offset;
+        return index < input.length() ? input.charAt(index) : '\0';
+    }
+    
+    private Token lexWord(int start) {
+        while (position < input.length()) {
+            char c = input.charAt(position);
+            
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                break;
+            }
+            
+            ++position;
+        }
+        
+        String word = input.subSequence(start, position)
+                           .toString()
+                           .toLowerCase();
+        TokenType keyword = KEYWORD_MAP.get(word);
+        return new Token(keyword == null ? TokenType.IDENTIFIER : keyword,
+                         word, 
+                         start);
+    }
+    
+    private Token lexNumber(int start) {
+        if (peek(0) == '0' && (peek(1) == 'x' || peek(1) == 'X' ||
+                               peek(1) == 'b' || peek(1) == 'B')) {
+            position += 2;
+            
+            while (Character.isLetterOrDigit(peek(0))) {
+                ++position;
+            }
+            
+            return new Token(TokenType.INTEGER, 
+                             input.subSequence(start, position).toString(),
+                             start);
+        }
+        
+        boolean decimal = false;
+        
+        while (isDigit(peek(0))) {
+            ++position;
+        }
+        
+        if (peek(0) == '.' && isDigit(peek(1))) {
+            decimal = true;
+            ++position;
+            
+            while (isDigit(peek(0))) {
+                ++position;
+            }
+        }
+        
+        if (peek(0) == 'e' || peek(0) == 'E') {
+            int exponentStart = position++;
+            
+            if (peek(0) == '+' || peek(0) == '-') {
+                ++position;
+            }
+            
+            if (!isDigit(peek(0))) {
+                position = exponentStart;
+            } else {
+                decimal = true;
+                
+                while (isDigit(peek(0))) {
+                    ++position;
+                }
+            }
+        }
+        
+        if (!decimal && (peek(0) == 'l' || peek(0) == 'L')) {
+            ++position;
+        }
+        
+        if (Character.isLetter(peek(0)) || peek(0) == '_') {
+            throw new IllegalArgumentException(
+                    "Malformed number at position " + start + ".");
+        }
+        
+        return new Token(decimal ? TokenType.DECIMAL : TokenType.INTEGER,
+                         input.subSequence(start, position).toString(),
+                         start);
+    }
+    
+    private Token lexString(int start) {
+        StringBuilder sb = new StringBuilder();
+        ++position;
+        
+        while (position < input.length()) {
+            char c = input.charAt(position++);
+            
+            if (c == '\'') {
+                if (peek(0) != '\'') {
+                    return new Token(TokenType.STRING, sb.toString(), start);
+                }
+                
+                // Two consecutive quotes stand for one quote character.
+                ++position;
+            }
+            
+            sb.append(c);
+        }
+        
+        throw new IllegalArgumentException(
+                "Unterminated string literal at position " + start + ".");
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,51 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Skips the first {@code offset} rows of a source and then yields at most 
+ * {@code limit} rows. Once the limit is reached the source is no longer 
+ * pulled, which ends the underlying scan.
+ */
+final class LimitIterator implements Iterator<TableRow> {
+
+    private final Iterator<TableRow> source;
+    private long rowsToSkip;
+    private long rowsLeft;
+    
+    LimitIterator(Iterator<TableRow> source, long offset, long limit) {
+        this.source = source;
+        this.rowsToSkip = offset;
+        this.rowsLeft = limit;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (rowsLeft <= 0) {
+            return false;
+        }
+        
+        while (rowsToSkip > 0) {
+            if (!source.hasNext()) {
+                return false;
+            }
+            
+            source.next();
+            --rowsToSkip;
+        }
+        
+        return source.hasNext();
+    }
+    
+    @Override
+    public TableRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows.");
+        }
+        
+        --rowsLeft;
+        return source.next();
+    }
+}
@@ -0,0 +1,58 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hash index over a float, double, boolean or string column. The keys are
+ * the boxed cell values.
+ */
+final class ObjectHashIndex extends HashIndex {
+
+    /**
+     * Maps each key to the ids of the first and the last row in its chain.
+     */
+    private final Map<Object, int[]> chainMap = new HashMap<>();
+    
+    ObjectHashIndex(String indexName, String tableName, int columnIndex) {
+        super(indexName, tableName, columnIndex);
+    }
+    
+    @Override
+    void add(Object key, int position) {
+        if (key == null) {
+            return;
+        }
+        
+        key = normalize(key);
+        int rowId = appendRow(position);
+        int[] chain = chainMap.get(key);
+        
+        if (chain == null) {
+            chainMap.put(key, new int[]{ rowId, rowId });
+        } else {
+            link(chain[1], rowId);
+            chain[1] = rowId;
+        }
+    }
+    
+    @Override
+    int getHeadRowId(Object key) {
+        int[] chain = chainMap.get(normalize(key));
+        return chain == null ? -1 : chain[0];
+    }
+    
+    /**
+     * {@code Float.equals} and {@code Double.equals} tell apart the two 
+     * zeros, which compare equal with {@code ==}.
+     */
+    static Object normalize(Object key) {
+        if (key instanceof Float && (Float) key == 0.0f) {
+            return 0.0f;
+        } else if (key instanceof Double && (Double) key == 0.0) {
+            return 0.0;
+        }
+        
+        return key;
+    }
+}
@@ -0,0 +1,511 @@
+package net.coderodde.javadb.cmd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A row store keeping the values of its rows in direct byte buffers instead
+ * of in the table. Each row has a fixed-size slot: a bitmap of its non-null
+ * values followed by one field per column, four or eight bytes for the
+ * numbers and one byte for a boolean. Strings and binary data go to a
+ * separate data area as their length followed by their bytes, strings in
+ * UTF-8, and the field of the column refers to them by chunk and offset.
+ * <p>
+ * The slots are kept in chunks of {@link #CHUNK_ROWS} rows and the data in
+ * chunks of at least {@link #DATA_CHUNK_SIZE} bytes, so the store grows
+ * without copying any values. A view shares the chunks of the store; the
+ * buffers are only ever read and written at absolute positions or through
+ * duplicates. The columns of a {@link VectorBatch} are decoded directly
+ * from the slots. A row asked for by its position is built in a scratch
+ * table of the thread, which is replaced every {@link VectorBatch#SIZE}
+ * rows. The slots are in the native byte order of the machine.
+ * <p>
+ * The field of a dictionary-encoded string column is the code of the 
+ * string instead, and the strings are kept once in the dictionary, on the
+ * heap.
+ */
+final class OffHeapRowStore extends RowStore {
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int DATA_CHUNK_SIZE = 1 << 20;
+    
+    /**
+     * The size of the field referring to a string or to binary data.
+     */
+    private static final int REFERENCE_SIZE = 8;
+    
+    private final Table table;
+    private final TableCellType[] tableCellTypes;
+    
+    /**
+     * The dictionaries of the columns, or {@code null} if no column is 
+     * dictionary-encoded.
+     */
+    private final StringDictionary[] dictionaries;
+    
+    /**
+     * The size of the non-null bitmap at the start of a slot and the offsets
+     * of the fields of the columns within a slot.
+     */
+    private final int bitmapSize;
+    private final int[] fieldOffsets;
+    private final int slotSize;
+    
+    /**
+     * The builders of the rows asked for by position, shared by the store
+     * and its views.
+     */
+    private final ThreadLocal<RowBuilder> rowBuilders;
+    
+    private ByteBuffer[] slotChunks;
+    private ByteBuffer[] dataChunks;
+    private int dataChunkCount;
+    private int size;
+    private long allocatedBytes;
+    
+    /**
+     * The writer's duplicate of the last data chunk, positioned at its free
+     * space, or {@code null} in a view.
+     */
+    private ByteBuffer dataWriter;
+    
+    /**
+     * Creates an empty store of the rows of {@code table}, which keeps no
+     * rows itself, encoding its string columns with dictionaries if 
+     * {@code dictionaryEncoding} is {@code true}.
+     */
+    OffHeapRowStore(Table table, boolean dictionaryEncoding) {
+        this.table = table;
+        this.tableCellTypes = RowCodec.getTableCellTypes(table);
+        this.dictionaries = dictionaryEncoding ? 
+                            createDictionaries(table) : 
+                            null;
+        this.bitmapSize = (tableCellTypes.length + 7) >>> 3;
+        this.fieldOffsets = new int[tableCellTypes.length];
+        int offset = bitmapSize;
+        
+        for (int i = 0; i < tableCellTypes.length; ++i) {
+            fieldOffsets[i] = offset;
+            offset += getDictionary(i) != null ? 
+                      Integer.BYTES : 
+                      getFieldSize(tableCellTypes[i]);
+        }
+        
+        this.slotSize = offset;
+        this.rowBuilders = ThreadLocal.withInitial(RowBuilder::new);
+        this.slotChunks = new ByteBuffer[0];
+        this.dataChunks = new ByteBuffer[0];
+    }
+    
+    private OffHeapRowStore(OffHeapRowStore rowStore) {
+        this.table = rowStore.table;
+        this.tableCellTypes = rowStore.tableCellTypes;
+        this.dictionaries = rowStore.dictionaries;
+        this.bitmapSize = rowStore.bitmapSize;
+        this.fieldOffsets = rowStore.fieldOffsets;
+        this.slotSize = rowStore.slotSize;
+        this.rowBuilders = rowStore.rowBuilders;
+        this.slotChunks = rowStore.slotChunks;
+        this.dataChunks = rowStore.dataChunks;
+        this.dataChunkCount = rowStore.dataChunkCount;
+        this.size = rowStore.size;
+        this.allocatedBytes = rowStore.allocatedBytes;
+    }
+    
+    @Override
+    RowStore view() {
+        return new OffHeapRowStore(this);
+    }
+    
+    @Override
+    void append(Table table, Object[] values) {
+        ensureCapacity(size + 1);
+        ByteBuffer chunk = slotChunks[size >>> CHUNK_SHIFT];
+        int slot = (size & (CHUNK_ROWS - 1)) * slotSize;
+        
+        for (int i = 0; i < bitmapSize; ++i) {
+            chunk.put(slot + i, (byte) 0);
+        }
+        
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != null) {
+                int bitmapByte = slot + (i >>> 3);
+                chunk.put(bitmapByte,
+                          (byte)(chunk.get(bitmapByte) | 1 << (i & 7)));
+                putField(chunk, slot + fieldOffsets[i], i, values[i]);
+            }
+        }
+        
+        // The row is complete before the views may see it.
+        ++size;
+    }
+    
+    @Override
+    void ensureCapacity(int capacity) {
+        int chunkCount = (capacity + CHUNK_ROWS - 1) >>> CHUNK_SHIFT;
+        
+        if (chunkCount <= slotChunks.length) {
+            return;
+        }
+        
+        ByteBuffer[] newSlotChunks = Arrays.copyOf(slotChunks, chunkCount);
+        
+        for (int i = slotChunks.length; i < chunkCount; ++i) {
+            newSlotChunks[i] = ByteBuffer.allocateDirect(CHUNK_ROWS * slotSize)
+                                         .order(ByteOrder.nativeOrder());
+            allocatedBytes += CHUNK_ROWS * slotSize;
+        }
+        
+        slotChunks = newSlotChunks;
+    }
+    
+    @Override
+    int size() {
+        return size;
+    }
+    
+    @Override
+    TableRow get(int index) {
+        return rowBuilders.get().build(getValues(index));
+    }
+    
+    @Override
+    Object getValue(int index, int columnIndex) {
+        ByteBuffer chunk = slotChunks[index >>> CHUNK_SHIFT];
+        int slot = (index & (CHUNK_ROWS - 1)) * slotSize;
+        
+        if ((chunk.get(slot + (columnIndex >>> 3)) 
+                & 1 << (columnIndex & 7)) == 0) {
+            return null;
+        }
+        
+        return getField(chunk, slot + fieldOffsets[columnIndex], columnIndex);
+    }
+    
+    /**
+     * Returns the bytes of the slot and data chunks and the estimated size
+     * of the dictionaries.
+     */
+    @Override
+    long getMemoryFootprint() {
+        long bytes = allocatedBytes;
+        
+        for (int i = 0; i < tableCellTypes.length; ++i) {
+            if (getDictionary(i) != null) {
+                bytes += dictionaries[i].getMemoryFootprint();
+            }
+        }
+        
+        return bytes;
+    }
+    
+    @Override
+    StringDictionary getDictionary(int columnIndex) {
+        return dictionaries == null ? null : dictionaries[columnIndex];
+    }
+    
+    @Override
+    void getCodes(int columnIndex, int fromIndex, int toIndex, int[] codes) {
+        int bitmapByte = columnIndex >>> 3;
+        int bit = 1 << (columnIndex & 7);
+        int fieldOffset = fieldOffsets[columnIndex];
+        
+        for (int index = fromIndex; index < toIndex; ++index) {
+            ByteBuffer chunk = slotChunks[index >>> CHUNK_SHIFT];
+            int slot = (index & (CHUNK_ROWS - 1)) * slotSize;
+            codes[index - fromIndex] = 
+                    (chunk.get(slot + bitmapByte) & bit) == 0 ?
+                    StringDictionary.NO_CODE :
+                    chunk.getInt(slot + fieldOffset);
+        }
+    }
+    
+    @Override
+    VectorBatch.ColumnSource getColumnSource(int fromIndex, int toIndex) {
+        return new SlotColumnSource(fromIndex, toIndex);
+    }
+    
+    /**
+     * Returns the values of the row at position {@code index}.
+     */
+    Object[] getValues(int index) {
+        ByteBuffer chunk = slotChunks[index >>> CHUNK_SHIFT];
+        int slot = (index & (CHUNK_ROWS - 1)) * slotSize;
+        Object[] values = new Object[tableCellTypes.length];
+        
+        for (int i = 0; i < values.length; ++i) {
+            if ((chunk.get(slot + (i >>> 3)) & 1 << (i & 7)) != 0) {
+                values[i] = getField(chunk, slot + fieldOffsets[i], i);
+            }
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Puts the rows of this store into its table and returns the heap row 
+     * store of the table.
+     */
+    HeapRowStore moveOnHeap() {
+        HeapRowStore heapRowStore = new HeapRowStore(table, 
+                                                     dictionaries != null);
+        heapRowStore.ensureCapacity(size);
+        
+        for (int i = 0; i < size; ++i) {
+            heapRowStore.append(table, getValues(i));
+        }
+        
+        return heapRowStore;
+    }
+    
+    private void putField(ByteBuffer chunk,
+                          int position,
+                          int columnIndex,
+                          Object value) {
+        switch (tableCellTypes[columnIndex]) {
+            case TYPE_INT:
+                chunk.putInt(position, (Integer) value);
+                break;
+                
+            case TYPE_LONG:
+                chunk.putLong(position, (Long) value);
+                break;
+                
+            case TYPE_FLOAT:
+                chunk.putFloat(position, (Float) value);
+                break;
+                
+            case TYPE_DOUBLE:
+                chunk.putDouble(position, (Double) value);
+                break;
+                
+            case TYPE_BOOLEAN:
+                chunk.put(position, (byte)((Boolean) value ? 1 : 0));
+                break;
+                
+            case TYPE_STRING:
+                if (getDictionary(columnIndex) != null) {
+                    chunk.putInt(position, 
+                                 dictionaries[columnIndex]
+                                         .encode((String) value));
+                } else {
+                    chunk.putLong(position,
+                                  putData(((String) value)
+                                          .getBytes(StandardCharsets.UTF_8)));
+                }
+                
+                break;
+                
+            case TYPE_BINARY:
+                chunk.putLong(position, putData((byte[]) value));
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private Object getField(ByteBuffer chunk, int position, int columnIndex) {
+        switch (tableCellTypes[columnIndex]) {
+            case TYPE_INT:
+                return chunk.getInt(position);
+                
+            case TYPE_LONG:
+                return chunk.getLong(position);
+                
+            case TYPE_FLOAT:
+                return chunk.getFloat(position);
+                
+            case TYPE_DOUBLE:
+                return chunk.getDouble(position);
+                
+            case TYPE_BOOLEAN:
+                return chunk.get(position) != 0;
+                
+            case TYPE_STRING:
+                if (getDictionary(columnIndex) != null) {
+                    return dictionaries[columnIndex]
+                            .getString(chunk.getInt(position));
+                }
+                
+                return new String(getData(chunk.getLong(position)),
+                                  StandardCharsets.UTF_8);
+                
+            case TYPE_BINARY:
+                return getData(chunk.getLong(position));
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Appends {@code bytes} to the data area and returns their reference:
+     * the index of their chunk in the high and their offset in the low 32
+     * bits.
+     */
+    private long putData(byte[] bytes) {
+        int length = Integer.BYTES + bytes.length;
+        
+        if (dataWriter == null || dataWriter.remaining() < length) {
+            if (dataChunkCount == dataChunks.length) {
+                dataChunks = Arrays.copyOf(dataChunks,
+                                           Math.max(4, 2 * dataChunkCount));
+            }
+            
+            ByteBuffer dataChunk =
+                    ByteBuffer.allocateDirect(Math.max(DATA_CHUNK_SIZE,
+                                                       length));
+            dataChunks[dataChunkCount++] = dataChunk;
+            dataWriter = dataChunk.duplicate();
+            allocatedBytes += dataChunk.capacity();
+        }
+        
+        long reference = (long)(dataChunkCount - 1) << 32
+                       | dataWriter.position();
+        dataWriter.putInt(bytes.length);
+        dataWriter.put(bytes);
+        return reference;
+    }
+    
+    private byte[] getData(long reference) {
+        ByteBuffer dataChunk = dataChunks[(int)(reference >>> 32)].duplicate();
+        dataChunk.position((int) reference);
+        byte[] bytes = new byte[dataChunk.getInt()];
+        dataChunk.get(bytes);
+        return bytes;
+    }
+    
+    private static int getFieldSize(TableCellType tableCellType) {
+        switch (tableCellType) {
+            case TYPE_INT:
+            case TYPE_FLOAT:
+                return 4;
+                
+            case TYPE_LONG:
+            case TYPE_DOUBLE:
+                return 8;
+                
+            case TYPE_BOOLEAN:
+                return 1;
+                
+            case TYPE_STRING:
+            case TYPE_BINARY:
+                return REFERENCE_SIZE;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Builds the rows asked for by position in scratch tables of one thread.
+     */
+    private final class RowBuilder {
+        
+        private Table scratchTable;
+        private int rowCount;
+        
+        TableRow build(Object[] values) {
+            if (rowCount++ % VectorBatch.SIZE == 0) {
+                List<TableColumnDescriptor> tableColumnDescriptors =
+                        table.getTableColumnDescriptors();
+                scratchTable = new Database("offheap").createTable(
+                        table.getTableName(),
+                        tableColumnDescriptors.toArray(
+                                new TableColumnDescriptor[
+                                        tableColumnDescriptors.size()]));
+            }
+            
+            return scratchTable.putTableRow(values);
+        }
+    }
+    
+    /**
+     * Decodes the columns of a range of rows out of their slots.
+     */
+    private final class SlotColumnSource implements VectorBatch.ColumnSource {
+        
+        private final int fromIndex;
+        private final int toIndex;
+        
+        SlotColumnSource(int fromIndex, int toIndex) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+        
+        @Override
+        public void decode(int columnIndex,
+                           Object values,
+                           long[] nonNullBitmap) {
+            int bitmapByte = columnIndex >>> 3;
+            int bit = 1 << (columnIndex & 7);
+            int fieldOffset = fieldOffsets[columnIndex];
+            
+            TableCellType tableCellType = tableCellTypes[columnIndex];
+            ByteBuffer chunk = null;
+            int slot = 0;
+            
+            for (int i = 0; i < toIndex - fromIndex; ++i, slot += slotSize) {
+                int index = fromIndex + i;
+                
+                if (chunk == null || (index & (CHUNK_ROWS - 1)) == 0) {
+                    chunk = slotChunks[index >>> CHUNK_SHIFT];
+                    slot = (index & (CHUNK_ROWS - 1)) * slotSize;
+                }
+                
+                if ((chunk.get(slot + bitmapByte) & bit) == 0) {
+                    if (values instanceof Object[]) {
+                        ((Object[]) values)[i] = null;
+                    }
+                    
+                    continue;
+                }
+                
+                int position = slot + fieldOffset;
+                nonNullBitmap[i >>> 6] |= 1L << i;
+                
+                switch (tableCellType) {
+                    case TYPE_INT:
+                        ((int[]) values)[i] = chunk.getInt(position);
+                        break;
+                        
+                    case TYPE_LONG:
+                        ((long[]) values)[i] = chunk.getLong(position);
+                        break;
+                        
+                    case TYPE_FLOAT:
+                        ((float[]) values)[i] = chunk.getFloat(position);
+                        break;
+                        
+                    case TYPE_DOUBLE:
+                        ((double[]) values)[i] = chunk.getDouble(position);
+                        break;
+                        
+                    case TYPE_BOOLEAN:
+                        ((boolean[]) values)[i] = chunk.get(position) != 0;
+                        break;
+                        
+                    default:
+                        ((Object[]) values)[i] =
+                                getField(chunk, position, columnIndex);
+                        break;
+                }
+            }
+        }
+        
+        @Override
+        public TableRow getRow(int index) {
+            return get(fromIndex + index);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+
+/**
+ * An operand of a WHERE comparison as the parser saw it: either a column 
+ * reference or a literal whose lexical kind is already known.
+ */
+final class Operand {
+
+    enum Kind {
+        COLUMN,
+        INTEGER,
+        DECIMAL,
+        STRING,
+        BOOLEAN,
+        NULL,
+        PARAMETER
+    }
+    
+    private static final Operand NULL_OPERAND = new Operand(Kind.NULL, "null");
+    
+    final Kind kind;
+    final String text;
+    
+    /**
+     * The zero-based position of a {@code ?} placeholder, or -1.
+     */
+    final int parameterIndex;
+    
+    private Operand(Kind kind, String text) {
+        this(kind, text, -1);
+    }
+    
+    private Operand(Kind kind, String text, int parameterIndex) {
+        this.kind = kind;
+        this.text = text;
+        this.parameterIndex = parameterIndex;
+    }
+    
+    static Operand column(String columnName) {
+        return new Operand(Kind.COLUMN, 
+                           Objects.requireNonNull(columnName, 
+                                                  "The column name is null."));
+    }
+    
+    static Operand literal(Kind kind, String text) {
+        if (kind == Kind.COLUMN) {
+            throw new IllegalArgumentException("Not a literal kind.");
+        }
+        
+        return kind == Kind.NULL ? 
+               NULL_OPERAND : 
+               new Operand(kind, Objects.requireNonNull(text, 
+                                                        "The text is null."));
+    }
+    
+    static Operand nullOperand() {
+        return NULL_OPERAND;
+    }
+    
+    static Operand parameter(int parameterIndex) {
+        return new Operand(Kind.PARAMETER, "?", parameterIndex);
+    }
+    
+    /**
+     * Returns the literal operand for the value bound to this placeholder, or
+     * this operand itself if it is not a placeholder.
+     */
+    Operand bind(Object[] parameters) {
+        if (kind != Kind.PARAMETER) {
+            return this;
+        }
+        
+        Object value = parameters[parameterIndex];
+        
+        if (value == null) {
+            return NULL_OPERAND;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return new Operand(Kind.INTEGER, value.toString());
+        } else if (value instanceof Float || value instanceof Double) {
+            return new Operand(Kind.DECIMAL, value.toString());
+        } else if (value instanceof Boolean) {
+            return new Operand(Kind.BOOLEAN, value.toString());
+        } else if (value instanceof String) {
+            return new Operand(Kind.STRING, (String) value);
+        }
+        
+        throw new IllegalArgumentException(
+                value.getClass().getName() + ": unsupported parameter type.");
+    }
+    
+    boolean isParameter() {
+        return kind == Kind.PARAMETER;
+    }
+    
+    boolean isColumn() {
+        return kind == Kind.COLUMN;
+    }
+    
+    boolean isNull() {
+        return kind == Kind.NULL;
+    }
+    
+    @Override
+    public String toString() {
+        return kind == Kind.STRING ? "'" + text + "'" : text;
+    }
+}
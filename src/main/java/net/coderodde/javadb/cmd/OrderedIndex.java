@@ -0,0 +1,170 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * An ordered index answering range lookups over an int, long, float, double
+ * or string column. The keys are kept in a skip list; the positions of the
+ * rows sharing a key are kept in insertion order. A range lookup returns the
+ * rows in key order, building each from the row store only as it is 
+ * returned.
+ * Lookups may run while rows are being added by a single writer: the skip 
+ * list is concurrent, and the size of a bucket is published after its 
+ * arrays.
+ */
+final class OrderedIndex extends Index {
+
+    private final NavigableMap<Comparable<?>, RowBucket> map = 
+            new ConcurrentSkipListMap<>();
+    
+    OrderedIndex(String indexName, 
+                 String tableName, 
+                 int columnIndex, 
+                 TableCellType tableCellType) {
+        super(indexName, tableName, columnIndex);
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+            case TYPE_LONG:
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+            case TYPE_STRING:
+                break;
+                
+            default:
+                throw new IllegalArgumentException(
+                        "Columns of type " + tableCellType.getTypeName() + 
+                        " cannot have an ordered index.");
+        }
+    }
+    
+    @Override
+    void add(Object value, int position) {
+        if (value == null) {
+            return;
+        }
+        
+        Comparable<?> key = normalize(value);
+        RowBucket rowBucket = map.get(key);
+        
+        if (rowBucket == null) {
+            rowBucket = new RowBucket();
+            map.put(key, rowBucket);
+        }
+        
+        rowBucket.add(position);
+    }
+    
+    /**
+     * Returns the rows of {@code rowStore}, a view of the indexed table, 
+     * whose key lies within the given bounds. A {@code null} bound leaves 
+     * the range open at that end.
+     */
+    Iterator<TableRow> range(Object lowKey, 
+                             boolean lowInclusive,
+                             Object highKey,
+                             boolean highInclusive,
+                             RowStore rowStore) {
+        NavigableMap<Comparable<?>, RowBucket> subMap = map;
+        
+        if (lowKey != null) {
+            subMap = subMap.tailMap(normalize(lowKey), lowInclusive);
+        }
+        
+        if (highKey != null) {
+            subMap = subMap.headMap(normalize(highKey), highInclusive);
+        }
+        
+        return new BucketIterator(subMap.values().iterator(), rowStore);
+    }
+    
+    /**
+     * Compares two keys of the indexed column.
+     */
+    @SuppressWarnings("unchecked")
+    static int compareKeys(Object key1, Object key2) {
+        return ((Comparable<Object>) normalize(key1)).compareTo(
+                normalize(key2));
+    }
+    
+    /**
+     * {@code Float.compareTo} and {@code Double.compareTo} order -0.0 before 
+     * 0.0, whereas the two compare equal with {@code ==}.
+     */
+    private static Comparable<?> normalize(Object key) {
+        if (key instanceof Float && (Float) key == 0.0f) {
+            return 0.0f;
+        } else if (key instanceof Double && (Double) key == 0.0) {
+            return 0.0;
+        }
+        
+        return (Comparable<?>) key;
+    }
+    
+    private static final class RowBucket {
+        
+        private volatile int[] positions = new int[1];
+        private volatile int size;
+        
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * positions.length);
+            }
+            
+            positions[size] = position;
+            ++size;
+        }
+    }
+    
+    private static final class BucketIterator implements Iterator<TableRow> {
+        
+        private final Iterator<RowBucket> bucketIterator;
+        private final RowStore rowStore;
+        private final int rowLimit;
+        private int[] positions;
+        private int size;
+        private int index;
+        
+        BucketIterator(Iterator<RowBucket> bucketIterator, 
+                       RowStore rowStore) {
+            this.bucketIterator = bucketIterator;
+            this.rowStore = rowStore;
+            this.rowLimit = rowStore.size();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            // The positions within a bucket ascend, so the rest of a bucket
+            // is left out from the first row beyond the limit on.
+            while (index == size || positions[index] >= rowLimit) {
+                if (!bucketIterator.hasNext()) {
+                    return false;
+                }
+                
+                RowBucket rowBucket = bucketIterator.next();
+                // Read the size first: the array read after it holds at 
+                // least that many entries.
+                size = rowBucket.size;
+                positions = rowBucket.positions;
+                index = 0;
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            return rowStore.get(positions[index++]);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A database file in the {@link StorageFormat#PAGED} format. The file starts
+ * with a header and a directory listing the tables with their columns, row
+ * counts and extents, padded to a page boundary. Each table is an extent of
+ * {@value #PAGE_SIZE}-byte pages; a page holds a row count, its length in
+ * pages and that many rows encoded by {@link RowCodec}. A row too long for a
+ * page gets a page of its own spanning as many pages as it needs.
+ * <p>
+ * Opening the file reads just the directory. The rows of a table are read
+ * through memory-mapped windows of the file when the table is loaded, so the
+ * operating system caches the pages and the tables that are never used are
+ * never read. A file is written to a temporary file that then replaces it,
+ * and the extents of the tables that were not loaded are copied over as they
+ * are.
+ */
+final class PagedFile {
+
+    static final int PAGE_SIZE = 16 * 1024;
+    
+    private static final int MAGIC = 0x4A444250;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int PAGE_HEADER_SIZE = 8;
+    
+    /**
+     * The size of the windows the extents are mapped in, which keeps the
+     * mappings below the 2 GiB a buffer can address.
+     */
+    private static final long WINDOW_SIZE = 4096L * PAGE_SIZE;
+    
+    private final File file;
+    private final FileChannel channel;
+    private final String databaseName;
+    private final Map<String, Extent> extentMap;
+    
+    private PagedFile(File file,
+                      FileChannel channel,
+                      String databaseName,
+                      Map<String, Extent> extentMap) {
+        this.file = file;
+        this.channel = channel;
+        this.databaseName = databaseName;
+        this.extentMap = extentMap;
+    }
+    
+    /**
+     * Returns {@code true} if {@code file} starts like a paged database file.
+     */
+    static boolean isPagedFile(File file) {
+        if (file.length() < HEADER_SIZE) {
+            return false;
+        }
+        
+        try (FileChannel fileChannel = FileChannel.open(file.toPath())) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            fileChannel.read(magic, 0L);
+            return magic.getInt(0) == MAGIC;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not read " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Opens the paged database file {@code file} and reads its directory.
+     */
+    static PagedFile open(File file) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath());
+            
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(channel, header, 0L);
+                
+                if (header.getInt(0) != MAGIC
+                        || header.getInt(4) != VERSION
+                        || header.getInt(8) != PAGE_SIZE) {
+                    throw new IllegalArgumentException(
+                            file + ": not a paged database of this version.");
+                }
+                
+                ByteBuffer directory = ByteBuffer.allocate(header.getInt(12));
+                readFully(channel, directory, HEADER_SIZE);
+                directory.flip();
+                String databaseName = RowCodec.readString(directory);
+                int tableCount = directory.getInt();
+                Map<String, Extent> extentMap = new LinkedHashMap<>();
+                
+                for (int i = 0; i < tableCount; ++i) {
+                    Extent extent = Extent.read(directory);
+                    extentMap.put(extent.tableName, extent);
+                }
+                
+                return new PagedFile(file, channel, databaseName, extentMap);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not open the database " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Writes {@code database} to {@code file}. The rows of a table are taken
+     * from its row store in {@code rowStoreMap} or, if it has none, copied
+     * from the extent of the table in {@code source}.
+     */
+    static void write(File file,
+                      Database database,
+                      Map<String, RowStore> rowStoreMap,
+                      PagedFile source) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        
+        try {
+            try (FileChannel out = FileChannel.open(
+                    tempFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                List<Extent> extents = new ArrayList<>();
+                
+                for (Table table : database) {
+                    extents.add(new Extent(table));
+                }
+                
+                // The numbers in the directory have a fixed width, so its
+                // length is known before the extents are laid out.
+                int directoryLength =
+                        writeDirectory(database.getDatabaseName(),
+                                       extents).length;
+                long position =
+                        align(HEADER_SIZE + (long) directoryLength);
+                
+                for (Extent extent : extents) {
+                    RowStore rowStore = rowStoreMap.get(extent.tableName);
+                    extent.offset = position;
+                    
+                    if (rowStore != null) {
+                        extent.rowCount = rowStore.size();
+                        extent.length = writeRows(out,
+                                                  position,
+                                                  extent.tableCellTypes,
+                                                  rowStore);
+                    } else {
+                        Extent sourceExtent =
+                                source.extentMap.get(extent.tableName);
+                        extent.rowCount = sourceExtent.rowCount;
+                        extent.length = sourceExtent.length;
+                        source.copy(sourceExtent, out, position);
+                    }
+                    
+                    position += extent.length;
+                }
+                
+                byte[] directory = writeDirectory(database.getDatabaseName(),
+                                                  extents);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC)
+                      .putInt(VERSION)
+                      .putInt(PAGE_SIZE)
+                      .putInt(directory.length)
+                      .flip();
+                writeFully(out, header, 0L);
+                writeFully(out, ByteBuffer.wrap(directory), HEADER_SIZE);
+                out.force(true);
+            }
+            
+            Files.move(tempFile.toPath(),
+                       file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not write the database " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Returns an empty database with the tables of this file.
+     */
+    Database createDatabase() {
+        Database database = new Database(databaseName);
+        
+        for (Extent extent : extentMap.values()) {
+            database.createTable(extent.tableName,
+                                 extent.tableColumnDescriptors);
+        }
+        
+        return database;
+    }
+    
+    boolean contains(Table table) {
+        return extentMap.containsKey(table.getTableName());
+    }
+    
+    /**
+     * Appends the rows stored for {@code table} in this file to 
+     * {@code rowStore}, the empty row store of {@code table}.
+     */
+    void loadRows(Table table, RowStore rowStore) {
+        Extent extent = extentMap.get(table.getTableName());
+        rowStore.ensureCapacity(extent.rowCount);
+        long end = extent.offset + extent.length;
+        ByteBuffer window = null;
+        long windowOffset = 0L;
+        int rowsRead = 0;
+        
+        try {
+            for (long offset = extent.offset; offset < end; ) {
+                if (window == null
+                        || offset + PAGE_HEADER_SIZE
+                                > windowOffset + window.capacity()) {
+                    window = map(offset, Math.min(WINDOW_SIZE, end - offset));
+                    windowOffset = offset;
+                }
+                
+                int pageStart = (int)(offset - windowOffset);
+                int rowCount = window.getInt(pageStart);
+                long pageLength = (long) window.getInt(pageStart + 4)
+                                * PAGE_SIZE;
+                
+                if (offset + pageLength > windowOffset + window.capacity()) {
+                    window = map(offset,
+                                 Math.min(Math.max(WINDOW_SIZE, pageLength),
+                                          end - offset));
+                    windowOffset = offset;
+                    pageStart = 0;
+                }
+                
+                window.position(pageStart + PAGE_HEADER_SIZE);
+                
+                for (int i = 0; i < rowCount; ++i) {
+                    rowStore.append(
+                            table,
+                            RowCodec.readRow(window, extent.tableCellTypes));
+                }
+                
+                rowsRead += rowCount;
+                offset += pageLength;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not read the table " + table.getTableName() +
+                    " from " + file + ".", ex);
+        }
+        
+        if (rowsRead != extent.rowCount) {
+            throw new IllegalStateException(
+                    file + ": the table " + table.getTableName() + " has " +
+                    rowsRead + " rows instead of " + extent.rowCount + ".");
+        }
+    }
+    
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not close " + file + ".", ex);
+        }
+    }
+    
+    private ByteBuffer map(long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+    
+    private void copy(Extent extent, FileChannel out, long position)
+            throws IOException {
+        long copied = 0L;
+        
+        while (copied < extent.length) {
+            out.position(position + copied);
+            copied += channel.transferTo(extent.offset + copied,
+                                         extent.length - copied,
+                                         out);
+        }
+    }
+    
+    /**
+     * Writes the rows of {@code rowStore} in pages starting at
+     * {@code position}, and returns the number of bytes written.
+     */
+    private static long writeRows(FileChannel out,
+                                  long position,
+                                  TableCellType[] tableCellTypes,
+                                  RowStore rowStore) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+        DataOutputStream rowOut = new DataOutputStream(rowBytes);
+        Object[] row = new Object[tableCellTypes.length];
+        long start = position;
+        int rowCount = 0;
+        page.position(PAGE_HEADER_SIZE);
+        
+        for (int r = 0; r < rowStore.size(); ++r) {
+            TableRow tableRow = rowStore.get(r);
+            
+            for (int i = 0; i < row.length; ++i) {
+                row[i] = tableRow.get(i).getValue();
+            }
+            
+            rowBytes.reset();
+            RowCodec.writeRow(rowOut, tableCellTypes, row);
+            
+            if (rowBytes.size() > page.remaining() && rowCount > 0) {
+                position += writePage(out, position, page, rowCount);
+                page = ByteBuffer.allocate(PAGE_SIZE);
+                page.position(PAGE_HEADER_SIZE);
+                rowCount = 0;
+            }
+            
+            if (rowBytes.size() > page.remaining()) {
+                page = ByteBuffer.allocate(
+                        (int) align(PAGE_HEADER_SIZE + rowBytes.size()));
+                page.position(PAGE_HEADER_SIZE);
+            }
+            
+            page.put(rowBytes.toByteArray());
+            ++rowCount;
+        }
+        
+        if (rowCount > 0) {
+            position += writePage(out, position, page, rowCount);
+        }
+        
+        return position - start;
+    }
+    
+    private static int writePage(FileChannel out,
+                                 long position,
+                                 ByteBuffer page,
+                                 int rowCount) throws IOException {
+        page.putInt(0, rowCount);
+        page.putInt(4, page.capacity() / PAGE_SIZE);
+        page.clear();
+        writeFully(out, page, position);
+        return page.capacity();
+    }
+    
+    private static byte[] writeDirectory(String databaseName,
+                                         List<Extent> extents)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        RowCodec.writeString(out, databaseName);
+        out.writeInt(extents.size());
+        
+        for (Extent extent : extents) {
+            extent.write(out);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    private static long align(long position) {
+        return (position + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+    
+    private static void readFully(FileChannel channel,
+                                  ByteBuffer buffer,
+                                  long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+    
+    private static void writeFully(FileChannel channel,
+                                   ByteBuffer buffer,
+                                   long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+    
+    /**
+     * The directory entry of a table.
+     */
+    private static final class Extent {
+        
+        final String tableName;
+        final TableColumnDescriptor[] tableColumnDescriptors;
+        final TableCellType[] tableCellTypes;
+        int rowCount;
+        long offset;
+        long length;
+        
+        Extent(String tableName,
+               TableColumnDescriptor[] tableColumnDescriptors) {
+            this.tableName = tableName;
+            this.tableColumnDescriptors = tableColumnDescriptors;
+            this.tableCellTypes = 
+                    new TableCellType[tableColumnDescriptors.length];
+            
+            for (int i = 0; i < tableCellTypes.length; ++i) {
+                tableCellTypes[i] = 
+                        tableColumnDescriptors[i].getTableCellType();
+            }
+        }
+        
+        Extent(Table table) {
+            this(table.getTableName(),
+                 table.getTableColumnDescriptors()
+                      .toArray(new TableColumnDescriptor[0]));
+        }
+        
+        static Extent read(ByteBuffer in) {
+            String tableName = RowCodec.readString(in);
+            TableColumnDescriptor[] tableColumnDescriptors =
+                    new TableColumnDescriptor[in.getInt()];
+            
+            for (int i = 0; i < tableColumnDescriptors.length; ++i) {
+                String columnName = RowCodec.readString(in);
+                tableColumnDescriptors[i] =
+                        new TableColumnDescriptor(
+                                columnName,
+                                TableCellType.valueOf(
+                                        RowCodec.readString(in)));
+            }
+            
+            Extent extent = new Extent(tableName, tableColumnDescriptors);
+            extent.rowCount = in.getInt();
+            extent.offset = in.getLong();
+            extent.length = in.getLong();
+            return extent;
+        }
+        
+        void write(DataOutputStream out) throws IOException {
+            RowCodec.writeString(out, tableName);
+            out.writeInt(tableColumnDescriptors.length);
+            
+            for (TableColumnDescriptor tableColumnDescriptor
+                    : tableColumnDescriptors) {
+                RowCodec.writeString(
+                        out,
+                        tableColumnDescriptor.getTableColumnName());
+                RowCodec.writeString(
+                        out,
+                        tableColumnDescriptor.getTableCellType().name());
+            }
+            
+            out.writeInt(rowCount);
+            out.writeLong(offset);
+            out.writeLong(length);
+        }
+    }
+}
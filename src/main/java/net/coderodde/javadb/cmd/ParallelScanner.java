@@ -0,0 +1,243 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Filters the rows of a {@link RowStore} on a {@link ForkJoinPool}. The rows
+ * are split into chunks, each chunk is filtered by its own task, and the 
+ * matching rows are handed to the caller chunk by chunk, either in the 
+ * original row order or in the order the chunks complete. Scans of fewer 
+ * rows than the threshold are left to the sequential executor. The tasks 
+ * stop early when the query is cancelled.
+ */
+final class ParallelScanner {
+
+    static final int DEFAULT_THRESHOLD = 100_000;
+    
+    private static final int MINIMUM_CHUNK_SIZE = 4096;
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int threshold;
+    private final boolean preserveOrder;
+    
+    ParallelScanner(int parallelism, int threshold, boolean preserveOrder) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "The parallelism must be positive: " + parallelism);
+        }
+        
+        if (threshold < 0) {
+            throw new IllegalArgumentException(
+                    "Negative parallel scan threshold: " + threshold);
+        }
+        
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+        this.preserveOrder = preserveOrder;
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+    }
+    
+    int getParallelism() {
+        return parallelism;
+    }
+    
+    int getThreshold() {
+        return threshold;
+    }
+    
+    boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+    
+    boolean isApplicable(int rowCount) {
+        return pool != null && rowCount >= threshold;
+    }
+    
+    /**
+     * Starts filtering the rows of {@code rowStore} in parallel. Each task 
+     * gets its own filter from {@code filterFactory}. When 
+     * {@code ordered} is {@code true} the rows are returned in table order 
+     * even if this scanner does not preserve order, since the caller is 
+     * going to sort them and must wait for all the chunks anyway; this keeps
+     * the order of rows with equal sort keys deterministic.
+     */
+    ScanIterator scan(RowStore rowStore, 
+                      Supplier<? extends BatchFilter> filterFactory, 
+                      boolean ordered,
+                      Cancellation cancellation) {
+        int rowCount = rowStore.size();
+        int chunkSize = Math.max(MINIMUM_CHUNK_SIZE,
+                                 (rowCount + CHUNKS_PER_THREAD * parallelism 
+                                           - 1) 
+                                 / (CHUNKS_PER_THREAD * parallelism));
+        return new ScanIterator(rowStore, 
+                                filterFactory, 
+                                rowCount, 
+                                chunkSize, 
+                                ordered || preserveOrder,
+                                cancellation);
+    }
+    
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+    
+    final class ScanIterator implements Iterator<TableRow>, AutoCloseable {
+        
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Cancellation cancellation;
+        private final List<ChunkTask> tasks = new ArrayList<>();
+        
+        /**
+         * Receives the tasks as they complete if the order of the chunks 
+         * does not matter, and is {@code null} otherwise.
+         */
+        private final BlockingQueue<ChunkTask> completedTasks;
+        private int tasksConsumed;
+        private Iterator<TableRow> chunkIterator = 
+                Collections.<TableRow>emptyIterator();
+        
+        ScanIterator(RowStore rowStore, 
+                     Supplier<? extends BatchFilter> filterFactory, 
+                     int rowCount, 
+                     int chunkSize,
+                     boolean ordered,
+                     Cancellation cancellation) {
+            this.completedTasks = ordered ? null : new LinkedBlockingQueue<>();
+            this.cancellation = cancellation;
+            
+            for (int from = 0; from < rowCount; from += chunkSize) {
+                ChunkTask task = 
+                        new ChunkTask(rowStore, 
+                                      filterFactory.get(), 
+                                      from, 
+                                      Math.min(rowCount, from + chunkSize),
+                                      cancelled,
+                                      cancellation,
+                                      completedTasks);
+                tasks.add(task);
+                pool.execute(task);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (!chunkIterator.hasNext()) {
+                if (tasksConsumed == tasks.size() || cancelled.get()) {
+                    return false;
+                }
+                
+                cancellation.check();
+                chunkIterator = nextTask().join().iterator();
+                ++tasksConsumed;
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            return chunkIterator.next();
+        }
+        
+        /**
+         * Stops the tasks that have not finished yet.
+         */
+        @Override
+        public void close() {
+            if (cancelled.compareAndSet(false, true)) {
+                for (ChunkTask task : tasks) {
+                    task.cancel(false);
+                }
+            }
+        }
+        
+        private ChunkTask nextTask() {
+            if (completedTasks == null) {
+                return tasks.get(tasksConsumed);
+            }
+            
+            try {
+                return completedTasks.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while scanning.",
+                                                ex);
+            }
+        }
+    }
+    
+    private static final class ChunkTask 
+            extends RecursiveTask<List<TableRow>> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final RowStore rowStore;
+        private final BatchFilter batchFilter;
+        private final int fromIndex;
+        private final int toIndex;
+        private final AtomicBoolean cancelled;
+        private final Cancellation cancellation;
+        private final BlockingQueue<ChunkTask> completedTasks;
+        
+        ChunkTask(RowStore rowStore, 
+                  BatchFilter batchFilter, 
+                  int fromIndex, 
+                  int toIndex,
+                  AtomicBoolean cancelled,
+                  Cancellation cancellation,
+                  BlockingQueue<ChunkTask> completedTasks) {
+            this.rowStore = rowStore;
+            this.batchFilter = batchFilter;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.cancelled = cancelled;
+            this.cancellation = cancellation;
+            this.completedTasks = completedTasks;
+        }
+        
+        @Override
+        protected List<TableRow> compute() {
+            try {
+                List<TableRow> matches = new ArrayList<>();
+                
+                for (int i = fromIndex; i < toIndex; i += VectorBatch.SIZE) {
+                    if (cancelled.get() || cancellation.isCancelled()) {
+                        break;
+                    }
+                    
+                    batchFilter.filter(rowStore, 
+                                       i, 
+                                       Math.min(toIndex, i + VectorBatch.SIZE), 
+                                       matches);
+                }
+                
+                return matches;
+            } finally {
+                if (completedTasks != null) {
+                    completedTasks.add(this);
+                }
+            }
+        }
+    }
+}
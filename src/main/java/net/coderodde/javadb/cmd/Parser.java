@@ -0,0 +1,504 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recursive-descent parser that turns a command into a {@link Statement}.
+ * The parser pulls tokens from a {@link Lexer} with one token of lookahead, 
+ * so a command is processed in a single linear pass.
+ * 
+ * <pre>
+ * statement  := (select | createIndex | insert | copy | analyze) [';']
+ * select     := SELECT columns FROM identifier [join] [WHERE disjunction]
+ *                [GROUP BY column (',' column)*]
+ *                [ORDER BY orderItem (',' orderItem)*] 
+ *                [LIMIT count] [OFFSET count]
+ * createIndex:= CREATE [ORDERED] INDEX identifier 
+ *                ON identifier '(' identifier ')'
+ * insert     := INSERT INTO identifier ['(' identifier (',' identifier)* ')']
+ *                VALUES row (',' row)*
+ * row        := '(' operand (',' operand)* ')'
+ * copy       := COPY identifier (FROM | TO) string 
+ *                (COLUMNAR | [DELIMITER string] [HEADER])
+ * analyze    := ANALYZE identifier
+ * columns    := '*' | selectItem (',' selectItem)*
+ * join       := JOIN identifier ON column '=' column
+ * selectItem := column | function '(' ('*' | column) ')'
+ * function   := COUNT | SUM | MIN | MAX | AVG
+ * orderItem  := selectItem [ASC | DESC]
+ * column     := identifier ['.' identifier]
+ * count      := integer | '?'
+ * disjunction:= conjunction (OR conjunction)*
+ * conjunction:= primary (AND primary)*
+ * primary    := '(' disjunction ')' | operand comparator operand
+ *             | operand IS [NOT] NULL
+ *             | operand BETWEEN operand AND operand
+ *             | operand IN '(' operand (',' operand)* ')'
+ * operand    := column | ['-'] number | string | TRUE | FALSE | NULL
+ *             | '?'
+ * </pre>
+ */
+final class Parser {
+
+    private final Lexer lexer;
+    private Token current;
+    private int parameterCount;
+    
+    Parser(CharSequence command) {
+        this.lexer = new Lexer(command);
+        this.current = lexer.next();
+    }
+    
+    Statement parseStatement() {
+        Statement statement;
+        
+        switch (current.tokenType) {
+            case SELECT:
+                statement = parseSelect();
+                break;
+                
+            case CREATE:
+                statement = parseCreateIndex();
+                break;
+                
+            case INSERT:
+                statement = parseInsert();
+                break;
+                
+            case COPY:
+                statement = parseCopy();
+                break;
+                
+            case ANALYZE:
+                advance();
+                statement = new AnalyzeStatement(
+                        expect(TokenType.IDENTIFIER).text);
+                break;
+                
+            default:
+                throw error("a statement");
+        }
+        
+        accept(TokenType.SEMICOLON);
+        expect(TokenType.END);
+        return statement;
+    }
+    
+    private SelectStatement parseSelect() {
+        expect(TokenType.SELECT);
+        List<SelectStatement.SelectItem> selectItems = new ArrayList<>();
+        
+        if (!accept(TokenType.ASTERISK)) {
+            do {
+                selectItems.add(parseSelectItem());
+            } while (accept(TokenType.COMMA));
+        }
+        
+        expect(TokenType.FROM);
+        String tableName = expect(TokenType.IDENTIFIER).text;
+        SelectStatement.JoinClause join = null;
+        
+        if (accept(TokenType.JOIN)) {
+            String joinTableName = expect(TokenType.IDENTIFIER).text;
+            expect(TokenType.ON);
+            String columnName1 = parseColumnName(
+                    expect(TokenType.IDENTIFIER));
+            expect(TokenType.EQ);
+            String columnName2 = parseColumnName(
+                    expect(TokenType.IDENTIFIER));
+            join = new SelectStatement.JoinClause(joinTableName, 
+                                                  columnName1, 
+                                                  columnName2);
+        }
+        
+        TokenTreeNode where = null;
+        
+        if (accept(TokenType.WHERE)) {
+            where = parseDisjunction();
+        }
+        
+        List<String> groupBy = new ArrayList<>();
+        
+        if (accept(TokenType.GROUP)) {
+            expect(TokenType.BY);
+            
+            do {
+                groupBy.add(parseColumnName(expect(TokenType.IDENTIFIER)));
+            } while (accept(TokenType.COMMA));
+        }
+        
+        List<SelectStatement.OrderItem> orderBy = new ArrayList<>();
+        
+        if (accept(TokenType.ORDER)) {
+            expect(TokenType.BY);
+            
+            do {
+                String columnName = parseSelectItem().getOutputName();
+                boolean descending = accept(TokenType.DESC);
+                
+                if (!descending) {
+                    accept(TokenType.ASC);
+                }
+                
+                orderBy.add(new SelectStatement.OrderItem(columnName, 
+                                                          descending));
+            } while (accept(TokenType.COMMA));
+        }
+        
+        Operand limit = accept(TokenType.LIMIT) ? parseCount() : null;
+        Operand offset = accept(TokenType.OFFSET) ? parseCount() : null;
+        return new SelectStatement(selectItems, 
+                                   tableName, 
+                                   join,
+                                   where, 
+                                   groupBy,
+                                   orderBy,
+                                   limit,
+                                   offset,
+                                   parameterCount);
+    }
+    
+    /**
+     * Parses a column name or an aggregate function call. The function names 
+     * are not keywords, so that they remain usable as column names.
+     */
+    private SelectStatement.SelectItem parseSelectItem() {
+        Token token = expect(TokenType.IDENTIFIER);
+        
+        if (!accept(TokenType.LEFT_PARENTHESIS)) {
+            return new SelectStatement.SelectItem(parseColumnName(token), 
+                                                  null);
+        }
+        
+        AggregateFunction function;
+        
+        try {
+            function = AggregateFunction.valueOf(token.text.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(
+                    "Unknown function " + token + " at position " + 
+                    token.position + ".");
+        }
+        
+        String columnName = null;
+        
+        if (function != AggregateFunction.COUNT 
+                || !accept(TokenType.ASTERISK)) {
+            columnName = parseColumnName(expect(TokenType.IDENTIFIER));
+        }
+        
+        expect(TokenType.RIGHT_PARENTHESIS);
+        return new SelectStatement.SelectItem(columnName, function);
+    }
+    
+    /**
+     * Parses the rest of a column name starting with {@code token}, which may
+     * be qualified with the table name as in {@code msg.person_id}.
+     */
+    private String parseColumnName(Token token) {
+        if (accept(TokenType.DOT)) {
+            return token.text + "." + expect(TokenType.IDENTIFIER).text;
+        }
+        
+        return token.text;
+    }
+    
+    private Operand parseCount() {
+        if (current.tokenType == TokenType.QUESTION_MARK) {
+            advance();
+            return Operand.parameter(parameterCount++);
+        }
+        
+        return Operand.literal(Operand.Kind.INTEGER, 
+                               expect(TokenType.INTEGER).text);
+    }
+    
+    private CreateIndexStatement parseCreateIndex() {
+        expect(TokenType.CREATE);
+        boolean ordered = accept(TokenType.ORDERED);
+        expect(TokenType.INDEX);
+        String indexName = expect(TokenType.IDENTIFIER).text;
+        expect(TokenType.ON);
+        String tableName = expect(TokenType.IDENTIFIER).text;
+        expect(TokenType.LEFT_PARENTHESIS);
+        String columnName = expect(TokenType.IDENTIFIER).text;
+        expect(TokenType.RIGHT_PARENTHESIS);
+        return new CreateIndexStatement(indexName, 
+                                        tableName, 
+                                        columnName, 
+                                        ordered);
+    }
+    
+    private InsertStatement parseInsert() {
+        expect(TokenType.INSERT);
+        expect(TokenType.INTO);
+        String tableName = expect(TokenType.IDENTIFIER).text;
+        List<String> columnNames = new ArrayList<>();
+        
+        if (accept(TokenType.LEFT_PARENTHESIS)) {
+            do {
+                columnNames.add(expect(TokenType.IDENTIFIER).text);
+            } while (accept(TokenType.COMMA));
+            
+            expect(TokenType.RIGHT_PARENTHESIS);
+        }
+        
+        expect(TokenType.VALUES);
+        List<List<Operand>> rows = new ArrayList<>();
+        
+        do {
+            expect(TokenType.LEFT_PARENTHESIS);
+            List<Operand> row = new ArrayList<>();
+            
+            do {
+                row.add(parseOperand());
+            } while (accept(TokenType.COMMA));
+            
+            expect(TokenType.RIGHT_PARENTHESIS);
+            rows.add(row);
+        } while (accept(TokenType.COMMA));
+        
+        return new InsertStatement(tableName, 
+                                   columnNames, 
+                                   rows, 
+                                   parameterCount);
+    }
+    
+    /**
+     * Parses a copy command. Without a DELIMITER clause, files named 
+     * {@code *.tsv} are tab-separated and all other files comma-separated.
+     * With COLUMNAR, the file is a {@link ColumnarFile}.
+     */
+    private CopyStatement parseCopy() {
+        expect(TokenType.COPY);
+        String tableName = expect(TokenType.IDENTIFIER).text;
+        boolean importing = accept(TokenType.FROM);
+        
+        if (!importing) {
+            expect(TokenType.TO);
+        }
+        
+        String fileName = expect(TokenType.STRING).text;
+        
+        if (accept(TokenType.COLUMNAR)) {
+            return new CopyStatement(tableName, 
+                                     fileName, 
+                                     importing, 
+                                     ',', 
+                                     false, 
+                                     true);
+        }
+        
+        char delimiter = 
+                fileName.toLowerCase().endsWith(".tsv") ? '\t' : ',';
+        
+        if (accept(TokenType.DELIMITER)) {
+            Token token = expect(TokenType.STRING);
+            
+            if (token.text.length() != 1 
+                    || "\"\r\n".indexOf(token.text.charAt(0)) >= 0) {
+                throw new IllegalArgumentException(
+                        "Invalid delimiter at position " + token.position + 
+                        ": " + token + ".");
+            }
+            
+            delimiter = token.text.charAt(0);
+        }
+        
+        boolean header = accept(TokenType.HEADER);
+        return new CopyStatement(tableName, 
+                                 fileName, 
+                                 importing, 
+                                 delimiter, 
+                                 header,
+                                 false);
+    }
+    
+    private TokenTreeNode parseDisjunction() {
+        List<TokenTreeNode> children = new ArrayList<>();
+        
+        do {
+            children.add(parseConjunction());
+        } while (accept(TokenType.OR));
+        
+        return TokenTreeNode.or(children);
+    }
+    
+    private TokenTreeNode parseConjunction() {
+        List<TokenTreeNode> children = new ArrayList<>();
+        
+        do {
+            children.add(parsePrimary());
+        } while (accept(TokenType.AND));
+        
+        return TokenTreeNode.and(children);
+    }
+    
+    private TokenTreeNode parsePrimary() {
+        if (accept(TokenType.LEFT_PARENTHESIS)) {
+            TokenTreeNode node = parseDisjunction();
+            expect(TokenType.RIGHT_PARENTHESIS);
+            return node;
+        }
+        
+        Operand left = parseOperand();
+        
+        if (accept(TokenType.IS)) {
+            TestOperation testOperation = accept(TokenType.NOT) ?
+                                          TestOperation.NEQ :
+                                          TestOperation.EQ;
+            expect(TokenType.NULL);
+            return TokenTreeNode.test(
+                    new Test(left, Operand.nullOperand(), testOperation));
+        }
+        
+        if (accept(TokenType.BETWEEN)) {
+            // x BETWEEN a AND b is x >= a AND x <= b:
+            Operand low = parseOperand();
+            expect(TokenType.AND);
+            Operand high = parseOperand();
+            List<TokenTreeNode> children = new ArrayList<>(2);
+            children.add(TokenTreeNode.test(
+                    new Test(left, low, TestOperation.GEQ)));
+            children.add(TokenTreeNode.test(
+                    new Test(left, high, TestOperation.LEQ)));
+            return TokenTreeNode.and(children);
+        }
+        
+        if (accept(TokenType.IN)) {
+            // x IN (a, b) is x = a OR x = b:
+            expect(TokenType.LEFT_PARENTHESIS);
+            List<TokenTreeNode> children = new ArrayList<>();
+            
+            do {
+                children.add(TokenTreeNode.test(
+                        new Test(left, parseOperand(), TestOperation.EQ)));
+            } while (accept(TokenType.COMMA));
+            
+            expect(TokenType.RIGHT_PARENTHESIS);
+            return TokenTreeNode.or(children);
+        }
+        
+        TestOperation testOperation = parseComparator();
+        Operand right = parseOperand();
+        return TokenTreeNode.test(new Test(left, right, testOperation));
+    }
+    
+    private TestOperation parseComparator() {
+        TestOperation testOperation;
+        
+        switch (current.tokenType) {
+            case EQ:
+                testOperation = TestOperation.EQ;
+                break;
+                
+            case NEQ:
+                testOperation = TestOperation.NEQ;
+                break;
+                
+            case LT:
+                testOperation = TestOperation.LT;
+                break;
+                
+            case LEQ:
+                testOperation = TestOperation.LEQ;
+                break;
+                
+            case GT:
+                testOperation = TestOperation.GT;
+                break;
+                
+            case GEQ:
+                testOperation = TestOperation.GEQ;
+                break;
+                
+            default:
+                throw error("a comparison operator");
+        }
+        
+        advance();
+        return testOperation;
+    }
+    
+    private Operand parseOperand() {
+        Token token = current;
+        
+        switch (token.tokenType) {
+            case IDENTIFIER:
+                advance();
+                return Operand.column(parseColumnName(token));
+                
+            case MINUS:
+                advance();
+                
+                if (current.tokenType != TokenType.INTEGER 
+                        && current.tokenType != TokenType.DECIMAL) {
+                    throw error("a number");
+                }
+                
+                Token number = advance();
+                return Operand.literal(numberKind(number), "-" + number.text);
+                
+            case INTEGER:
+            case DECIMAL:
+                advance();
+                return Operand.literal(numberKind(token), token.text);
+                
+            case STRING:
+                advance();
+                return Operand.literal(Operand.Kind.STRING, token.text);
+                
+            case TRUE:
+            case FALSE:
+                advance();
+                return Operand.literal(Operand.Kind.BOOLEAN, token.text);
+                
+            case NULL:
+                advance();
+                return Operand.nullOperand();
+                
+            case QUESTION_MARK:
+                advance();
+                return Operand.parameter(parameterCount++);
+                
+            default:
+                throw error("an operand");
+        }
+    }
+    
+    private static Operand.Kind numberKind(Token token) {
+        return token.tokenType == TokenType.INTEGER ? 
+               Operand.Kind.INTEGER : 
+               Operand.Kind.DECIMAL;
+    }
+    
+    private Token advance() {
+        Token token = current;
+        current = lexer.next();
+        return token;
+    }
+    
+    private boolean accept(TokenType tokenType) {
+        if (current.tokenType == tokenType) {
+            advance();
+            return true;
+        }
+        
+        return false;
+    }
+    
+    private Token expect(TokenType tokenType) {
+        if (current.tokenType != tokenType) {
+            throw error(tokenType.name());
+        }
+        
+        return advance();
+    }
+    
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException(
+                "Expected " + expected + " but found " + current + 
+                " at position " + current.position + ".");
+    }
+}
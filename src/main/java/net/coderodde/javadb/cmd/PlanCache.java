@@ -0,0 +1,122 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of query plans keyed by normalized query text.
+ * A plan is only valid for the catalog it was made for; a plan of another 
+ * catalog is a miss and is dropped.
+ */
+final class PlanCache {
+
+    static final int DEFAULT_CAPACITY = 256;
+    
+    private final LinkedHashMap<String, QueryPlan> map;
+    private int capacity;
+    private long hits;
+    private long misses;
+    
+    PlanCache(int capacity) {
+        checkCapacity(capacity);
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, QueryPlan> eldest) {
+                return size() > PlanCache.this.capacity;
+            }
+        };
+    }
+    
+    /**
+     * Returns the plan cached for {@code key} in {@code catalog}, or 
+     * {@code null}.
+     */
+    synchronized QueryPlan get(String key, Catalog catalog) {
+        QueryPlan queryPlan = map.get(key);
+        
+        if (queryPlan != null && queryPlan.catalog != catalog) {
+            map.remove(key);
+            queryPlan = null;
+        }
+        
+        if (queryPlan == null) {
+            ++misses;
+        } else {
+            ++hits;
+        }
+        
+        return queryPlan;
+    }
+    
+    synchronized void put(String key, QueryPlan queryPlan) {
+        if (capacity > 0) {
+            map.put(key, queryPlan);
+        }
+    }
+    
+    synchronized void clear() {
+        map.clear();
+    }
+    
+    synchronized void setCapacity(int capacity) {
+        checkCapacity(capacity);
+        this.capacity = capacity;
+        
+        while (map.size() > capacity) {
+            map.remove(map.keySet().iterator().next());
+        }
+    }
+    
+    synchronized int size() {
+        return map.size();
+    }
+    
+    synchronized long getHits() {
+        return hits;
+    }
+    
+    synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Returns a canonical form of {@code command} in which whitespace, 
+     * keyword case and a trailing semicolon do not matter, so that ad-hoc 
+     * queries differing only in formatting share a plan.
+     */
+    static String normalize(CharSequence command) {
+        Lexer lexer = new Lexer(command);
+        StringBuilder sb = new StringBuilder(command.length());
+        
+        for (Token token = lexer.next(); 
+                token.tokenType != TokenType.END; 
+                token = lexer.next()) {
+            if (token.tokenType == TokenType.SEMICOLON) {
+                continue;
+            }
+            
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            
+            if (token.tokenType == TokenType.STRING) {
+                sb.append('\'')
+                  .append(token.text.replace("'", "''"))
+                  .append('\'');
+            } else {
+                sb.append(token.text);
+            }
+        }
+        
+        return sb.toString();
+    }
+    
+    private static void checkCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "Negative plan cache capacity: " + capacity);
+        }
+    }
+}
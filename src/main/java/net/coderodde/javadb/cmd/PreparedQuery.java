@@ -0,0 +1,142 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import net.coderodde.javadb.TableView;
+
+/**
+ * A SELECT query planned once by {@link CommandLayer#prepare(String)} and 
+ * executed any number of times. The values of the {@code ?} placeholders are
+ * bound with the typed setters; parameter indices start from 1.
+ */
+public final class PreparedQuery {
+
+    private static final Object UNBOUND = new Object();
+    
+    private final CommandLayer commandLayer;
+    private final QueryPlan queryPlan;
+    private final Object[] parameters;
+    private ExecutionEngine executionEngine = ExecutionEngine.ROW;
+    
+    PreparedQuery(CommandLayer commandLayer, QueryPlan queryPlan) {
+        this.commandLayer = commandLayer;
+        this.queryPlan = queryPlan;
+        this.parameters = new Object[queryPlan.parameterCount];
+        clearParameters();
+    }
+    
+    public int getParameterCount() {
+        return parameters.length;
+    }
+    
+    public void setInt(int parameterIndex, int value) {
+        set(parameterIndex, value);
+    }
+    
+    public void setLong(int parameterIndex, long value) {
+        set(parameterIndex, value);
+    }
+    
+    public void setFloat(int parameterIndex, float value) {
+        set(parameterIndex, value);
+    }
+    
+    public void setDouble(int parameterIndex, double value) {
+        set(parameterIndex, value);
+    }
+    
+    public void setBoolean(int parameterIndex, boolean value) {
+        set(parameterIndex, value);
+    }
+    
+    public void setString(int parameterIndex, String value) {
+        set(parameterIndex, 
+            Objects.requireNonNull(value, 
+                                   "The string is null. Use setNull."));
+    }
+    
+    public void setNull(int parameterIndex) {
+        set(parameterIndex, null);
+    }
+    
+    /**
+     * Selects the engine that evaluates this query; 
+     * {@link ExecutionEngine#ROW} by default.
+     */
+    public void setExecutionEngine(ExecutionEngine executionEngine) {
+        this.executionEngine = 
+                Objects.requireNonNull(executionEngine, 
+                                       "The execution engine is null.");
+    }
+    
+    public void clearParameters() {
+        Arrays.fill(parameters, UNBOUND);
+    }
+    
+    public TableView execute() {
+        checkExecutable();
+        return queryPlan.execute(parameters, 
+                                 commandLayer.getParallelScanner(),
+                                 executionEngine,
+                                 Cancellation.NONE);
+    }
+    
+    /**
+     * Executes this query with the current parameter values on the query 
+     * executor. See {@link CommandLayer#selectAsync(String)}.
+     */
+    public CompletableFuture<TableView> executeAsync() {
+        checkExecutable();
+        return QueryFuture.submit(queryPlan, 
+                                  parameters.clone(), 
+                                  commandLayer.getParallelScanner(),
+                                  executionEngine,
+                                  commandLayer.getQueryExecutor());
+    }
+    
+    /**
+     * Executes this query lazily. See {@link CommandLayer#query(String)}.
+     */
+    public QueryCursor query() {
+        checkExecutable();
+        return queryPlan.open(parameters.clone(), 
+                              commandLayer.getParallelScanner(),
+                              executionEngine,
+                              Cancellation.NONE);
+    }
+    
+    /**
+     * Returns a publisher of the result rows of this query with the current
+     * parameter values. See {@link CommandLayer#publish(String)}.
+     */
+    public QueryPublisher publish() {
+        checkExecutable();
+        return new QueryPublisher(queryPlan, 
+                                  parameters.clone(), 
+                                  commandLayer.getParallelScanner(),
+                                  executionEngine,
+                                  commandLayer.getQueryExecutor());
+    }
+    
+    private void checkExecutable() {
+        commandLayer.checkCurrentDatabase(queryPlan);
+        
+        for (int i = 0; i < parameters.length; ++i) {
+            if (parameters[i] == UNBOUND) {
+                throw new IllegalStateException(
+                        "Parameter " + (i + 1) + " is not bound.");
+            }
+        }
+    }
+    
+    private void set(int parameterIndex, Object value) {
+        if (parameterIndex < 1 || parameterIndex > parameters.length) {
+            throw new IndexOutOfBoundsException(
+                    "Parameter index " + parameterIndex + " is not within " +
+                    "[1, " + parameters.length + "].");
+        }
+        
+        parameters[parameterIndex - 1] = value;
+    }
+}
@@ -0,0 +1,89 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A lazy cursor over the result of a query. Rows are pulled from the 
+ * underlying scan only as the cursor is advanced, so the memory used does not
+ * depend on the size of the result. The rows returned are the full table rows;
+ * {@link #getTableColumnDescriptors()} tells which columns were selected.
+ * Closing the cursor ends the scan.
+ */
+public final class QueryCursor implements Iterator<TableRow>, AutoCloseable {
+
+    private final TableColumnDescriptor[] tableColumnDescriptors;
+    private Iterator<TableRow> iterator;
+    
+    /**
+     * Released on {@link #close()}, or {@code null}.
+     */
+    private AutoCloseable resource;
+    
+    QueryCursor(TableColumnDescriptor[] tableColumnDescriptors,
+                Iterator<TableRow> iterator) {
+        this(tableColumnDescriptors, iterator, null);
+    }
+    
+    QueryCursor(TableColumnDescriptor[] tableColumnDescriptors,
+                Iterator<TableRow> iterator,
+                AutoCloseable resource) {
+        this.tableColumnDescriptors = tableColumnDescriptors;
+        this.iterator = iterator;
+        this.resource = resource;
+    }
+    
+    public TableColumnDescriptor[] getTableColumnDescriptors() {
+        return tableColumnDescriptors.clone();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return iterator != null && iterator.hasNext();
+    }
+    
+    @Override
+    public TableRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows.");
+        }
+        
+        return iterator.next();
+    }
+    
+    /**
+     * Returns a sequential stream over the remaining rows. Closing the stream
+     * closes this cursor.
+     */
+    public Stream<TableRow> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(
+                        this, 
+                        Spliterator.ORDERED | Spliterator.NONNULL), 
+                false).onClose(this::close);
+    }
+    
+    @Override
+    public void close() {
+        iterator = null;
+        
+        if (resource != null) {
+            AutoCloseable closeable = resource;
+            resource = null;
+            
+            try {
+                closeable.close();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import net.coderodde.javadb.TableView;
+
+/**
+ * The result of a query executed on an executor. Cancelling the future stops
+ * the scan: the thread executing the query notices the cancellation at its
+ * next row or batch and releases the scan.
+ */
+final class QueryFuture extends CompletableFuture<TableView> {
+
+    private final Cancellation cancellation = new Cancellation();
+    
+    private QueryFuture() {}
+    
+    /**
+     * Executes {@code queryPlan} with {@code parameters} on
+     * {@code executor}.
+     */
+    static QueryFuture submit(QueryPlan queryPlan,
+                              Object[] parameters,
+                              ParallelScanner parallelScanner,
+                              ExecutionEngine executionEngine,
+                              Executor executor) {
+        QueryFuture queryFuture = new QueryFuture();
+        Runnable task = () -> {
+            if (queryFuture.isDone()) {
+                return;
+            }
+            
+            try {
+                queryFuture.complete(
+                        queryPlan.execute(parameters,
+                                          parallelScanner,
+                                          executionEngine,
+                                          queryFuture.cancellation));
+            } catch (Throwable ex) {
+                queryFuture.completeExceptionally(ex);
+            }
+        };
+        
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            queryFuture.completeExceptionally(ex);
+        }
+        
+        return queryFuture;
+    }
+    
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        cancellation.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+}
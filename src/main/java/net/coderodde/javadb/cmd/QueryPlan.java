@@ -0,0 +1,552 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+import net.coderodde.javadb.TableView;
+
+/**
+ * A SELECT statement resolved against a database: the table is looked up, 
+ * the projected columns and the WHERE operands are bound to the table schema,
+ * the WHERE tree is simplified and, unless the statement has parameters, the
+ * predicate is compiled; a WHERE that simplifies to false skips the scan. A
+ * plan is immutable and may be executed any number of times. The access path
+ * (a full scan or an index probe) is chosen on each execution so that 
+ * indices created after planning are used too. Once the table has been 
+ * analyzed, the access path with the lowest estimated cost is chosen. The 
+ * WHERE conditions are evaluated cheapest first and, once the table has 
+ * been analyzed, most selective first, and a row scan keeps adjusting their
+ * order to the pass rates it observes. A statement with GROUP BY or 
+ * aggregates is executed with a hash aggregation between the scan and the
+ * ORDER BY, which then refers to the result columns. A statement with a 
+ * JOIN is resolved against the joined rows. A statement on an archived 
+ * table reads the {@link ColumnarFile} in place.
+ */
+final class QueryPlan {
+
+    static final Object[] NO_PARAMETERS = {};
+    
+    final Catalog catalog;
+    final Table table;
+    final TableSchema schema;
+    final TableColumnDescriptor[] tableColumnDescriptors;
+    final TokenTreeNode where;
+    final int parameterCount;
+    
+    /**
+     * The archived table the statement reads, or {@code null} if it reads 
+     * the database.
+     */
+    private final ColumnarFile archive;
+    
+    /**
+     * Produces the joined rows, or is {@code null} if the statement has no 
+     * JOIN.
+     */
+    private final HashJoin hashJoin;
+    
+    /**
+     * Groups and aggregates the matching rows, or is {@code null} if the 
+     * statement has no GROUP BY and no aggregates.
+     */
+    private final HashAggregation hashAggregation;
+    
+    /**
+     * Orders the result, or is {@code null} if there is no ORDER BY.
+     */
+    private final RowComparator rowComparator;
+    private final Operand limit;
+    private final Operand offset;
+    
+    /**
+     * The compiled WHERE predicate of a statement without parameters, or 
+     * {@code null}.
+     */
+    private final RowPredicate predicate;
+    
+    /**
+     * The statistics by which {@link #predicate} was ordered, or 
+     * {@code null}.
+     */
+    private final TableStatistics predicateStatistics;
+    
+    /**
+     * Reading a row through an index costs about this many rows of a 
+     * sequential scan, since the rows are not adjacent in memory.
+     */
+    private static final double INDEX_ROW_COST = 2.0;
+    
+    QueryPlan(Catalog catalog, SelectStatement selectStatement) {
+        this.catalog = Objects.requireNonNull(catalog, "The catalog is null.");
+        this.archive = 
+                selectStatement.join == null ? 
+                catalog.getArchive(selectStatement.tableName) : 
+                null;
+        
+        if (archive != null) {
+            this.hashJoin = null;
+            this.table = archive.getTable();
+            this.schema = new TableSchema(table);
+        } else if (selectStatement.join == null) {
+            this.hashJoin = null;
+            this.table = catalog.getTable(selectStatement.tableName);
+            this.schema = new TableSchema(table);
+        } else {
+            this.hashJoin = new HashJoin(
+                    catalog, 
+                    catalog.getTable(selectStatement.tableName), 
+                    selectStatement.join);
+            this.table = hashJoin.schema.getTable();
+            this.schema = hashJoin.schema;
+        }
+        
+        this.where = simplify(selectStatement.where);
+        this.parameterCount = selectStatement.parameterCount;
+        
+        if (selectStatement.isAggregating()) {
+            this.hashAggregation = new HashAggregation(schema, 
+                                                       selectStatement);
+            this.tableColumnDescriptors = 
+                    hashAggregation.getTableColumnDescriptors();
+        } else {
+            this.hashAggregation = null;
+            this.tableColumnDescriptors = 
+                    getTableColumnDescriptors(schema, 
+                                              selectStatement.selectItems);
+        }
+        
+        this.rowComparator = 
+                selectStatement.orderBy.isEmpty() ?
+                null :
+                new RowComparator(hashAggregation == null ? 
+                                  schema : 
+                                  hashAggregation.outputSchema, 
+                                  selectStatement.orderBy);
+        this.limit = selectStatement.limit;
+        this.offset = selectStatement.offset;
+        
+        this.predicateStatistics = getStatistics();
+        this.predicate = 
+                where == null || parameterCount == 0 ? 
+                compile(where, predicateStatistics) :
+                null;
+    }
+    
+    TableView execute(Object[] parameters, 
+                      ParallelScanner parallelScanner,
+                      ExecutionEngine executionEngine,
+                      Cancellation cancellation) {
+        Table viewTable = hashAggregation == null ? 
+                          table : 
+                          hashAggregation.outputSchema.getTable();
+        TableView tableView = 
+                viewTable.createTableView(tableColumnDescriptors);
+        
+        try (QueryCursor queryCursor = open(parameters, 
+                                            parallelScanner, 
+                                            executionEngine,
+                                            cancellation)) {
+            while (queryCursor.hasNext()) {
+                tableView.addTableRow(queryCursor.next());
+            }
+        }
+        
+        return tableView;
+    }
+    
+    /**
+     * Starts executing this plan and returns a cursor that evaluates the 
+     * predicate only as rows are requested. Without ORDER BY, a LIMIT stops 
+     * the scan as soon as enough rows have matched; with ORDER BY, a LIMIT 
+     * keeps only the first OFFSET + LIMIT rows in a bounded heap instead of 
+     * sorting the whole result. A full scan of a large table is split among
+     * the threads of {@code parallelScanner}, and a full scan with the 
+     * vectorized engine filters whole batches of rows at a time. An 
+     * aggregation consumes the whole scan before the first row is returned;
+     * {@code COUNT(*)} without WHERE and GROUP BY reads just the row count.
+     * An archived table is always filtered by the vectorized engine in a 
+     * single thread, skipping the blocks its zone maps rule out. Once 
+     * {@code cancellation} is set, the scan throws a 
+     * {@code CancellationException}.
+     */
+    QueryCursor open(Object[] parameters, 
+                     ParallelScanner parallelScanner,
+                     ExecutionEngine executionEngine,
+                     Cancellation cancellation) {
+        TokenTreeNode boundWhere = 
+                where == null || parameterCount == 0 ? 
+                where : 
+                simplify(where.bind(parameters));
+        Snapshot snapshot = getSnapshot();
+        TableStatistics statistics = getStatistics();
+        RowPredicate rowPredicate = 
+                predicate != null && statistics == predicateStatistics ? 
+                predicate : 
+                compile(boundWhere, statistics);
+        Iterator<TableRow> iterator;
+        AutoCloseable resource = null;
+        
+        if (hashAggregation == null) {
+            QueryCursor scanCursor = scan(boundWhere, 
+                                          rowPredicate, 
+                                          statistics,
+                                          snapshot,
+                                          parallelScanner, 
+                                          executionEngine,
+                                          cancellation);
+            iterator = scanCursor;
+            resource = scanCursor;
+        } else if (boundWhere == null 
+                && hashJoin == null 
+                && hashAggregation.isCountOnly()) {
+            iterator = hashAggregation.count(
+                    archive != null ? 
+                    archive.getRowCount() : 
+                    snapshot.getRowStore(table).size());
+        } else {
+            try (QueryCursor scanCursor = scan(boundWhere, 
+                                               rowPredicate, 
+                                               statistics,
+                                               snapshot,
+                                               parallelScanner, 
+                                               executionEngine,
+                                               cancellation)) {
+                iterator = hashAggregation.aggregate(scanCursor);
+            }
+        }
+        
+        long offsetValue = getCount(offset, parameters, 0L);
+        long limitValue = getCount(limit, parameters, Long.MAX_VALUE);
+        
+        if (rowComparator != null) {
+            if (limit != null 
+                    && limitValue <= Integer.MAX_VALUE - offsetValue) {
+                iterator = SortIterators.topN(
+                        iterator, 
+                        rowComparator, 
+                        (int)(offsetValue + limitValue));
+            } else {
+                iterator = SortIterators.sort(iterator, rowComparator);
+            }
+        }
+        
+        if (limit != null || offset != null) {
+            iterator = new LimitIterator(iterator, offsetValue, limitValue);
+        }
+        
+        return new QueryCursor(tableColumnDescriptors, iterator, resource);
+    }
+    
+    /**
+     * Opens the access path and returns a cursor over the rows satisfying 
+     * {@code rowPredicate}, in table order unless the parallel scanner is 
+     * free to reorder them. Nothing is scanned if {@code boundWhere} has 
+     * been simplified to {@code FALSE}.
+     */
+    private QueryCursor scan(TokenTreeNode boundWhere,
+                             RowPredicate rowPredicate,
+                             TableStatistics statistics,
+                             Snapshot snapshot,
+                             ParallelScanner parallelScanner,
+                             ExecutionEngine executionEngine,
+                             Cancellation cancellation) {
+        if (boundWhere != null && boundWhere.mode == TokenTreeNode.Mode.FALSE) {
+            return new QueryCursor(tableColumnDescriptors, 
+                                   Collections.<TableRow>emptyIterator());
+        }
+        
+        if (hashJoin != null) {
+            return new QueryCursor(tableColumnDescriptors, 
+                                   hashJoin.open(boundWhere, 
+                                                 snapshot,
+                                                 executionEngine,
+                                                 cancellation));
+        }
+        
+        if (archive != null) {
+            return new QueryCursor(tableColumnDescriptors, 
+                                   archive.scan(schema, 
+                                                boundWhere, 
+                                                rowPredicate, 
+                                                cancellation));
+        }
+        
+        RowStore rowStore = snapshot.getRowStore(table);
+        Iterator<TableRow> iterator = openAccessPath(boundWhere, 
+                                                     statistics, 
+                                                     rowStore,
+                                                     parallelScanner);
+        
+        if (iterator != null) {
+            return new QueryCursor(tableColumnDescriptors, 
+                                   new FilterIterator(
+                                           cancellation.check(iterator), 
+                                           rowPredicate));
+        }
+        
+        Supplier<BatchFilter> filterFactory = 
+                getFilterFactory(rowPredicate, executionEngine);
+        
+        if (parallelScanner.isApplicable(rowStore.size())) {
+            // Sorting and aggregating need the table order to be 
+            // deterministic among equal keys and floating-point sums.
+            ParallelScanner.ScanIterator scanIterator = 
+                    parallelScanner.scan(rowStore, 
+                                         filterFactory, 
+                                         rowComparator != null 
+                                             || hashAggregation != null,
+                                         cancellation);
+            return new QueryCursor(tableColumnDescriptors, 
+                                   scanIterator, 
+                                   scanIterator);
+        } else {
+            return new QueryCursor(tableColumnDescriptors,
+                                   new BatchFilterIterator(
+                                           rowStore, 
+                                           filterFactory.get(),
+                                           cancellation));
+        }
+    }
+    
+    /**
+     * Simplifies {@code node}, returning {@code null} if it holds for every
+     * row.
+     */
+    private TokenTreeNode simplify(TokenTreeNode node) {
+        if (node == null) {
+            return null;
+        }
+        
+        node = node.simplify(schema);
+        return node.mode == TokenTreeNode.Mode.TRUE ? null : node;
+    }
+    
+    /**
+     * Returns the snapshot of the scanned tables to execute this plan on.
+     * Archives need none, since they never change.
+     */
+    private Snapshot getSnapshot() {
+        if (archive != null) {
+            return Snapshot.EMPTY;
+        }
+        
+        return hashJoin == null ? 
+               catalog.getSnapshot(table) : 
+               hashJoin.getSnapshot();
+    }
+    
+    /**
+     * Returns the statistics of the scanned table, or {@code null} if it has
+     * not been analyzed. The joined rows have no statistics; the tables of a
+     * join use theirs when they are scanned. Archives are not analyzed.
+     */
+    private TableStatistics getStatistics() {
+        return hashJoin == null && archive == null ? 
+               catalog.getStatistics(table) : 
+               null;
+    }
+    
+    /**
+     * Compiles {@code node}, ordering its conditions by {@code statistics} 
+     * if they are not {@code null}.
+     */
+    private RowPredicate compile(TokenTreeNode node, 
+                                 TableStatistics statistics) {
+        if (node == null) {
+            return RowPredicates.constant(true);
+        }
+        
+        return node.compile(schema, statistics);
+    }
+    
+    private Supplier<BatchFilter> 
+        getFilterFactory(RowPredicate rowPredicate, 
+                         ExecutionEngine executionEngine) {
+        switch (executionEngine) {
+            case ROW:
+                return () -> BatchFilter.of(rowPredicate.adapt(), schema);
+                
+            case VECTORIZED:
+                VectorPredicate vectorPredicate = rowPredicate.vectorize();
+                return () -> new VectorFilter(vectorPredicate, schema);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static long getCount(Operand operand, 
+                                 Object[] parameters, 
+                                 long defaultValue) {
+        if (operand == null) {
+            return defaultValue;
+        }
+        
+        Operand literal = operand.bind(parameters);
+        
+        if (literal.kind != Operand.Kind.INTEGER) {
+            throw new IllegalArgumentException(
+                    "LIMIT and OFFSET expect an integer, not " + literal + ".");
+        }
+        
+        long count = Test.convertToLong(literal.text);
+        
+        if (count < 0) {
+            throw new IllegalArgumentException(
+                    "LIMIT and OFFSET must not be negative: " + count);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Returns an iterator over a superset of the rows satisfying 
+     * {@code boundWhere} among the rows of {@code rowStore}, the view of the
+     * table in the snapshot of the query, or {@code null} if the caller 
+     * should scan the whole table. The candidates are index probes for the 
+     * conjuncts of the form {@code column = constant} over hash-indexed 
+     * columns, and the tightest ranges over ordered indexed columns. 
+     * Without statistics, the first hash index probe is taken, then the 
+     * first range. With statistics, the candidate reading the fewest rows 
+     * is taken if it is cheaper than a full scan. The caller still applies
+     * the whole predicate to each row.
+     */
+    private Iterator<TableRow> openAccessPath(TokenTreeNode boundWhere,
+                                              TableStatistics statistics,
+                                              RowStore rowStore,
+                                              ParallelScanner parallelScanner) {
+        if (boundWhere == null) {
+            return null;
+        }
+        
+        int rowCount = rowStore.size();
+        List<Test> conjuncts = new ArrayList<>();
+        boundWhere.collectConjuncts(conjuncts);
+        double bestCost = rowCount;
+        
+        if (parallelScanner.isApplicable(rowCount)) {
+            bestCost /= parallelScanner.getParallelism();
+        }
+        
+        HashIndex bestHashIndex = null;
+        Test bestConjunct = null;
+        OrderedIndex bestOrderedIndex = null;
+        KeyRange bestRange = null;
+        
+        for (Test conjunct : conjuncts) {
+            int columnIndex = conjunct.getConstantColumnIndex(schema);
+            
+            if (columnIndex < 0 
+                    || conjunct.getConstantOperation() != TestOperation.EQ) {
+                continue;
+            }
+            
+            HashIndex hashIndex = 
+                    catalog.indexManager.getHashIndex(table.getTableName(), 
+                                                      columnIndex);
+            
+            if (hashIndex == null) {
+                continue;
+            }
+            
+            if (statistics == null) {
+                return hashIndex.probe(conjunct.getConstant(schema), 
+                                       rowStore);
+            }
+            
+            double cost = INDEX_ROW_COST * rowCount * 
+                          conjunct.estimateSelectivity(schema, statistics);
+            
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestHashIndex = hashIndex;
+                bestConjunct = conjunct;
+            }
+        }
+        
+        for (Test conjunct : conjuncts) {
+            int columnIndex = conjunct.getConstantColumnIndex(schema);
+            
+            if (columnIndex < 0 
+                    || conjunct.getConstantOperation() == TestOperation.NEQ) {
+                continue;
+            }
+            
+            OrderedIndex orderedIndex = 
+                    catalog.indexManager.getOrderedIndex(
+                            table.getTableName(), 
+                            columnIndex);
+            
+            if (orderedIndex == null) {
+                continue;
+            }
+            
+            KeyRange keyRange = KeyRange.of(schema, columnIndex, conjuncts);
+            
+            if (statistics == null) {
+                return keyRange.open(orderedIndex, rowStore);
+            }
+            
+            double cost = INDEX_ROW_COST * rowCount * 
+                          keyRange.estimateSelectivity(
+                                  statistics.getColumnStatistics(columnIndex));
+            
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestHashIndex = null;
+                bestOrderedIndex = orderedIndex;
+                bestRange = keyRange;
+            }
+        }
+        
+        if (bestHashIndex != null) {
+            return bestHashIndex.probe(bestConjunct.getConstant(schema), 
+                                       rowStore);
+        } else if (bestOrderedIndex != null) {
+            return bestRange.open(bestOrderedIndex, rowStore);
+        }
+        
+        return null;
+    }
+    
+    private static TableColumnDescriptor[] 
+        getTableColumnDescriptors(TableSchema schema, 
+                                  List<SelectStatement.SelectItem> 
+                                          selectItems) {
+        if (selectItems.isEmpty()) {
+            // SELECT *
+            TableColumnDescriptor[] tableColumnDescriptors = 
+                    new TableColumnDescriptor[schema.getNumberOfColumns()];
+            
+            for (int i = 0; i < tableColumnDescriptors.length; ++i) {
+                tableColumnDescriptors[i] = schema.getTableColumnDescriptor(i);
+            }
+            
+            return tableColumnDescriptors;
+        }
+        
+        TableColumnDescriptor[] tableColumnDescriptors =
+                new TableColumnDescriptor[selectItems.size()];
+        
+        for (int i = 0; i < tableColumnDescriptors.length; ++i) {
+            String tableColumnName = selectItems.get(i).columnName;
+            int columnIndex = schema.indexOf(tableColumnName);
+            
+            if (columnIndex < 0) {
+                throw new IllegalArgumentException(tableColumnName + ": no " +
+                        "such table column.");
+            }
+            
+            tableColumnDescriptors[i] = 
+                    schema.getTableColumnDescriptor(columnIndex);
+        }
+        
+        return tableColumnDescriptors;
+    }
+}
@@ -0,0 +1,213 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Publishes the result rows of a query to subscribers with backpressure. The
+ * protocol is that of {@code java.util.concurrent.Flow}, which this Java 8
+ * code base cannot refer to: a subscriber receives a subscription, requests
+ * rows and gets at most as many {@code onNext} calls as it has requested,
+ * followed by {@code onComplete} or {@code onError}. Each subscription
+ * executes the query anew on the executor. Rows are pulled from the scan only
+ * as they are requested, and no thread is held while the subscriber has no
+ * outstanding demand. Cancelling a subscription stops the scan.
+ */
+public final class QueryPublisher {
+
+    /**
+     * Receives the rows of a subscription. The calls to a subscriber are
+     * never concurrent.
+     */
+    public interface Subscriber {
+        
+        void onSubscribe(Subscription subscription);
+        
+        void onNext(TableRow tableRow);
+        
+        void onError(Throwable throwable);
+        
+        void onComplete();
+    }
+    
+    public interface Subscription {
+        
+        /**
+         * Requests {@code n} more rows. A non-positive {@code n} fails the
+         * subscription with an {@link IllegalArgumentException}.
+         */
+        void request(long n);
+        
+        /**
+         * Stops the scan. After cancelling, the subscriber receives no more
+         * calls apart from those already running.
+         */
+        void cancel();
+    }
+    
+    private final QueryPlan queryPlan;
+    private final Object[] parameters;
+    private final ParallelScanner parallelScanner;
+    private final ExecutionEngine executionEngine;
+    private final Executor executor;
+    
+    QueryPublisher(QueryPlan queryPlan,
+                   Object[] parameters,
+                   ParallelScanner parallelScanner,
+                   ExecutionEngine executionEngine,
+                   Executor executor) {
+        this.queryPlan = queryPlan;
+        this.parameters = parameters;
+        this.parallelScanner = parallelScanner;
+        this.executionEngine = executionEngine;
+        this.executor = executor;
+    }
+    
+    public TableColumnDescriptor[] getTableColumnDescriptors() {
+        return queryPlan.tableColumnDescriptors.clone();
+    }
+    
+    public void subscribe(Subscriber subscriber) {
+        Objects.requireNonNull(subscriber, "The subscriber is null.");
+        RowSubscription rowSubscription = new RowSubscription(subscriber);
+        subscriber.onSubscribe(rowSubscription);
+        rowSubscription.start();
+    }
+    
+    /**
+     * Emits the rows on the executor. Each request or cancellation schedules
+     * a drain unless one is pending already, in which case the running drain
+     * loops once more; hence at most one thread drains at a time, and the
+     * cursor is only ever touched by the drain.
+     */
+    private final class RowSubscription implements Subscription, Runnable {
+        
+        private final Subscriber subscriber;
+        private final Cancellation cancellation = new Cancellation();
+        private final AtomicLong demand = new AtomicLong();
+        
+        /**
+         * The number of drains requested since the running drain started. 
+         * Until {@code onSubscribe} returns, it counts one more so that no 
+         * drain calls the subscriber before that.
+         */
+        private final AtomicInteger drainRequests = new AtomicInteger(1);
+        private volatile IllegalArgumentException invalidRequest;
+        private QueryCursor queryCursor;
+        private boolean done;
+        
+        RowSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+        
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException(
+                        "Non-positive request: " + n);
+                // Stop a drain blocked on a selective scan.
+                cancellation.cancel();
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            
+            scheduleDrain();
+        }
+        
+        @Override
+        public void cancel() {
+            cancellation.cancel();
+            scheduleDrain();
+        }
+        
+        @Override
+        public void run() {
+            int missed = 1;
+            
+            do {
+                drain();
+                missed = drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        void start() {
+            if (drainRequests.decrementAndGet() != 0) {
+                execute();
+            }
+        }
+        
+        private void scheduleDrain() {
+            if (drainRequests.getAndIncrement() == 0) {
+                execute();
+            }
+        }
+        
+        private void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                // No drain runs and none will: the failure is ours to signal.
+                fail(ex);
+            }
+        }
+        
+        private void drain() {
+            if (done) {
+                return;
+            }
+            
+            try {
+                if (queryCursor == null && !cancellation.isCancelled()) {
+                    queryCursor = queryPlan.open(parameters,
+                                                 parallelScanner,
+                                                 executionEngine,
+                                                 cancellation);
+                }
+                
+                while (demand.get() > 0 && !cancellation.isCancelled()) {
+                    if (!queryCursor.hasNext()) {
+                        close();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    
+                    subscriber.onNext(queryCursor.next());
+                    demand.decrementAndGet();
+                }
+            } catch (RuntimeException ex) {
+                if (!cancellation.isCancelled()) {
+                    fail(ex);
+                    return;
+                }
+            }
+            
+            if (cancellation.isCancelled()) {
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                } else {
+                    close();
+                }
+            }
+        }
+        
+        private void fail(Throwable throwable) {
+            close();
+            subscriber.onError(throwable);
+        }
+        
+        private void close() {
+            done = true;
+            
+            if (queryCursor != null) {
+                QueryCursor cursor = queryCursor;
+                queryCursor = null;
+                cursor.close();
+            }
+        }
+    }
+}
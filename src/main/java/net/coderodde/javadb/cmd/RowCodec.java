@@ -0,0 +1,158 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+
+/**
+ * Encodes the values of table rows into the binary files of the command
+ * layer: the write-ahead log, the paged database files and the directories
+ * of the columnar archives. A value is a presence flag followed, unless it
+ * is {@code null}, by the value in the big-endian encoding of 
+ * {@link DataOutput}; strings and binary data are prefixed with their length
+ * in bytes.
+ */
+final class RowCodec {
+
+    private RowCodec() {}
+    
+    static TableCellType[] getTableCellTypes(Table table) {
+        List<TableColumnDescriptor> tableColumnDescriptors = 
+                table.getTableColumnDescriptors();
+        TableCellType[] tableCellTypes = 
+                new TableCellType[tableColumnDescriptors.size()];
+        
+        for (int i = 0; i < tableCellTypes.length; ++i) {
+            tableCellTypes[i] = 
+                    tableColumnDescriptors.get(i).getTableCellType();
+        }
+        
+        return tableCellTypes;
+    }
+    
+    /**
+     * Writes the values of {@code row}, which are of the types 
+     * {@code tableCellTypes}.
+     */
+    static void writeRow(DataOutput out, 
+                         TableCellType[] tableCellTypes, 
+                         Object[] row) throws IOException {
+        for (int i = 0; i < row.length; ++i) {
+            writeValue(out, tableCellTypes[i], row[i]);
+        }
+    }
+    
+    static Object[] readRow(ByteBuffer in, TableCellType[] tableCellTypes) {
+        Object[] row = new Object[tableCellTypes.length];
+        
+        for (int i = 0; i < row.length; ++i) {
+            row[i] = readValue(in, tableCellTypes[i]);
+        }
+        
+        return row;
+    }
+    
+    /**
+     * Writes {@code value}, which is {@code null} or of the type 
+     * {@code tableCellType}.
+     */
+    static void writeValue(DataOutput out,
+                           TableCellType tableCellType,
+                           Object value) throws IOException {
+        out.writeBoolean(value != null);
+        
+        if (value == null) {
+            return;
+        }
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+                out.writeInt((Integer) value);
+                break;
+                
+            case TYPE_LONG:
+                out.writeLong((Long) value);
+                break;
+                
+            case TYPE_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+                
+            case TYPE_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+                
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+                
+            case TYPE_STRING:
+                writeString(out, (String) value);
+                break;
+                
+            case TYPE_BINARY:
+                writeBytes(out, (byte[]) value);
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static Object readValue(ByteBuffer in, TableCellType tableCellType) {
+        if (in.get() == 0) {
+            return null;
+        }
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+                return in.getInt();
+                
+            case TYPE_LONG:
+                return in.getLong();
+                
+            case TYPE_FLOAT:
+                return in.getFloat();
+                
+            case TYPE_DOUBLE:
+                return in.getDouble();
+                
+            case TYPE_BOOLEAN:
+                return in.get() != 0;
+                
+            case TYPE_STRING:
+                return readString(in);
+                
+            case TYPE_BINARY:
+                return readBytes(in);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static void writeString(DataOutput out, String string) throws IOException {
+        writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static String readString(ByteBuffer in) {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+    
+    private static void writeBytes(DataOutput out, byte[] bytes)
+            throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,102 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Comparator;
+import java.util.List;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Orders rows by the ORDER BY keys of a query. The keys are bound to column 
+ * positions once; nulls sort before all other values in ascending order.
+ */
+final class RowComparator implements Comparator<TableRow> {
+
+    private final int[] columnIndices;
+    private final TableCellType[] tableCellTypes;
+    private final boolean[] descending;
+    
+    RowComparator(TableSchema schema, List<SelectStatement.OrderItem> items) {
+        int size = items.size();
+        this.columnIndices = new int[size];
+        this.tableCellTypes = new TableCellType[size];
+        this.descending = new boolean[size];
+        
+        for (int i = 0; i < size; ++i) {
+            SelectStatement.OrderItem item = items.get(i);
+            int columnIndex = schema.indexOf(item.columnName);
+            
+            if (columnIndex < 0) {
+                throw new IllegalArgumentException(
+                        item.columnName + ": no such table column.");
+            }
+            
+            TableCellType tableCellType = schema.getTableCellType(columnIndex);
+            
+            if (tableCellType == TableCellType.TYPE_BINARY) {
+                throw new IllegalArgumentException(
+                        "Cannot order by a binary column.");
+            }
+            
+            columnIndices[i] = columnIndex;
+            tableCellTypes[i] = tableCellType;
+            descending[i] = item.descending;
+        }
+    }
+    
+    @Override
+    public int compare(TableRow tableRow1, TableRow tableRow2) {
+        for (int i = 0; i < columnIndices.length; ++i) {
+            int cmp = compare(tableRow1.get(columnIndices[i]),
+                              tableRow2.get(columnIndices[i]),
+                              tableCellTypes[i]);
+            
+            if (cmp != 0) {
+                return descending[i] ? -cmp : cmp;
+            }
+        }
+        
+        return 0;
+    }
+    
+    private static int compare(TableCell cell1, 
+                               TableCell cell2, 
+                               TableCellType tableCellType) {
+        boolean null1 = cell1.getValue() == null;
+        boolean null2 = cell2.getValue() == null;
+        
+        if (null1 || null2) {
+            return null1 == null2 ? 0 : (null1 ? -1 : 1);
+        }
+        
+        switch (tableCellType) {
+            case TYPE_INT:
+                return Integer.compare(cell1.getIntValue(), 
+                                       cell2.getIntValue());
+                
+            case TYPE_LONG:
+                return Long.compare(cell1.getLongValue(), 
+                                    cell2.getLongValue());
+                
+            case TYPE_FLOAT:
+                return Float.compare(cell1.getFloatValue(), 
+                                     cell2.getFloatValue());
+                
+            case TYPE_DOUBLE:
+                return Double.compare(cell1.getDoubleValue(), 
+                                      cell2.getDoubleValue());
+                
+            case TYPE_BOOLEAN:
+                return Boolean.compare(cell1.getBooleanValue(), 
+                                       cell2.getBooleanValue());
+                
+            case TYPE_STRING:
+                return cell1.getStringValue().compareTo(
+                       cell2.getStringValue());
+                
+            default:
+                throw new IllegalStateException(
+                        tableCellType + ": cannot be ordered.");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+
+/**
+ * The row a row-engine scan of a {@link RowStore} is testing: the range of
+ * rows the scan is filtering and the index of the row in the range. The
+ * predicates bound to a cursor by {@link RowPredicate#bind(RowCursor)} read
+ * the dictionary codes of the row from the cursor instead of comparing its
+ * strings. The codes of a column are copied out of the row store only when
+ * a predicate first asks for them, and at most once per range. A cursor
+ * belongs to a single scan.
+ */
+final class RowCursor {
+
+    private final int[][] codeColumns;
+    private final boolean[] codesExtracted;
+    private RowStore rowStore;
+    private int fromIndex;
+    private int toIndex;
+    
+    /**
+     * The index of the row being tested in the range.
+     */
+    int index;
+    
+    /**
+     * The number of ranges loaded, so that the bound predicates look up
+     * their constants in the dictionaries once per range.
+     */
+    int loadCount;
+    
+    RowCursor(TableSchema schema) {
+        this.codeColumns = new int[schema.getNumberOfColumns()][];
+        this.codesExtracted = new boolean[codeColumns.length];
+    }
+    
+    /**
+     * Moves to the rows at positions {@code fromIndex} (inclusive) through
+     * {@code toIndex} (exclusive) of {@code rowStore}; at most
+     * {@link VectorBatch#SIZE} rows.
+     */
+    void load(RowStore rowStore, int fromIndex, int toIndex) {
+        this.rowStore = rowStore;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.index = 0;
+        Arrays.fill(codesExtracted, false);
+        ++loadCount;
+    }
+    
+    /**
+     * Returns the dictionary of the column {@code columnIndex} in the row
+     * store, or {@code null} if the column has none.
+     */
+    StringDictionary getDictionary(int columnIndex) {
+        return rowStore.getDictionary(columnIndex);
+    }
+    
+    /**
+     * Returns the codes of the column {@code columnIndex}, which has a
+     * dictionary, in the rows of the range; {@code NULL} is
+     * {@link StringDictionary#NO_CODE}.
+     */
+    int[] getCodeColumn(int columnIndex) {
+        if (!codesExtracted[columnIndex]) {
+            if (codeColumns[columnIndex] == null) {
+                codeColumns[columnIndex] = new int[VectorBatch.SIZE];
+            }
+            
+            rowStore.getCodes(columnIndex,
+                              fromIndex,
+                              toIndex,
+                              codeColumns[columnIndex]);
+            codesExtracted[columnIndex] = true;
+        }
+        
+        return codeColumns[columnIndex];
+    }
+}
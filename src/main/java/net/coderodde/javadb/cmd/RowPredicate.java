@@ -0,0 +1,49 @@
+package net.coderodde.javadb.cmd;
+
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A compiled WHERE predicate. Implementations are immutable and are built
+ * once per query, except for those returned by {@link #adapt()} and 
+ * {@link #bind(RowCursor)}; evaluating a row must not parse or allocate 
+ * anything.
+ */
+interface RowPredicate {
+
+    boolean test(TableRow tableRow);
+    
+    /**
+     * Returns the relative cost of evaluating this predicate on a row, used 
+     * to order the operands of AND and OR.
+     */
+    int cost();
+    
+    /**
+     * Returns an equivalent predicate for a single scan running in a single
+     * thread. The operands of AND and OR are reordered during the scan by 
+     * the pass rates they show on the rows scanned so far. By default, this
+     * predicate is returned as such.
+     */
+    default RowPredicate adapt() {
+        return this;
+    }
+    
+    /**
+     * Returns an equivalent predicate for a single scan of a row store that
+     * moves {@code cursor} to each row before testing it. The equality and 
+     * {@code IN} predicates over dictionary-encoded string columns compare 
+     * the code of the row. By default, this predicate is returned as such.
+     */
+    default RowPredicate bind(RowCursor cursor) {
+        return this;
+    }
+    
+    /**
+     * Returns the equivalent predicate for the vectorized engine. By 
+     * default, this predicate is applied to the rows of each batch one by 
+     * one.
+     */
+    default VectorPredicate vectorize() {
+        return VectorPredicates.rows(this);
+    }
+}
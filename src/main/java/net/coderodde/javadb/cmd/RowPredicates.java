@@ -0,0 +1,1189 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Factory for the type-specialized evaluator nodes {@link Test#compile} and
+ * {@link TokenTreeNode#compile} produce. Columns are addressed by their
+ * ordinal position resolved through a {@link TableSchema}. A comparison 
+ * involving a {@code NULL} value is false whatever the operation, so only 
+ * {@code IS [NOT] NULL} matches nulls.
+ */
+final class RowPredicates {
+
+    /**
+     * The pass rate assumed for an operand when there are no statistics.
+     */
+    static final double UNKNOWN_PASS_RATE = 0.5;
+    
+    // The relative costs of the evaluator nodes. Reading a cell is the unit;
+    // comparing strings and byte arrays takes time proportional to their 
+    // length, which is taken to be that of a short text.
+    private static final int CELL_COST = 1;
+    private static final int FLOATING_POINT_COST = 1;
+    private static final int STRING_COST = 4;
+    private static final int BINARY_COST = 8;
+    
+    /**
+     * The smallest fraction of the rows an operand is assumed to decide, so 
+     * that the rank of an operand is finite.
+     */
+    private static final double MIN_DECISION_RATE = 1e-6;
+    
+    /**
+     * The number of rows an adaptive connective tests between reorderings of
+     * its operands.
+     */
+    private static final int ADAPTATION_INTERVAL = 1024;
+    
+    private static final RowPredicate TRUE = new ConstantPredicate(true);
+    private static final RowPredicate FALSE = new ConstantPredicate(false);
+    
+    private RowPredicates() {}
+    
+    static RowPredicate constant(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+    
+    static RowPredicate and(List<RowPredicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        
+        return new AndPredicate(
+                predicates.toArray(new RowPredicate[predicates.size()]));
+    }
+    
+    static RowPredicate or(List<RowPredicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        
+        return new OrPredicate(
+                predicates.toArray(new RowPredicate[predicates.size()]));
+    }
+    
+    static RowPredicate isNull(int columnIndex, boolean negate) {
+        return new IsNullPredicate(columnIndex, negate);
+    }
+    
+    static RowPredicate intConstant(int columnIndex,
+                                    TestOperation testOperation,
+                                    int constant) {
+        return new IntConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static RowPredicate longConstant(int columnIndex,
+                                     TestOperation testOperation,
+                                     long constant) {
+        return new LongConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static RowPredicate floatConstant(int columnIndex,
+                                      TestOperation testOperation,
+                                      float constant) {
+        return new FloatConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static RowPredicate doubleConstant(int columnIndex,
+                                       TestOperation testOperation,
+                                       double constant) {
+        return new DoubleConstantPredicate(columnIndex,
+                                           testOperation,
+                                           constant);
+    }
+    
+    static RowPredicate booleanConstant(int columnIndex,
+                                        TestOperation testOperation,
+                                        boolean constant) {
+        checkEquality(testOperation, TableCellType.TYPE_BOOLEAN);
+        return new BooleanConstantPredicate(columnIndex,
+                                            testOperation == TestOperation.EQ,
+                                            constant);
+    }
+    
+    static RowPredicate stringConstant(int columnIndex,
+                                       TestOperation testOperation,
+                                       String constant) {
+        if (testOperation == TestOperation.EQ
+                || testOperation == TestOperation.NEQ) {
+            return new StringEqualsPredicate(columnIndex,
+                                             testOperation == TestOperation.EQ,
+                                             constant);
+        }
+        
+        return new StringConstantPredicate(columnIndex,
+                                           testOperation,
+                                           constant);
+    }
+    
+    /**
+     * Returns a predicate matching the rows whose value in the string 
+     * column {@code columnIndex} is one of {@code constants}.
+     */
+    static RowPredicate stringIn(int columnIndex, List<String> constants) {
+        return new StringInPredicate(columnIndex, 
+                                     new HashSet<>(constants));
+    }
+    
+    static RowPredicate columns(int columnIndex1,
+                                int columnIndex2,
+                                TableCellType tableCellType,
+                                TestOperation testOperation) {
+        switch (tableCellType) {
+            case TYPE_INT:
+                return new IntColumnsPredicate(columnIndex1,
+                                               columnIndex2,
+                                               testOperation);
+                
+            case TYPE_LONG:
+                return new LongColumnsPredicate(columnIndex1,
+                                                columnIndex2,
+                                                testOperation);
+                
+            case TYPE_FLOAT:
+                return new FloatColumnsPredicate(columnIndex1,
+                                                 columnIndex2,
+                                                 testOperation);
+                
+            case TYPE_DOUBLE:
+                return new DoubleColumnsPredicate(columnIndex1,
+                                                  columnIndex2,
+                                                  testOperation);
+                
+            case TYPE_BOOLEAN:
+                checkEquality(testOperation, tableCellType);
+                return new BooleanColumnsPredicate(
+                        columnIndex1,
+                        columnIndex2,
+                        testOperation == TestOperation.EQ);
+                
+            case TYPE_STRING:
+                return new StringColumnsPredicate(columnIndex1,
+                                                  columnIndex2,
+                                                  testOperation);
+                
+            case TYPE_BINARY:
+                checkEquality(testOperation, tableCellType);
+                return new BinaryColumnsPredicate(
+                        columnIndex1,
+                        columnIndex2,
+                        testOperation == TestOperation.EQ);
+                
+            default:
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
+        }
+    }
+    
+    static boolean compare(int value1, int value2, TestOperation operation) {
+        switch (operation) {
+            case EQ:
+                return value1 == value2;
+                
+            case NEQ:
+                return value1 != value2;
+                
+            case LT:
+                return value1 < value2;
+                
+            case LEQ:
+                return value1 <= value2;
+                
+            case GT:
+                return value1 > value2;
+                
+            case GEQ:
+                return value1 >= value2;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static boolean compare(long value1, long value2, TestOperation operation) {
+        switch (operation) {
+            case EQ:
+                return value1 == value2;
+                
+            case NEQ:
+                return value1 != value2;
+                
+            case LT:
+                return value1 < value2;
+                
+            case LEQ:
+                return value1 <= value2;
+                
+            case GT:
+                return value1 > value2;
+                
+            case GEQ:
+                return value1 >= value2;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static boolean compare(float value1,
+                           float value2,
+                           TestOperation operation) {
+        switch (operation) {
+            case EQ:
+                return value1 == value2;
+                
+            case NEQ:
+                return value1 != value2;
+                
+            case LT:
+                return value1 < value2;
+                
+            case LEQ:
+                return value1 <= value2;
+                
+            case GT:
+                return value1 > value2;
+                
+            case GEQ:
+                return value1 >= value2;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    static boolean compare(double value1,
+                           double value2,
+                           TestOperation operation) {
+        switch (operation) {
+            case EQ:
+                return value1 == value2;
+                
+            case NEQ:
+                return value1 != value2;
+                
+            case LT:
+                return value1 < value2;
+                
+            case LEQ:
+                return value1 <= value2;
+                
+            case GT:
+                return value1 > value2;
+                
+            case GEQ:
+                return value1 >= value2;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * Returns the rank of an operand of AND, if {@code conjunctive} is 
+     * {@code true}, or of OR, otherwise, that costs {@code cost} and is 
+     * satisfied by the fraction {@code passRate} of the rows. For 
+     * independent operands, evaluating them in ascending order of rank 
+     * minimizes the expected cost of deciding a row: an operand ranks by its
+     * cost per row it decides, that is, per row it rejects in an AND and per
+     * row it accepts in an OR.
+     */
+    static double rank(int cost, double passRate, boolean conjunctive) {
+        double decisionRate = conjunctive ? 1.0 - passRate : passRate;
+        return cost / Math.max(decisionRate, MIN_DECISION_RATE);
+    }
+    
+    /**
+     * Interprets the result of a {@code compareTo} call.
+     */
+    static boolean holds(int comparison, TestOperation operation) {
+        return compare(comparison, 0, operation);
+    }
+    
+    private static int totalCost(RowPredicate[] predicates) {
+        int cost = 0;
+        
+        for (RowPredicate predicate : predicates) {
+            cost += predicate.cost();
+        }
+        
+        return cost;
+    }
+    
+    private static void checkEquality(TestOperation testOperation,
+                                      TableCellType tableCellType) {
+        if (testOperation != TestOperation.EQ
+                && testOperation != TestOperation.NEQ) {
+            throw new IllegalArgumentException(
+                    "Operation " + testOperation + " is not defined for " +
+                    tableCellType.getTypeName() + " values.");
+        }
+    }
+    
+    private static final class ConstantPredicate implements RowPredicate {
+        
+        private final boolean value;
+        
+        ConstantPredicate(boolean value) {
+            this.value = value;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            return value;
+        }
+        
+        @Override
+        public int cost() {
+            return 0;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.constant(value);
+        }
+    }
+    
+    private static final class AndPredicate implements RowPredicate {
+        
+        private final RowPredicate[] predicates;
+        
+        AndPredicate(RowPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            for (RowPredicate predicate : predicates) {
+                if (!predicate.test(tableRow)) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public int cost() {
+            return totalCost(predicates);
+        }
+        
+        @Override
+        public RowPredicate adapt() {
+            return new AdaptivePredicate(predicates, true);
+        }
+        
+        @Override
+        public RowPredicate bind(RowCursor cursor) {
+            RowPredicate[] boundPredicates = 
+                    new RowPredicate[predicates.length];
+            
+            for (int i = 0; i < predicates.length; ++i) {
+                boundPredicates[i] = predicates[i].bind(cursor);
+            }
+            
+            return new AndPredicate(boundPredicates);
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            List<VectorPredicate> vectorPredicates = 
+                    new ArrayList<>(predicates.length);
+            
+            for (RowPredicate predicate : predicates) {
+                vectorPredicates.add(predicate.vectorize());
+            }
+            
+            return VectorPredicates.and(vectorPredicates);
+        }
+    }
+    
+    private static final class OrPredicate implements RowPredicate {
+        
+        private final RowPredicate[] predicates;
+        
+        OrPredicate(RowPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            for (RowPredicate predicate : predicates) {
+                if (predicate.test(tableRow)) {
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        @Override
+        public int cost() {
+            return totalCost(predicates);
+        }
+        
+        @Override
+        public RowPredicate adapt() {
+            return new AdaptivePredicate(predicates, false);
+        }
+        
+        @Override
+        public RowPredicate bind(RowCursor cursor) {
+            RowPredicate[] boundPredicates = 
+                    new RowPredicate[predicates.length];
+            
+            for (int i = 0; i < predicates.length; ++i) {
+                boundPredicates[i] = predicates[i].bind(cursor);
+            }
+            
+            return new OrPredicate(boundPredicates);
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            List<VectorPredicate> vectorPredicates = 
+                    new ArrayList<>(predicates.length);
+            
+            for (RowPredicate predicate : predicates) {
+                vectorPredicates.add(predicate.vectorize());
+            }
+            
+            return VectorPredicates.or(vectorPredicates);
+        }
+    }
+    
+    /**
+     * An AND or OR node of a single scan. It counts the rows each operand is
+     * evaluated on and the rows it passes, and every 
+     * {@link #ADAPTATION_INTERVAL} rows sorts the operands by their 
+     * {@link #rank} at the observed pass rates. The counts are then halved 
+     * so that the order follows the changes in the data along the scan.
+     */
+    private static final class AdaptivePredicate implements RowPredicate {
+        
+        private final RowPredicate[] predicates;
+        private final int[] costs;
+        private final int[] evaluations;
+        private final int[] passes;
+        private final double[] ranks;
+        private final boolean conjunctive;
+        private int rowsUntilAdaptation = ADAPTATION_INTERVAL;
+        
+        AdaptivePredicate(RowPredicate[] predicates, boolean conjunctive) {
+            this.predicates = new RowPredicate[predicates.length];
+            this.costs = new int[predicates.length];
+            this.evaluations = new int[predicates.length];
+            this.passes = new int[predicates.length];
+            this.ranks = new double[predicates.length];
+            this.conjunctive = conjunctive;
+            
+            for (int i = 0; i < predicates.length; ++i) {
+                this.predicates[i] = predicates[i].adapt();
+                this.costs[i] = predicates[i].cost();
+            }
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            if (--rowsUntilAdaptation == 0) {
+                reorder(); 
+            }
+            
+            for (int i = 0; i < predicates.length; ++i) {
+                ++evaluations[i];
+                
+                if (predicates[i].test(tableRow)) {
+                    ++passes[i];
+                    
+                    if (!conjunctive) {
+                        return true;
+                    }
+                } else if (conjunctive) {
+                    return false;
+                }
+            }
+            
+            return conjunctive;
+        }
+        
+        @Override
+        public int cost() {
+            return totalCost(predicates);
+        }
+        
+        @Override
+        public RowPredicate adapt() {
+            return new AdaptivePredicate(predicates, conjunctive);
+        }
+        
+        @Override
+        public RowPredicate bind(RowCursor cursor) {
+            RowPredicate[] boundPredicates = 
+                    new RowPredicate[predicates.length];
+            
+            for (int i = 0; i < predicates.length; ++i) {
+                boundPredicates[i] = predicates[i].bind(cursor);
+            }
+            
+            return new AdaptivePredicate(boundPredicates, conjunctive);
+        }
+        
+        private void reorder() {
+            for (int i = 0; i < predicates.length; ++i) {
+                // Estimates the pass rate as if each operand had also been
+                // seen to pass and to fail once, so that an operand not 
+                // evaluated recently keeps a moderate rank.
+                double passRate = (passes[i] + 1.0) / (evaluations[i] + 2.0);
+                ranks[i] = rank(costs[i], passRate, conjunctive);
+                evaluations[i] >>>= 1;
+                passes[i] >>>= 1;
+            }
+            
+            // An insertion sort, as the order rarely changes much.
+            for (int i = 1; i < predicates.length; ++i) {
+                for (int j = i; j > 0 && ranks[j] < ranks[j - 1]; --j) {
+                    swap(ranks, j);
+                    swap(predicates, j);
+                    swap(costs, j);
+                    swap(evaluations, j);
+                    swap(passes, j);
+                }
+            }
+            
+            rowsUntilAdaptation = ADAPTATION_INTERVAL;
+        }
+        
+        private static void swap(double[] array, int index) {
+            double tmp = array[index];
+            array[index] = array[index - 1];
+            array[index - 1] = tmp;
+        }
+        
+        private static void swap(int[] array, int index) {
+            int tmp = array[index];
+            array[index] = array[index - 1];
+            array[index - 1] = tmp;
+        }
+        
+        private static void swap(Object[] array, int index) {
+            Object tmp = array[index];
+            array[index] = array[index - 1];
+            array[index - 1] = tmp;
+        }
+    }
+    
+    private static final class IsNullPredicate implements RowPredicate {
+        
+        private final int columnIndex;
+        private final boolean negate;
+        
+        IsNullPredicate(int columnIndex, boolean negate) {
+            this.columnIndex = columnIndex;
+            this.negate = negate;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            return (tableRow.get(columnIndex).getValue() == null) != negate;
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.isNull(columnIndex, negate);
+        }
+    }
+    
+    private static final class IntConstantPredicate implements RowPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final int constant;
+        
+        IntConstantPredicate(int columnIndex,
+                             TestOperation testOperation,
+                             int constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            return tableCell.getValue() != null 
+                && compare(tableCell.getIntValue(), constant, testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.intConstant(columnIndex, 
+                                                testOperation, 
+                                                constant);
+        }
+    }
+    
+    private static final class LongConstantPredicate implements RowPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final long constant;
+        
+        LongConstantPredicate(int columnIndex,
+                              TestOperation testOperation,
+                              long constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            return tableCell.getValue() != null 
+                && compare(tableCell.getLongValue(), constant, testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.longConstant(columnIndex, 
+                                                 testOperation, 
+                                                 constant);
+        }
+    }
+    
+    private static final class FloatConstantPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final float constant;
+        
+        FloatConstantPredicate(int columnIndex,
+                               TestOperation testOperation,
+                               float constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            return tableCell.getValue() != null 
+                && compare(tableCell.getFloatValue(), constant, testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST + FLOATING_POINT_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.floatConstant(columnIndex, 
+                                                  testOperation, 
+                                                  constant);
+        }
+    }
+    
+    private static final class DoubleConstantPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final double constant;
+        
+        DoubleConstantPredicate(int columnIndex,
+                                TestOperation testOperation,
+                                double constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            return tableCell.getValue() != null 
+                && compare(tableCell.getDoubleValue(), constant, testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST + FLOATING_POINT_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.doubleConstant(columnIndex, 
+                                                   testOperation, 
+                                                   constant);
+        }
+    }
+    
+    private static final class BooleanConstantPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex;
+        private final boolean equal;
+        private final boolean constant;
+        
+        BooleanConstantPredicate(int columnIndex,
+                                 boolean equal,
+                                 boolean constant) {
+            this.columnIndex = columnIndex;
+            this.equal = equal;
+            this.constant = constant;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell = tableRow.get(columnIndex);
+            return tableCell.getValue() != null 
+                && (tableCell.getBooleanValue() == constant) == equal;
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST;
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.booleanConstant(columnIndex, 
+                                                    equal, 
+                                                    constant);
+        }
+    }
+    
+    private static final class StringEqualsPredicate implements RowPredicate {
+        
+        private final int columnIndex;
+        private final boolean equal;
+        private final String constant;
+        
+        StringEqualsPredicate(int columnIndex,
+                              boolean equal,
+                              String constant) {
+            this.columnIndex = columnIndex;
+            this.equal = equal;
+            this.constant = Objects.requireNonNull(constant);
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            String value = tableRow.get(columnIndex).getStringValue();
+            return value != null && constant.equals(value) == equal;
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST + STRING_COST;
+        }
+        
+        @Override
+        public RowPredicate bind(RowCursor cursor) {
+            return new CodePredicate(this, columnIndex, cursor) {
+                
+                private int code;
+                
+                @Override
+                void lookUp(StringDictionary dictionary) {
+                    code = dictionary.getCode(constant);
+                }
+                
+                @Override
+                boolean testCode(int rowCode) {
+                    return rowCode != StringDictionary.NO_CODE 
+                        && (rowCode == code) == equal;
+                }
+            };
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.stringEquals(columnIndex, equal, constant);
+        }
+    }
+    
+    private static final class StringInPredicate implements RowPredicate {
+        
+        private final int columnIndex;
+        private final Set<String> constants;
+        
+        StringInPredicate(int columnIndex, Set<String> constants) {
+            this.columnIndex = columnIndex;
+            this.constants = constants;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            String value = tableRow.get(columnIndex).getStringValue();
+            return value != null && constants.contains(value);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST + STRING_COST;
+        }
+        
+        @Override
+        public RowPredicate bind(RowCursor cursor) {
+            return new CodePredicate(this, columnIndex, cursor) {
+                
+                private int[] codes;
+                
+                @Override
+                void lookUp(StringDictionary dictionary) {
+                    codes = dictionary.getCodes(constants);
+                }
+                
+                @Override
+                boolean testCode(int rowCode) {
+                    // The codes are sorted and exclude NO_CODE.
+                    return Arrays.binarySearch(codes, rowCode) >= 0;
+                }
+            };
+        }
+        
+        @Override
+        public VectorPredicate vectorize() {
+            return VectorPredicates.stringIn(columnIndex, constants);
+        }
+    }
+    
+    /**
+     * A string predicate bound to a {@link RowCursor}. Where the row store 
+     * the cursor is scanning has a dictionary for the column, the constants
+     * are looked up in it once per range of rows and the code of the row is
+     * tested; otherwise the unbound predicate tests the string of the 
+     * row.
+     */
+    private abstract static class CodePredicate implements RowPredicate {
+        
+        private final RowPredicate predicate;
+        private final int columnIndex;
+        private final RowCursor cursor;
+        private int loadCount;
+        
+        /**
+         * The codes of the column in the range of rows, or {@code null} if
+         * the column has no dictionary.
+         */
+        private int[] rowCodes;
+        
+        CodePredicate(RowPredicate predicate, 
+                      int columnIndex, 
+                      RowCursor cursor) {
+            this.predicate = predicate;
+            this.columnIndex = columnIndex;
+            this.cursor = cursor;
+            this.loadCount = cursor.loadCount - 1;
+        }
+        
+        @Override
+        public final boolean test(TableRow tableRow) {
+            if (loadCount != cursor.loadCount) {
+                StringDictionary dictionary = 
+                        cursor.getDictionary(columnIndex);
+                
+                if (dictionary == null) {
+                    rowCodes = null;
+                } else {
+                    rowCodes = cursor.getCodeColumn(columnIndex);
+                    lookUp(dictionary);
+                }
+                
+                loadCount = cursor.loadCount;
+            }
+            
+            return rowCodes == null ? 
+                   predicate.test(tableRow) : 
+                   testCode(rowCodes[cursor.index]);
+        }
+        
+        @Override
+        public int cost() {
+            return predicate.cost();
+        }
+        
+        /**
+         * Looks the constants up in {@code dictionary}.
+         */
+        abstract void lookUp(StringDictionary dictionary);
+        
+        /**
+         * Tests the code of a row, which is {@link StringDictionary#NO_CODE}
+         * for {@code NULL}.
+         */
+        abstract boolean testCode(int rowCode);
+    }
+    
+    private static final class StringConstantPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final String constant;
+        
+        StringConstantPredicate(int columnIndex,
+                                TestOperation testOperation,
+                                String constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = Objects.requireNonNull(constant);
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            String value = tableRow.get(columnIndex).getStringValue();
+            return value != null 
+                && holds(value.compareTo(constant), testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return CELL_COST + STRING_COST;
+        }
+    }
+    
+    private static final class IntColumnsPredicate implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final TestOperation testOperation;
+        
+        IntColumnsPredicate(int columnIndex1,
+                            int columnIndex2,
+                            TestOperation testOperation) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.testOperation = testOperation;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell1 = tableRow.get(columnIndex1);
+            TableCell tableCell2 = tableRow.get(columnIndex2);
+            return tableCell1.getValue() != null 
+                && tableCell2.getValue() != null
+                && compare(tableCell1.getIntValue(), 
+                           tableCell2.getIntValue(), 
+                           testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST;
+        }
+    }
+    
+    private static final class LongColumnsPredicate implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final TestOperation testOperation;
+        
+        LongColumnsPredicate(int columnIndex1,
+                             int columnIndex2,
+                             TestOperation testOperation) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.testOperation = testOperation;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell1 = tableRow.get(columnIndex1);
+            TableCell tableCell2 = tableRow.get(columnIndex2);
+            return tableCell1.getValue() != null 
+                && tableCell2.getValue() != null
+                && compare(tableCell1.getLongValue(), 
+                           tableCell2.getLongValue(), 
+                           testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST;
+        }
+    }
+    
+    private static final class FloatColumnsPredicate implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final TestOperation testOperation;
+        
+        FloatColumnsPredicate(int columnIndex1,
+                              int columnIndex2,
+                              TestOperation testOperation) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.testOperation = testOperation;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell1 = tableRow.get(columnIndex1);
+            TableCell tableCell2 = tableRow.get(columnIndex2);
+            return tableCell1.getValue() != null 
+                && tableCell2.getValue() != null
+                && compare(tableCell1.getFloatValue(), 
+                           tableCell2.getFloatValue(), 
+                           testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST + FLOATING_POINT_COST;
+        }
+    }
+    
+    private static final class DoubleColumnsPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final TestOperation testOperation;
+        
+        DoubleColumnsPredicate(int columnIndex1,
+                               int columnIndex2,
+                               TestOperation testOperation) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.testOperation = testOperation;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell1 = tableRow.get(columnIndex1);
+            TableCell tableCell2 = tableRow.get(columnIndex2);
+            return tableCell1.getValue() != null 
+                && tableCell2.getValue() != null
+                && compare(tableCell1.getDoubleValue(), 
+                           tableCell2.getDoubleValue(), 
+                           testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST + FLOATING_POINT_COST;
+        }
+    }
+    
+    private static final class BooleanColumnsPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final boolean equal;
+        
+        BooleanColumnsPredicate(int columnIndex1,
+                                int columnIndex2,
+                                boolean equal) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.equal = equal;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            TableCell tableCell1 = tableRow.get(columnIndex1);
+            TableCell tableCell2 = tableRow.get(columnIndex2);
+            return tableCell1.getValue() != null 
+                && tableCell2.getValue() != null
+                && (tableCell1.getBooleanValue() == 
+                    tableCell2.getBooleanValue()) == equal;
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST;
+        }
+    }
+    
+    private static final class StringColumnsPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final TestOperation testOperation;
+        
+        StringColumnsPredicate(int columnIndex1,
+                               int columnIndex2,
+                               TestOperation testOperation) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.testOperation = testOperation;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            String value1 = tableRow.get(columnIndex1).getStringValue();
+            String value2 = tableRow.get(columnIndex2).getStringValue();
+            return value1 != null 
+                && value2 != null
+                && holds(value1.compareTo(value2), testOperation);
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST + STRING_COST;
+        }
+    }
+    
+    private static final class BinaryColumnsPredicate
+            implements RowPredicate {
+        
+        private final int columnIndex1;
+        private final int columnIndex2;
+        private final boolean equal;
+        
+        BinaryColumnsPredicate(int columnIndex1,
+                               int columnIndex2,
+                               boolean equal) {
+            this.columnIndex1 = columnIndex1;
+            this.columnIndex2 = columnIndex2;
+            this.equal = equal;
+        }
+        
+        @Override
+        public boolean test(TableRow tableRow) {
+            byte[] data1 = tableRow.get(columnIndex1).getBinaryData();
+            byte[] data2 = tableRow.get(columnIndex2).getBinaryData();
+            return data1 != null 
+                && data2 != null
+                && Arrays.equals(data1, data2) == equal;
+        }
+        
+        @Override
+        public int cost() {
+            return 2 * CELL_COST + BINARY_COST;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * An append-only sequence of the rows of a table, giving the command layer 
+ * positional access to the rows so that scans may be split into chunks. A 
+ * store is filled from the table once and then kept up to date as rows are 
+ * inserted through the command layer. A {@link HeapRowStore} keeps the rows
+ * of the table; an {@link OffHeapRowStore} keeps their values outside the 
+ * heap instead of in the table. Either may keep its string columns 
+ * dictionary-encoded, with a {@link StringDictionary} per column and the 
+ * code of each row next to the row.
+ * <p>
+ * A store is written by one thread at a time and is read through the 
+ * read-only views returned by {@link #view()}. Since rows are only ever 
+ * appended, a view shares the memory of the store: the writer never touches 
+ * the positions a view covers.
+ */
+abstract class RowStore {
+
+    /**
+     * Returns a read-only view of the rows currently in this store, which 
+     * later appends do not change.
+     */
+    abstract RowStore view();
+    
+    /**
+     * Appends the row with the values {@code values} to {@code table}, the
+     * table of this store.
+     */
+    abstract void append(Table table, Object[] values);
+    
+    abstract void ensureCapacity(int capacity);
+    
+    abstract int size();
+    
+    abstract TableRow get(int index);
+    
+    /**
+     * Returns the value of the column {@code columnIndex} in the row at 
+     * position {@code index}, without building the row.
+     */
+    abstract Object getValue(int index, int columnIndex);
+    
+    /**
+     * Returns the number of bytes the rows of this store take in memory.
+     */
+    abstract long getMemoryFootprint();
+    
+    /**
+     * Returns the dictionary of the column {@code columnIndex}, or 
+     * {@code null} if the column is not dictionary-encoded.
+     */
+    abstract StringDictionary getDictionary(int columnIndex);
+    
+    /**
+     * Copies the codes of the column {@code columnIndex}, which is 
+     * dictionary-encoded, in the rows at positions {@code fromIndex} 
+     * (inclusive) through {@code toIndex} (exclusive) to {@code codes}. 
+     * {@code NULL} is {@link StringDictionary#NO_CODE}.
+     */
+    abstract void getCodes(int columnIndex, 
+                           int fromIndex, 
+                           int toIndex, 
+                           int[] codes);
+    
+    /**
+     * Returns a source decoding the columns of the rows at positions 
+     * {@code fromIndex} (inclusive) through {@code toIndex} (exclusive) 
+     * directly into a {@link VectorBatch}, or {@code null} if the batch 
+     * should extract them from the rows.
+     */
+    VectorBatch.ColumnSource getColumnSource(int fromIndex, int toIndex) {
+        return null;
+    }
+    
+    /**
+     * Returns an iterator over the rows at positions {@code fromIndex} 
+     * (inclusive) through {@code toIndex} (exclusive).
+     */
+    Iterator<TableRow> iterator(int fromIndex, int toIndex) {
+        return new RangeIterator(this, fromIndex, toIndex);
+    }
+    
+    Iterator<TableRow> iterator() {
+        return iterator(0, size());
+    }
+    
+    /**
+     * Returns the dictionaries of the string columns of {@code table}, with
+     * {@code null} for the other columns.
+     */
+    static StringDictionary[] createDictionaries(Table table) {
+        TableCellType[] tableCellTypes = RowCodec.getTableCellTypes(table);
+        StringDictionary[] dictionaries = 
+                new StringDictionary[tableCellTypes.length];
+        
+        for (int i = 0; i < dictionaries.length; ++i) {
+            if (tableCellTypes[i] == TableCellType.TYPE_STRING) {
+                dictionaries[i] = new StringDictionary();
+            }
+        }
+        
+        return dictionaries;
+    }
+    
+    private static final class RangeIterator implements Iterator<TableRow> {
+        
+        private final RowStore rowStore;
+        private final int toIndex;
+        private int index;
+        
+        RangeIterator(RowStore rowStore, int fromIndex, int toIndex) {
+            this.rowStore = rowStore;
+            this.index = fromIndex;
+            this.toIndex = toIndex;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return index < toIndex;
+        }
+        
+        @Override
+        public TableRow next() {
+            if (index == toIndex) {
+                throw new NoSuchElementException("No more rows.");
+            }
+            
+            return rowStore.get(index++);
+        }
+    }
+}
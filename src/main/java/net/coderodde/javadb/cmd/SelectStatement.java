@@ -0,0 +1,162 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+final class SelectStatement implements Statement {
+
+    static final class OrderItem {
+        
+        final String columnName;
+        final boolean descending;
+        
+        OrderItem(String columnName, boolean descending) {
+            this.columnName = Objects.requireNonNull(
+                    columnName, 
+                    "The column name is null.");
+            this.descending = descending;
+        }
+    }
+    
+    /**
+     * A {@code JOIN table ON column1 = column2} clause.
+     */
+    static final class JoinClause {
+        
+        final String tableName;
+        final String columnName1;
+        final String columnName2;
+        
+        JoinClause(String tableName, String columnName1, String columnName2) {
+            this.tableName = Objects.requireNonNull(tableName, 
+                                                    "The table name is null.");
+            this.columnName1 = Objects.requireNonNull(
+                    columnName1, 
+                    "The 1st column name is null.");
+            this.columnName2 = Objects.requireNonNull(
+                    columnName2, 
+                    "The 2nd column name is null.");
+        }
+    }
+    
+    /**
+     * A selected column, or an aggregate function over a column.
+     */
+    static final class SelectItem {
+        
+        /**
+         * The column name, or {@code null} for {@code COUNT(*)}.
+         */
+        final String columnName;
+        
+        /**
+         * The aggregate function, or {@code null} for a plain column.
+         */
+        final AggregateFunction function;
+        
+        SelectItem(String columnName, AggregateFunction function) {
+            this.columnName = columnName;
+            this.function = function;
+        }
+        
+        boolean isAggregate() {
+            return function != null;
+        }
+        
+        /**
+         * Returns the name of the result column: the column name, or for
+         * instance {@code sum(x)} and {@code count(*)} for aggregates.
+         */
+        String getOutputName() {
+            if (function == null) {
+                return columnName;
+            }
+            
+            return function.name().toLowerCase() + 
+                   "(" + (columnName == null ? "*" : columnName) + ")";
+        }
+    }
+    
+    /**
+     * The selected items, or an empty list for {@code SELECT *}.
+     */
+    final List<SelectItem> selectItems;
+    final String tableName;
+    
+    /**
+     * The joined table, or {@code null} if there is no JOIN.
+     */
+    final JoinClause join;
+    
+    /**
+     * The WHERE clause, or {@code null} if there is none.
+     */
+    final TokenTreeNode where;
+    
+    /**
+     * The GROUP BY column names, or an empty list if there is no GROUP BY.
+     */
+    final List<String> groupBy;
+    
+    /**
+     * The ORDER BY keys, or an empty list if the result is not ordered.
+     */
+    final List<OrderItem> orderBy;
+    
+    /**
+     * The LIMIT and OFFSET operands: integer literals, placeholders or 
+     * {@code null} if absent.
+     */
+    final Operand limit;
+    final Operand offset;
+    
+    /**
+     * The number of {@code ?} placeholders in the statement.
+     */
+    final int parameterCount;
+    
+    SelectStatement(List<SelectItem> selectItems, 
+                    String tableName, 
+                    JoinClause join,
+                    TokenTreeNode where,
+                    List<String> groupBy,
+                    List<OrderItem> orderBy,
+                    Operand limit,
+                    Operand offset,
+                    int parameterCount) {
+        this.selectItems = Collections.unmodifiableList(
+                Objects.requireNonNull(selectItems, 
+                                       "The select item list is null."));
+        this.tableName = Objects.requireNonNull(tableName, 
+                                                "The table name is null.");
+        this.join = join;
+        this.where = where;
+        this.groupBy = Collections.unmodifiableList(
+                Objects.requireNonNull(groupBy, 
+                                       "The group by list is null."));
+        this.orderBy = Collections.unmodifiableList(
+                Objects.requireNonNull(orderBy, "The order list is null."));
+        this.limit = limit;
+        this.offset = offset;
+        this.parameterCount = parameterCount;
+    }
+    
+    /**
+     * Returns {@code true} if this statement groups its rows or computes 
+     * aggregates.
+     */
+    boolean isAggregating() {
+        if (!groupBy.isEmpty()) {
+            return true;
+        }
+        
+        for (SelectItem selectItem : selectItems) {
+            if (selectItem.isAggregate()) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+}
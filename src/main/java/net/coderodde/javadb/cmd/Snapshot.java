@@ -0,0 +1,57 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import net.coderodde.javadb.Table;
+
+/**
+ * The rows of the tables of a {@link Catalog} as they were after a write. A
+ * query reads the snapshot that was current when it was opened, so it sees 
+ * each insert either completely or not at all, does not see the rows 
+ * inserted while it runs and never waits for a writer. Snapshots are 
+ * immutable.
+ */
+final class Snapshot {
+
+    static final Snapshot EMPTY = 
+            new Snapshot(Collections.<String, RowStore>emptyMap());
+    
+    private final Map<String, RowStore> rowStoreMap;
+    
+    private Snapshot(Map<String, RowStore> rowStoreMap) {
+        this.rowStoreMap = rowStoreMap;
+    }
+    
+    /**
+     * Returns {@code true} if this snapshot covers the rows of 
+     * {@code table}.
+     */
+    boolean contains(Table table) {
+        return rowStoreMap.containsKey(table.getTableName());
+    }
+    
+    /**
+     * Returns the read-only row store of {@code table}.
+     */
+    RowStore getRowStore(Table table) {
+        RowStore rowStore = rowStoreMap.get(table.getTableName());
+        
+        if (rowStore == null) {
+            throw new IllegalStateException(
+                    table.getTableName() + ": not in the snapshot.");
+        }
+        
+        return rowStore;
+    }
+    
+    /**
+     * Returns a snapshot in which the rows of {@code table} are those of 
+     * {@code rowStore}, which must not change anymore.
+     */
+    Snapshot with(Table table, RowStore rowStore) {
+        Map<String, RowStore> newRowStoreMap = new HashMap<>(rowStoreMap);
+        newRowStoreMap.put(table.getTableName(), rowStore);
+        return new Snapshot(newRowStoreMap);
+    }
+}
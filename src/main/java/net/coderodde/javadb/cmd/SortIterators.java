@@ -0,0 +1,92 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Sorting operators for ORDER BY. Both consume their source when first 
+ * called; the sort is stable, so rows with equal keys keep their scan order.
+ */
+final class SortIterators {
+
+    private static final int INITIAL_HEAP_CAPACITY = 1024;
+    
+    private SortIterators() {}
+    
+    static Iterator<TableRow> sort(Iterator<TableRow> source,
+                                   Comparator<TableRow> comparator) {
+        List<TableRow> rows = new ArrayList<>();
+        
+        while (source.hasNext()) {
+            rows.add(source.next());
+        }
+        
+        rows.sort(comparator);
+        return rows.iterator();
+    }
+    
+    /**
+     * Returns the {@code n} smallest rows of {@code source} in order. Only 
+     * {@code n} rows are held at a time: the rows are kept in a bounded 
+     * max-heap whose top is evicted whenever a smaller row arrives.
+     */
+    static Iterator<TableRow> topN(Iterator<TableRow> source,
+                                   Comparator<TableRow> comparator,
+                                   int n) {
+        if (n == 0) {
+            return new ArrayList<TableRow>().iterator();
+        }
+        
+        // The sequence numbers break ties in favor of the earlier row.
+        Comparator<HeapEntry> entryComparator = (entry1, entry2) -> {
+            int cmp = comparator.compare(entry1.tableRow, entry2.tableRow);
+            return cmp != 0 ? cmp : Long.compare(entry1.sequenceNumber, 
+                                                 entry2.sequenceNumber);
+        };
+        
+        PriorityQueue<HeapEntry> heap = 
+                new PriorityQueue<>(Math.min(n, INITIAL_HEAP_CAPACITY), 
+                                    entryComparator.reversed());
+        long sequenceNumber = 0;
+        
+        while (source.hasNext()) {
+            TableRow tableRow = source.next();
+            
+            if (heap.size() < n) {
+                heap.add(new HeapEntry(tableRow, sequenceNumber));
+            } else if (comparator.compare(tableRow, 
+                                          heap.peek().tableRow) < 0) {
+                // A tie with the top loses since this row came later.
+                heap.poll();
+                heap.add(new HeapEntry(tableRow, sequenceNumber));
+            }
+            
+            ++sequenceNumber;
+        }
+        
+        List<HeapEntry> entries = new ArrayList<>(heap);
+        entries.sort(entryComparator);
+        List<TableRow> rows = new ArrayList<>(entries.size());
+        
+        for (HeapEntry entry : entries) {
+            rows.add(entry.tableRow);
+        }
+        
+        return rows.iterator();
+    }
+    
+    private static final class HeapEntry {
+        
+        final TableRow tableRow;
+        final long sequenceNumber;
+        
+        HeapEntry(TableRow tableRow, long sequenceNumber) {
+            this.tableRow = tableRow;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * The root of a parsed command.
+ */
+interface Statement {
+
+}
@@ -0,0 +1,87 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persists the table statistics of a database in a side file next to the 
+ * database file, named after it with the suffix {@value #SUFFIX}.
+ */
+final class StatisticsFile {
+
+    static final String SUFFIX = ".stats";
+    
+    private StatisticsFile() {}
+    
+    static File of(File databaseFile) {
+        return new File(databaseFile.getPath() + SUFFIX);
+    }
+    
+    /**
+     * Reads the statistics stored for the database file 
+     * {@code databaseFile}. Returns an empty list if there is no side file or
+     * it was written by an incompatible version.
+     */
+    static List<TableStatistics> read(File databaseFile) {
+        File file = of(databaseFile);
+        
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            List<TableStatistics> statistics = new ArrayList<>();
+            int count = in.readInt();
+            
+            for (int i = 0; i < count; ++i) {
+                statistics.add((TableStatistics) in.readObject());
+            }
+            
+            return statistics;
+        } catch (InvalidClassException | ClassNotFoundException ex) {
+            // Stale statistics are not worth failing for: ANALYZE again.
+            return new ArrayList<>();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not read the statistics from " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Writes {@code statistics} to the side file of {@code databaseFile}, or
+     * deletes the side file if there are no statistics.
+     */
+    static void write(File databaseFile, 
+                      Collection<TableStatistics> statistics) {
+        File file = of(databaseFile);
+        
+        if (statistics.isEmpty()) {
+            file.delete();
+            return;
+        }
+        
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(statistics.size());
+            
+            for (TableStatistics tableStatistics : statistics) {
+                out.writeObject(tableStatistics);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not write the statistics to " + file + ".", ex);
+        }
+    }
+}
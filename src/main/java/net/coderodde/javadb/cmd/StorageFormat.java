@@ -0,0 +1,22 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * Selects the file format a database is saved in.
+ * {@link CommandLayer#openDatabase(java.io.File)} recognizes both.
+ */
+public enum StorageFormat {
+
+    /**
+     * The format of {@code Database.save}. Opening a database reads all of
+     * it into memory.
+     */
+    JAVADB,
+    
+    /**
+     * The rows of each table in fixed-size pages, preceded by a directory of
+     * the tables. Opening a database reads just the directory; the pages of
+     * a table are memory-mapped and read when a command first uses the
+     * table.
+     */
+    PAGED
+}
@@ -0,0 +1,106 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dictionary of a dictionary-encoded string column of a
+ * {@link RowStore}: assigns the distinct strings of the column consecutive
+ * codes from zero on, in the order they first appear. The row store keeps
+ * the codes of the rows, so both engines compare equality and {@code IN}
+ * predicates on ints after looking their literals up once per batch. A
+ * dictionary grows with the store it belongs to; strings are added by the
+ * writer of the store and looked up by any number of readers.
+ */
+final class StringDictionary {
+
+    /**
+     * The code of {@code NULL}, and of the strings not in the dictionary.
+     */
+    static final int NO_CODE = -1;
+    
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    private final Map<String, Integer> codeMap = new ConcurrentHashMap<>();
+    
+    /**
+     * The strings by code. The writer publishes a grown array only after
+     * copying the strings into it.
+     */
+    private volatile String[] strings = new String[MINIMUM_CAPACITY];
+    private int size;
+    
+    /**
+     * Returns the code of {@code string}, adding it to the dictionary if it
+     * is not there yet. Called by the writer of the row store only.
+     */
+    int encode(String string) {
+        Integer code = codeMap.get(string);
+        
+        if (code != null) {
+            return code;
+        }
+        
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, 2 * size);
+        }
+        
+        strings[size] = string;
+        codeMap.put(string, size);
+        return size++;
+    }
+    
+    /**
+     * Returns the code of {@code string}, or {@link #NO_CODE} if no row has
+     * it.
+     */
+    int getCode(String string) {
+        Integer code = codeMap.get(string);
+        return code == null ? NO_CODE : code;
+    }
+    
+    /**
+     * Returns the codes of those of {@code strings} that some row has, in
+     * ascending order.
+     */
+    int[] getCodes(Collection<String> strings) {
+        int[] codes = new int[strings.size()];
+        int codeCount = 0;
+        
+        for (String string : strings) {
+            int code = getCode(string);
+            
+            if (code != NO_CODE) {
+                codes[codeCount++] = code;
+            }
+        }
+        
+        codes = Arrays.copyOf(codes, codeCount);
+        Arrays.sort(codes);
+        return codes;
+    }
+    
+    /**
+     * Returns the string of {@code code}, or {@code null} for
+     * {@link #NO_CODE}.
+     */
+    String getString(int code) {
+        return code == NO_CODE ? null : strings[code];
+    }
+    
+    /**
+     * Estimates the number of bytes the strings and the maps take.
+     */
+    long getMemoryFootprint() {
+        long bytes = 16L + 4L * strings.length;
+        
+        for (String string : codeMap.keySet()) {
+            // The string, its characters, a boxed code and a map entry.
+            bytes += 24L + 16L + 2L * string.length() + 16L + 32L;
+        }
+        
+        return bytes;
+    }
+}
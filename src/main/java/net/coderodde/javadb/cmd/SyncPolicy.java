@@ -0,0 +1,28 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * Selects when the write-ahead log of a database is forced to disk. The log
+ * is written to the operating system as soon as rows are inserted, so no
+ * policy loses inserts when just the process dies.
+ */
+public enum SyncPolicy {
+
+    /**
+     * An insert returns once its rows are on disk. Inserts committing at the
+     * same time share a single sync.
+     */
+    EVERY_COMMIT,
+    
+    /**
+     * The log is synced in the background every
+     * {@value WriteAheadLog#SYNC_INTERVAL_MILLIS} milliseconds; a crash of
+     * the machine may lose the inserts of the last interval.
+     */
+    PERIODIC,
+    
+    /**
+     * The log is synced only by checkpoints, and otherwise whenever the
+     * operating system sees fit.
+     */
+    NONE
+}
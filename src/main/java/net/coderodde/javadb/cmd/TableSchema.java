@@ -0,0 +1,101 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+
+/**
+ * Maps the column names of a table to their ordinal positions. A schema is
+ * built once per query so that predicates may read cells by index. A column
+ * {@code c} of a table {@code t} may also be referred to as {@code t.c}. The 
+ * columns of a joined table are named {@code t.c} and may be referred to as 
+ * {@code c} unless that is ambiguous.
+ */
+final class TableSchema {
+
+    private static final int AMBIGUOUS = -2;
+    
+    private final Table table;
+    private final TableColumnDescriptor[] tableColumnDescriptors;
+    private final Map<String, Integer> columnIndexMap;
+    
+    /**
+     * Maps the alternative names of the columns to their positions, or to 
+     * {@link #AMBIGUOUS} if a name is shared by several columns.
+     */
+    private final Map<String, Integer> aliasMap = new HashMap<>();
+    
+    TableSchema(Table table) {
+        this.table = Objects.requireNonNull(table, "The table is null.");
+        
+        List<TableColumnDescriptor> descriptorList = 
+                table.getTableColumnDescriptors();
+        
+        this.tableColumnDescriptors = 
+                descriptorList.toArray(
+                        new TableColumnDescriptor[descriptorList.size()]);
+        this.columnIndexMap = new HashMap<>(2 * tableColumnDescriptors.length);
+        
+        String tableName = table.getTableName().toLowerCase();
+        
+        for (int i = 0; i < tableColumnDescriptors.length; ++i) {
+            String columnName = 
+                    tableColumnDescriptors[i].getTableColumnName()
+                                             .toLowerCase();
+            columnIndexMap.put(columnName, i);
+            int dot = columnName.lastIndexOf('.');
+            String alias = dot < 0 ? 
+                           tableName + "." + columnName : 
+                           columnName.substring(dot + 1);
+            Integer previous = aliasMap.put(alias, i);
+            
+            if (previous != null) {
+                aliasMap.put(alias, AMBIGUOUS);
+            }
+        }
+    }
+    
+    Table getTable() {
+        return table;
+    }
+    
+    int getNumberOfColumns() {
+        return tableColumnDescriptors.length;
+    }
+    
+    /**
+     * Returns the index of the column {@code columnName}, or -1 if there is 
+     * no such column.
+     * 
+     * @throws IllegalArgumentException if the name is ambiguous.
+     */
+    int indexOf(String columnName) {
+        columnName = columnName.toLowerCase();
+        Integer index = columnIndexMap.get(columnName);
+        
+        if (index == null) {
+            index = aliasMap.get(columnName);
+        }
+        
+        if (index == null) {
+            return -1;
+        } else if (index == AMBIGUOUS) {
+            throw new IllegalArgumentException(
+                    columnName + ": ambiguous column name.");
+        }
+        
+        return index;
+    }
+    
+    TableColumnDescriptor getTableColumnDescriptor(int columnIndex) {
+        return tableColumnDescriptors[columnIndex];
+    }
+    
+    TableCellType getTableCellType(int columnIndex) {
+        return tableColumnDescriptors[columnIndex].getTableCellType();
+    }
+}
@@ -0,0 +1,234 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * The statistics of a table gathered by {@code ANALYZE}. The row count is 
+ * the one at the time of the analysis; the planner scales the selectivity 
+ * estimates by the current row count instead, so the statistics stay useful
+ * as rows are inserted.
+ */
+final class TableStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The number of buckets in the histograms.
+     */
+    static final int HISTOGRAM_BUCKETS = 64;
+    
+    /**
+     * The number of values sampled for the histogram of a column.
+     */
+    static final int SAMPLE_SIZE = 10_000;
+    
+    final String tableName;
+    final long rowCount;
+    private final ColumnStatistics[] columnStatistics;
+    
+    private TableStatistics(String tableName, 
+                            long rowCount,
+                            ColumnStatistics[] columnStatistics) {
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+        this.columnStatistics = columnStatistics;
+    }
+    
+    /**
+     * Computes the statistics of {@code table} in a single pass over 
+     * {@code rowStore}. The histograms are built from a uniform random sample
+     * of the values, so the memory used does not depend on the table size.
+     */
+    static TableStatistics collect(Table table, RowStore rowStore) {
+        TableSchema schema = new TableSchema(table);
+        ColumnCollector[] collectors = 
+                new ColumnCollector[schema.getNumberOfColumns()];
+        
+        for (int i = 0; i < collectors.length; ++i) {
+            collectors[i] = new ColumnCollector(schema.getTableCellType(i));
+        }
+        
+        int rowCount = rowStore.size();
+        
+        for (int rowIndex = 0; rowIndex < rowCount; ++rowIndex) {
+            TableRow tableRow = rowStore.get(rowIndex);
+            
+            for (int i = 0; i < collectors.length; ++i) {
+                collectors[i].add(tableRow.get(i));
+            }
+        }
+        
+        ColumnStatistics[] columnStatistics = 
+                new ColumnStatistics[collectors.length];
+        
+        for (int i = 0; i < collectors.length; ++i) {
+            columnStatistics[i] = collectors[i].finish(rowCount);
+        }
+        
+        return new TableStatistics(table.getTableName(), 
+                                   rowCount, 
+                                   columnStatistics);
+    }
+    
+    ColumnStatistics getColumnStatistics(int columnIndex) {
+        return columnStatistics[columnIndex];
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(tableName).append(": ").append(rowCount).append(" rows");
+        
+        for (int i = 0; i < columnStatistics.length; ++i) {
+            sb.append("\n  ").append(i).append(": ")
+              .append(columnStatistics[i]);
+        }
+        
+        return sb.toString();
+    }
+    
+    /**
+     * Accumulates the statistics of one column.
+     */
+    private static final class ColumnCollector {
+        
+        private final TableCellType tableCellType;
+        private final DistinctCounter distinctCounter = new DistinctCounter();
+        private final Random random = new Random(13L);
+        private final double[] sample;
+        private long nonNullCount;
+        private long nullCount;
+        private Object min;
+        private Object max;
+        
+        ColumnCollector(TableCellType tableCellType) {
+            this.tableCellType = tableCellType;
+            this.sample = isNumeric(tableCellType) ? 
+                          new double[SAMPLE_SIZE] : 
+                          null;
+        }
+        
+        void add(TableCell tableCell) {
+            Object value = tableCell.getValue();
+            
+            if (value == null) {
+                ++nullCount;
+                return;
+            }
+            
+            distinctCounter.add(hash(tableCell));
+            
+            if (tableCellType != TableCellType.TYPE_BINARY) {
+                if (min == null || OrderedIndex.compareKeys(value, min) < 0) {
+                    min = value;
+                }
+                
+                if (max == null || OrderedIndex.compareKeys(value, max) > 0) {
+                    max = value;
+                }
+            }
+            
+            if (sample != null) {
+                // Reservoir sampling: the first values fill the sample, and
+                // the nth value then replaces a random one with probability
+                // SAMPLE_SIZE / n.
+                if (nonNullCount < SAMPLE_SIZE) {
+                    sample[(int) nonNullCount] = 
+                            ColumnStatistics.toDouble(value);
+                } else {
+                    long slot = (long) (random.nextDouble() * 
+                                        (nonNullCount + 1));
+                    
+                    if (slot < SAMPLE_SIZE) {
+                        sample[(int) slot] = ColumnStatistics.toDouble(value);
+                    }
+                }
+            }
+            
+            ++nonNullCount;
+        }
+        
+        ColumnStatistics finish(long rowCount) {
+            return new ColumnStatistics(tableCellType,
+                                        rowCount,
+                                        nullCount,
+                                        Math.min(distinctCounter.estimate(), 
+                                                 nonNullCount),
+                                        min,
+                                        max,
+                                        buildHistogram());
+        }
+        
+        private double[] buildHistogram() {
+            if (sample == null || nonNullCount == 0) {
+                return null;
+            }
+            
+            int size = (int) Math.min(nonNullCount, SAMPLE_SIZE);
+            double[] sorted = Arrays.copyOf(sample, size);
+            Arrays.sort(sorted);
+            double[] bounds = new double[HISTOGRAM_BUCKETS + 1];
+            
+            for (int i = 0; i <= HISTOGRAM_BUCKETS; ++i) {
+                bounds[i] = sorted[(int) ((long) i * (size - 1) / 
+                                          HISTOGRAM_BUCKETS)];
+            }
+            
+            return bounds;
+        }
+        
+        private long hash(TableCell tableCell) {
+            switch (tableCellType) {
+                case TYPE_INT:
+                    return DistinctCounter.hash(tableCell.getIntValue());
+                    
+                case TYPE_LONG:
+                    return DistinctCounter.hash(tableCell.getLongValue());
+                    
+                case TYPE_FLOAT:
+                    // Adding 0.0f turns -0.0f into 0.0f.
+                    return DistinctCounter.hash(
+                            Float.floatToIntBits(
+                                    tableCell.getFloatValue() + 0.0f));
+                    
+                case TYPE_DOUBLE:
+                    return DistinctCounter.hash(
+                            Double.doubleToLongBits(
+                                    tableCell.getDoubleValue() + 0.0));
+                    
+                case TYPE_BOOLEAN:
+                    return DistinctCounter.hash(
+                            tableCell.getBooleanValue() ? 1L : 0L);
+                    
+                case TYPE_STRING:
+                    return DistinctCounter.hash(tableCell.getStringValue());
+                    
+                case TYPE_BINARY:
+                    return DistinctCounter.hash(tableCell.getBinaryData());
+                    
+                default:
+                    throw new IllegalStateException(
+                            "This should not be thrown.");
+            }
+        }
+        
+        private static boolean isNumeric(TableCellType tableCellType) {
+            switch (tableCellType) {
+                case TYPE_INT:
+                case TYPE_LONG:
+                case TYPE_FLOAT:
+                case TYPE_DOUBLE:
+                    return true;
+                    
+                default:
+                    return false;
+            }
+        }
+    }
+}
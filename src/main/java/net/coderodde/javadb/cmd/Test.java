@@ -1,900 +1,523 @@
 package net.coderodde.javadb.cmd;
 
-import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
-import net.coderodde.javadb.TableCell;
-import net.coderodde.javadb.TableRow;
+import net.coderodde.javadb.TableCellType;
 
 final class Test {
 
-    private static final String NULL_STR = "null";
+    private final Operand operand1;
+    private final Operand operand2;
+    private final TestOperation testOperation;
     
-    private String operandName1;
-    private String operandName2;
-    private TestOperation testOperation;
-    
-    Test(String operandName1, 
-         String operandName2, 
+    Test(Operand operand1, 
+         Operand operand2, 
          TestOperation testOperation) {
-        Objects.requireNonNull(operandName1, "1st operand is null.");
-        Objects.requireNonNull(operandName2, "2nd operand is null.");
-        
+        this.operand1 = Objects.requireNonNull(operand1, 
+                                               "1st operand is null.");
+        this.operand2 = Objects.requireNonNull(operand2, 
+                                               "2nd operand is null.");
         this.testOperation = Objects.requireNonNull(
                 testOperation, "The test operation is null.");
-        this.operandName1 = operandName1.trim().toLowerCase();
-        this.operandName2 = operandName2.trim().toLowerCase();
     }
     
-    boolean tableRowMatches(TableRow tableRow) {
-        if (operandName1.equals(NULL_STR)) {
-            return handleNull(tableRow);
+    /**
+     * Binds the operands to the column positions of {@code schema} and 
+     * parses the literals, so that the returned predicate does no string work
+     * and no name lookups while scanning.
+     */
+    RowPredicate compile(TableSchema schema) {
+        if (operand1.isParameter() || operand2.isParameter()) {
+            throw new IllegalStateException("Unbound query parameter.");
         }
         
-        TableCell cell1 = tableRow.get(operandName1);
-        TableCell cell2 = tableRow.get(operandName2);
+        if (operand1.isNull() || operand2.isNull()) {
+            return compileNull(schema);
+        }
         
-        if (cell1 == null && cell2 == null) {
-            return tableRowMatchesLiterals(operandName1, operandName2);
-        } else if (cell1 != null && cell2 != null) {
-            if (!cell1.getTableCellType().equals(cell2.getTableCellType())) {
+        if (operand1.isColumn() && operand2.isColumn()) {
+            int column1 = resolve(schema, operand1);
+            int column2 = resolve(schema, operand2);
+            TableCellType type1 = schema.getTableCellType(column1);
+            TableCellType type2 = schema.getTableCellType(column2);
+            
+            if (!type1.equals(type2)) {
                 throw new IllegalArgumentException(
                         "Comparing two attributes of different types. " +
-                                "Type 1 is: " +
-                                cell1.getTableCellType().getTypeName() + 
-                                ", type 2 is: " + 
-                                cell2.getTableCellType().getTypeName());
+                                "Type 1 is: " + type1.getTypeName() + 
+                                ", type 2 is: " + type2.getTypeName());
             }
             
-            return tableRowMatches(cell1, cell2);
-        } else if (cell1 == null) {
-            return handleConstantAndCell(operandName1, cell2);
+            return RowPredicates.columns(column1, 
+                                         column2, 
+                                         type1, 
+                                         testOperation);
+        } else if (operand1.isColumn()) {
+            int column1 = resolve(schema, operand1);
+            return compileColumnAndConstant(column1, 
+                                            schema.getTableCellType(column1),
+                                            testOperation,
+                                            operand2);
+        } else if (operand2.isColumn()) {
+            int column2 = resolve(schema, operand2);
+            return compileColumnAndConstant(column2,
+                                            schema.getTableCellType(column2),
+                                            testOperation.flip(),
+                                            operand1);
         } else {
-            // Here cell1 != null and cell2 == null:
-            return handleCellAndConstant(cell1, operandName2);
+            return RowPredicates.constant(evaluate());
+        }
+    }
+    
+    /**
+     * Returns a test with the {@code ?} placeholders replaced by the values in
+     * {@code parameters}.
+     */
+    Test bind(Object[] parameters) {
+        if (!operand1.isParameter() && !operand2.isParameter()) {
+            return this;
+        }
+        
+        return new Test(operand1.bind(parameters), 
+                        operand2.bind(parameters), 
+                        testOperation);
+    }
+    
+    /**
+     * Estimates the fraction of the rows described by {@code schema} that 
+     * satisfy this test.
+     */
+    double estimateSelectivity(TableSchema schema, 
+                               TableStatistics statistics) {
+        if (operand1.isParameter() || operand2.isParameter()) {
+            return ColumnStatistics.DEFAULT_RANGE_SELECTIVITY;
+        }
+        
+        if (operand1.isNull() || operand2.isNull()) {
+            Operand operand = operand1.isNull() ? operand2 : operand1;
+            
+            if (!operand.isColumn()) {
+                return testOperation == TestOperation.EQ ? 1.0 : 0.0;
+            }
+            
+            ColumnStatistics columnStatistics = 
+                    statistics.getColumnStatistics(resolve(schema, operand));
+            return testOperation == TestOperation.EQ ? 
+                   columnStatistics.getNullFraction() : 
+                   columnStatistics.getNonNullFraction();
+        }
+        
+        if (operand1.isColumn() && operand2.isColumn()) {
+            ColumnStatistics columnStatistics1 = 
+                    statistics.getColumnStatistics(resolve(schema, operand1));
+            ColumnStatistics columnStatistics2 = 
+                    statistics.getColumnStatistics(resolve(schema, operand2));
+            double nonNull = columnStatistics1.getNonNullFraction() * 
+                             columnStatistics2.getNonNullFraction();
+            double equal = nonNull / 
+                           Math.max(1L, 
+                                    Math.max(columnStatistics1.distinctCount,
+                                             columnStatistics2.distinctCount));
+            
+            switch (testOperation) {
+                case EQ:
+                    return equal;
+                    
+                case NEQ:
+                    return nonNull - equal;
+                    
+                default:
+                    return nonNull * 
+                           ColumnStatistics.DEFAULT_RANGE_SELECTIVITY;
+            }
+        }
+        
+        if (!operand1.isColumn() && !operand2.isColumn()) {
+            return literalsMatch() ? 1.0 : 0.0;
+        }
+        
+        Operand column = operand1.isColumn() ? operand1 : operand2;
+        ColumnStatistics columnStatistics = 
+                statistics.getColumnStatistics(resolve(schema, column));
+        return columnStatistics.estimate(getConstantOperation(), 
+                                         getConstant(schema));
+    }
+    
+    void collectColumnNames(List<String> columnNames) {
+        if (operand1.isColumn()) {
+            columnNames.add(operand1.text);
+        }
+        
+        if (operand2.isColumn()) {
+            columnNames.add(operand2.text);
         }
     }
     
-    private boolean tableRowMatches(TableCell cell1, TableCell cell2) {
+    private static int resolve(TableSchema schema, Operand operand) {
+        int columnIndex = schema.indexOf(operand.text);
+        
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException(
+                    "\"" + operand.text + "\": no such column.");
+        }
+        
+        return columnIndex;
+    }
+    
+    private RowPredicate compileNull(TableSchema schema) {
+        Operand operand = operand1.isNull() ? operand2 : operand1;
+        
+        if (!operand.isColumn()) {
+            return RowPredicates.constant(evaluate());
+        }
+        
+        int columnIndex = resolve(schema, operand);
+        
         switch (testOperation) {
             case EQ:
-                return cellsEqual(cell1, cell2);
+                return RowPredicates.isNull(columnIndex, false);
                 
             case NEQ:
-                return !cellsEqual(cell1, cell2);
-                
-            case LT:
-                return cellLess(cell1, cell2);
-                
-            case LEQ:
-                return cellLess(cell1, cell2) || cellsEqual(cell1, cell2);
-                
-            case GT:
-                return cellLess(cell2, cell1);
-                
-            case GEQ:
-                return cellLess(cell2, cell1) || cellsEqual(cell1, cell2);
+                return RowPredicates.isNull(columnIndex, true);
                 
             default:
-                throw new IllegalStateException("This should not be thrown.");
+                throw new IllegalArgumentException(
+                        "Cannot compare with " + testOperation.name() +
+                        " NULL values and attributes.");
         }
     }
     
-    private boolean cellsEqual(TableCell cell1, TableCell cell2) {
-        switch (cell1.getTableCellType()) {
+    private static RowPredicate 
+        compileColumnAndConstant(int columnIndex,
+                                 TableCellType tableCellType,
+                                 TestOperation testOperation,
+                                 Operand literal) {
+        Object value = convertLiteral(literal, tableCellType);
+        
+        switch (tableCellType) {
             case TYPE_INT:
-                return cell1.getIntValue() == cell2.getIntValue();
+                return RowPredicates.intConstant(columnIndex,
+                                                 testOperation,
+                                                 (Integer) value);
                 
             case TYPE_LONG:
-                return cell1.getLongValue() == cell2.getLongValue();
+                return RowPredicates.longConstant(columnIndex,
+                                                  testOperation,
+                                                  (Long) value);
                 
             case TYPE_FLOAT:
-                return cell1.getFloatValue() == cell2.getFloatValue();
+                return RowPredicates.floatConstant(columnIndex,
+                                                   testOperation,
+                                                   (Float) value);
                 
             case TYPE_DOUBLE:
-                return cell1.getDoubleValue() == cell2.getDoubleValue();
+                return RowPredicates.doubleConstant(columnIndex,
+                                                    testOperation,
+                                                    (Double) value);
                 
             case TYPE_BOOLEAN:
-                return cell1.getBooleanValue() == cell2.getBooleanValue();
+                return RowPredicates.booleanConstant(columnIndex,
+                                                     testOperation,
+                                                     (Boolean) value);
                 
             case TYPE_STRING:
-                return cell1.getStringValue().equals(cell2.getStringValue());
-                
-            case TYPE_BINARY:
-                return Arrays.equals(cell1.getBinaryData(), 
-                                     cell2.getBinaryData());
+                return RowPredicates.stringConstant(columnIndex,
+                                                    testOperation,
+                                                    (String) value);
                 
             default:
-                throw new IllegalStateException("This should not be thrown.");
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
         }
     }
     
-    private boolean cellLess(TableCell cell1, TableCell cell2) {
-        switch (cell1.getTableCellType()) {
+    /**
+     * Converts {@code literal} to the boxed Java value of a cell of type 
+     * {@code tableCellType}, checking that the literal fits the type.
+     */
+    static Object convertLiteral(Operand literal, 
+                                 TableCellType tableCellType) {
+        switch (tableCellType) {
             case TYPE_INT:
-                return cell1.getIntValue() < cell2.getIntValue();
+                if (literal.kind != Operand.Kind.INTEGER) {
+                    throw new IllegalArgumentException(
+                            "Integer literal expected here.");
+                }
+                
+                return convertToInt(literal.text);
                 
             case TYPE_LONG:
-                return cell1.getLongValue() < cell2.getLongValue();
+                if (literal.kind != Operand.Kind.INTEGER) {
+                    throw new IllegalArgumentException(
+                            "Long literal expected here.");
+                }
+                
+                return convertToLong(literal.text);
                 
             case TYPE_FLOAT:
-                return cell1.getFloatValue() < cell2.getFloatValue();
+                if (!isNumber(literal)) {
+                    throw new IllegalArgumentException(
+                            "Float literal expected here.");
+                }
+                
+                return floatValue(literal);
                 
             case TYPE_DOUBLE:
-                return cell1.getDoubleValue() < cell2.getDoubleValue();
+                if (!isNumber(literal)) {
+                    throw new IllegalArgumentException(
+                            "Double literal expected here.");
+                }
+                
+                return doubleValue(literal);
                 
             case TYPE_BOOLEAN:
-                throw new IllegalArgumentException(
-                        "Less is not defined for boolean values.");
+                if (literal.kind != Operand.Kind.BOOLEAN) {
+                    throw new IllegalArgumentException(
+                            "Boolean literal expected here.");
+                }
+                
+                return convertToBoolean(literal.text);
                 
             case TYPE_STRING:
-                return cell1.getStringValue()
-                            .compareTo(cell2.getStringValue()) < 0;
+                if (literal.kind != Operand.Kind.STRING) {
+                    throw new IllegalArgumentException(
+                            "String literal expected here.");
+                }
+                
+                return literal.text;
                 
             case TYPE_BINARY:
                 throw new IllegalArgumentException(
-                        "Less is not defined for binary objects.");
+                        "Binary columns cannot be compared to literals.");
                 
             default:
-                throw new IllegalStateException("This should not be thrown.");
+                throw new IllegalStateException(
+                        tableCellType + ": unknown cell type.");
         }
     }
-
-    private boolean tableRowMatchesLiterals(String operandName1, 
-                                            String operandName2) {
-        if (isInteger(operandName1)) {
-            if (!isInteger(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Comparing an integer with a non-integer value.");
-            }
-            
-            int integer1 = convertToInt(operandName1);
-            int integer2 = convertToInt(operandName2);
-            
-            switch (testOperation) {
-                case EQ:
-                    return integer1 == integer2;
-                    
-                case NEQ:
-                    return integer1 != integer2;
-                    
-                case LT:
-                    return integer1 < integer2;
-                    
-                case LEQ:
-                    return integer1 <= integer2;
-                    
-                case GT:
-                    return integer1 > integer2;
-                    
-                case GEQ:
-                    return integer1 >= integer2;
-                    
-                default:
-                    throw new IllegalStateException(
-                            "This should not be thrown.");
-            }
-            
-        } else if (isLong(operandName1)) {
-            if (!isLong(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Comparing a long with a non-long value.");
-            }
-            
-            long long1 = convertToLong(operandName1);
-            long long2 = convertToLong(operandName2);
-            
-            switch (testOperation) {
-                case EQ:
-                    return long1 == long2;
-                    
-                case NEQ:
-                    return long1 != long2;
-                    
-                case LT:
-                    return long1 < long2;
-                    
-                case LEQ:
-                    return long1 <= long2;
-                    
-                case GT:
-                    return long1 > long2;
-                    
-                case GEQ:
-                    return long1 >= long2;
-                    
-                default:
-                    throw new IllegalStateException(
-                            "This should not be thrown.");
-            }
-        } 
-        else if (isFloat(operandName1)) {
-            if (!isFloat(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Comparing a float with a non-float value.");
-            }
-                
-            float float1 = convertToFloat(operandName1);
-            float float2 = convertToFloat(operandName2);
-            
-            switch (testOperation) {
-                case EQ:
-                    return float1 == float2;
-                    
-                case NEQ:
-                    return float1 != float2;
-                    
-                case LT:
-                    return float1 < float2;
-                    
-                case LEQ:
-                    return float1 <= float2;
-                    
-                case GT:
-                    return float1 > float2;
-                    
-                case GEQ:
-                    return float1 >= float2;
-                    
-                default:
-                    throw new IllegalStateException(
-                            "This should not be thrown.");
-            }
-        } else if (isDouble(operandName1)) {
-          if (!isDouble(operandName2)) {
-              throw new IllegalArgumentException(
-                    "Comparing a double with a non-double value.");
-          }  
-          
-          double double1 = convertToDouble(operandName1);
-          double double2 = convertToDouble(operandName2);
-          
-          switch (testOperation) {
-              case EQ:
-                  return double1 == double2;
-                  
-              case NEQ:
-                  return double1 != double2;
-                  
-              case LT:
-                  return double1 < double2;
-                  
-              case LEQ:
-                  return double1 <= double2;
-                  
-              case GT:
-                  return double1 > double2;
-                  
-              case GEQ:
-                  return double1 >= double2;
-                  
-              default:
-                  throw new IllegalStateException(
-                        "This should not be thrown.");
-          }
-        } else if (isBoolean(operandName1)) {
-            boolean bool1 = convertToBoolean(operandName1);
-            boolean bool2 = convertToBoolean(operandName2);
-            
-            switch (testOperation) {
-                case EQ:
-                    return bool1 == bool2;
-                    
-                case NEQ:
-                    return bool1 != bool2;
-                    
-                case LT:
-                case LEQ:
-                case GT:
-                case GEQ:
-                    throw new IllegalStateException(
-                            "Operation " + testOperation.name() + " is not " +
-                                    "defined for a boolean value.");
-                    
-                default:
-                    throw new IllegalStateException(
-                            "This should not be thrown.");
-            }
-            
-        } else {
-            // Strings:
+    
+    /**
+     * If this test compares a column with a literal (in either order), 
+     * returns the index of the column in {@code schema}, and -1 otherwise.
+     */
+    int getConstantColumnIndex(TableSchema schema) {
+        if (operand1.isColumn() && isConstant(operand2)) {
+            return schema.indexOf(operand1.text);
+        } else if (operand2.isColumn() && isConstant(operand1)) {
+            return schema.indexOf(operand2.text);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Returns the operation of a column-vs-literal test as seen with the 
+     * column on the left: for {@code 5 < x} this is {@code GT}.
+     */
+    TestOperation getConstantOperation() {
+        return operand1.isColumn() ? testOperation : testOperation.flip();
+    }
+    
+    /**
+     * Returns the literal of a column-vs-literal test converted to the type 
+     * of the column.
+     */
+    Object getConstant(TableSchema schema) {
+        int columnIndex = getConstantColumnIndex(schema);
+        Operand literal = operand1.isColumn() ? operand2 : operand1;
+        return convertLiteral(literal, schema.getTableCellType(columnIndex));
+    }
+    
+    /**
+     * Returns {@code true} if this test refers to no columns and no 
+     * placeholders, so that it has the same outcome for every row.
+     */
+    boolean isConstant() {
+        return !operand1.isColumn() 
+            && !operand2.isColumn()
+            && !operand1.isParameter() 
+            && !operand2.isParameter();
+    }
+    
+    /**
+     * Returns the outcome of a test for which {@link #isConstant()} holds.
+     */
+    boolean evaluate() {
+        if (operand1.isNull() && operand2.isNull()) {
             switch (testOperation) {
                 case EQ:
-                    return operandName1.equals(operandName2);
+                    return true;
                     
                 case NEQ:
-                    return !operandName1.equals(operandName2);
-                    
-                case LT:
-                    return operandName1.compareTo(operandName2) < 0;
-                    
-                case LEQ:
-                    return operandName1.compareTo(operandName2) <= 0;
-                    
-                case GT:
-                    return operandName1.compareTo(operandName2) > 0;
-                    
-                case GEQ:
-                    return operandName1.compareTo(operandName2) >= 0;
+                    return false;
                     
                 default:
-                    throw new IllegalStateException(
-                            "This should not be thrown.");
+                    throw new IllegalArgumentException(
+                            "Cannot compare two nulls with operation " + 
+                                    testOperation);
             }
         }
-    }
-    
-    private static int convertToInt(String str) {
-        str = str.trim().toLowerCase();
         
-        int radix = 10;
-        
-        if (str.startsWith("0b")) {
-            radix = 2;
-        } else if (str.startsWith("0x")) {
-            radix = 16;
+        if (operand1.isNull() || operand2.isNull()) {
+            throw new IllegalArgumentException(
+                    "Cannot compare NULL and " + 
+                    (operand1.isNull() ? operand2 : operand1) + ".");
         }
         
-        return Integer.parseInt(str, radix);
+        return literalsMatch();
     }
     
-    private static long convertToLong(String str) {
-        str = str.trim().toLowerCase();
-        
-        int radix = 10;
-        
-        if (str.startsWith("0b")) {
-            radix = 2;
-        } else if (str.startsWith("0x")) {
-            radix = 16;
+    private static boolean isConstant(Operand operand) {
+        return !operand.isColumn() 
+            && !operand.isNull() 
+            && !operand.isParameter();
+    }
+    
+    @SuppressWarnings("fallthrough")
+    private boolean literalsMatch() {
+        if (isNumber(operand1) != isNumber(operand2) 
+                || (!isNumber(operand1) && operand1.kind != operand2.kind)) {
+            throw new IllegalArgumentException(
+                    "Comparing literals of different types: " + operand1 + 
+                    " and " + operand2 + ".");
         }
         
-        return Long.parseLong(str, radix);
+        switch (operand1.kind) {
+            case INTEGER:
+                if (operand2.kind == Operand.Kind.INTEGER) {
+                    return RowPredicates.compare(convertToLong(operand1.text),
+                                                 convertToLong(operand2.text),
+                                                 testOperation);
+                }
+                
+                // Fall through to the decimal comparison.
+            case DECIMAL:
+                return RowPredicates.compare(doubleValue(operand1),
+                                             doubleValue(operand2),
+                                             testOperation);
+                
+            case BOOLEAN:
+                boolean bool1 = convertToBoolean(operand1.text);
+                boolean bool2 = convertToBoolean(operand2.text);
+                
+                switch (testOperation) {
+                    case EQ:
+                        return bool1 == bool2;
+                        
+                    case NEQ:
+                        return bool1 != bool2;
+                        
+                    default:
+                        throw new IllegalArgumentException(
+                                "Operation " + testOperation.name() + 
+                                " is not defined for a boolean value.");
+                }
+                
+            case STRING:
+                return RowPredicates.holds(
+                        operand1.text.compareTo(operand2.text),
+                        testOperation);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
     }
     
-    private static float convertToFloat(String str) {
-        return Float.parseFloat(str);
+    private static boolean isNumber(Operand operand) {
+        return operand.kind == Operand.Kind.INTEGER 
+            || operand.kind == Operand.Kind.DECIMAL;
     }
     
-    private static double convertToDouble(String str) {
-        return Double.parseDouble(str);
+    private static float floatValue(Operand operand) {
+        return operand.kind == Operand.Kind.INTEGER ?
+               convertToLong(operand.text) :
+               convertToFloat(operand.text);
     }
     
-    private static boolean convertToBoolean(String str) {
-        switch (str) {
-            case "false":
-                return false;
-                
-            case "true":
-                return true;
-                
-            default:
-                throw new IllegalArgumentException("\"" + str + "\": not a " +
-                        "boolean literal.");
-        }
+    private static double doubleValue(Operand operand) {
+        return operand.kind == Operand.Kind.INTEGER ?
+               convertToLong(operand.text) :
+               convertToDouble(operand.text);
     }
     
-    private static boolean isInteger(String str) {
-        str = str.trim().toLowerCase();
+    static int convertToInt(String str) {
+        long value = convertToLong(str);
         
-        int radix = 10;
-        
-        if (str.startsWith("0b")) {
-            radix = 2;
-        } else if (str.startsWith("0x")) {
-            radix = 16;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "\"" + str + "\": integer literal out of range.");
         }
         
-        try {
-            Integer.parseInt(str, radix);
-            return true;
-        } finally {
-            return false;
-        }
+        return (int) value;
     }
     
-    private static boolean isLong(String str) {
+    static long convertToLong(String str) {
         str = str.trim().toLowerCase();
+        boolean negative = str.startsWith("-");
+        
+        if (negative) {
+            str = str.substring(1);
+        }
+        
+        if (str.endsWith("l")) {
+            str = str.substring(0, str.length() - 1);
+        }
         
         int radix = 10;
         
         if (str.startsWith("0b")) {
             radix = 2;
+            str = str.substring(2);
         } else if (str.startsWith("0x")) {
             radix = 16;
+            str = str.substring(2);
         }
         
         try {
-            Long.parseLong(str, radix);
-            return true;
-        } finally {
-            return false;
+            return Long.parseLong(negative ? "-" + str : str, radix);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "\"" + str + "\": not a valid integer literal.");
         }
     }
     
-    private static boolean isDouble(String str) {
+    static float convertToFloat(String str) {
         try {
-            Double.parseDouble(str);
-            return true;
-        } finally {
-            return false;
+            return Float.parseFloat(stripLongSuffix(str));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "\"" + str + "\": not a valid float literal.");
         }
     }
     
-    private static boolean isFloat(String str) {
+    static double convertToDouble(String str) {
         try {
-            Float.parseFloat(str);
-            return true;
-        } finally {
-            return false;
+            return Double.parseDouble(stripLongSuffix(str));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "\"" + str + "\": not a valid double literal.");
         }
     }
     
-    private static boolean isBoolean(String str) {
-        return str.equals("true") || str.endsWith("false");
-    }
-    
-    private boolean handleNull(TableRow tableRow) {
-        if (operandName1.equals(NULL_STR) && operandName2.equals(NULL_STR)) {
-            switch (testOperation) {
-                case EQ:
-                    return true;
-                    
-                case NEQ:
-                    return false;
-                    
-                default:
-                    throw new IllegalArgumentException(
-                            "Cannot compare two nulls with operation " + 
-                                    testOperation);
-            }
-        }
-        
-        if (!operandName1.equals(NULL_STR)) {
-            String tmp = operandName1;
-            operandName1 = operandName2;
-            operandName2 = tmp;
-        }
-        
-        if (operandName1.equals(NULL_STR)) {
-            // First operand is NULL, second is a value or column name:
-            if (isInteger(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Cannot compare NULL and integer value.");
-            } else if (isLong(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Cannot compare NULL and long value.");
-            } else if (isFloat(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Cannot compare NULL and float value.");
-            } else if (isDouble(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Cannot compare NULL and double vallue.");
-            } else if (isBoolean(operandName2)) {
-                throw new IllegalArgumentException(
-                        "Cannot compare NULL and boolean value.");
-            }
-            
-            TableCell cell = tableRow.get(operandName2);
-            
-            if (cell == null) {
-                throw new IllegalArgumentException(
-                        "\"" + operandName2 + "\": no such column.");
-            }
-            
-            switch (testOperation) {
-                case EQ:
-                    return cell.getValue() == null;
-                    
-                case NEQ:
-                    return cell.getValue() != null;
-                    
-                default:
-                    throw new IllegalArgumentException(
-                            "Cannot compare with " + testOperation.name() +
-                            "NULL values and attributes.");
-            }
-        }
-        
-        throw new IllegalStateException("Should not get here.");
-    }
-
-    private boolean handleConstantAndCell(String operandName1, 
-                                          TableCell cell2) {
-        switch (cell2.getTableCellType()) {
-            case TYPE_INT:
-                if (!isInteger(operandName1)) {
-                    throw new IllegalArgumentException(
-                            "Integer literal expected here.");
-                }
-                
-                int intConstant = convertToInt(operandName2);
-                int intAttribute = cell2.getIntValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return intConstant == intAttribute;
-                        
-                    case NEQ:
-                        return intConstant != intAttribute;
-                        
-                    case LT:
-                        return intConstant < intAttribute;
-                        
-                    case LEQ:
-                        return intConstant <= intAttribute;
-                        
-                    case GT:
-                        return intConstant > intAttribute;
-                        
-                    case GEQ:
-                        return intConstant >= intAttribute;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_LONG:
-                if (!isLong(operandName1)) {
-                    throw new IllegalArgumentException(
-                            "Long literal expected here.");
-                }
-                
-                long longConstant = convertToLong(operandName2);
-                long longAttribute = cell2.getLongValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return longConstant == longAttribute;
-                        
-                    case NEQ:
-                        return longConstant != longAttribute;
-                        
-                    case LT:
-                        return longConstant < longAttribute;
-                        
-                    case LEQ:
-                        return longConstant <= longAttribute;
-                        
-                    case GT:
-                        return longConstant > longAttribute;
-                        
-                    case GEQ:
-                        return longConstant >= longAttribute;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_FLOAT:
-                if (!isFloat(operandName1)) {
-                    throw new IllegalArgumentException(
-                            "Float literal expected here.");
-                }
-                
-                float floatConstant = convertToFloat(operandName2);
-                float floatAttribute = cell2.getFloatValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return floatConstant == floatAttribute;
-                        
-                    case NEQ:
-                        return floatConstant != floatAttribute;
-                        
-                    case LT:
-                        return floatConstant < floatAttribute;
-                        
-                    case LEQ:
-                        return floatConstant <= floatAttribute;
-                        
-                    case GT:
-                        return floatConstant > floatAttribute;
-                        
-                    case GEQ:
-                        return floatConstant >= floatAttribute;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_DOUBLE:
-                if (!isDouble(operandName1)) {
-                    throw new IllegalArgumentException(
-                            "Double literal expected here.");
-                }
-                
-                double doubleConstant = convertToDouble(operandName2);
-                double doubleAttribute = cell2.getDoubleValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return doubleConstant == doubleAttribute;
-                        
-                    case NEQ:
-                        return doubleConstant != doubleAttribute;
-                        
-                    case LT:
-                        return doubleConstant < doubleAttribute;
-                        
-                    case LEQ:
-                        return doubleConstant <= doubleAttribute;
-                        
-                    case GT:
-                        return doubleConstant > doubleAttribute;
-                        
-                    case GEQ:
-                        return doubleConstant >= doubleAttribute;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_BOOLEAN:
-                if (!isBoolean(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Boolean literal expected here.");
-                }
-                    
-                boolean booleanConstant = convertToBoolean(operandName2);
-                boolean booleanAttribute = cell2.getBooleanValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return booleanConstant == booleanAttribute;
-                        
-                    case NEQ:
-                        return booleanConstant != booleanAttribute;
-                        
-                    case LT:
-                    case LEQ:
-                    case GT:
-                    case GEQ:
-                        throw new IllegalArgumentException(
-                                "Operation " + testOperation + " is not " +
-                                        "defined for boolean values.");
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_STRING:
-                String stringAttribute = cell2.getStringValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return operandName1.equals(stringAttribute);
-                        
-                    case NEQ:
-                        return !operandName1.endsWith(stringAttribute);
-                        
-                    case LT:
-                        return operandName1.compareTo(stringAttribute) < 0;
-                        
-                    case LEQ:
-                        return operandName1.compareTo(stringAttribute) <= 0;
-                        
-                    case GT:
-                        return operandName1.compareTo(stringAttribute) > 0;
-                        
-                    case GEQ:
-                        return operandName1.compareTo(stringAttribute) >= 0;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                        
-                }
+    static boolean convertToBoolean(String str) {
+        switch (str) {
+            case "false":
+                return false;
                 
-            case TYPE_BINARY:
-                throw new IllegalStateException("oh 2 fucek yeha");
+            case "true":
+                return true;
                 
             default:
-                throw new IllegalStateException(
-                        cell2.getTableCellType() + ": unknown cell type.");
+                throw new IllegalArgumentException("\"" + str + "\": not a " +
+                        "boolean literal.");
         }
     }
     
-    private boolean handleCellAndConstant(TableCell cell1, 
-                                          String operandName2) {
-        switch (cell1.getTableCellType()) {
-            case TYPE_INT:
-                if (!isInteger(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Integer literal expected here.");
-                }
-                
-                int intConstant = convertToInt(operandName2);
-                int intAttribute = cell1.getIntValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return intAttribute == intConstant;
-                        
-                    case NEQ:
-                        return intAttribute != intConstant;
-                        
-                    case LT:
-                        return intAttribute < intConstant;
-                        
-                    case LEQ:
-                        return intAttribute <= intConstant;
-                        
-                    case GT:
-                        return intAttribute < intConstant;
-                        
-                    case GEQ:
-                        return intAttribute >= intConstant;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_LONG:
-                if (!isLong(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Long literal expected here.");
-                }
-                
-                long longConstant = convertToLong(operandName2);
-                long longAttribute = cell1.getLongValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return longAttribute == longConstant;
-                        
-                    case NEQ:
-                        return longAttribute != longConstant;
-                        
-                    case LT:
-                        return longAttribute < longConstant;
-                        
-                    case LEQ:
-                        return longAttribute <= longConstant;
-                        
-                    case GT:
-                        return longAttribute < longConstant;
-                        
-                    case GEQ:
-                        return longAttribute >= longConstant;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_FLOAT:
-                if (!isFloat(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Float literal expected here.");
-                }
-                
-                float floatConstant = convertToFloat(operandName2);
-                float floatAttribute = cell1.getFloatValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return floatAttribute == floatConstant;
-                        
-                    case NEQ:
-                        return floatAttribute != floatConstant;
-                        
-                    case LT:
-                        return floatAttribute < floatConstant;
-                        
-                    case LEQ:
-                        return floatAttribute <= floatConstant;
-                        
-                    case GT:
-                        return floatAttribute < floatConstant;
-                        
-                    case GEQ:
-                        return floatAttribute >= floatConstant;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-            case TYPE_DOUBLE:
-                if (!isDouble(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Float literal expected here.");
-                }
-                
-                double doubleConstant = convertToDouble(operandName2);
-                double doubleAttribute = cell1.getDoubleValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return doubleAttribute == doubleConstant;
-                        
-                    case NEQ:
-                        return doubleAttribute != doubleConstant;
-                        
-                    case LT:
-                        return doubleAttribute < doubleConstant;
-                        
-                    case LEQ:
-                        return doubleAttribute <= doubleConstant;
-                        
-                    case GT:
-                        return doubleAttribute < doubleConstant;
-                        
-                    case GEQ:
-                        return doubleAttribute >= doubleConstant;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_BOOLEAN:
-                if (!isBoolean(operandName2)) {
-                    throw new IllegalArgumentException(
-                            "Boolean literal expected here.");
-                }
-                
-                boolean booleanConstant = convertToBoolean(operandName2);
-                boolean booleanAttribute = cell1.getBooleanValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return booleanAttribute == booleanConstant;
-                        
-                    case NEQ:
-                        return booleanAttribute != booleanConstant;
-                        
-                    case LT:
-                    case LEQ:
-                    case GT:
-                    case GEQ:
-                        throw new IllegalArgumentException(
-                                "Operation " + testOperation + " is not " +
-                                        "defined for boolean values.");
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " + 
-                                testOperation);
-                }
-                
-            case TYPE_STRING:
-                String stringAttribute = cell1.getStringValue();
-                
-                switch (testOperation) {
-                    case EQ:
-                        return stringAttribute.equals(operandName2);
-                        
-                    case NEQ:
-                        return stringAttribute.equals(operandName2);
-                        
-                    case LT:
-                        return stringAttribute.compareTo(operandName2) < 0;
-                        
-                    case LEQ:
-                        return stringAttribute.compareTo(operandName2) <= 0;
-                        
-                    case GT:
-                        return stringAttribute.compareTo(operandName2) > 0;
-                        
-                    case GEQ:
-                        return stringAttribute.compareTo(operandName2) >= 0;
-                        
-                    default:
-                        throw new IllegalStateException("Unknown operation: " +
-                                testOperation);
-                }
-                
-            case TYPE_BINARY:
-                throw new IllegalStateException("oh fucke yea!");
-                
-            default:
-                throw new IllegalStateException(
-                        cell1.getTableCellType() + ": unknown cell type.");
+    private static String stripLongSuffix(String str) {
+        if (str.endsWith("l") || str.endsWith("L")) {
+            return str.substring(0, str.length() - 1);
         }
+        
+        return str;
     }
 }
@@ -1,12 +1,40 @@
 package net.coderodde.javadb.cmd;
 
 enum TestOperation {
-    
+
     EQ,
     NEQ,
     LT,
     LEQ,
     GT,
-    GEQ
+    GEQ;
     
+    /**
+     * Returns the operation that holds after swapping the operands, so that
+     * {@code 5 < x} may be evaluated as {@code x > 5}.
+     */
+    TestOperation flip() {
+        switch (this) {
+            case EQ:
+                return EQ;
+                
+            case NEQ:
+                return NEQ;
+                
+            case LT:
+                return GT;
+                
+            case LEQ:
+                return GEQ;
+                
+            case GT:
+                return LT;
+                
+            case GEQ:
+                return LEQ;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
 }
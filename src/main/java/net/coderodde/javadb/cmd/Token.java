@@ -0,0 +1,19 @@
+package net.coderodde.javadb.cmd;
+
+final class Token {
+
+    final TokenType tokenType;
+    final String text;
+    final int position;
+    
+    Token(TokenType tokenType, String text, int position) {
+        this.tokenType = tokenType;
+        this.text = text;
+        this.position = position;
+    }
+    
+    @Override
+    public String toString() {
+        return tokenType == TokenType.END ? "end of input" : "'" + text + "'";
+    }
+}
@@ -0,0 +1,409 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import net.coderodde.javadb.TableCellType;
+
+final class TokenTreeNode {
+
+    enum Mode {
+        AND,
+        OR,
+        TEST,
+        TRUE,
+        FALSE
+    }
+    
+    private static final TokenTreeNode TRUE = 
+            new TokenTreeNode(Mode.TRUE, 
+                              null, 
+                              Collections.<TokenTreeNode>emptyList());
+    
+    private static final TokenTreeNode FALSE = 
+            new TokenTreeNode(Mode.FALSE, 
+                              null, 
+                              Collections.<TokenTreeNode>emptyList());
+    
+    final Mode mode;
+    final Test test;
+    final List<TokenTreeNode> children;
+    
+    private TokenTreeNode(Mode mode, Test test, List<TokenTreeNode> children) {
+        this.mode = mode;
+        this.test = test;
+        this.children = children;
+    }
+    
+    static TokenTreeNode test(Test test) {
+        return new TokenTreeNode(
+                Mode.TEST, 
+                Objects.requireNonNull(test, "The test is null."), 
+                Collections.<TokenTreeNode>emptyList());
+    }
+    
+    static TokenTreeNode constant(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+    
+    static TokenTreeNode and(List<TokenTreeNode> children) {
+        return connective(Mode.AND, children);
+    }
+    
+    static TokenTreeNode or(List<TokenTreeNode> children) {
+        return connective(Mode.OR, children);
+    }
+    
+    private static TokenTreeNode connective(Mode mode, 
+                                            List<TokenTreeNode> children) {
+        if (children.isEmpty()) {
+            throw new IllegalArgumentException("No operands for " + mode + ".");
+        }
+        
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        
+        return new TokenTreeNode(
+                mode, 
+                null, 
+                Collections.unmodifiableList(new ArrayList<>(children)));
+    }
+    
+    /**
+     * Returns a copy of this tree with the {@code ?} placeholders replaced by
+     * the values in {@code parameters}.
+     */
+    TokenTreeNode bind(Object[] parameters) {
+        if (isConstant()) {
+            return this;
+        }
+        
+        if (mode == Mode.TEST) {
+            Test boundTest = test.bind(parameters);
+            return boundTest == test ? this : test(boundTest);
+        }
+        
+        List<TokenTreeNode> boundChildren = new ArrayList<>(children.size());
+        
+        for (TokenTreeNode child : children) {
+            boundChildren.add(child.bind(parameters));
+        }
+        
+        return new TokenTreeNode(mode, 
+                                 null, 
+                                 Collections.unmodifiableList(boundChildren));
+    }
+    
+    /**
+     * Returns an equivalent tree in which the tests comparing no columns are 
+     * evaluated, the operands that cannot affect the outcome are dropped, 
+     * nested nodes of the same connective are flattened and the conjunctions
+     * bounding a column of {@code schema} to an empty range are replaced by 
+     * {@code FALSE}. The result is either a {@code TRUE} or a {@code FALSE} 
+     * node or a tree without constants. The tests with unbound placeholders 
+     * are left as they are.
+     */
+    TokenTreeNode simplify(TableSchema schema) {
+        switch (mode) {
+            case TEST:
+                return test.isConstant() ? constant(test.evaluate()) : this;
+                
+            case TRUE:
+            case FALSE:
+                return this;
+        }
+        
+        // TRUE decides an OR and FALSE an AND; the other one is neutral.
+        Mode decisive = mode == Mode.AND ? Mode.FALSE : Mode.TRUE;
+        List<TokenTreeNode> operands = new ArrayList<>(children.size());
+        
+        for (TokenTreeNode child : children) {
+            TokenTreeNode operand = child.simplify(schema);
+            
+            if (operand.mode == decisive) {
+                return operand;
+            } else if (operand.mode == mode) {
+                operands.addAll(operand.children);
+            } else if (!operand.isConstant()) {
+                operands.add(operand);
+            }
+        }
+        
+        if (operands.isEmpty()) {
+            return constant(mode == Mode.AND);
+        }
+        
+        if (mode == Mode.AND && hasEmptyRange(schema, operands)) {
+            return FALSE;
+        }
+        
+        return connective(mode, operands);
+    }
+    
+    boolean isConstant() {
+        return mode == Mode.TRUE || mode == Mode.FALSE;
+    }
+    
+    /**
+     * Returns {@code true} if the column-vs-literal tests among 
+     * {@code conjuncts} bound some column to an empty range, as in 
+     * {@code x > 5 AND x < 3}.
+     */
+    private static boolean hasEmptyRange(TableSchema schema, 
+                                         List<TokenTreeNode> conjuncts) {
+        List<Test> ranges = new ArrayList<>();
+        
+        for (TokenTreeNode conjunct : conjuncts) {
+            if (conjunct.mode == Mode.TEST 
+                    && conjunct.test.getConstantColumnIndex(schema) >= 0) {
+                ranges.add(conjunct.test);
+            }
+        }
+        
+        Set<Integer> rangeColumns = new HashSet<>();
+        
+        for (Test range : ranges) {
+            int columnIndex = range.getConstantColumnIndex(schema);
+            
+            if (rangeColumns.add(columnIndex)
+                    && KeyRange.of(schema, columnIndex, ranges).isEmpty()) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Adds to {@code tests} the comparisons that every matching row must 
+     * satisfy, that is, the tests reachable from the root through AND nodes 
+     * only.
+     */
+    void collectConjuncts(List<Test> tests) {
+        switch (mode) {
+            case TEST:
+                tests.add(test);
+                break;
+                
+            case AND:
+                for (TokenTreeNode child : children) {
+                    child.collectConjuncts(tests);
+                }
+                
+                break;
+        }
+    }
+    
+    /**
+     * Adds to {@code nodes} the subtrees whose conjunction this tree is, 
+     * descending through the AND nodes from the root.
+     */
+    void collectConjunctNodes(List<TokenTreeNode> nodes) {
+        if (mode == Mode.AND) {
+            for (TokenTreeNode child : children) {
+                child.collectConjunctNodes(nodes);
+            }
+        } else {
+            nodes.add(this);
+        }
+    }
+    
+    /**
+     * Adds to {@code columnNames} the names of the columns referred to in 
+     * this tree.
+     */
+    void collectColumnNames(List<String> columnNames) {
+        if (mode == Mode.TEST) {
+            test.collectColumnNames(columnNames);
+            return;
+        }
+        
+        for (TokenTreeNode child : children) {
+            child.collectColumnNames(columnNames);
+        }
+    }
+    
+    /**
+     * Estimates the fraction of the rows described by {@code schema} that 
+     * satisfy this tree, assuming that the tests are independent except 
+     * for the range conditions over the same column, which are intersected.
+     */
+    double estimateSelectivity(TableSchema schema, 
+                               TableStatistics statistics) {
+        switch (mode) {
+            case TEST:
+                return test.estimateSelectivity(schema, statistics);
+                
+            case TRUE:
+                return 1.0;
+                
+            case FALSE:
+                return 0.0;
+                
+            case AND: {
+                double selectivity = 1.0;
+                List<Test> ranges = new ArrayList<>();
+                
+                for (TokenTreeNode child : children) {
+                    if (child.mode == Mode.TEST 
+                            && child.test.getConstantColumnIndex(schema) >= 0
+                            && child.test.getConstantOperation() 
+                               != TestOperation.NEQ) {
+                        ranges.add(child.test);
+                    } else {
+                        selectivity *= 
+                                child.estimateSelectivity(schema, statistics);
+                    }
+                }
+                
+                Set<Integer> rangeColumns = new HashSet<>();
+                
+                for (Test range : ranges) {
+                    int columnIndex = range.getConstantColumnIndex(schema);
+                    
+                    if (rangeColumns.add(columnIndex)) {
+                        selectivity *= 
+                                KeyRange.of(schema, columnIndex, ranges)
+                                        .estimateSelectivity(
+                                                statistics.getColumnStatistics(
+                                                        columnIndex));
+                    }
+                }
+                
+                return selectivity;
+            }
+                
+            case OR: {
+                double rejected = 1.0;
+                
+                for (TokenTreeNode child : children) {
+                    rejected *= 
+                            1.0 - child.estimateSelectivity(schema, 
+                                                            statistics);
+                }
+                
+                return 1.0 - rejected;
+            }
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    /**
+     * If {@code disjuncts} all compare the same string column of 
+     * {@code schema} for equality with a literal, as {@code IN} does, 
+     * compiles them into a single predicate looking the value of the column
+     * up in the set of the literals. Returns {@code null} otherwise.
+     */
+    private static RowPredicate compileIn(TableSchema schema, 
+                                          List<TokenTreeNode> disjuncts) {
+        int columnIndex = -1;
+        List<String> constants = new ArrayList<>(disjuncts.size());
+        
+        for (TokenTreeNode disjunct : disjuncts) {
+            if (disjunct.mode != Mode.TEST) {
+                return null;
+            }
+            
+            int testColumnIndex = disjunct.test.getConstantColumnIndex(schema);
+            
+            if (testColumnIndex < 0 
+                    || (columnIndex >= 0 && testColumnIndex != columnIndex)
+                    || disjunct.test.getConstantOperation() != TestOperation.EQ
+                    || schema.getTableCellType(testColumnIndex) 
+                       != TableCellType.TYPE_STRING) {
+                return null;
+            }
+            
+            columnIndex = testColumnIndex;
+            constants.add((String) disjunct.test.getConstant(schema));
+        }
+        
+        return RowPredicates.stringIn(columnIndex, constants);
+    }
+    
+    private void collectOperands(Mode connective, 
+                                 List<TokenTreeNode> operands) {
+        for (TokenTreeNode child : children) {
+            if (child.mode == connective) {
+                child.collectOperands(connective, operands);
+            } else {
+                operands.add(child);
+            }
+        }
+    }
+    
+    /**
+     * Compiles this tree into an evaluator for the rows described by 
+     * {@code schema}. Nested nodes of the same connective, as produced by 
+     * parentheses, are flattened into a single n-ary node whose operands are
+     * evaluated in ascending order of {@link RowPredicates#rank}: by their 
+     * cost alone if {@code statistics} is {@code null}, and otherwise by 
+     * their cost per row they decide, so that cheap and selective tests run 
+     * first.
+     */
+    RowPredicate compile(TableSchema schema, TableStatistics statistics) {
+        if (mode == Mode.TEST) {
+            return test.compile(schema);
+        }
+        
+        if (isConstant()) {
+            return RowPredicates.constant(mode == Mode.TRUE);
+        }
+        
+        List<TokenTreeNode> operands = new ArrayList<>();
+        collectOperands(mode, operands);
+        
+        if (mode == Mode.OR) {
+            RowPredicate inPredicate = compileIn(schema, operands);
+            
+            if (inPredicate != null) {
+                return inPredicate;
+            }
+        }
+        
+        List<RowPredicate> predicates = new ArrayList<>(operands.size());
+        final double[] ranks = new double[operands.size()];
+        List<Integer> order = new ArrayList<>(operands.size());
+        
+        for (int i = 0; i < ranks.length; ++i) {
+            TokenTreeNode operand = operands.get(i);
+            RowPredicate predicate = operand.compile(schema, statistics);
+            double passRate = 
+                    statistics == null ?
+                    RowPredicates.UNKNOWN_PASS_RATE :
+                    operand.estimateSelectivity(schema, statistics);
+            
+            predicates.add(predicate);
+            ranks[i] = RowPredicates.rank(predicate.cost(), 
+                                          passRate, 
+                                          mode == Mode.AND);
+            order.add(i);
+        }
+        
+        // The sort is stable, so operands of equal rank keep the order in 
+        // which they were written.
+        order.sort((i, j) -> Double.compare(ranks[i], ranks[j]));
+        List<RowPredicate> sortedPredicates = new ArrayList<>(ranks.length);
+        
+        for (int i : order) {
+            sortedPredicates.add(predicates.get(i));
+        }
+        
+        switch (mode) {
+            case AND:
+                return RowPredicates.and(sortedPredicates);
+                
+            case OR:
+                return RowPredicates.or(sortedPredicates);
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.coderodde.javadb.cmd;
+
+enum TokenType {
+
+    IDENTIFIER,
+    INTEGER,
+    DECIMAL,
+    STRING,
+    
+    // Keywords:
+    SELECT,
+    FROM,
+    WHERE,
+    AND,
+    OR,
+    NOT,
+    IS,
+    NULL,
+    TRUE,
+    FALSE,
+    CREATE,
+    INDEX,
+    ON,
+    ORDERED,
+    BETWEEN,
+    IN,
+    ORDER,
+    BY,
+    ASC,
+    DESC,
+    LIMIT,
+    OFFSET,
+    INSERT,
+    INTO,
+    VALUES,
+    COPY,
+    TO,
+    DELIMITER,
+    HEADER,
+    COLUMNAR,
+    GROUP,
+    JOIN,
+    ANALYZE,
+    
+    // Punctuation and operators:
+    COMMA,
+    DOT,
+    SEMICOLON,
+    ASTERISK,
+    MINUS,
+    QUESTION_MARK,
+    LEFT_PARENTHESIS,
+    RIGHT_PARENTHESIS,
+    EQ,
+    NEQ,
+    LT,
+    LEQ,
+    GT,
+    GEQ,
+    
+    END
+}
@@ -0,0 +1,438 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.javadb.TableCell;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * A batch of up to {@link #SIZE} consecutive rows of a {@link RowStore} 
+ * together with the columns extracted from them into primitive arrays. A 
+ * column is extracted only when a predicate first asks for it, and at most 
+ * once per batch. Each extracted column comes with a bitmap of its non-null
+ * values: bit {@code i % 64} of word {@code i / 64} stands for the i-th row 
+ * of the batch. A batch may also be loaded from a {@link ColumnSource}, 
+ * which decodes the columns directly and builds only the rows asked for. 
+ * The dictionary-encoded columns of a row store are also available as their
+ * codes. A batch is reused for consecutive ranges of rows and is not 
+ * thread-safe.
+ */
+final class VectorBatch {
+
+    static final int SIZE = 4096;
+    static final int WORDS = SIZE / Long.SIZE;
+    
+    private final TableRow[] rows = new TableRow[SIZE];
+    int size;
+    
+    private final TableSchema schema;
+    
+    /**
+     * The source the columns of the batch are decoded from, or {@code null}
+     * if they are extracted from the rows.
+     */
+    private ColumnSource columnSource;
+    
+    /**
+     * The row store the batch was loaded from and the position of its first
+     * row there, or {@code null} if it was loaded from a source of its own.
+     */
+    private RowStore rowStore;
+    private int fromIndex;
+    
+    /**
+     * The extracted columns: {@code int[]}, {@code long[]}, {@code float[]},
+     * {@code double[]}, {@code boolean[]} or {@code Object[]} depending on 
+     * the column type.
+     */
+    private final Object[] columns;
+    private final long[][] nonNullBitmaps;
+    private final boolean[] extracted;
+    private final int[][] codeColumns;
+    private final boolean[] codesExtracted;
+    
+    /**
+     * Bitmaps lent to the composite predicates for intermediate results.
+     */
+    private final List<long[]> freeBitmaps = new ArrayList<>();
+    
+    VectorBatch(TableSchema schema) {
+        this.schema = schema;
+        this.columns = new Object[schema.getNumberOfColumns()];
+        this.nonNullBitmaps = new long[columns.length][];
+        this.extracted = new boolean[columns.length];
+        this.codeColumns = new int[columns.length][];
+        this.codesExtracted = new boolean[columns.length];
+    }
+    
+    /**
+     * Loads the rows at positions {@code fromIndex} (inclusive) through 
+     * {@code toIndex} (exclusive) of {@code rowStore}; at most {@link #SIZE}
+     * rows. The columns are decoded by the column source of the row store 
+     * if it has one.
+     */
+    void load(RowStore rowStore, int fromIndex, int toIndex) {
+        ColumnSource rowStoreColumnSource = 
+                rowStore.getColumnSource(fromIndex, toIndex);
+        
+        if (rowStoreColumnSource != null) {
+            load(rowStoreColumnSource, toIndex - fromIndex);
+        } else {
+            size = toIndex - fromIndex;
+            columnSource = null;
+            
+            for (int i = 0; i < size; ++i) {
+                rows[i] = rowStore.get(fromIndex + i);
+            }
+            
+            Arrays.fill(extracted, false);
+            Arrays.fill(codesExtracted, false);
+        }
+        
+        this.rowStore = rowStore;
+        this.fromIndex = fromIndex;
+    }
+    
+    /**
+     * Loads {@code size} rows, at most {@link #SIZE}, from 
+     * {@code columnSource}.
+     */
+    void load(ColumnSource columnSource, int size) {
+        this.size = size;
+        this.columnSource = columnSource;
+        this.rowStore = null;
+        Arrays.fill(rows, 0, size, null);
+        Arrays.fill(extracted, false);
+        Arrays.fill(codesExtracted, false);
+    }
+    
+    /**
+     * Returns the row at position {@code index} of this batch.
+     */
+    TableRow getRow(int index) {
+        if (rows[index] == null) {
+            rows[index] = columnSource.getRow(index);
+        }
+        
+        return rows[index];
+    }
+    
+    /**
+     * Returns the number of bitmap words covering the rows of this batch.
+     */
+    int getWordCount() {
+        return (size + Long.SIZE - 1) >>> 6;
+    }
+    
+    int[] getIntColumn(int columnIndex) {
+        extract(columnIndex);
+        return (int[]) columns[columnIndex];
+    }
+    
+    long[] getLongColumn(int columnIndex) {
+        extract(columnIndex);
+        return (long[]) columns[columnIndex];
+    }
+    
+    float[] getFloatColumn(int columnIndex) {
+        extract(columnIndex);
+        return (float[]) columns[columnIndex];
+    }
+    
+    double[] getDoubleColumn(int columnIndex) {
+        extract(columnIndex);
+        return (double[]) columns[columnIndex];
+    }
+    
+    boolean[] getBooleanColumn(int columnIndex) {
+        extract(columnIndex);
+        return (boolean[]) columns[columnIndex];
+    }
+    
+    Object[] getObjectColumn(int columnIndex) {
+        extract(columnIndex);
+        return (Object[]) columns[columnIndex];
+    }
+    
+    /**
+     * Returns the dictionary of the column {@code columnIndex} in the row 
+     * store the batch was loaded from, or {@code null} if the column has 
+     * none.
+     */
+    StringDictionary getDictionary(int columnIndex) {
+        return rowStore == null ? null : rowStore.getDictionary(columnIndex);
+    }
+    
+    /**
+     * Returns the codes of the column {@code columnIndex}, which has a 
+     * dictionary; {@code NULL} is {@link StringDictionary#NO_CODE}.
+     */
+    int[] getCodeColumn(int columnIndex) {
+        if (!codesExtracted[columnIndex]) {
+            if (codeColumns[columnIndex] == null) {
+                codeColumns[columnIndex] = new int[SIZE];
+            }
+            
+            rowStore.getCodes(columnIndex, 
+                              fromIndex, 
+                              fromIndex + size, 
+                              codeColumns[columnIndex]);
+            codesExtracted[columnIndex] = true;
+        }
+        
+        return codeColumns[columnIndex];
+    }
+    
+    long[] getNonNullBitmap(int columnIndex) {
+        extract(columnIndex);
+        return nonNullBitmaps[columnIndex];
+    }
+    
+    /**
+     * Returns the value of the column {@code columnIndex} in the row at 
+     * position {@code index}, or {@code null}.
+     */
+    Object getValue(int columnIndex, int index) {
+        extract(columnIndex);
+        
+        if ((nonNullBitmaps[columnIndex][index >>> 6] & 1L << index) == 0L) {
+            return null;
+        }
+        
+        Object values = columns[columnIndex];
+        
+        switch (schema.getTableCellType(columnIndex)) {
+            case TYPE_INT:
+                return ((int[]) values)[index];
+                
+            case TYPE_LONG:
+                return ((long[]) values)[index];
+                
+            case TYPE_FLOAT:
+                return ((float[]) values)[index];
+                
+            case TYPE_DOUBLE:
+                return ((double[]) values)[index];
+                
+            case TYPE_BOOLEAN:
+                return ((boolean[]) values)[index];
+                
+            default:
+                return ((Object[]) values)[index];
+        }
+    }
+    
+    long[] borrowBitmap() {
+        return freeBitmaps.isEmpty() ? 
+               new long[WORDS] : 
+               freeBitmaps.remove(freeBitmaps.size() - 1);
+    }
+    
+    void returnBitmap(long[] bitmap) {
+        freeBitmaps.add(bitmap);
+    }
+    
+    /**
+     * Appends the rows whose bits are set in {@code selection} to 
+     * {@code matches}.
+     */
+    void collect(long[] selection, List<TableRow> matches) {
+        int wordCount = getWordCount();
+        
+        for (int w = 0; w < wordCount; ++w) {
+            long word = selection[w];
+            
+            while (word != 0L) {
+                matches.add(getRow((w << 6) + 
+                                   Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+    }
+    
+    private void extract(int columnIndex) {
+        if (extracted[columnIndex]) {
+            return;
+        }
+        
+        long[] nonNullBitmap = nonNullBitmaps[columnIndex];
+        
+        if (nonNullBitmap == null) {
+            nonNullBitmap = new long[WORDS];
+            nonNullBitmaps[columnIndex] = nonNullBitmap;
+        }
+        
+        Arrays.fill(nonNullBitmap, 0L);
+        
+        if (columnSource != null) {
+            columnSource.decode(columnIndex, 
+                                getValues(columnIndex), 
+                                nonNullBitmap);
+            extracted[columnIndex] = true;
+            return;
+        }
+        
+        switch (schema.getTableCellType(columnIndex)) {
+            case TYPE_INT:
+                extractInts(columnIndex, nonNullBitmap);
+                break;
+                
+            case TYPE_LONG:
+                extractLongs(columnIndex, nonNullBitmap);
+                break;
+                
+            case TYPE_FLOAT:
+                extractFloats(columnIndex, nonNullBitmap);
+                break;
+                
+            case TYPE_DOUBLE:
+                extractDoubles(columnIndex, nonNullBitmap);
+                break;
+                
+            case TYPE_BOOLEAN:
+                extractBooleans(columnIndex, nonNullBitmap);
+                break;
+                
+            default:
+                extractObjects(columnIndex, nonNullBitmap);
+                break;
+        }
+        
+        extracted[columnIndex] = true;
+    }
+    
+    /**
+     * Returns the array of the column {@code columnIndex}, allocating it on
+     * first use.
+     */
+    private Object getValues(int columnIndex) {
+        if (columns[columnIndex] == null) {
+            switch (schema.getTableCellType(columnIndex)) {
+                case TYPE_INT:
+                    columns[columnIndex] = new int[SIZE];
+                    break;
+                    
+                case TYPE_LONG:
+                    columns[columnIndex] = new long[SIZE];
+                    break;
+                    
+                case TYPE_FLOAT:
+                    columns[columnIndex] = new float[SIZE];
+                    break;
+                    
+                case TYPE_DOUBLE:
+                    columns[columnIndex] = new double[SIZE];
+                    break;
+                    
+                case TYPE_BOOLEAN:
+                    columns[columnIndex] = new boolean[SIZE];
+                    break;
+                    
+                default:
+                    columns[columnIndex] = new Object[SIZE];
+                    break;
+            }
+        }
+        
+        return columns[columnIndex];
+    }
+    
+    private void extractInts(int columnIndex, long[] nonNullBitmap) {
+        int[] values = (int[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            TableCell tableCell = rows[i].get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                values[i] = tableCell.getIntValue();
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void extractLongs(int columnIndex, long[] nonNullBitmap) {
+        long[] values = (long[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            TableCell tableCell = rows[i].get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                values[i] = tableCell.getLongValue();
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void extractFloats(int columnIndex, long[] nonNullBitmap) {
+        float[] values = (float[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            TableCell tableCell = rows[i].get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                values[i] = tableCell.getFloatValue();
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void extractDoubles(int columnIndex, long[] nonNullBitmap) {
+        double[] values = (double[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            TableCell tableCell = rows[i].get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                values[i] = tableCell.getDoubleValue();
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void extractBooleans(int columnIndex, long[] nonNullBitmap) {
+        boolean[] values = (boolean[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            TableCell tableCell = rows[i].get(columnIndex);
+            
+            if (tableCell.getValue() != null) {
+                values[i] = tableCell.getBooleanValue();
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void extractObjects(int columnIndex, long[] nonNullBitmap) {
+        Object[] values = (Object[]) getValues(columnIndex);
+        
+        for (int i = 0; i < size; ++i) {
+            Object value = rows[i].get(columnIndex).getValue();
+            values[i] = value;
+            
+            if (value != null) {
+                nonNullBitmap[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    /**
+     * Supplies the columns of a batch that are decoded directly from their
+     * storage rather than extracted from rows.
+     */
+    interface ColumnSource {
+        
+        /**
+         * Decodes the column {@code columnIndex} of the batch into 
+         * {@code values}, an array of the type {@link VectorBatch} keeps 
+         * for the column, and sets the bits of the non-null values in the 
+         * clear {@code nonNullBitmap}.
+         */
+        void decode(int columnIndex, Object values, long[] nonNullBitmap);
+        
+        /**
+         * Builds the row at position {@code index} of the batch.
+         */
+        TableRow getRow(int index);
+    }
+}
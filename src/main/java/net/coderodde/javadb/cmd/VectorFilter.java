@@ -0,0 +1,31 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.List;
+import net.coderodde.javadb.TableRow;
+
+/**
+ * Filters rows with the vectorized engine: the rows of a range are loaded 
+ * into a {@link VectorBatch}, the predicate computes their selection bitmap 
+ * and the selected rows are collected.
+ */
+final class VectorFilter implements BatchFilter {
+
+    private final VectorPredicate vectorPredicate;
+    private final VectorBatch batch;
+    private final long[] selection = new long[VectorBatch.WORDS];
+    
+    VectorFilter(VectorPredicate vectorPredicate, TableSchema schema) {
+        this.vectorPredicate = vectorPredicate;
+        this.batch = new VectorBatch(schema);
+    }
+    
+    @Override
+    public void filter(RowStore rowStore, 
+                       int fromIndex, 
+                       int toIndex, 
+                       List<TableRow> matches) {
+        batch.load(rowStore, fromIndex, toIndex);
+        vectorPredicate.evaluate(batch, selection);
+        batch.collect(selection, matches);
+    }
+}
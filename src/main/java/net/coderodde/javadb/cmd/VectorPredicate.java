@@ -0,0 +1,15 @@
+package net.coderodde.javadb.cmd;
+
+/**
+ * A compiled WHERE predicate evaluated over a whole {@link VectorBatch} at a
+ * time.
+ */
+interface VectorPredicate {
+
+    /**
+     * Sets the bits of {@code selection} of the rows of {@code batch} that 
+     * satisfy this predicate and clears all the other bits within the first
+     * {@link VectorBatch#getWordCount()} words.
+     */
+    void evaluate(VectorBatch batch, long[] selection);
+}
@@ -0,0 +1,748 @@
+package net.coderodde.javadb.cmd;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Factory for the {@link VectorPredicate}s the vectorized engine evaluates.
+ * Each node fills a selection bitmap in a tight loop over the primitive 
+ * column arrays of a {@link VectorBatch}, with the test operation resolved 
+ * outside the loop and the outcome of each comparison shifted into the 
+ * bitmap instead of branched on. Comparisons involving {@code NULL} are 
+ * false, as in {@link RowPredicates}, by masking the result with the 
+ * non-null bitmap of the column. Predicates without a vectorized form are 
+ * evaluated row by row over the rows of the batch. The string equality and
+ * {@code IN} predicates compare the codes of a dictionary-encoded column 
+ * instead of its strings.
+ */
+final class VectorPredicates {
+
+    private static final VectorPredicate TRUE = new ConstantPredicate(true);
+    private static final VectorPredicate FALSE = new ConstantPredicate(false);
+    
+    private VectorPredicates() {}
+    
+    static VectorPredicate constant(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+    
+    static VectorPredicate and(List<VectorPredicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        
+        return new AndPredicate(
+                predicates.toArray(new VectorPredicate[predicates.size()]));
+    }
+    
+    static VectorPredicate or(List<VectorPredicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        
+        return new OrPredicate(
+                predicates.toArray(new VectorPredicate[predicates.size()]));
+    }
+    
+    static VectorPredicate isNull(int columnIndex, boolean negate) {
+        return new IsNullPredicate(columnIndex, negate);
+    }
+    
+    static VectorPredicate intConstant(int columnIndex,
+                                       TestOperation testOperation,
+                                       int constant) {
+        return new IntConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static VectorPredicate longConstant(int columnIndex,
+                                        TestOperation testOperation,
+                                        long constant) {
+        return new LongConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static VectorPredicate floatConstant(int columnIndex,
+                                         TestOperation testOperation,
+                                         float constant) {
+        return new FloatConstantPredicate(columnIndex, testOperation, constant);
+    }
+    
+    static VectorPredicate doubleConstant(int columnIndex,
+                                          TestOperation testOperation,
+                                          double constant) {
+        return new DoubleConstantPredicate(columnIndex, 
+                                           testOperation, 
+                                           constant);
+    }
+    
+    static VectorPredicate booleanConstant(int columnIndex,
+                                           boolean equal,
+                                           boolean constant) {
+        return new BooleanConstantPredicate(columnIndex, equal, constant);
+    }
+    
+    static VectorPredicate stringEquals(int columnIndex,
+                                        boolean equal,
+                                        String constant) {
+        return new StringEqualsPredicate(columnIndex, equal, constant);
+    }
+    
+    static VectorPredicate stringIn(int columnIndex, Set<String> constants) {
+        return new StringInPredicate(columnIndex, constants);
+    }
+    
+    /**
+     * Returns a vector predicate applying {@code rowPredicate} to the rows 
+     * of a batch one at a time.
+     */
+    static VectorPredicate rows(RowPredicate rowPredicate) {
+        return new RowAdapterPredicate(rowPredicate);
+    }
+    
+    private static void clear(long[] selection, int wordCount) {
+        for (int w = 0; w < wordCount; ++w) {
+            selection[w] = 0L;
+        }
+    }
+    
+    private static void and(long[] selection, long[] bitmap, int wordCount) {
+        for (int w = 0; w < wordCount; ++w) {
+            selection[w] &= bitmap[w];
+        }
+    }
+    
+    private static void or(long[] selection, long[] bitmap, int wordCount) {
+        for (int w = 0; w < wordCount; ++w) {
+            selection[w] |= bitmap[w];
+        }
+    }
+    
+    /**
+     * Sets the bits of the first {@code size} rows in {@code selection} and
+     * clears the rest of its last word.
+     */
+    private static void fill(long[] selection, int size) {
+        int fullWords = size >>> 6;
+        
+        for (int w = 0; w < fullWords; ++w) {
+            selection[w] = -1L;
+        }
+        
+        if ((size & 63) != 0) {
+            selection[fullWords] = (1L << size) - 1L;
+        }
+    }
+    
+    private static void compareInts(int[] values,
+                                    int size,
+                                    TestOperation testOperation,
+                                    int constant,
+                                    long[] selection) {
+        switch (testOperation) {
+            case EQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] == constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case NEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] != constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] < constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] <= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] > constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] >= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static void compareLongs(long[] values,
+                                     int size,
+                                     TestOperation testOperation,
+                                     long constant,
+                                     long[] selection) {
+        switch (testOperation) {
+            case EQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] == constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case NEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] != constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] < constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] <= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] > constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] >= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static void compareFloats(float[] values,
+                                      int size,
+                                      TestOperation testOperation,
+                                      float constant,
+                                      long[] selection) {
+        switch (testOperation) {
+            case EQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] == constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case NEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] != constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] < constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] <= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] > constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] >= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static void compareDoubles(double[] values,
+                                       int size,
+                                       TestOperation testOperation,
+                                       double constant,
+                                       long[] selection) {
+        switch (testOperation) {
+            case EQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] == constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case NEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] != constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] < constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case LEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] <= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GT:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] > constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            case GEQ:
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (values[i] >= constant ? 1L : 0L) << i;
+                }
+                
+                break;
+                
+            default:
+                throw new IllegalStateException("This should not be thrown.");
+        }
+    }
+    
+    private static final class ConstantPredicate implements VectorPredicate {
+        
+        private final boolean value;
+        
+        ConstantPredicate(boolean value) {
+            this.value = value;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            if (value) {
+                fill(selection, batch.size);
+            } else {
+                clear(selection, batch.getWordCount());
+            }
+        }
+    }
+    
+    private static final class AndPredicate implements VectorPredicate {
+        
+        private final VectorPredicate[] predicates;
+        
+        AndPredicate(VectorPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            int wordCount = batch.getWordCount();
+            predicates[0].evaluate(batch, selection);
+            long[] bitmap = batch.borrowBitmap();
+            
+            for (int i = 1; i < predicates.length; ++i) {
+                if (isEmpty(selection, wordCount)) {
+                    break;
+                }
+                
+                predicates[i].evaluate(batch, bitmap);
+                and(selection, bitmap, wordCount);
+            }
+            
+            batch.returnBitmap(bitmap);
+        }
+        
+        private static boolean isEmpty(long[] selection, int wordCount) {
+            long union = 0L;
+            
+            for (int w = 0; w < wordCount; ++w) {
+                union |= selection[w];
+            }
+            
+            return union == 0L;
+        }
+    }
+    
+    private static final class OrPredicate implements VectorPredicate {
+        
+        private final VectorPredicate[] predicates;
+        
+        OrPredicate(VectorPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            int wordCount = batch.getWordCount();
+            predicates[0].evaluate(batch, selection);
+            long[] bitmap = batch.borrowBitmap();
+            
+            for (int i = 1; i < predicates.length; ++i) {
+                predicates[i].evaluate(batch, bitmap);
+                or(selection, bitmap, wordCount);
+            }
+            
+            batch.returnBitmap(bitmap);
+        }
+    }
+    
+    private static final class IsNullPredicate implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final boolean negate;
+        
+        IsNullPredicate(int columnIndex, boolean negate) {
+            this.columnIndex = columnIndex;
+            this.negate = negate;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            long[] nonNullBitmap = batch.getNonNullBitmap(columnIndex);
+            int wordCount = batch.getWordCount();
+            
+            if (negate) {
+                System.arraycopy(nonNullBitmap, 0, selection, 0, wordCount);
+                return;
+            }
+            
+            fill(selection, batch.size);
+            
+            for (int w = 0; w < wordCount; ++w) {
+                selection[w] &= ~nonNullBitmap[w];
+            }
+        }
+    }
+    
+    private static final class IntConstantPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final int constant;
+        
+        IntConstantPredicate(int columnIndex,
+                             TestOperation testOperation,
+                             int constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            int[] values = batch.getIntColumn(columnIndex);
+            clear(selection, batch.getWordCount());
+            compareInts(values, 
+                        batch.size, 
+                        testOperation, 
+                        constant, 
+                        selection);
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class LongConstantPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final long constant;
+        
+        LongConstantPredicate(int columnIndex,
+                              TestOperation testOperation,
+                              long constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            long[] values = batch.getLongColumn(columnIndex);
+            clear(selection, batch.getWordCount());
+            compareLongs(values, 
+                         batch.size, 
+                         testOperation, 
+                         constant, 
+                         selection);
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class FloatConstantPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final float constant;
+        
+        FloatConstantPredicate(int columnIndex,
+                               TestOperation testOperation,
+                               float constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            float[] values = batch.getFloatColumn(columnIndex);
+            clear(selection, batch.getWordCount());
+            compareFloats(values, 
+                          batch.size, 
+                          testOperation, 
+                          constant, 
+                          selection);
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class DoubleConstantPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final TestOperation testOperation;
+        private final double constant;
+        
+        DoubleConstantPredicate(int columnIndex,
+                                TestOperation testOperation,
+                                double constant) {
+            this.columnIndex = columnIndex;
+            this.testOperation = testOperation;
+            this.constant = constant;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            double[] values = batch.getDoubleColumn(columnIndex);
+            clear(selection, batch.getWordCount());
+            compareDoubles(values, 
+                           batch.size, 
+                           testOperation, 
+                           constant, 
+                           selection);
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class BooleanConstantPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final boolean equal;
+        private final boolean constant;
+        
+        BooleanConstantPredicate(int columnIndex,
+                                 boolean equal,
+                                 boolean constant) {
+            this.columnIndex = columnIndex;
+            this.equal = equal;
+            this.constant = constant;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            boolean[] values = batch.getBooleanColumn(columnIndex);
+            boolean match = constant == equal;
+            int size = batch.size;
+            clear(selection, batch.getWordCount());
+            
+            for (int i = 0; i < size; ++i) {
+                selection[i >>> 6] |= (values[i] == match ? 1L : 0L) << i;
+            }
+            
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class StringEqualsPredicate 
+            implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final boolean equal;
+        private final String constant;
+        
+        StringEqualsPredicate(int columnIndex,
+                              boolean equal,
+                              String constant) {
+            this.columnIndex = columnIndex;
+            this.equal = equal;
+            this.constant = Objects.requireNonNull(constant);
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            StringDictionary dictionary = batch.getDictionary(columnIndex);
+            int size = batch.size;
+            clear(selection, batch.getWordCount());
+            
+            if (dictionary != null) {
+                int[] codes = batch.getCodeColumn(columnIndex);
+                int code = dictionary.getCode(constant);
+                
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            ((codes[i] == code) == equal 
+                                    & codes[i] != StringDictionary.NO_CODE ?
+                             1L : 0L) << i;
+                }
+                
+                return;
+            }
+            
+            Object[] values = batch.getObjectColumn(columnIndex);
+            
+            for (int i = 0; i < size; ++i) {
+                selection[i >>> 6] |= 
+                        (constant.equals(values[i]) == equal ? 1L : 0L) << i;
+            }
+            
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+    }
+    
+    private static final class StringInPredicate implements VectorPredicate {
+        
+        private final int columnIndex;
+        private final Set<String> constants;
+        
+        StringInPredicate(int columnIndex, Set<String> constants) {
+            this.columnIndex = columnIndex;
+            this.constants = constants;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            StringDictionary dictionary = batch.getDictionary(columnIndex);
+            int size = batch.size;
+            clear(selection, batch.getWordCount());
+            
+            if (dictionary != null) {
+                evaluateCodes(batch.getCodeColumn(columnIndex), 
+                              size,
+                              dictionary.getCodes(constants), 
+                              selection);
+                return;
+            }
+            
+            Object[] values = batch.getObjectColumn(columnIndex);
+            
+            for (int i = 0; i < size; ++i) {
+                selection[i >>> 6] |= 
+                        (constants.contains(values[i]) ? 1L : 0L) << i;
+            }
+            
+            and(selection, 
+                batch.getNonNullBitmap(columnIndex), 
+                batch.getWordCount());
+        }
+        
+        private static void evaluateCodes(int[] codes, 
+                                          int size,
+                                          int[] constantCodes, 
+                                          long[] selection) {
+            for (int constantCode : constantCodes) {
+                for (int i = 0; i < size; ++i) {
+                    selection[i >>> 6] |= 
+                            (codes[i] == constantCode ? 1L : 0L) << i;
+                }
+            }
+        }
+    }
+    
+    private static final class RowAdapterPredicate 
+            implements VectorPredicate {
+        
+        private final RowPredicate rowPredicate;
+        
+        RowAdapterPredicate(RowPredicate rowPredicate) {
+            this.rowPredicate = rowPredicate;
+        }
+        
+        @Override
+        public void evaluate(VectorBatch batch, long[] selection) {
+            int size = batch.size;
+            clear(selection, batch.getWordCount());
+            
+            for (int i = 0; i < size; ++i) {
+                if (rowPredicate.test(batch.getRow(i))) {
+                    selection[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+
+/**
+ * Logs the rows inserted into a database in a side file next to the database
+ * file, named after it with the suffix {@value #SUFFIX}, so that an insert
+ * costs an append to the log instead of a save of the whole database. A
+ * checkpoint saves the database and empties the log; opening the database
+ * replays the log on top of the last checkpoint.
+ * <p>
+ * Each record holds one batch of rows together with the position of its
+ * first row in the table. Since tables only grow, replay skips the rows the
+ * table already has, so a log that outlives its checkpoint, say because of a
+ * crash between saving the database and emptying the log, is harmless. A
+ * record carries a checksum; a torn record at the end of the log is cut off.
+ * <p>
+ * The writers append one at a time. Syncing happens outside the writer lock:
+ * a sync covers every record written before it started, so the inserts
+ * waiting meanwhile share the next one.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    static final String SUFFIX = ".wal";
+    static final long SYNC_INTERVAL_MILLIS = 100L;
+    static final long DEFAULT_CHECKPOINT_THRESHOLD = 64L * 1024 * 1024;
+    
+    private static final int MAGIC = 0x4A44424C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    
+    private static final ScheduledExecutorService SYNCER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-syncer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    
+    private final File file;
+    private final FileChannel channel;
+    private final Object syncLock = new Object();
+    private final ScheduledFuture<?> periodicSync;
+    private volatile SyncPolicy syncPolicy;
+    
+    /**
+     * The number of record bytes ever written, which is also the log
+     * sequence number of the last record written. Unlike the size of the
+     * file, it is not reset by checkpoints.
+     */
+    private volatile long writtenLsn;
+    
+    /**
+     * The log sequence number up to which the log is on disk. Guarded by
+     * {@link #syncLock}.
+     */
+    private long syncedLsn;
+    
+    private WriteAheadLog(File file,
+                          FileChannel channel,
+                          SyncPolicy syncPolicy) {
+        this.file = file;
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.periodicSync = SYNCER.scheduleWithFixedDelay(
+                this::syncPeriodically,
+                SYNC_INTERVAL_MILLIS,
+                SYNC_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+    
+    static File of(File databaseFile) {
+        return new File(databaseFile.getPath() + SUFFIX);
+    }
+    
+    /**
+     * Opens the log of the database file {@code databaseFile}, creating it
+     * if it does not exist.
+     */
+    static WriteAheadLog open(File databaseFile, SyncPolicy syncPolicy) {
+        File file = of(databaseFile);
+        
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ,
+                                                   StandardOpenOption.WRITE);
+            
+            try {
+                if (channel.size() < HEADER_SIZE) {
+                    writeHeader(channel);
+                } else {
+                    checkHeader(file, channel);
+                }
+                
+                channel.position(HEADER_SIZE);
+                return new WriteAheadLog(file, channel, syncPolicy);
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not open the log " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Forces the contents of {@code file}, written by some other means, to
+     * disk.
+     */
+    static void force(File file) {
+        try (FileChannel fileChannel =
+                FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            fileChannel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not sync " + file + ".", ex);
+        }
+    }
+    
+    void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+    
+    /**
+     * Returns the size of the log file in bytes.
+     */
+    long size() {
+        try {
+            return channel.size();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not read the size of " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Reads the records of the log, passing each to {@code catalog}, and
+     * leaves the log positioned after the last intact record. Must be
+     * called before anything is appended.
+     */
+    void replay(Catalog catalog) {
+        try {
+            long position = HEADER_SIZE;
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            
+            while (true) {
+                recordHeader.clear();
+                
+                if (!readFully(recordHeader, position)) {
+                    break;
+                }
+                
+                int length = recordHeader.getInt(0);
+                int checksum = recordHeader.getInt(4);
+                
+                if (length < 0
+                        || length > channel.size() - position
+                                                   - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                
+                if (!readFully(payload, position + RECORD_HEADER_SIZE)
+                        || checksum(payload.array()) != checksum) {
+                    break;
+                }
+                
+                payload.flip();
+                redo(catalog, payload);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            
+            // Cut off a record torn by a crash while it was appended.
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not replay the log " + file + ".", ex);
+        }
+    }
+    
+    /**
+     * Appends the batch of {@code rows} inserted into {@code table} at the
+     * position {@code firstPosition}, and returns the log sequence number to
+     * pass to {@link #sync(long)}. The caller holds the writer lock.
+     */
+    long append(Table table, int firstPosition, List<Object[]> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            RowCodec.writeString(out, table.getTableName());
+            out.writeInt(firstPosition);
+            out.writeInt(rows.size());
+            TableCellType[] tableCellTypes = RowCodec.getTableCellTypes(table);
+            
+            for (Object[] row : rows) {
+                RowCodec.writeRow(out, tableCellTypes, row);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("This should not be thrown.", ex);
+        }
+        
+        byte[] record = bytes.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(0, record.length - RECORD_HEADER_SIZE);
+        buffer.putInt(4, checksum(record,
+                                  RECORD_HEADER_SIZE,
+                                  record.length - RECORD_HEADER_SIZE));
+        
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(
+                    "Could not append to the log " + file + ".", ex);
+        }
+        
+        writtenLsn += record.length;
+        return writtenLsn;
+    }
+    
+    /**
+     * Returns once the record with the log sequence number {@code lsn} is on
+     * disk, if the sync policy asks for it.
+     */
+    void sync(long lsn) {
+        if (syncPolicy == SyncPolicy.EVERY_COMMIT) {
+            force(lsn);
+        }
+    }
+    
+    /**
+     * Empties the log after the database has been saved. The caller holds
+     * the writer lock.
+     */
+    void checkpoint() {
+        synchronized (syncLock) {
+            try {
+                channel.truncate(HEADER_SIZE);
+                channel.position(HEADER_SIZE);
+                channel.force(false);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(
+                        "Could not empty the log " + file + ".", ex);
+            }
+            
+            syncedLsn = writtenLsn;
+        }
+    }
+    
+    /**
+     * Syncs and closes the log. The caller holds the writer lock.
+     */
+    @Override
+    public void close() {
+        periodicSync.cancel(false);
+        
+        synchronized (syncLock) {
+            try {
+                force(writtenLsn);
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(
+                            "Could not close the log " + file + ".", ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Syncs the log up to at least {@code lsn}. Whoever syncs takes all the
+     * records written so far along.
+     */
+    private void force(long lsn) {
+        synchronized (syncLock) {
+            if (syncedLsn >= lsn || !channel.isOpen()) {
+                return;
+            }
+            
+            long lsnToSync = writtenLsn;
+            
+            try {
+                channel.force(false);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(
+                        "Could not sync the log " + file + ".", ex);
+            }
+            
+            syncedLsn = lsnToSync;
+        }
+    }
+    
+    private void syncPeriodically() {
+        if (syncPolicy == SyncPolicy.PERIODIC) {
+            try {
+                force(writtenLsn);
+            } catch (UncheckedIOException ex) {
+                // Nobody to report to; the next round tries again.
+            }
+        }
+    }
+    
+    private boolean readFully(ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            
+            if (read < 0) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static void redo(Catalog catalog, ByteBuffer payload) {
+        Table table = catalog.getTable(RowCodec.readString(payload));
+        TableCellType[] tableCellTypes = RowCodec.getTableCellTypes(table);
+        int firstPosition = payload.getInt();
+        int rowCount = payload.getInt();
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        
+        for (int i = 0; i < rowCount; ++i) {
+            rows.add(RowCodec.readRow(payload, tableCellTypes));
+        }
+        
+        catalog.redo(table, firstPosition, rows);
+    }
+    
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        
+        channel.force(false);
+    }
+    
+    private static void checkHeader(File file, FileChannel channel)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        
+        while (header.hasRemaining()) {
+            channel.read(header, header.position());
+        }
+        
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(
+                    file + ": not a write-ahead log of this version.");
+        }
+    }
+    
+    private static int checksum(byte[] bytes) {
+        return checksum(bytes, 0, bytes.length);
+    }
+    
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return (int) crc32.getValue();
+    }
+}
@@ -0,0 +1,119 @@
+package net.coderodde.javadb.cmd;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import net.coderodde.javadb.Database;
+import net.coderodde.javadb.Table;
+import net.coderodde.javadb.TableCellType;
+import net.coderodde.javadb.TableColumnDescriptor;
+import net.coderodde.javadb.TableRow;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Archives a table with {@code COPY ... COLUMNAR}, attaches the archive and
+ * reads it back. The columns are those whose blocks pack their values in
+ * zero bits: sorted ids, whose differences are all equal, constant
+ * integers and a string column with a single value per block. The last
+ * block has a single row.
+ */
+public class ColumnarFileTest {
+
+    private static final int ROW_COUNT = 2 * ColumnarFile.BLOCK_SIZE + 1;
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private CommandLayer archiveLayer;
+    
+    @Before
+    public void before() throws Exception {
+        Database db = new Database("db");
+        Table table = db.createTable(
+                "t",
+                new TableColumnDescriptor("id", TableCellType.TYPE_INT),
+                new TableColumnDescriptor("c", TableCellType.TYPE_INT),
+                new TableColumnDescriptor("l", TableCellType.TYPE_LONG),
+                new TableColumnDescriptor("s", TableCellType.TYPE_STRING));
+        
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            table.putTableRow(i, 7, -5L, "v" + i / ColumnarFile.BLOCK_SIZE);
+        }
+        
+        File dbFile = temporaryFolder.newFile("db.jdb");
+        File archiveFile = new File(temporaryFolder.getRoot(), "t.col");
+        db.save(dbFile);
+        
+        CommandLayer commandLayer = new CommandLayer();
+        commandLayer.openDatabase(dbFile);
+        assertEquals(ROW_COUNT,
+                     commandLayer.copy("COPY t TO '" + archiveFile +
+                                       "' COLUMNAR"));
+        
+        archiveLayer = new CommandLayer();
+        archiveLayer.emptyDatabase("archive");
+        archiveLayer.attachArchive(archiveFile);
+    }
+    
+    @Test
+    public void testSelectAll() {
+        for (ExecutionEngine executionEngine : ExecutionEngine.values()) {
+            List<TableRow> rows = query("SELECT * FROM t", executionEngine);
+            assertEquals(ROW_COUNT, rows.size());
+            
+            for (int i = 0; i < ROW_COUNT; ++i) {
+                TableRow tableRow = rows.get(i);
+                assertEquals(i, tableRow.get(0).getValue());
+                assertEquals(7, tableRow.get(1).getValue());
+                assertEquals(-5L, tableRow.get(2).getValue());
+                assertEquals("v" + i / ColumnarFile.BLOCK_SIZE,
+                             tableRow.get(3).getValue());
+            }
+        }
+    }
+    
+    @Test
+    public void testSelectRange() {
+        for (ExecutionEngine executionEngine : ExecutionEngine.values()) {
+            List<TableRow> rows =
+                    query("SELECT * FROM t WHERE id >= 1000 AND id < 1010",
+                          executionEngine);
+            assertEquals(10, rows.size());
+            
+            for (int i = 0; i < rows.size(); ++i) {
+                assertEquals(1000 + i, rows.get(i).get(0).getValue());
+            }
+        }
+    }
+    
+    @Test
+    public void testSelectConstants() {
+        for (ExecutionEngine executionEngine : ExecutionEngine.values()) {
+            assertEquals(ROW_COUNT,
+                         query("SELECT * FROM t WHERE c = 7 AND l = -5",
+                               executionEngine).size());
+            assertEquals(ColumnarFile.BLOCK_SIZE,
+                         query("SELECT * FROM t WHERE s = 'v1'",
+                               executionEngine).size());
+            assertEquals(1,
+                         query("SELECT * FROM t WHERE s = 'v2'",
+                               executionEngine).size());
+        }
+    }
+    
+    private List<TableRow> query(String cmd,
+                                 ExecutionEngine executionEngine) {
+        List<TableRow> rows = new ArrayList<>();
+        
+        try (QueryCursor queryCursor =
+                archiveLayer.query(cmd, executionEngine)) {
+            queryCursor.forEachRemaining(rows::add);
+        }
+        
+        return rows;
+    }
+}